@@ -0,0 +1,166 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Discrete weighted sampler with replacement, based on Vose alias-method algorithm.
+ * <p>
+ * The alias table is built once from a vector of non negative weights, which are
+ * not required to sum up to one and are not modified. After that each draw
+ * takes constant time, so the same sampler can be used to draw many samples.
+ * <p>
+ * Values are drawn by default from {@link RandomSource}; a given random number
+ * generator can be used instead, which makes the sampler usable from multiple
+ * threads when each thread uses its own generator.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public final class AliasSampler implements Serializable {
+
+    private static final long serialVersionUID = 2398134736214358817L;
+
+    /**
+     * Builds an alias sampler for the given weights.
+     *
+     * @param weights non negative sampling weights, with a strict positive sum
+     * @return new alias sampler
+     */
+    public static AliasSampler from(double... weights) {
+        return new AliasSampler(weights);
+    }
+
+    private final double[] prob;
+    private final int[] alias;
+
+    private AliasSampler(double[] weights) {
+        if (weights == null || weights.length == 0) {
+            throw new IllegalArgumentException("sampling weights must be a non empty array");
+        }
+        double total = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("sampling weights must be finite non negative values");
+            }
+            total += w;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("sum of sampling weights must be strict positive");
+        }
+
+        int n = weights.length;
+        prob = new double[n];
+        alias = new int[n];
+        for (int i = 0; i < n; i++) {
+            prob[i] = (total != 1.0) ? weights[i] / total : weights[i];
+            prob[i] *= n;
+        }
+
+        // double ended stack, small values at the beginning, large values at the end
+
+        int[] dq = new int[n];
+        int smallPos = -1;
+        int largePos = n;
+        for (int i = 0; i < n; i++) {
+            if (prob[i] >= 1.0) {
+                dq[--largePos] = i;
+            } else {
+                dq[++smallPos] = i;
+            }
+        }
+        while (smallPos >= 0 && largePos < n) {
+            int small = dq[smallPos--];
+            int large = dq[largePos++];
+
+            alias[small] = large;
+            prob[large] = prob[large] + prob[small] - 1.0;
+
+            if (prob[large] >= 1.0) {
+                dq[--largePos] = large;
+            } else {
+                dq[++smallPos] = large;
+            }
+        }
+
+        // what remains has probability one, up to rounding errors
+
+        while (smallPos >= 0) {
+            prob[dq[smallPos--]] = 1.0;
+        }
+        while (largePos < n) {
+            prob[dq[largePos++]] = 1.0;
+        }
+    }
+
+    /**
+     * @return number of values which can be sampled
+     */
+    public int size() {
+        return prob.length;
+    }
+
+    /**
+     * @return next sampled index drawn using {@link RandomSource}
+     */
+    public int next() {
+        return next(RandomSource.getRandom());
+    }
+
+    /**
+     * @param rng random number generator
+     * @return next sampled index
+     */
+    public int next(Random rng) {
+        int column = rng.nextInt(prob.length);
+        return rng.nextDouble() < prob[column] ? column : alias[column];
+    }
+
+    /**
+     * Draws a sample with replacement using {@link RandomSource}.
+     *
+     * @param sampleSize sample size
+     * @return sampled indexes
+     */
+    public int[] sample(int sampleSize) {
+        return sample(sampleSize, RandomSource.getRandom());
+    }
+
+    /**
+     * Draws a sample with replacement.
+     *
+     * @param sampleSize sample size
+     * @param rng        random number generator
+     * @return sampled indexes
+     */
+    public int[] sample(int sampleSize, Random rng) {
+        int[] sample = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = next(rng);
+        }
+        return sample;
+    }
+}
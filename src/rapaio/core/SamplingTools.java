@@ -27,16 +27,16 @@ package rapaio.core;
 import rapaio.data.Frame;
 import rapaio.data.MappedFrame;
 import rapaio.data.Mapping;
+import rapaio.data.Var;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static rapaio.core.RandomSource.nextDouble;
-
 /**
  * User: Aurelian Tutuianu <padreati@yahoo.com>
  */
@@ -47,9 +47,16 @@ public final class SamplingTools {
      * Nothing special, just using the uniform discrete sampler offered by the system.
      */
     public static int[] sampleWR(final int populationSize, int sampleSize) {
+        return sampleWR(populationSize, sampleSize, RandomSource.getRandom());
+    }
+
+    /**
+     * Discrete sampling with repetition, using the given random number generator.
+     */
+    public static int[] sampleWR(final int populationSize, int sampleSize, Random rng) {
         int[] sample = new int[sampleSize];
         for (int i = 0; i < sampleSize; i++) {
-            sample[i] = RandomSource.nextInt(populationSize);
+            sample[i] = rng.nextInt(populationSize);
         }
         return sample;
     }
@@ -86,6 +93,19 @@ public final class SamplingTools {
      * @return sampling indexes
      */
     public static int[] sampleWOR(final int populationSize, final int sampleSize) {
+        return sampleWOR(populationSize, sampleSize, RandomSource.getRandom());
+    }
+
+    /**
+     * Draws an uniform discrete sample without replacement, using the
+     * given random number generator.
+     *
+     * @param populationSize population size
+     * @param sampleSize     sample size
+     * @param rng            random number generator
+     * @return sampling indexes
+     */
+    public static int[] sampleWOR(final int populationSize, final int sampleSize, Random rng) {
         if (sampleSize > populationSize) {
             throw new IllegalArgumentException("Can't draw a sample without replacement bigger than population size.");
         }
@@ -94,14 +114,14 @@ public final class SamplingTools {
             sample[i] = i;
         }
         for (int i = sampleSize; i > 1; i--) {
-            int j = RandomSource.nextInt(i);
+            int j = rng.nextInt(i);
             int tmp = sample[i - 1];
             sample[i - 1] = sample[j];
             sample[j] = tmp;
         }
 
         for (int i = sampleSize; i < populationSize; i++) {
-            int j = RandomSource.nextInt(i + 1);
+            int j = rng.nextInt(i + 1);
             if (j < sampleSize) {
                 sample[j] = i;
             }
@@ -113,30 +133,29 @@ public final class SamplingTools {
      * Generate discrete weighted random samples with replacement (same values might occur)
      * with building aliases according to the new probabilities.
      * <p>
-     * Implementation based on Vose alias-method algorithm
+     * Implementation based on Vose alias-method algorithm. The given frequencies are not modified.
+     * When many samples are drawn from the same frequencies, an {@link AliasSampler}
+     * should be built once and used instead.
      *
      * @param sampleSize sample size
      * @param freq       sampling probabilities
      * @return sampling indexes
      */
     public static int[] sampleWeightedWR(final int sampleSize, final double[] freq) {
+        return sampleWeightedWR(sampleSize, freq, RandomSource.getRandom());
+    }
 
-        normalize(freq);
-
-        double[] prob = Arrays.copyOf(freq, freq.length);
-        for (int i = 0; i < prob.length; i++) {
-            prob[i] *= prob.length;
-        }
-        int[] alias = new int[freq.length];
-
-        makeAliasWR(freq, prob, alias);
-
-        int[] sample = new int[sampleSize];
-        for (int i = 0; i < sampleSize; i++) {
-            int column = RandomSource.nextInt(prob.length);
-            sample[i] = RandomSource.nextDouble() < prob[column] ? column : alias[column];
-        }
-        return sample;
+    /**
+     * Generate discrete weighted random samples with replacement using the given
+     * random number generator.
+     *
+     * @param sampleSize sample size
+     * @param freq       sampling probabilities
+     * @param rng        random number generator
+     * @return sampling indexes
+     */
+    public static int[] sampleWeightedWR(final int sampleSize, final double[] freq, Random rng) {
+        return AliasSampler.from(freq).sample(sampleSize, rng);
     }
 
     /**
@@ -144,7 +163,8 @@ public final class SamplingTools {
      * without replacement.
      * <p>
      * Weighted random sampling without replacement.
-     * Implements Efraimidis-Spirakis method.
+     * Implements Efraimidis-Spirakis method, see {@link WeightedReservoir}.
+     * The given frequencies are not modified.
      *
      * @param sampleSize number of samples
      * @param freq       var of probabilities
@@ -152,106 +172,26 @@ public final class SamplingTools {
      * @see "http://link.springer.com/content/pdf/10.1007/978-0-387-30162-4_478.pdf"
      */
     public static int[] sampleWeightedWOR(final int sampleSize, final double[] freq) {
-        // validation
-        if (sampleSize > freq.length) {
-            throw new IllegalArgumentException("required sample size is bigger than population size");
-        }
-
-        normalize(freq);
-
-        int[] result = new int[sampleSize];
-
-        if (sampleSize == freq.length) {
-            for (int i = 0; i < freq.length; i++) {
-                result[i] = i;
-            }
-            return result;
-        }
-
-        int len = 1;
-        while (len <= sampleSize) {
-            len *= 2;
-        }
-        len = len * 2;
-
-        int[] heap = new int[len];
-        double[] k = new double[sampleSize];
-
-        // fill with invalid ids
-        for (int i = 0; i < len; i++) {
-            heap[i] = -1;
-        }
-        // fill heap base
-        for (int i = 0; i < sampleSize; i++) {
-            heap[i + len / 2] = i;
-            k[i] = Math.pow(nextDouble(), 1. / freq[i]);
-            result[i] = i;
-        }
-
-        // learn heap
-        for (int i = len / 2 - 1; i > 0; i--) {
-            if (heap[i * 2] == -1) {
-                heap[i] = -1;
-                continue;
-            }
-            if (heap[i * 2 + 1] == -1) {
-                heap[i] = heap[i * 2];
-                continue;
-            }
-            if (k[heap[i * 2]] < k[heap[i * 2 + 1]]) {
-                heap[i] = heap[i * 2];
-            } else {
-                heap[i] = heap[i * 2 + 1];
-            }
-        }
-
-        // exhaust the source
-        int pos = sampleSize;
-        while (pos < freq.length) {
-            double r = nextDouble();
-            double xw = Math.log(r) / Math.log(k[heap[1]]);
-
-            double acc = 0;
-            while (pos < freq.length) {
-                if (acc + freq[pos] < xw) {
-                    acc += freq[pos];
-                    pos++;
-                    continue;
-                }
-                break;
-            }
-            if (pos == freq.length) break;
-
-            // min replaced with the new selected value
-            double tw = Math.pow(k[heap[1]], freq[pos]);
-            double r2 = nextDouble() * (1. - tw) + tw;
-            double ki = Math.pow(r2, 1 / freq[pos]);
-
-            k[heap[1]] = ki;
-            result[heap[1]] = pos++;
-            int start = heap[1] + len / 2;
-            while (start > 1) {
-                start /= 2;
-                if (heap[start * 2 + 1] == -1) {
-                    heap[start] = heap[start * 2];
-                    continue;
-                }
-                if (k[heap[start * 2]] < k[heap[start * 2 + 1]]) {
-                    heap[start] = heap[start * 2];
-                } else {
-                    heap[start] = heap[start * 2 + 1];
-                }
-            }
-        }
-        return result;
+        return sampleWeightedWOR(sampleSize, freq, RandomSource.getRandom());
     }
 
-    private static void normalize(double[] freq) {
-
+    /**
+     * Draw m <= n weighted random samples without replacement using the
+     * given random number generator.
+     *
+     * @param sampleSize number of samples
+     * @param freq       var of probabilities
+     * @param rng        random number generator
+     * @return sampling indexes
+     */
+    public static int[] sampleWeightedWOR(final int sampleSize, final double[] freq, Random rng) {
+        // validation
         if (freq == null) {
             throw new IllegalArgumentException("sampling probability array cannot be null");
         }
-
+        if (sampleSize > freq.length) {
+            throw new IllegalArgumentException("required sample size is bigger than population size");
+        }
         double total = 0;
         for (double p : freq) {
             if (p < 0) {
@@ -262,59 +202,17 @@ public final class SamplingTools {
         if (total <= 0) {
             throw new IllegalArgumentException("sum of frequencies must be strict positive");
         }
-        if (total != 1.0) {
-            for (int i = 0; i < freq.length; i++) {
-                freq[i] /= total;
-            }
-        }
-    }
 
-    /**
-     * Builds discrete random sampler without replacement
-     */
-    private static void makeAliasWR(double[] p, double[] prob, int[] alias) {
-        if (p.length == 0)
-            throw new IllegalArgumentException("Probability var must be nonempty.");
-
-
-        int[] dq = new int[p.length];
-        int smallPos = -1;
-        int largePos = prob.length;
-
-        for (int i = 0; i < prob.length; ++i) {
-            if (prob[i] >= 1.) {
-                dq[largePos - 1] = i;
-                largePos--;
-            } else {
-                dq[smallPos + 1] = i;
-                smallPos++;
-            }
-        }
-
-        while (smallPos >= 0 && largePos <= p.length - 1) {
-            int small = dq[smallPos--];
-            int large = dq[largePos++];
-
-            alias[small] = large;
-            prob[large] = prob[large] + prob[small] - 1.;
-
-            if (prob[large] >= 1.0) {
-                dq[largePos - 1] = large;
-                largePos--;
-            } else {
-                dq[smallPos + 1] = large;
-                smallPos++;
+        if (sampleSize == freq.length) {
+            int[] result = new int[sampleSize];
+            for (int i = 0; i < freq.length; i++) {
+                result[i] = i;
             }
+            return result;
         }
-
-        while (smallPos > 0) {
-            prob[dq[smallPos - 1]] = 1.0;
-            smallPos--;
-        }
-        while (largePos < dq.length) {
-            prob[dq[largePos]] = 1.0;
-            largePos++;
-        }
+        WeightedReservoir reservoir = WeightedReservoir.newInstance(sampleSize, rng);
+        reservoir.update(freq);
+        return reservoir.sample();
     }
 
     public static List<Frame> randomSampleSlices(Frame frame, double... freq) {
@@ -342,29 +240,153 @@ public final class SamplingTools {
         return result;
     }
 
+    /**
+     * Maps the given frame on a random subset of its variables, sampled without
+     * replacement. The target variable is always kept as the last variable and
+     * the sampled variables keep their original order.
+     *
+     * @param df       source frame
+     * @param target   name of the variable which is always kept
+     * @param fraction fraction of the other variables which are sampled, at least one is kept
+     * @param rng      random number generator
+     * @return frame mapped on the sampled variables and target
+     */
+    public static Frame randomSampleVars(Frame df, String target, double fraction, Random rng) {
+        if (fraction >= 1) {
+            return df;
+        }
+        String[] names = df.removeVars(target).getVarNames();
+        int[] selection = sampleWOR(names.length, Math.max(1, (int) Math.ceil(fraction * names.length)), rng);
+        Arrays.sort(selection);
+        List<String> varNames = new ArrayList<>();
+        for (int index : selection) {
+            varNames.add(names[index]);
+        }
+        varNames.add(target);
+        return df.mapVars(varNames);
+    }
+
     public static List<Frame> randomSampleStratifiedSplit(Frame df, String strataName, double p) {
         if (p <= 0 || p >= 1) {
             throw new IllegalArgumentException("Percentage must be in interval (0, 1)");
         }
-        List<List<Integer>> maps = new ArrayList<>();
-        for (int i = 0; i < df.getVar(strataName).getLevels().length; i++) {
-            maps.add(new ArrayList<>());
+        List<Mapping> maps = stratifiedSample(df, strataName, RandomSource.getRandom(), true, p);
+        List<Frame> list = new ArrayList<>();
+        list.add(df.mapRows(maps.get(0)));
+        list.add(df.mapRows(maps.get(1)));
+        return list;
+    }
+
+    /**
+     * Splits the rows of a frame into stratified random slices, the proportion of each
+     * slice being the same inside each stratum. If the proportions do not sum up to one,
+     * the remaining rows are returned in a last mapping, if there are any.
+     * <p>
+     * Strata are processed in parallel; the result depends only on the state of {@link RandomSource}.
+     *
+     * @param df         source frame
+     * @param strataName name of the nominal variable which defines strata
+     * @param freq       proportions of the slices
+     * @return list of row mappings, one for each slice
+     */
+    public static List<Mapping> stratifiedSampleSlices(Frame df, String strataName, double... freq) {
+        return stratifiedSample(df, strataName, RandomSource.getRandom(), false, freq);
+    }
+
+    /**
+     * Splits the rows of a frame into stratified random slices using the given
+     * random number generator, see {@link #stratifiedSampleSlices(Frame, String, double...)}.
+     *
+     * @param df         source frame
+     * @param strataName name of the nominal variable which defines strata
+     * @param rng        random number generator
+     * @param freq       proportions of the slices
+     * @return list of row mappings, one for each slice
+     */
+    public static List<Mapping> stratifiedSampleSlices(Frame df, String strataName, Random rng, double... freq) {
+        return stratifiedSample(df, strataName, rng, false, freq);
+    }
+
+    private static List<Mapping> stratifiedSample(Frame df, String strataName, Random rng, boolean keepEmpty, double... freq) {
+        double sum = 0;
+        for (double f : freq) {
+            if (!(f >= 0)) {
+                throw new IllegalArgumentException("proportions must be non negative");
+            }
+            sum += f;
+        }
+        if (sum > 1 + 1e-12) {
+            throw new IllegalArgumentException("sum of proportions must not be greater than 1");
+        }
+
+        // group rows by stratum, counting first to allocate exact arrays
+
+        Var strata = df.getVar(strataName);
+        int levels = strata.getLevels().length;
+        int[] counts = new int[levels];
+        for (int i = 0; i < strata.getRowCount(); i++) {
+            counts[strata.getIndex(i)]++;
+        }
+        int[][] rows = new int[levels][];
+        for (int i = 0; i < levels; i++) {
+            rows[i] = new int[counts[i]];
         }
-        df.getVar(strataName).stream().forEach(s -> maps.get(s.getIndex()).add(s.getRow()));
-        List<Integer> left = new ArrayList<>();
-        List<Integer> right = new ArrayList<>();
-        for (List<Integer> map : maps) {
-            Collections.shuffle(map, RandomSource.getRandom());
-            left.addAll(map.subList(0, (int) (p * map.size())));
-            right.addAll(map.subList((int) (p * map.size()), map.size()));
+        int[] fill = new int[levels];
+        for (int i = 0; i < strata.getRowCount(); i++) {
+            int index = strata.getIndex(i);
+            rows[index][fill[index]++] = i;
         }
-        Collections.shuffle(left, RandomSource.getRandom());
-        Collections.shuffle(right, RandomSource.getRandom());
 
-        List<Frame> list = new ArrayList<>();
-        list.add(df.mapRows(Mapping.wrap(left)));
-        list.add(df.mapRows(Mapping.wrap(right)));
-        return list;
+        // seeds are drawn in order, which keeps results reproducible with parallel shuffles
+
+        long[] seeds = new long[levels + freq.length + 1];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = rng.nextLong();
+        }
+        IntStream.range(0, levels).parallel().forEach(i -> shuffle(rows[i], new Random(seeds[i])));
+
+        int[][] slices = new int[freq.length + 1][];
+        int[][] bounds = new int[levels][freq.length + 2];
+        for (int i = 0; i < levels; i++) {
+            for (int j = 0; j < freq.length; j++) {
+                bounds[i][j + 1] = bounds[i][j] + (int) (freq[j] * rows[i].length);
+            }
+            bounds[i][freq.length + 1] = rows[i].length;
+        }
+        IntStream.range(0, slices.length).parallel().forEach(j -> {
+            int len = 0;
+            for (int i = 0; i < levels; i++) {
+                len += bounds[i][j + 1] - bounds[i][j];
+            }
+            int[] slice = new int[len];
+            int pos = 0;
+            for (int i = 0; i < levels; i++) {
+                int start = bounds[i][j];
+                int end = bounds[i][j + 1];
+                System.arraycopy(rows[i], start, slice, pos, end - start);
+                pos += end - start;
+            }
+            shuffle(slice, new Random(seeds[levels + j]));
+            slices[j] = slice;
+        });
+
+        List<Mapping> result = new ArrayList<>();
+        for (int j = 0; j < freq.length; j++) {
+            result.add(Mapping.wrap(slices[j]));
+        }
+        if (keepEmpty || slices[freq.length].length > 0) {
+            result.add(Mapping.wrap(slices[freq.length]));
+        }
+        return result;
+    }
+
+    private static void shuffle(int[] values, Random rng) {
+        for (int i = values.length; i > 1; i--) {
+            int j = rng.nextInt(i);
+            int tmp = values[i - 1];
+            values[i - 1] = values[j];
+            values[j] = tmp;
+        }
     }
 
     public static Frame randomBootstrap(Frame frame) {
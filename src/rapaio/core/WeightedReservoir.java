@@ -0,0 +1,190 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Weighted random sampling without replacement from a stream of weights.
+ * <p>
+ * Implements Efraimidis-Spirakis method with exponential jumps. Each incoming
+ * value receives an index given by its position in the stream. The reservoir keeps
+ * the indexes with the largest keys in a binary heap, and instead of drawing a key
+ * for each value, it draws the amount of weight which can be skipped before the
+ * next replacement. Keys are kept in logarithmic scale to avoid underflow for
+ * small weights.
+ * <p>
+ * Weights do not have to be normalized and the stream length does not have to be
+ * known in advance.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ * @see "http://link.springer.com/content/pdf/10.1007/978-0-387-30162-4_478.pdf"
+ */
+public final class WeightedReservoir {
+
+    /**
+     * Builds a weighted reservoir which uses {@link RandomSource}.
+     *
+     * @param sampleSize size of the sample
+     * @return new weighted reservoir
+     */
+    public static WeightedReservoir newInstance(int sampleSize) {
+        return new WeightedReservoir(sampleSize, RandomSource.getRandom());
+    }
+
+    /**
+     * Builds a weighted reservoir which uses the given random number generator.
+     *
+     * @param sampleSize size of the sample
+     * @param rng        random number generator
+     * @return new weighted reservoir
+     */
+    public static WeightedReservoir newInstance(int sampleSize, Random rng) {
+        return new WeightedReservoir(sampleSize, rng);
+    }
+
+    private final Random rng;
+    private final int[] heap;
+    private final double[] keys;
+    private int size = 0;
+    private int count = 0;
+    private double skip = Double.NaN;
+
+    private WeightedReservoir(int sampleSize, Random rng) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("sample size must be non negative");
+        }
+        this.rng = rng;
+        this.heap = new int[sampleSize];
+        this.keys = new double[sampleSize];
+    }
+
+    /**
+     * @return number of values seen in the stream
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Adds the next value from stream, identified by its position.
+     *
+     * @param weight non negative sampling weight
+     */
+    public void update(double weight) {
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("sampling weights must be finite non negative values");
+        }
+        int index = count++;
+        if (heap.length == 0) {
+            return;
+        }
+        if (size < heap.length) {
+            heap[size] = index;
+            keys[size] = Math.log(rng.nextDouble()) / weight;
+            siftUp(size++);
+            return;
+        }
+        if (weight == 0) {
+            return;
+        }
+        if (Double.isNaN(skip)) {
+            skip = Math.log(rng.nextDouble()) / keys[0];
+        }
+        skip -= weight;
+        if (skip > 0) {
+            return;
+        }
+
+        // the minimum is replaced with a key drawn conditioned to be larger than the minimum
+
+        double tw = Math.exp(weight * keys[0]);
+        double r = tw + rng.nextDouble() * (1 - tw);
+        heap[0] = index;
+        keys[0] = Math.log(r) / weight;
+        siftDown(0);
+        skip = Double.NaN;
+    }
+
+    /**
+     * Adds all the values from the given array to the stream.
+     *
+     * @param weights non negative sampling weights
+     */
+    public void update(double[] weights) {
+        for (double weight : weights) {
+            update(weight);
+        }
+    }
+
+    /**
+     * @return sampled indexes, in increasing order
+     */
+    public int[] sample() {
+        int[] sample = Arrays.copyOf(heap, size);
+        Arrays.sort(sample);
+        return sample;
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) / 2;
+            if (keys[parent] <= keys[pos]) {
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int min = pos;
+            int left = 2 * pos + 1;
+            int right = left + 1;
+            if (left < size && keys[left] < keys[min]) {
+                min = left;
+            }
+            if (right < size && keys[right] < keys[min]) {
+                min = right;
+            }
+            if (min == pos) {
+                return;
+            }
+            swap(pos, min);
+            pos = min;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int h = heap[i];
+        heap[i] = heap[j];
+        heap[j] = h;
+        double k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.correlation;
+
+import rapaio.core.stat.Mean;
+import rapaio.core.stat.Variance;
+import rapaio.data.NumericVar;
+
+import java.util.stream.IntStream;
+
+/**
+ * Blocked computation of a Pearson correlation matrix for many complete columns.
+ * <p>
+ * Each column is centered once into a packed column-major buffer. The cross products
+ * are computed on tiles of columns, the tiles being processed in parallel, and each
+ * tile walks the rows in blocks which fit in cache. The rows of a pair of columns are
+ * accumulated in order, thus the results are identical with the pairwise computation.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+final class CorrMatrix {
+
+    static final int BLOCK_COLS = 32;
+    static final int BLOCK_ROWS = 2048;
+
+    private CorrMatrix() {
+    }
+
+    /**
+     * Computes the correlation matrix of complete columns of equal length.
+     * Columns with zero variance have zero correlation with all other columns.
+     *
+     * @param columns column values
+     * @return symmetric correlation matrix with 1 on the diagonal
+     */
+    static double[][] pearson(double[][] columns) {
+        int p = columns.length;
+        int n = p == 0 ? 0 : columns[0].length;
+        for (double[] column : columns) {
+            if (column.length != n) {
+                throw new IllegalArgumentException("all columns must have the same length");
+            }
+        }
+
+        // center columns into a packed buffer
+
+        double[] centered = new double[p * n];
+        double[] sd = new double[p];
+        IntStream.range(0, p).parallel().forEach(j -> {
+            NumericVar var = NumericVar.wrap(columns[j]);
+            double mean = Mean.from(var).getValue();
+            sd[j] = Variance.from(var).sdValue();
+            int offset = j * n;
+            for (int i = 0; i < n; i++) {
+                centered[offset + i] = columns[j][i] - mean;
+            }
+        });
+
+        // cross products on tiles of columns
+
+        int blocks = (p + BLOCK_COLS - 1) / BLOCK_COLS;
+        double[][] corr = new double[p][p];
+        IntStream.range(0, blocks * blocks).parallel()
+                .filter(t -> t / blocks <= t % blocks)
+                .forEach(t -> crossTile(centered, n, p, t / blocks, t % blocks, corr));
+
+        for (int i = 0; i < p; i++) {
+            corr[i][i] = 1;
+            for (int j = i + 1; j < p; j++) {
+                double sdp = sd[i] * sd[j];
+                corr[i][j] = sdp == 0 ? 0.0 : corr[i][j] / (sdp * (n - 1));
+                corr[j][i] = corr[i][j];
+            }
+        }
+        return corr;
+    }
+
+    private static void crossTile(double[] centered, int n, int p, int bi, int bj, double[][] corr) {
+        int iStart = bi * BLOCK_COLS;
+        int iEnd = Math.min(p, iStart + BLOCK_COLS);
+        int jStart = bj * BLOCK_COLS;
+        int jEnd = Math.min(p, jStart + BLOCK_COLS);
+
+        // each task owns the cells of its tile, thus no synchronization is needed
+        double[][] sums = new double[iEnd - iStart][jEnd - jStart];
+        for (int rStart = 0; rStart < n; rStart += BLOCK_ROWS) {
+            int rEnd = Math.min(n, rStart + BLOCK_ROWS);
+            for (int i = iStart; i < iEnd; i++) {
+                int xOff = i * n;
+                for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+                    int yOff = j * n;
+                    double sum = sums[i - iStart][j - jStart];
+                    for (int r = rStart; r < rEnd; r++) {
+                        sum += centered[xOff + r] * centered[yOff + r];
+                    }
+                    sums[i - iStart][j - jStart] = sum;
+                }
+            }
+        }
+        for (int i = iStart; i < iEnd; i++) {
+            for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+                corr[i][j] = sums[i - iStart][j - jStart];
+            }
+        }
+    }
+}
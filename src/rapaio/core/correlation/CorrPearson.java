@@ -41,6 +41,10 @@ import static rapaio.sys.WS.*;
  * /**
  * Pearson product-moment correlation coefficient.
  * <p>
+ * When all variables are complete and have the same number of rows, the
+ * correlation matrix is computed on blocks of columns, in parallel.
+ * Otherwise each pair of variables is computed on its complete rows.
+ * <p>
  * See
  * http://en.wikipedia.org/wiki/Pearson_product-moment_correlation_coefficient
  * <p>
@@ -60,16 +64,8 @@ public class CorrPearson implements Printable {
     private final double[][] pearson;
 
     private CorrPearson(Frame df) {
-        List<Var> varList = df.varList();
         this.names = df.getVarNames();
-        this.pearson = new double[varList.size()][varList.size()];
-        for (int i = 0; i < df.getVarCount(); i++) {
-            pearson[i][i] = 1;
-            for (int j = i + 1; j < varList.size(); j++) {
-                pearson[i][j] = compute(varList.get(i), varList.get(j));
-                pearson[j][i] = pearson[i][j];
-            }
-        }
+        this.pearson = compute(df.varList());
     }
 
     private CorrPearson(Var... vars) {
@@ -80,14 +76,38 @@ public class CorrPearson implements Printable {
             if (names[i].isEmpty())
                 names[i] = "V" + i;
         }
-        this.pearson = new double[vars.length][vars.length];
-        for (int i = 0; i < vars.length; i++) {
-            pearson[i][i] = 1;
-            for (int j = i + 1; j < vars.length; j++) {
-                pearson[i][j] = compute(vars[i], vars[j]);
-                pearson[j][i] = pearson[i][j];
+        this.pearson = compute(varList);
+    }
+
+    private double[][] compute(List<Var> varList) {
+        int rowCount = varList.isEmpty() ? 0 : varList.get(0).getRowCount();
+        boolean complete = varList.stream().allMatch(var -> var.getRowCount() == rowCount
+                && IntStream.range(0, rowCount).noneMatch(var::isMissing));
+        if (complete) {
+            double[][] columns = new double[varList.size()][];
+            IntStream.range(0, columns.length).parallel().forEach(i -> {
+                Var var = varList.get(i);
+                columns[i] = new double[rowCount];
+                for (int j = 0; j < rowCount; j++) {
+                    columns[i][j] = var.getValue(j);
+                }
+            });
+            return CorrMatrix.pearson(columns);
+        }
+
+        // pairwise complete rows, pairs are computed in parallel
+        int p = varList.size();
+        double[][] values = new double[p][p];
+        IntStream.range(0, p * p).parallel()
+                .filter(t -> t / p < t % p)
+                .forEach(t -> values[t / p][t % p] = compute(varList.get(t / p), varList.get(t % p)));
+        for (int i = 0; i < p; i++) {
+            values[i][i] = 1;
+            for (int j = i + 1; j < p; j++) {
+                values[j][i] = values[i][j];
             }
         }
+        return values;
     }
 
     private double compute(Var x, Var y) {
@@ -25,7 +25,6 @@
 package rapaio.core.correlation;
 
 import rapaio.data.*;
-import rapaio.data.filter.var.VFRefSort;
 import rapaio.printer.Printable;
 
 import java.util.Arrays;
@@ -37,6 +36,8 @@ import static rapaio.sys.WS.*;
  * Spearman's rank correlation coefficient.
  * <p>
  * You can compute coefficient for multiple vectors at the same time.
+ * Only rows complete for all vectors are used. Tied values receive the
+ * average of their ranks.
  * <p>
  * See: http://en.wikipedia.org/wiki/Spearman%27s_rank_correlation_coefficient
  * <p>
@@ -99,32 +100,18 @@ public class CorrSpearman implements Printable {
     }
 
     private double[][] compute() {
-        Var[] sorted = new Var[vars.length];
-        Var[] ranks = new Var[vars.length];
-        for (int i = 0; i < sorted.length; i++) {
-            IndexVar index = IndexVar.seq(vars[i].getRowCount());
-            sorted[i] = new VFRefSort(RowComparators.numeric(vars[i], true)).fitApply(index);
-            ranks[i] = NumericVar.fill(vars[i].getRowCount());
-        }
-
-        // compute ranks
-        for (int i = 0; i < sorted.length; i++) {
-            int start = 0;
-            while (start < sorted[i].getRowCount()) {
-                int end = start;
-                while (end < sorted[i].getRowCount() - 1 && sorted[i].getValue(end) == sorted[i].getValue(end + 1)) {
-                    end++;
-                }
-                double value = 1 + (start + end) / 2.;
-                for (int j = start; j <= end; j++) {
-                    ranks[i].setValue(sorted[i].getIndex(j), value);
-                }
-                start = end + 1;
+        // rank columns in parallel, ties receive average ranks
+        double[][] ranks = new double[vars.length][];
+        IntStream.range(0, vars.length).parallel().forEach(i -> {
+            double[] values = new double[vars[i].getRowCount()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = vars[i].getValue(j);
             }
-        }
+            ranks[i] = RowSort.averageRanks(values);
+        });
 
         // compute Pearson on ranks
-        return CorrPearson.from(ranks).values();
+        return CorrMatrix.pearson(ranks);
     }
 
     public double[][] values() {
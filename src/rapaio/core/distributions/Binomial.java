@@ -27,6 +27,8 @@ package rapaio.core.distributions;
 import rapaio.math.MTools;
 import rapaio.sys.WS;
 
+import java.util.Random;
+
 import static rapaio.math.MTools.*;
 
 /**
@@ -42,6 +44,7 @@ public class Binomial implements Distribution {
 
     private final double p;
     private final double n;
+    private transient volatile CdfTable table;
 
     public Binomial(double p, double n) {
         this.p = p;
@@ -209,4 +212,23 @@ public class Binomial implements Distribution {
     public double entropy() {
         return log(2 * Math.PI * Math.E * n * p * (1 - p)) / (2.0 * Math.log(2));
     }
+
+    /**
+     * Generates a random value by inverting a table of cumulative probabilities,
+     * which is built on first use over the values with non negligible probability.
+     */
+    @Override
+    public double sample(Random rng) {
+        if (table == null) {
+            double mu = n * p;
+            double sd = Math.sqrt(n * p * (1 - p));
+            double start = Math.max(0, Math.floor(mu - 40 * sd - 40));
+            double end = Math.min(n, Math.ceil(mu + 40 * sd + 40));
+            if (n != Math.rint(n) || end - start >= CdfTable.MAX_SIZE) {
+                return quantile(rng.nextDouble());
+            }
+            table = CdfTable.from(this, (int) start, (int) end);
+        }
+        return table.next(rng);
+    }
 }
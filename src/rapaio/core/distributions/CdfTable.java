@@ -0,0 +1,102 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.distributions;
+
+import java.util.Random;
+
+/**
+ * Table driven inverse cumulative distribution function for discrete distributions
+ * with integer support.
+ * <p>
+ * The cumulative probabilities of the support values are computed once, together with
+ * a guide table in the manner of Chen and Asau (1974), which gives for each equal
+ * width interval of probabilities the first support value which can be returned.
+ * Inverting a probability needs in average less than two comparisons.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+final class CdfTable {
+
+    /**
+     * Maximum number of support values stored in a table.
+     */
+    static final int MAX_SIZE = 1 << 22;
+
+    /**
+     * Builds a table from a distribution with support in [start, end].
+     * Cumulative probabilities are obtained by summing the mass function.
+     */
+    static CdfTable from(Distribution d, int start, int end) {
+        if (end - start >= MAX_SIZE) {
+            throw new IllegalArgumentException("support is too large for a table");
+        }
+        double[] cdf = new double[end - start + 1];
+        double sum = 0;
+        for (int i = 0; i < cdf.length; i++) {
+            sum += d.pdf(start + i);
+            cdf[i] = sum;
+        }
+        // rounding errors are absorbed by the last value
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] = Math.min(1.0, cdf[i] / sum);
+        }
+        cdf[cdf.length - 1] = 1.0;
+        return new CdfTable(start, cdf);
+    }
+
+    private final int start;
+    private final double[] cdf;
+    private final int[] guide;
+
+    private CdfTable(int start, double[] cdf) {
+        this.start = start;
+        this.cdf = cdf;
+        this.guide = new int[cdf.length];
+        int pos = 0;
+        for (int i = 0; i < guide.length; i++) {
+            double p = i / (double) guide.length;
+            while (cdf[pos] <= p) {
+                pos++;
+            }
+            guide[i] = pos;
+        }
+    }
+
+    /**
+     * @param p probability in [0,1)
+     * @return smallest support value with cumulative probability greater than p
+     */
+    int inverse(double p) {
+        int pos = guide[(int) (p * guide.length)];
+        while (cdf[pos] <= p) {
+            pos++;
+        }
+        return start + pos;
+    }
+
+    double next(Random rng) {
+        return inverse(rng.nextDouble());
+    }
+}
@@ -28,6 +28,8 @@ import rapaio.math.MTools;
 import rapaio.core.RandomSource;
 import rapaio.sys.WS;
 
+import java.util.Random;
+
 /**
  * ChiSquare distribution.
  * <p>
@@ -197,4 +199,12 @@ public class ChiSquare implements Distribution {
             }
         }
     }
+
+    /**
+     * Generates a random value as a scaled gamma value, with the method of Marsaglia and Tsang.
+     */
+    @Override
+    public double sample(Random rng) {
+        return 2 * Samplers.nextGamma(df / 2, rng);
+    }
 }
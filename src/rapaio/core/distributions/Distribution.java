@@ -28,10 +28,18 @@ import rapaio.core.RandomSource;
 import rapaio.data.NumericVar;
 
 import java.io.Serializable;
+import java.util.Random;
 
 /**
  * Interface which models all types of uni-variate statistical distributions.
  * <p>
+ * Density, cumulative and quantile functions have bulk variants which evaluate
+ * arrays of values. Random values can be drawn from the shared {@link RandomSource},
+ * or from a random number generator supplied by the caller. The methods which
+ * use {@link RandomSource} keep the sampling algorithm of each distribution, thus
+ * seeded streams are reproducible, while the methods which receive a generator
+ * use the fastest available sampler of each distribution.
+ * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> at 11/3/14.
  */
 public interface Distribution extends Serializable {
@@ -71,6 +79,19 @@ public interface Distribution extends Serializable {
      */
     double pdf(double x);
 
+    /**
+     * Calculates probability density/mass function for each given value
+     *
+     * @param x   values for which it calculates
+     * @param out array where pdf values are stored, with the same length as x
+     */
+    default void pdf(double[] x, double[] out) {
+        Samplers.checkLength(x, out);
+        for (int i = 0; i < x.length; i++) {
+            out[i] = pdf(x[i]);
+        }
+    }
+
     /**
      * Computes cumulative density function value for given x
      *
@@ -79,6 +100,19 @@ public interface Distribution extends Serializable {
      */
     double cdf(double x);
 
+    /**
+     * Computes cumulative density function values for each given value
+     *
+     * @param x   given values
+     * @param out array where cdf values are stored, with the same length as x
+     */
+    default void cdf(double[] x, double[] out) {
+        Samplers.checkLength(x, out);
+        for (int i = 0; i < x.length; i++) {
+            out[i] = cdf(x[i]);
+        }
+    }
+
     /**
      * Computes quantile for the given probability value.
      * Quantile function is the inverse of the cdf, aka it
@@ -89,6 +123,20 @@ public interface Distribution extends Serializable {
      * @return quantile value
      */
     double quantile(double p);
+
+    /**
+     * Computes quantiles for each given probability value
+     *
+     * @param p   given probabilities
+     * @param out array where quantiles are stored, with the same length as p
+     */
+    default void quantile(double[] p, double[] out) {
+        Samplers.checkLength(p, out);
+        for (int i = 0; i < p.length; i++) {
+            out[i] = quantile(p[i]);
+        }
+    }
+
     /**
      * Minimum value for which this pdf is defined
      *
@@ -122,6 +170,43 @@ public interface Distribution extends Serializable {
         return NumericVar.from(n, i -> sampleNext());
     }
 
+    /**
+     * Generates a random value from this distribution using the given generator
+     *
+     * @param rng random number generator
+     * @return new random value
+     */
+    default double sample(Random rng) {
+        return quantile(rng.nextDouble());
+    }
+
+    /**
+     * Fills the given array with random values from this distribution,
+     * using the given generator
+     *
+     * @param rng random number generator
+     * @param out array where the values are stored
+     */
+    default void sample(Random rng, double[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = sample(rng);
+        }
+    }
+
+    /**
+     * Generate a sample for this distribution with the given size,
+     * using the given generator
+     *
+     * @param n   number of elements in sample
+     * @param rng random number generator
+     * @return sample values
+     */
+    default NumericVar sample(final int n, Random rng) {
+        double[] values = new double[n];
+        sample(rng, values);
+        return NumericVar.wrap(values);
+    }
+
     /**
      * Computes expected value
      *
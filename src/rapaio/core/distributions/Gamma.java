@@ -27,6 +27,8 @@ package rapaio.core.distributions;
 import rapaio.core.RandomSource;
 import rapaio.math.MTools;
 
+import java.util.Random;
+
 import static rapaio.sys.WS.formatFlex;
 
 /**
@@ -336,4 +338,12 @@ public class Gamma extends AbstractDistribution {
         throw new IllegalArgumentException("Not implemented");
 //        return alpha - Math.log(beta) + Math.log(Math.floor(Math.exp(MTools.lnGamma(alpha)))) + (1.0-alpha)*\phi(alpha);
     }
+
+    /**
+     * Generates a random value with the method of Marsaglia and Tsang.
+     */
+    @Override
+    public double sample(Random rng) {
+        return beta * Samplers.nextGamma(alpha, rng);
+    }
 }
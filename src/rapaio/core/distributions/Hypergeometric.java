@@ -25,6 +25,7 @@
 package rapaio.core.distributions;
 
 import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Hypergeometric distribution
@@ -41,6 +42,7 @@ public class Hypergeometric implements Distribution {
     private final int k; // the number of balls drawn from the urn
 
     private final double[] pdfCache;
+    private transient volatile CdfTable table;
 
     /**
      * Instantiates a hypergeometric distribution
@@ -277,4 +279,21 @@ public class Hypergeometric implements Distribution {
     public double entropy() {
         return Double.NaN;
     }
+
+    /**
+     * Generates a random value by inverting a table of cumulative probabilities,
+     * which is built on first use over the support.
+     */
+    @Override
+    public double sample(Random rng) {
+        if (table == null) {
+            int start = Math.max(0, k - n);
+            int end = Math.min(k, m);
+            if (end - start >= CdfTable.MAX_SIZE) {
+                return quantile(rng.nextDouble());
+            }
+            table = CdfTable.from(this, start, end);
+        }
+        return table.next(rng);
+    }
 }
@@ -24,6 +24,8 @@
 
 package rapaio.core.distributions;
 
+import java.util.Random;
+
 import static rapaio.sys.WS.formatFlex;
 
 /**
@@ -200,4 +202,29 @@ public class Normal implements Distribution {
     public double entropy() {
         return Math.log(2 * Math.PI * Math.E * var);
     }
+
+    /**
+     * Generates a random value with the ziggurat method.
+     */
+    @Override
+    public double sample(Random rng) {
+        return mu + sd * Samplers.nextNormal(rng);
+    }
+
+    @Override
+    public void sample(Random rng, double[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = mu + sd * Samplers.nextNormal(rng);
+        }
+    }
+
+    @Override
+    public void pdf(double[] x, double[] out) {
+        Samplers.checkLength(x, out);
+        double c = 1 / Math.sqrt(2 * Math.PI * var);
+        double v2 = 2 * var;
+        for (int i = 0; i < x.length; i++) {
+            out[i] = c * Math.exp(-Math.pow(x[i] - mu, 2) / v2);
+        }
+    }
 }
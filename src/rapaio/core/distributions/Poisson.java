@@ -27,6 +27,8 @@ package rapaio.core.distributions;
 import rapaio.math.MTools;
 import rapaio.sys.WS;
 
+import java.util.Random;
+
 /**
  * Discrete probability distribution which expresses the probability of a
  * given number of events occuring in a fixed interval of time/space
@@ -37,6 +39,7 @@ public class Poisson extends AbstractDistribution {
 
     private static final long serialVersionUID = 2013039227493064895L;
     private final double lambda;
+    private transient volatile CdfTable table;
 
     public Poisson(double lambda) {
         if (lambda <= 0) {
@@ -111,4 +114,22 @@ public class Poisson extends AbstractDistribution {
     public double entropy() {
         return 0;
     }
+
+    /**
+     * Generates a random value by inverting a table of cumulative probabilities,
+     * which is built on first use over the values with non negligible probability.
+     */
+    @Override
+    public double sample(Random rng) {
+        if (table == null) {
+            double sd = Math.sqrt(lambda);
+            double start = Math.max(0, Math.floor(lambda - 40 * sd - 40));
+            double end = Math.ceil(lambda + 40 * sd + 40);
+            if (end - start >= CdfTable.MAX_SIZE) {
+                return quantile(rng.nextDouble());
+            }
+            table = CdfTable.from(this, (int) start, (int) end);
+        }
+        return table.next(rng);
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.distributions;
+
+import java.util.Random;
+
+/**
+ * Fast samplers shared by distributions, which draw from a caller supplied generator.
+ * <p>
+ * Standard normal values are generated with the ziggurat method of Marsaglia and Tsang
+ * (2000), with 128 layers. The layer index and the candidate value are taken from
+ * different bits of a 64 bit random value, which avoids the correlation between them
+ * from the original algorithm. Most values are accepted with one comparison and one
+ * multiplication.
+ * <p>
+ * Gamma values are generated with the method of Marsaglia and Tsang (2000), which
+ * transforms a normal value and needs in average less than 1.05 normal values for
+ * each gamma value. Shape parameters less than 1 use the boost
+ * Gamma(a) = Gamma(a+1) * U^(1/a).
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+final class Samplers {
+
+    private static final int LAYERS = 128;
+    private static final double R = 3.442619855899;
+    private static final double V = 9.91256303526217e-3;
+    private static final double M = 2147483648.0;
+
+    private static final int[] kn = new int[LAYERS];
+    private static final double[] wn = new double[LAYERS];
+    private static final double[] fn = new double[LAYERS];
+
+    static {
+        double dn = R;
+        double tn = dn;
+        double q = V / Math.exp(-0.5 * dn * dn);
+
+        kn[0] = (int) ((dn / q) * M);
+        kn[1] = 0;
+        wn[0] = q / M;
+        wn[LAYERS - 1] = dn / M;
+        fn[0] = 1.0;
+        fn[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+
+        for (int i = LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2.0 * Math.log(V / dn + Math.exp(-0.5 * dn * dn)));
+            kn[i + 1] = (int) ((dn / tn) * M);
+            tn = dn;
+            fn[i] = Math.exp(-0.5 * dn * dn);
+            wn[i] = dn / M;
+        }
+    }
+
+    private Samplers() {
+    }
+
+    static void checkLength(double[] in, double[] out) {
+        if (in.length != out.length) {
+            throw new IllegalArgumentException("input and output arrays must have the same length");
+        }
+    }
+
+    /**
+     * @return a uniform value in the open interval (0,1)
+     */
+    static double nextOpenDouble(Random rng) {
+        double u = rng.nextDouble();
+        while (u == 0) {
+            u = rng.nextDouble();
+        }
+        return u;
+    }
+
+    /**
+     * @return a standard normal value
+     */
+    static double nextNormal(Random rng) {
+        long bits = rng.nextLong();
+        int hz = (int) bits;
+        int iz = (int) (bits >>> 32) & (LAYERS - 1);
+        if (Math.abs(hz) < kn[iz]) {
+            return hz * wn[iz];
+        }
+        return normalTail(rng, hz, iz);
+    }
+
+    private static double normalTail(Random rng, int hz, int iz) {
+        for (; ; ) {
+            double x = hz * wn[iz];
+            if (iz == 0) {
+                // sample from the tail beyond R
+                double y;
+                do {
+                    x = -Math.log(nextOpenDouble(rng)) / R;
+                    y = -Math.log(nextOpenDouble(rng));
+                } while (y + y < x * x);
+                return (hz > 0) ? R + x : -R - x;
+            }
+            if (fn[iz] + rng.nextDouble() * (fn[iz - 1] - fn[iz]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+            long bits = rng.nextLong();
+            hz = (int) bits;
+            iz = (int) (bits >>> 32) & (LAYERS - 1);
+            if (Math.abs(hz) < kn[iz]) {
+                return hz * wn[iz];
+            }
+        }
+    }
+
+    /**
+     * @param alpha shape parameter
+     * @return a gamma value with the given shape and unit scale
+     */
+    static double nextGamma(double alpha, Random rng) {
+        if (alpha < 1) {
+            return nextGamma(alpha + 1, rng) * Math.pow(nextOpenDouble(rng), 1 / alpha);
+        }
+        double d = alpha - 1.0 / 3;
+        double c = 1 / Math.sqrt(9 * d);
+        for (; ; ) {
+            double x;
+            double v;
+            do {
+                x = nextNormal(rng);
+                v = 1 + c * x;
+            } while (v <= 0);
+            v = v * v * v;
+            double u = nextOpenDouble(rng);
+            double x2 = x * x;
+            if (u < 1 - 0.0331 * x2 * x2) {
+                return d * v;
+            }
+            if (Math.log(u) < 0.5 * x2 + d * (1 - v + Math.log(v))) {
+                return d * v;
+            }
+        }
+    }
+}
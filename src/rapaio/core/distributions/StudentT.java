@@ -26,6 +26,8 @@ package rapaio.core.distributions;
 
 import rapaio.sys.WS;
 
+import java.util.Random;
+
 import static rapaio.math.MTools.*;
 
 /**
@@ -154,4 +156,14 @@ public class StudentT implements Distribution {
         // take a look at the wiki page - it's scary
         throw new IllegalArgumentException("not implemented");
     }
+
+    /**
+     * Generates a random value as the ratio between a normal value and the square
+     * root of a scaled chi-square value.
+     */
+    @Override
+    public double sample(Random rng) {
+        double chi = 2 * Samplers.nextGamma(df / 2, rng);
+        return mu + sigma * Samplers.nextNormal(rng) / Math.sqrt(chi / df);
+    }
 }
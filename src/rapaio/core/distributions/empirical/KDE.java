@@ -27,6 +27,7 @@ package rapaio.core.distributions.empirical;
 import rapaio.core.stat.Variance;
 import rapaio.data.Var;
 import rapaio.data.filter.var.VFSort;
+import rapaio.math.fourier.FFT;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -46,9 +47,7 @@ public class KDE implements Serializable {
     private final double bandwidth;
 
     public KDE(Var values) {
-        this.values = values.stream().mapToDouble().toArray();
-        this.kernel = new KFuncGaussian();
-        this.bandwidth = getSilvermanBandwidth(values);
+        this(values, new KFuncGaussian(), getSilvermanBandwidth(values));
     }
 
     public KDE(Var values, double bandwidth) {
@@ -77,6 +76,60 @@ public class KDE implements Serializable {
         return sum / (values.length * bandwidth);
     }
 
+    /**
+     * Evaluates the density on a regular grid of points which covers
+     * the sample range extended with the kernel support.
+     * <p>
+     * Sample values are linearly binned on grid points and the binned counts are
+     * convolved with the kernel evaluated at grid offsets, using FFT. The cost is
+     * O(n + size * log(size)) instead of evaluating each grid point individually.
+     * <p>
+     * The grid step should be much smaller than the bandwidth. When the step is larger
+     * than the kernel support, the kernel is evaluated only at the grid point itself
+     * and the density degenerates into spikes.
+     *
+     * @param size number of grid points, at least 2
+     * @return grid density evaluator
+     */
+    public KDEGrid grid(int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("grid size must be at least 2");
+        }
+        if (values.length == 0) {
+            throw new IllegalArgumentException("cannot build density grid from an empty sample");
+        }
+        double width = kernel.getMaxValue(0, bandwidth);
+        double from = values[0] - width;
+        double to = values[values.length - 1] + width;
+        double step = (to - from) / (size - 1);
+
+        // linear binning
+        double[] counts = new double[size];
+        for (double value : values) {
+            double pos = (value - from) / step;
+            int i = Math.min(size - 2, (int) pos);
+            double frac = pos - i;
+            counts[i] += 1 - frac;
+            counts[i + 1] += frac;
+        }
+
+        // kernel evaluated at grid offsets
+        int len = (int) Math.min(size - 1, Math.floor(width / step));
+        double[] weights = new double[2 * len + 1];
+        for (int l = -len; l <= len; l++) {
+            weights[l + len] = kernel.pdf(l * step, 0, bandwidth);
+        }
+
+        double[] conv = FFT.convolve(counts, weights);
+        double[] density = new double[size];
+        double norm = values.length * bandwidth;
+        for (int i = 0; i < size; i++) {
+            // FFT round off can produce tiny negative values
+            density[i] = Math.max(0, conv[i + len] / norm);
+        }
+        return new KDEGrid(from, step, density);
+    }
+
     public KFunc getKernel() {
         return kernel;
     }
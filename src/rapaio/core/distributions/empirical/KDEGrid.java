@@ -0,0 +1,104 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.core.distributions.empirical;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Kernel density estimation evaluated on a regular grid of points.
+ * <p>
+ * The density at arbitrary points is computed by linear interpolation
+ * between the closest grid points. Outside the grid the density is 0.
+ * <p>
+ * Instances are built by {@link KDE#grid(int)}.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class KDEGrid implements Serializable {
+
+    private static final long serialVersionUID = 3960424862306185862L;
+
+    private final double from;
+    private final double step;
+    private final double[] density;
+
+    KDEGrid(double from, double step, double[] density) {
+        this.from = from;
+        this.step = step;
+        this.density = density;
+    }
+
+    /**
+     * @return number of grid points
+     */
+    public int size() {
+        return density.length;
+    }
+
+    /**
+     * @param pos position of the grid point
+     * @return x coordinate of grid point
+     */
+    public double x(int pos) {
+        return from + pos * step;
+    }
+
+    /**
+     * @param pos position of the grid point
+     * @return density value at the grid point
+     */
+    public double density(int pos) {
+        return density[pos];
+    }
+
+    /**
+     * @return a copy of density values for all grid points
+     */
+    public double[] density() {
+        return Arrays.copyOf(density, density.length);
+    }
+
+    /**
+     * Density value interpolated from grid points.
+     *
+     * @param x point where density is evaluated
+     * @return density value
+     */
+    public double pdf(double x) {
+        if (Double.isNaN(x)) {
+            return Double.NaN;
+        }
+        double pos = (x - from) / step;
+        if (pos < 0 || pos > density.length - 1) {
+            return 0;
+        }
+        int i = (int) pos;
+        if (i == density.length - 1) {
+            return density[i];
+        }
+        double frac = pos - i;
+        return density[i] * (1 - frac) + density[i + 1] * frac;
+    }
+}
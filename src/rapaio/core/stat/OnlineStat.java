@@ -24,6 +24,12 @@
 
 package rapaio.core.stat;
 
+import rapaio.data.Frame;
+import rapaio.data.Var;
+import rapaio.util.Util;
+
+import java.util.stream.IntStream;
+
 /**
  * Class which implements core online statistics. This class does not hold
  * values used for calculations, just the statistics itself and some additional
@@ -40,23 +46,74 @@ package rapaio.core.stat;
  * <ui>min - minimum value</ui>
  * <ui>max - maximum value</ui>
  * <ui>mean - mean of the values</ui>
+ * <ui>variance, skewness and kurtosis</ui>
+ * <ui>count of values and count of missing values</ui>
  * </ul>
+ * <p>
+ * Statistics are mergeable: statistics computed on separate partitions of values
+ * can be combined with {@link #update(OnlineStat)}, using the parallel algorithm of
+ * Chan et al. This is used to compute the statistics of a variable in a single
+ * parallel pass over chunks of rows, see {@link #from(Var)} and {@link #from(Frame)}.
  *
  * @author Aurelian Tutuianu
  */
 public class OnlineStat {
 
+    private static final int CHUNK_SIZE = 1 << 14;
+
     public static OnlineStat empty() {
         return new OnlineStat();
     }
 
+    /**
+     * Computes statistics of the values of a variable, in a single pass. Large
+     * variables are processed in parallel on chunks of rows, which are merged.
+     */
+    public static OnlineStat from(Var var) {
+        int rows = var.getRowCount();
+        int chunks = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1) {
+            return chunk(var, 0, rows);
+        }
+        return Util.rangeStream(chunks, true)
+                .mapToObj(chunk -> chunk(var, chunk * CHUNK_SIZE, Math.min(rows, (chunk + 1) * CHUNK_SIZE)))
+                .reduce((a, b) -> {
+                    a.update(b);
+                    return a;
+                }).orElseGet(OnlineStat::empty);
+    }
+
+    /**
+     * Computes statistics of the values of all variables of a frame, in parallel.
+     *
+     * @return statistics for each variable, in the order of variables from the frame
+     */
+    public static OnlineStat[] from(Frame df) {
+        return IntStream.range(0, df.getVarCount()).parallel()
+                .mapToObj(i -> from(df.getVar(i)))
+                .toArray(OnlineStat[]::new);
+    }
+
+    private static OnlineStat chunk(Var var, int start, int end) {
+        OnlineStat stat = new OnlineStat();
+        for (int i = start; i < end; i++) {
+            if (var.isMissing(i)) {
+                stat.missing++;
+            } else {
+                stat.update(var.getValue(i));
+            }
+        }
+        return stat;
+    }
+
     double n; // number of elements
+    double missing; // number of missing values, which are not used in calculations
     double m1;
     double m2;
     double m3;
     double m4;
-    double min = 0;
-    double max = 0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
 
     private OnlineStat() {
         clean();
@@ -64,8 +121,9 @@ public class OnlineStat {
 
     public final void clean() {
         n = 0;
-        min = 0;
-        max = 0;
+        missing = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
         m1 = 0;
         m2 = 0;
         m3 = 0;
@@ -78,9 +136,15 @@ public class OnlineStat {
      * the new meaning that we "remove" elements from calculations and as a side
      * effect to decrease the value of N;
      *
+     * Missing values (NaN) are counted, but not used in calculations.
+     *
      * @param x value to be used to out statistics
      */
     public void update(double x) {
+        if (Double.isNaN(x)) {
+            missing++;
+            return;
+        }
         double n1 = n;
         n++;
         double delta = (x - m1);
@@ -102,12 +166,29 @@ public class OnlineStat {
         return n;
     }
 
+    /**
+     * @return the number of missing values seen so far
+     */
+    public double missingCount() {
+        return missing;
+    }
+
+    /**
+     * @return minimum value, or NaN if there are no values
+     */
     public double min() {
-        return min;
+        return (n == 0) ? Double.NaN : min;
     }
 
+    /**
+     * @return maximum value, or NaN if there are no values
+     */
     public double max() {
-        return max;
+        return (n == 0) ? Double.NaN : max;
+    }
+
+    public double sum() {
+        return m1 * n;
     }
 
     public double mean() {
@@ -130,7 +211,11 @@ public class OnlineStat {
         return n * m4 / (m2 * m2) - 3.0;
     }
 
+    /**
+     * Merges into this object the statistics computed on other values.
+     */
     public void update(OnlineStat a) {
+        missing += a.missing;
         if (a.n == 0)
             return;
 
@@ -25,9 +25,9 @@
 package rapaio.core.stat;
 
 import rapaio.data.Var;
-import rapaio.data.filter.var.VFSort;
 import rapaio.printer.Printable;
 
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import static rapaio.sys.WS.formatFlex;
@@ -42,6 +42,9 @@ import static rapaio.sys.WS.formatFlex;
  * <p>
  * Default type is R-7, but is can be changed.
  * <p>
+ * Only the order statistics required for the given percentiles are computed,
+ * using Floyd-Rivest selection on a primitive copy of the values, instead of
+ * sorting all values. For data which does not fit in memory see {@link TDigest}.
  * <p>
  * For further reference see:
  * http://en.wikipedia.org/wiki/Quantile
@@ -58,6 +61,9 @@ public class Quantiles implements Printable {
         return new Quantiles(var, type, percentiles);
     }
 
+    // above this number of order statistics a full sort is faster than selection
+    private static final int MAX_SELECTED_RANKS = 64;
+
     private final String varName;
     private final double[] percentiles;
     private final double[] quantiles;
@@ -73,48 +79,155 @@ public class Quantiles implements Printable {
     }
 
     private double[] compute(final Var var) {
-        Var complete = var.stream().complete().toMappedVar();
-        missingCount = var.getRowCount() - complete.getRowCount();
-        completeCount = complete.getRowCount();
-        if (complete.getRowCount() == 0) {
+        double[] x = new double[var.getRowCount()];
+        int len = 0;
+        for (int i = 0; i < var.getRowCount(); i++) {
+            if (!var.isMissing(i)) {
+                x[len++] = var.getValue(i);
+            }
+        }
+        missingCount = var.getRowCount() - len;
+        completeCount = len;
+        if (len == 0) {
             return IntStream.range(0, percentiles.length).mapToDouble(i -> Double.NaN).toArray();
         }
-        if (complete.getRowCount() == 1) {
+        if (len == 1) {
             double[] values = new double[percentiles.length];
             for (int i = 0; i < values.length; i++) {
-                values[i] = complete.getValue(0);
+                values[i] = x[0];
             }
             return values;
         }
-        Var x = new VFSort().fitApply(complete);
-        double[] values = new double[percentiles.length];
+        int N = len;
+
+        // positions in sorted order for each percentile, only those are selected
+
+        int[] lows = new int[percentiles.length];
+        double[] fractions = new double[percentiles.length];
         for (int i = 0; i < percentiles.length; i++) {
             double p = percentiles[i];
             if (type.equals(Type.R8)) {
-                int N = x.getRowCount();
                 double h = (N + 1. / 3.) * p + 1. / 3.;
                 int hfloor = (int) StrictMath.floor(h);
 
+                // extreme values are used directly, without interpolation
                 if (p < (2. / 3.) / (N + 1. / 3.)) {
-                    values[i] = x.getValue(0);
+                    lows[i] = 0;
+                    fractions[i] = Double.NaN;
                     continue;
                 }
                 if (p >= (N - 1. / 3.) / (N + 1. / 3.)) {
-                    values[i] = x.getValue(x.getRowCount() - 1);
+                    lows[i] = N - 1;
+                    fractions[i] = Double.NaN;
                     continue;
                 }
-                values[i] = x.getValue(hfloor - 1) + (h - hfloor) * (x.getValue(hfloor) - x.getValue(hfloor - 1));
+                lows[i] = hfloor - 1;
+                fractions[i] = h - hfloor;
             }
             if (type.equals(Type.R7)) {
-                int N = x.getRowCount();
                 double h = (N - 1.0) * p + 1;
-                int hfloor = (int) Math.min(StrictMath.floor(h), x.getRowCount() - 1);
-                values[i] = x.getValue(hfloor - 1) + (h - hfloor) * (x.getValue(hfloor) - x.getValue(hfloor - 1));
+                int hfloor = (int) Math.min(StrictMath.floor(h), N - 1);
+                lows[i] = hfloor - 1;
+                fractions[i] = h - hfloor;
             }
         }
+        int[] ranks = IntStream.range(0, 2 * lows.length)
+                .map(i -> (i % 2 == 0) ? lows[i / 2] : Math.min(N - 1, lows[i / 2] + 1))
+                .sorted().distinct().toArray();
+        if (ranks.length > MAX_SELECTED_RANKS) {
+            Arrays.sort(x, 0, N);
+        } else {
+            multiSelect(x, ranks, 0, ranks.length, 0, N - 1);
+        }
+
+        double[] values = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            int low = lows[i];
+            values[i] = Double.isNaN(fractions[i]) ? x[low] : x[low] + fractions[i] * (x[low + 1] - x[low]);
+        }
         return values;
     }
 
+    /**
+     * Places the order statistics with the given sorted ranks on their positions.
+     * The middle rank is selected first, than the ranks on each side are selected
+     * recursively on the corresponding side of the array.
+     */
+    private static void multiSelect(double[] x, int[] ranks, int from, int to, int left, int right) {
+        if (from >= to || left > right) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int k = ranks[mid];
+        select(x, left, right, k);
+        multiSelect(x, ranks, from, mid, left, k - 1);
+        multiSelect(x, ranks, mid + 1, to, k + 1, right);
+    }
+
+    /**
+     * Floyd-Rivest selection. It places on position k the value which would be there
+     * if the array would be sorted, smaller values before and greater values after.
+     * If the partition steps do not converge fast enough, the range is sorted,
+     * which bounds the worst case like in introselect.
+     */
+    private static void select(double[] x, int left, int right, int k) {
+        int steps = 0;
+        int maxSteps = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1)) + 8;
+        while (right > left) {
+            if (++steps > maxSteps) {
+                Arrays.sort(x, left, right + 1);
+                return;
+            }
+            if (right - left > 600) {
+                // select on a sample to find a pivot close to the k-th value
+                int n = right - left + 1;
+                int i = k - left + 1;
+                double z = Math.log(n);
+                double s = 0.5 * Math.exp(2 * z / 3);
+                double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2.0);
+                int newLeft = Math.max(left, (int) (k - i * s / n + sd));
+                int newRight = Math.min(right, (int) (k + (n - i) * s / n + sd));
+                select(x, newLeft, newRight, k);
+            }
+            double t = x[k];
+            int i = left;
+            int j = right;
+            swap(x, left, k);
+            if (x[right] > t) {
+                swap(x, right, left);
+            }
+            while (i < j) {
+                swap(x, i, j);
+                i++;
+                j--;
+                while (x[i] < t) {
+                    i++;
+                }
+                while (x[j] > t) {
+                    j--;
+                }
+            }
+            if (x[left] == t) {
+                swap(x, left, j);
+            } else {
+                j++;
+                swap(x, j, right);
+            }
+            if (j <= k) {
+                left = j + 1;
+            }
+            if (k <= j) {
+                right = j - 1;
+            }
+        }
+    }
+
+    private static void swap(double[] x, int i, int j) {
+        double tmp = x[i];
+        x[i] = x[j];
+        x[j] = tmp;
+    }
+
     public double[] getValues() {
         return quantiles;
     }
@@ -0,0 +1,308 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.stat;
+
+import rapaio.data.RowSort;
+
+import java.io.Serializable;
+
+/**
+ * Mergeable streaming sketch for quantiles, implemented as a merging t-digest.
+ * <p>
+ * Values are summarized by centroids, which are weighted means of adjacent values.
+ * Centroids near the tails are small and centroids near the median are large, which
+ * gives accurate estimations of extreme quantiles with small memory. The number of
+ * centroids depends on the compression parameter, not on the number of values.
+ * <p>
+ * New values are collected in a buffer which is merged into centroids when full.
+ * Like {@link OnlineStat}, the sketch is updated with values one by one and sketches
+ * built on separate partitions of data, for example on separate threads, can be merged
+ * with {@link #update(TDigest)}. Instances are not thread safe.
+ * <p>
+ * For further reference see:
+ * Dunning, Ertl, Computing Extremely Accurate Quantiles Using t-Digests, 2019.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class TDigest implements Serializable {
+
+    private static final long serialVersionUID = 4312867391457352812L;
+
+    public static TDigest empty() {
+        return new TDigest(100);
+    }
+
+    /**
+     * @param compression compression parameter, larger values gives more centroids and better accuracy
+     */
+    public static TDigest empty(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("compression must be at least 10");
+        }
+        return new TDigest(compression);
+    }
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+    private double n;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private TDigest(double compression) {
+        this.compression = compression;
+        int size = (int) Math.ceil(compression) + 10;
+        this.means = new double[size];
+        this.weights = new double[size];
+        this.bufferMeans = new double[5 * size];
+        this.bufferWeights = new double[5 * size];
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    /**
+     * @return total weight of the values seen so far
+     */
+    public double n() {
+        return n;
+    }
+
+    public double min() {
+        return (n == 0) ? Double.NaN : min;
+    }
+
+    public double max() {
+        return (n == 0) ? Double.NaN : max;
+    }
+
+    /**
+     * @return number of centroids after all buffered values are merged
+     */
+    public int centroidCount() {
+        compress();
+        return centroids;
+    }
+
+    /**
+     * Adds a value to the sketch, missing values are ignored.
+     */
+    public void update(double x) {
+        update(x, 1);
+    }
+
+    /**
+     * Adds a weighted value to the sketch, missing values and non positive weights are ignored.
+     */
+    public void update(double x, double weight) {
+        if (Double.isNaN(x) || !(weight > 0)) {
+            return;
+        }
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = x;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        n += weight;
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+    }
+
+    /**
+     * Merges into this sketch the centroids of another sketch.
+     */
+    public void update(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            if (buffered == bufferMeans.length) {
+                compress();
+            }
+            bufferMeans[buffered] = other.means[i];
+            bufferWeights[buffered] = other.weights[i];
+            buffered++;
+        }
+        n += other.n;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Merges buffered values into centroids. Centroids and buffered values are sorted
+     * by mean and adjacent ones are merged while the size of the merged centroid is
+     * allowed by the scale function at its position.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int size = centroids + buffered;
+        double[] allMeans = new double[size];
+        double[] allWeights = new double[size];
+        System.arraycopy(means, 0, allMeans, 0, centroids);
+        System.arraycopy(weights, 0, allWeights, 0, centroids);
+        System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+        int[] order = RowSort.argsort(allMeans, true);
+
+        double[] newMeans = new double[size];
+        double[] newWeights = new double[size];
+        int count = 0;
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += allWeights[i];
+        }
+
+        double weightSoFar = 0;
+        double mean = allMeans[order[0]];
+        double weight = allWeights[order[0]];
+        double weightLimit = total * qLimit(0, total);
+        for (int i = 1; i < size; i++) {
+            double m = allMeans[order[i]];
+            double w = allWeights[order[i]];
+            if (weightSoFar + weight + w <= weightLimit) {
+                weight += w;
+                mean += (m - mean) * w / weight;
+            } else {
+                newMeans[count] = mean;
+                newWeights[count] = weight;
+                count++;
+                weightSoFar += weight;
+                weightLimit = total * qLimit(weightSoFar / total, total);
+                mean = m;
+                weight = w;
+            }
+        }
+        newMeans[count] = mean;
+        newWeights[count] = weight;
+        count++;
+
+        if (count > means.length) {
+            means = new double[count];
+            weights = new double[count];
+        }
+        System.arraycopy(newMeans, 0, means, 0, count);
+        System.arraycopy(newWeights, 0, weights, 0, count);
+        centroids = count;
+        buffered = 0;
+    }
+
+    /**
+     * Maximum quantile covered by a centroid which starts at quantile q. Two scale functions
+     * are used and the smaller limit is taken. The first one is k(q) = compression / (2 pi)
+     * asin(2q - 1), which bounds centroids near the median. The second one is
+     * k(q) = compression / z log(q / (1 - q)), with z = 4 log(n / compression) + 24, which
+     * makes centroids in both tails small, with sizes proportional to q (1 - q).
+     */
+    private double qLimit(double q, double total) {
+        double k1 = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        double limit1 = (Math.sin(Math.min(k1 * 2 * Math.PI / compression, Math.PI / 2)) + 1) / 2;
+        double z = 4 * Math.log(Math.max(1, total / compression)) + 24;
+        double k2 = Math.log(q / (1 - q)) + z / compression;
+        double limit2 = 1 / (1 + Math.exp(-k2));
+        return Math.min(limit1, limit2);
+    }
+
+    /**
+     * Estimates the quantile for the given probability. The value of each centroid
+     * is placed at the middle of its weight and values in between are interpolated,
+     * the tails are interpolated with the minimum and maximum values.
+     */
+    public double quantile(double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("probability must be in interval [0,1]");
+        }
+        compress();
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double index = p * n;
+        double prevPosition = 0;
+        double prevValue = min;
+        double cumulated = 0;
+        for (int i = 0; i < centroids; i++) {
+            double position = cumulated + weights[i] / 2;
+            if (index <= position) {
+                return interpolate(index, prevPosition, prevValue, position, means[i]);
+            }
+            prevPosition = position;
+            prevValue = means[i];
+            cumulated += weights[i];
+        }
+        return interpolate(index, prevPosition, prevValue, n, max);
+    }
+
+    /**
+     * Estimates quantiles for multiple probabilities.
+     */
+    public double[] quantiles(double... p) {
+        double[] values = new double[p.length];
+        for (int i = 0; i < p.length; i++) {
+            values[i] = quantile(p[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Estimates the cumulative distribution function for the given value.
+     */
+    public double cdf(double x) {
+        compress();
+        if (n == 0 || Double.isNaN(x)) {
+            return Double.NaN;
+        }
+        if (x < min) {
+            return 0;
+        }
+        if (x >= max) {
+            return 1;
+        }
+        double prevPosition = 0;
+        double prevValue = min;
+        double cumulated = 0;
+        for (int i = 0; i < centroids; i++) {
+            double position = cumulated + weights[i] / 2;
+            if (x < means[i]) {
+                return interpolate(x, prevValue, prevPosition, means[i], position) / n;
+            }
+            prevPosition = position;
+            prevValue = means[i];
+            cumulated += weights[i];
+        }
+        return interpolate(x, prevValue, prevPosition, max, n) / n;
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1) {
+        if (x1 <= x0) {
+            return y1;
+        }
+        return y0 + (x - x0) * (y1 - y0) / (x1 - x0);
+    }
+}
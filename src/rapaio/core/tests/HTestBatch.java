@@ -0,0 +1,339 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import rapaio.core.distributions.ChiSquare;
+import rapaio.core.distributions.Distribution;
+import rapaio.core.distributions.Normal;
+import rapaio.core.distributions.StudentT;
+import rapaio.core.stat.OnlineStat;
+import rapaio.data.Frame;
+import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
+import rapaio.data.RowSort;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.util.FJPool;
+import rapaio.util.Util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs a two samples hypothesis test on many variables at once.
+ * <p>
+ * Each variable of the first frame is tested against the variable with the same name
+ * from the second frame. Variables are processed in parallel and for each of them the
+ * sufficient statistics are computed in a single pass over the values: counts, means and
+ * variances for t and z tests, counts of levels for chi-square tests. No test objects
+ * are built, the results are collected in a frame with one row for each variable.
+ * <p>
+ * Since many hypotheses are tested at once, the p-values are also adjusted for
+ * multiple comparisons with Bonferroni correction, which controls the family-wise
+ * error rate, and with Benjamini-Hochberg procedure, which controls the false
+ * discovery rate. Variables for which the test cannot be computed have missing
+ * p-values and are not counted in adjustments.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class HTestBatch {
+
+    public enum Type {
+        /**
+         * Two samples t test with equal variances, on numeric variables
+         */
+        T_TEST,
+        /**
+         * Welch's two samples t test with unequal variances, on numeric variables
+         */
+        WELCH_T_TEST,
+        /**
+         * Two samples z test, on numeric variables
+         */
+        Z_TEST,
+        /**
+         * Chi-square test of homogeneity of level frequencies, on nominal variables
+         */
+        CHI_SQUARE
+    }
+
+    public static final String NAME = "name";
+    public static final String X_SIZE = "x size";
+    public static final String Y_SIZE = "y size";
+    public static final String X_MEAN = "x mean";
+    public static final String Y_MEAN = "y mean";
+    public static final String STATISTIC = "statistic";
+    public static final String DF = "df";
+    public static final String P_VALUE = "p-value";
+    public static final String P_BONFERRONI = "p bonferroni";
+    public static final String P_BH = "p bh";
+
+    public static HTestBatch newInstance(Type type) {
+        return new HTestBatch(type);
+    }
+
+    private final Type type;
+    private double mu = 0;
+    private double xSd = Double.NaN;
+    private double ySd = Double.NaN;
+    private HTest.Alternative alt = HTest.Alternative.TWO_TAILS;
+    private int poolSize = -1;
+
+    private HTestBatch(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Null hypothesis difference of means, used by t and z tests, default value is 0.
+     */
+    public HTestBatch withMean(double mu) {
+        this.mu = mu;
+        return this;
+    }
+
+    /**
+     * Known standard deviations used by z test for all variables. If not
+     * specified, the sample standard deviations are used.
+     */
+    public HTestBatch withSd(double xSd, double ySd) {
+        this.xSd = xSd;
+        this.ySd = ySd;
+        return this;
+    }
+
+    /**
+     * Alternative hypothesis used by t and z tests, default value is two tails.
+     */
+    public HTestBatch withAlternative(HTest.Alternative alt) {
+        this.alt = alt;
+        return this;
+    }
+
+    /**
+     * Pool size used for computation, 0 means sequential execution
+     * and negative values means the number of available processors.
+     */
+    public HTestBatch withPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * Tests all variables of the first frame against the variables
+     * with the same names from the second frame.
+     *
+     * @param x frame with first samples
+     * @param y frame with second samples, must contain all the variables of the first frame
+     * @return frame with test results, one row for each variable
+     */
+    public Frame test(Frame x, Frame y) {
+        String[] names = x.getVarNames();
+        for (String name : names) {
+            if (y.getVarIndex(name) < 0) {
+                throw new IllegalArgumentException("second frame does not contain variable: " + name);
+            }
+        }
+        double[][] results = new double[names.length][];
+        FJPool.run(poolSize, () -> Util.rangeStream(names.length, poolSize != 0)
+                .forEach(i -> results[i] = compute(x.getVar(names[i]), y.getVar(names[i]))));
+
+        int len = names.length;
+        NominalVar name = NominalVar.empty().withName(NAME);
+        Var xSize = NumericVar.empty(len).withName(X_SIZE);
+        Var ySize = NumericVar.empty(len).withName(Y_SIZE);
+        Var xMean = NumericVar.empty(len).withName(X_MEAN);
+        Var yMean = NumericVar.empty(len).withName(Y_MEAN);
+        Var statistic = NumericVar.empty(len).withName(STATISTIC);
+        Var df = NumericVar.empty(len).withName(DF);
+        Var pValue = NumericVar.empty(len).withName(P_VALUE);
+        double[] p = new double[len];
+        for (int i = 0; i < len; i++) {
+            name.addLabel(names[i]);
+            xSize.setValue(i, results[i][0]);
+            ySize.setValue(i, results[i][1]);
+            xMean.setValue(i, results[i][2]);
+            yMean.setValue(i, results[i][3]);
+            statistic.setValue(i, results[i][4]);
+            df.setValue(i, results[i][5]);
+            pValue.setValue(i, results[i][6]);
+            p[i] = results[i][6];
+        }
+        Var bonferroni = NumericVar.wrap(bonferroni(p)).withName(P_BONFERRONI);
+        Var bh = NumericVar.wrap(benjaminiHochberg(p)).withName(P_BH);
+        return SolidFrame.byVars(name, xSize, ySize, xMean, yMean, statistic, df, pValue, bonferroni, bh);
+    }
+
+    /**
+     * Computes x size, y size, x mean, y mean, statistic, degrees of freedom and p-value.
+     */
+    private double[] compute(Var x, Var y) {
+        if (type == Type.CHI_SQUARE) {
+            return computeChiSquare(x, y);
+        }
+        if (x.getType().isNominal() || y.getType().isNominal()) {
+            throw new IllegalArgumentException("t and z tests require numeric variables, variable: " + x.getName());
+        }
+        OnlineStat xs = OnlineStat.from(x);
+        OnlineStat ys = OnlineStat.from(y);
+        double nx = xs.n();
+        double ny = ys.n();
+        double[] result = new double[]{nx, ny, xs.mean(), ys.mean(), Double.NaN, Double.NaN, Double.NaN};
+        if (nx < 1 || ny < 1) {
+            return result;
+        }
+        double diff = xs.mean() - ys.mean() - mu;
+        double statistic;
+        double df;
+        double pValue;
+        switch (type) {
+            case T_TEST:
+                df = nx + ny - 2;
+                double pooled = ((nx - 1) * xs.variance() + (ny - 1) * ys.variance()) / df;
+                statistic = diff / (Math.sqrt(pooled) * Math.sqrt(1.0 / nx + 1.0 / ny));
+                pValue = pValue(new StudentT(df), statistic);
+                break;
+            case WELCH_T_TEST:
+                double xv = xs.variance() / nx;
+                double yv = ys.variance() / ny;
+                statistic = diff / Math.sqrt(xv + yv);
+                df = Math.pow(xv + yv, 2) / (xv * xv / (nx - 1) + yv * yv / (ny - 1));
+                pValue = pValue(new StudentT(df), statistic);
+                break;
+            default:
+                double xSigma = Double.isNaN(xSd) ? xs.sd() : xSd;
+                double ySigma = Double.isNaN(ySd) ? ys.sd() : ySd;
+                statistic = diff / Math.sqrt(xSigma * xSigma / nx + ySigma * ySigma / ny);
+                df = Double.NaN;
+                pValue = pValue(new Normal(), statistic);
+        }
+        result[4] = statistic;
+        result[5] = df;
+        result[6] = pValue;
+        return result;
+    }
+
+    private double pValue(Distribution d, double statistic) {
+        if (Double.isNaN(statistic)) {
+            return Double.NaN;
+        }
+        switch (alt) {
+            case GREATER_THAN:
+                return 1 - d.cdf(statistic);
+            case LESS_THAN:
+                return d.cdf(statistic);
+            default:
+                return d.cdf(-Math.abs(statistic)) * 2;
+        }
+    }
+
+    private double[] computeChiSquare(Var x, Var y) {
+        if (!x.getType().isNominal() || !y.getType().isNominal()) {
+            throw new IllegalArgumentException("chi-square test requires nominal variables, variable: " + x.getName());
+        }
+        // counts by level index, levels of the second variable are matched by label
+        double[] xCounts = new double[x.getLevels().length];
+        for (int i = 0; i < x.getRowCount(); i++) {
+            xCounts[x.getIndex(i)]++;
+        }
+        double[] yCounts = new double[y.getLevels().length];
+        for (int i = 0; i < y.getRowCount(); i++) {
+            yCounts[y.getIndex(i)]++;
+        }
+        Map<String, double[]> table = new HashMap<>();
+        for (int i = 1; i < xCounts.length; i++) {
+            table.computeIfAbsent(x.getLevels()[i], k -> new double[2])[0] += xCounts[i];
+        }
+        for (int i = 1; i < yCounts.length; i++) {
+            table.computeIfAbsent(y.getLevels()[i], k -> new double[2])[1] += yCounts[i];
+        }
+        double nx = 0;
+        double ny = 0;
+        int levels = 0;
+        for (double[] counts : table.values()) {
+            if (counts[0] + counts[1] > 0) {
+                nx += counts[0];
+                ny += counts[1];
+                levels++;
+            }
+        }
+        double[] result = new double[]{nx, ny, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        if (nx == 0 || ny == 0 || levels < 2) {
+            return result;
+        }
+        double total = nx + ny;
+        double statistic = 0;
+        for (double[] counts : table.values()) {
+            double levelTotal = counts[0] + counts[1];
+            if (levelTotal == 0) {
+                continue;
+            }
+            double ex = levelTotal * nx / total;
+            double ey = levelTotal * ny / total;
+            statistic += (counts[0] - ex) * (counts[0] - ex) / ex + (counts[1] - ey) * (counts[1] - ey) / ey;
+        }
+        double df = levels - 1;
+        result[4] = statistic;
+        result[5] = df;
+        result[6] = 1.0 - new ChiSquare(df).cdf(statistic);
+        return result;
+    }
+
+    /**
+     * Bonferroni adjustment of p-values, missing values are ignored.
+     *
+     * @param p p-values
+     * @return adjusted p-values
+     */
+    public static double[] bonferroni(double[] p) {
+        int m = (int) Arrays.stream(p).filter(v -> !Double.isNaN(v)).count();
+        double[] adjusted = new double[p.length];
+        for (int i = 0; i < p.length; i++) {
+            adjusted[i] = Double.isNaN(p[i]) ? Double.NaN : Math.min(1, p[i] * m);
+        }
+        return adjusted;
+    }
+
+    /**
+     * Benjamini-Hochberg adjustment of p-values, missing values are ignored.
+     *
+     * @param p p-values
+     * @return adjusted p-values
+     */
+    public static double[] benjaminiHochberg(double[] p) {
+        double[] adjusted = new double[p.length];
+        Arrays.fill(adjusted, Double.NaN);
+
+        // missing values are sorted last
+        int[] order = RowSort.argsort(p, true);
+        int m = (int) Arrays.stream(p).filter(v -> !Double.isNaN(v)).count();
+        double min = 1;
+        for (int i = m - 1; i >= 0; i--) {
+            min = Math.min(min, p[order[i]] * m / (i + 1));
+            adjusted[order[i]] = min;
+        }
+        return adjusted;
+    }
+}
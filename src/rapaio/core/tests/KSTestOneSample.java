@@ -26,7 +26,6 @@ package rapaio.core.tests;
 
 import rapaio.core.distributions.Distribution;
 import rapaio.data.Var;
-import rapaio.data.filter.var.VFSort;
 
 import static rapaio.sys.WS.formatFlex;
 
@@ -45,13 +44,16 @@ import static rapaio.sys.WS.formatFlex;
  * D is the maximum distance between ECDF(v) and given cdf.
  * pValue is the computed p-value for the KS test against the given densities
  * <p>
+ * Missing values are ignored and the sample is sorted on primitive values.
+ * <p>
 
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 1/28/17.
  */
 public class KSTestOneSample implements HTest {
 
     private final Distribution cdf;
-    private final Var v;
+    private final double[] v;
+    private final int ties;
     private double D; // maximum distance between ECDF1 and F
     private double pValue;
     private double ciHigh = Double.NaN;
@@ -62,16 +64,21 @@ public class KSTestOneSample implements HTest {
     }
 
     private KSTestOneSample(Var sample, Distribution cdf) {
-        this.v = new VFSort().fitApply(sample);
+        Ranks ranks = Ranks.of(Ranks.complete(sample));
+        this.v = new double[ranks.size()];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = ranks.sorted(i);
+        }
+        this.ties = ranks.ties();
         this.cdf = cdf;
 
         D = 0;
-        double n = v.getRowCount();
+        double n = v.length;
         double fo = 0.0;
 
-        for (int i = 0; i < v.getRowCount(); i++) {
+        for (int i = 0; i < v.length; i++) {
             //ECDF(x) - F(x)
-            double ff = cdf.cdf(v.getValue(i));
+            double ff = cdf.cdf(v[i]);
             double fn = (i + 1) / n;
             D = Math.max(D, Math.abs(fo - ff));
             D = Math.max(D, Math.abs(fn - ff));
@@ -136,8 +143,7 @@ public class KSTestOneSample implements HTest {
         StringBuilder sb = new StringBuilder();
         sb.append("\n > Kolmogorov-Smirnoff 1-sample test\n");
 
-        int ties = (int) (v.getRowCount() - v.stream().mapToDouble().distinct().count());
-        sb.append(String.format("sample size: %d, ties: %d\n", v.getRowCount(), ties));
+        sb.append(String.format("sample size: %d, ties: %d\n", v.length, ties));
         if (ties > 0)
             sb.append(" (warning: p-values will not be exact because of ties)\n");
 
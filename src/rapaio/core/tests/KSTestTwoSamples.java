@@ -24,9 +24,12 @@
 
 package rapaio.core.tests;
 
-import rapaio.core.distributions.Distribution;
+import rapaio.data.Frame;
 import rapaio.data.Var;
-import rapaio.data.filter.var.VFSort;
+import rapaio.util.Util;
+
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static rapaio.sys.WS.formatFlex;
 
@@ -37,13 +40,14 @@ import static rapaio.sys.WS.formatFlex;
  * pValue is the p-value for the 2 sample KS test
  * The null hypothesis of this test is that both data sets comes from the same densities,
  * The altString hypothesis is that the two samples comes from different densities.
+ * Missing values are ignored and samples are sorted on primitive values.
  *
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 1/29/17.
  */
 public class KSTestTwoSamples implements HTest {
 
-    private final Var v1;
-    private final Var v2;
+    private final Ranks v1;
+    private final Ranks v2;
     private double D; // maximum distance between ECDF1 and F, or ECDF1 and ECFD2
     private final double pValue;
 
@@ -51,20 +55,35 @@ public class KSTestTwoSamples implements HTest {
         return new KSTestTwoSamples(sample1, sample2);
     }
 
+    /**
+     * Tests in parallel each variable from the first frame against the variable
+     * with the same name from the second frame.
+     *
+     * @param df1 frame with first samples
+     * @param df2 frame with second samples, must contain all the variables of the first frame
+     * @return tests in the order of variables from the first frame
+     */
+    public static List<KSTestTwoSamples> batch(Frame df1, Frame df2) {
+        String[] names = df1.getVarNames();
+        return Util.rangeStream(names.length, true)
+                .mapToObj(i -> from(df1.getVar(names[i]), df2.getVar(names[i])))
+                .collect(Collectors.toList());
+    }
+
     private KSTestTwoSamples(Var sample1, Var sample2) {
-        this.v1 = new VFSort().fitApply(sample1);
-        this.v2 = new VFSort().fitApply(sample2);
+        this.v1 = Ranks.of(Ranks.complete(sample1));
+        this.v2 = Ranks.of(Ranks.complete(sample2));
 
         D = 0;
         double fn1 = 0.0;
         double fn2 = 0.0;
         int i1 = 0;
         int i2 = 0;
-        double n1 = v1.getRowCount();
-        double n2 = v2.getRowCount();
+        double n1 = v1.size();
+        double n2 = v2.size();
         while (i1 < n1 && i2 < n2) {
-            double d1 = v1.getValue(i1);
-            double d2 = v2.getValue(i2);
+            double d1 = v1.sorted(i1);
+            double d2 = v2.sorted(i2);
             if (d1 <= d2) fn1 = i1++ / n1;
             if (d2 <= d1) fn2 = i2++ / n2;
             D = Math.max(D, Math.abs(fn1 - fn2));
@@ -129,12 +148,12 @@ public class KSTestTwoSamples implements HTest {
         StringBuilder sb = new StringBuilder();
         sb.append("\n > Kolmogorov-Smirnoff 2-sample test\n");
 
-        int ties1 = (int) (v1.getRowCount() - v1.stream().mapToDouble().distinct().count());
-        int ties2 = (int) (v2.getRowCount() - v2.stream().mapToDouble().distinct().count());
+        int ties1 = v1.ties();
+        int ties2 = v2.ties();
         sb.append(String.format("first sample size: %d, ties: %d\n",
-                v1.getRowCount(), ties1));
+                v1.size(), ties1));
         sb.append(String.format("second sample size: %d, ties: %d\n",
-                v2.getRowCount(), ties2));
+                v2.size(), ties2));
         if (ties1 + ties2 > 0)
             sb.append(" (warning: p-values will not be exact because of ties)\n");
 
@@ -0,0 +1,209 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import rapaio.core.distributions.ChiSquare;
+import rapaio.data.Var;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static rapaio.sys.WS.formatFlex;
+
+/**
+ * Kruskal-Wallis rank sum test.
+ * <p>
+ * The null hypothesis is that all samples come from the same distribution, against
+ * the alternative that at least one sample tends to have greater values than another one.
+ * The statistic H is corrected for ties and has approximately a chi-square distribution
+ * with the number of samples minus one degrees of freedom. Missing values and empty
+ * samples are ignored.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class KruskalWallisTest implements HTest {
+
+    /**
+     * Kruskal-Wallis test on the given samples.
+     *
+     * @param samples given samples
+     * @return an object containing hypothesis testing analysis
+     */
+    public static KruskalWallisTest test(Var... samples) {
+        List<double[]> groups = new ArrayList<>();
+        for (Var sample : samples) {
+            groups.add(Ranks.complete(sample));
+        }
+        return new KruskalWallisTest(groups);
+    }
+
+    /**
+     * Kruskal-Wallis test on samples given by the levels of a nominal variable.
+     *
+     * @param x     values
+     * @param group nominal variable which gives the sample of each value
+     * @return an object containing hypothesis testing analysis
+     */
+    public static KruskalWallisTest testGroups(Var x, Var group) {
+        if (!group.getType().isNominal()) {
+            throw new IllegalArgumentException("group variable must be nominal");
+        }
+        int levels = group.getLevels().length;
+        int[] counts = new int[levels];
+        int len = Math.min(x.getRowCount(), group.getRowCount());
+        for (int i = 0; i < len; i++) {
+            if (!x.isMissing(i) && !group.isMissing(i)) {
+                counts[group.getIndex(i)]++;
+            }
+        }
+        double[][] values = new double[levels][];
+        for (int i = 0; i < levels; i++) {
+            values[i] = new double[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!x.isMissing(i) && !group.isMissing(i)) {
+                int g = group.getIndex(i);
+                values[g][counts[g]++] = x.getValue(i);
+            }
+        }
+        List<double[]> groups = new ArrayList<>();
+        for (int i = 1; i < levels; i++) {
+            groups.add(values[i]);
+        }
+        return new KruskalWallisTest(groups);
+    }
+
+    private final int size;
+    private final int groups;
+    private final int ties;
+    private final double h;
+    private final double df;
+    private final double pValue;
+
+    private KruskalWallisTest(List<double[]> samples) {
+        int len = 0;
+        int count = 0;
+        for (double[] sample : samples) {
+            len += sample.length;
+            if (sample.length > 0) {
+                count++;
+            }
+        }
+        this.size = len;
+        this.groups = count;
+        this.df = groups - 1;
+
+        if (groups < 2) {
+            ties = 0;
+            h = Double.NaN;
+            pValue = Double.NaN;
+            return;
+        }
+
+        double[] values = new double[len];
+        int pos = 0;
+        for (double[] sample : samples) {
+            System.arraycopy(sample, 0, values, pos, sample.length);
+            pos += sample.length;
+        }
+        Ranks ranks = Ranks.of(values);
+
+        double n = len;
+        double sum = 0;
+        pos = 0;
+        for (double[] sample : samples) {
+            if (sample.length == 0) {
+                continue;
+            }
+            double rankSum = 0;
+            for (int i = 0; i < sample.length; i++) {
+                rankSum += ranks.rank(pos + i);
+            }
+            sum += rankSum * rankSum / sample.length;
+            pos += sample.length;
+        }
+        ties = ranks.ties();
+        double stat = 12 / (n * (n + 1)) * sum - 3 * (n + 1);
+        h = stat / (1 - ranks.tieSum() / (n * n * n - n));
+        pValue = 1 - new ChiSquare(df).cdf(h);
+    }
+
+    /**
+     * @return total number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of non empty samples
+     */
+    public int groups() {
+        return groups;
+    }
+
+    /**
+     * @return H statistic, corrected for ties
+     */
+    public double h() {
+        return h;
+    }
+
+    public double df() {
+        return df;
+    }
+
+    @Override
+    public double pValue() {
+        return pValue;
+    }
+
+    @Override
+    public double ciHigh() {
+        return Double.NaN;
+    }
+
+    @Override
+    public double ciLow() {
+        return Double.NaN;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n");
+        sb.append("> Kruskal-Wallis rank sum test\n");
+        sb.append("\n");
+        sb.append("samples: ").append(groups).append("\n");
+        sb.append("size: ").append(size).append("\n");
+        sb.append("ties: ").append(ties).append("\n");
+        sb.append("\ntest results:\n");
+        sb.append("H: ").append(formatFlex(h)).append("\n");
+        sb.append("df: ").append(formatFlex(df)).append("\n");
+        sb.append("p-value: ").append(formatFlex(pValue)).append("\n");
+        return sb.toString();
+    }
+}
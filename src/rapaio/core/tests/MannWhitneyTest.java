@@ -0,0 +1,289 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import rapaio.core.distributions.Normal;
+import rapaio.data.Frame;
+import rapaio.data.Var;
+import rapaio.util.Util;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static rapaio.sys.WS.formatFlex;
+
+/**
+ * Mann-Whitney U test, also known as Wilcoxon rank sum test.
+ * <p>
+ * The null hypothesis is that the two samples come from the same distribution,
+ * against the alternative that values from one sample tend to be greater than values
+ * from the other one. The statistic U is the number of pairs in which the value from
+ * the first sample is greater than the value from the second sample, ties counting as
+ * half. Missing values are ignored.
+ * <p>
+ * When both samples have less than 50 values and there are no ties the p-value is
+ * exact, otherwise the normal approximation with continuity correction and variance
+ * corrected for ties is used.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class MannWhitneyTest implements HTest {
+
+    static final int EXACT_MAX_SIZE = 50;
+
+    /**
+     * Mann-Whitney U test with two tails alternative.
+     *
+     * @param x first sample
+     * @param y second sample
+     * @return an object containing hypothesis testing analysis
+     */
+    public static MannWhitneyTest test(Var x, Var y) {
+        return new MannWhitneyTest(Ranks.complete(x), Ranks.complete(y), HTest.Alternative.TWO_TAILS);
+    }
+
+    /**
+     * Mann-Whitney U test.
+     *
+     * @param x   first sample
+     * @param y   second sample
+     * @param alt alternative hypothesis, greater than means that x tends to be greater than y
+     * @return an object containing hypothesis testing analysis
+     */
+    public static MannWhitneyTest test(Var x, Var y, HTest.Alternative alt) {
+        return new MannWhitneyTest(Ranks.complete(x), Ranks.complete(y), alt);
+    }
+
+    /**
+     * Tests in parallel each variable from the first frame against the variable
+     * with the same name from the second frame, with two tails alternative.
+     *
+     * @param x frame with first samples
+     * @param y frame with second samples, must contain all the variables of the first frame
+     * @return tests in the order of variables from the first frame
+     */
+    public static List<MannWhitneyTest> batch(Frame x, Frame y) {
+        String[] names = x.getVarNames();
+        return Util.rangeStream(names.length, true)
+                .mapToObj(i -> test(x.getVar(names[i]), y.getVar(names[i])))
+                .collect(Collectors.toList());
+    }
+
+    private final HTest.Alternative alt;
+    private final int xSize;
+    private final int ySize;
+    private final int ties;
+    private final double u;
+    private final boolean exact;
+    private final double z;
+    private final double pValue;
+
+    private MannWhitneyTest(double[] x, double[] y, HTest.Alternative alt) {
+        this.alt = alt;
+        this.xSize = x.length;
+        this.ySize = y.length;
+
+        if (xSize == 0 || ySize == 0) {
+            ties = 0;
+            u = Double.NaN;
+            exact = false;
+            z = Double.NaN;
+            pValue = Double.NaN;
+            return;
+        }
+
+        double[] values = new double[xSize + ySize];
+        System.arraycopy(x, 0, values, 0, xSize);
+        System.arraycopy(y, 0, values, xSize, ySize);
+        Ranks ranks = Ranks.of(values);
+
+        double rankSum = 0;
+        for (int i = 0; i < xSize; i++) {
+            rankSum += ranks.rank(i);
+        }
+        ties = ranks.ties();
+        u = rankSum - xSize * (xSize + 1) / 2.0;
+        exact = xSize < EXACT_MAX_SIZE && ySize < EXACT_MAX_SIZE && ties == 0;
+
+        if (exact) {
+            z = Double.NaN;
+            pValue = exactPValue();
+        } else {
+            double n = xSize + ySize;
+            double sigma = Math.sqrt(xSize * (double) ySize / 12.0 * ((n + 1) - ranks.tieSum() / (n * (n - 1))));
+            double diff = u - xSize * (double) ySize / 2.0;
+            double correction;
+            switch (alt) {
+                case GREATER_THAN:
+                    correction = 0.5;
+                    break;
+                case LESS_THAN:
+                    correction = -0.5;
+                    break;
+                default:
+                    correction = Math.signum(diff) * 0.5;
+            }
+            z = (diff - correction) / sigma;
+            pValue = normalPValue(z, alt);
+        }
+    }
+
+    static double normalPValue(double z, HTest.Alternative alt) {
+        Normal normal = new Normal();
+        switch (alt) {
+            case GREATER_THAN:
+                return 1 - normal.cdf(z);
+            case LESS_THAN:
+                return normal.cdf(z);
+            default:
+                return Math.min(1, 2 * normal.cdf(-Math.abs(z)));
+        }
+    }
+
+    private double exactPValue() {
+        double[] pmf = exactDistribution(xSize, ySize);
+        int k = (int) Math.round(u);
+        double lower = 0;
+        for (int i = 0; i <= k; i++) {
+            lower += pmf[i];
+        }
+        double upper = 0;
+        for (int i = k; i < pmf.length; i++) {
+            upper += pmf[i];
+        }
+        switch (alt) {
+            case GREATER_THAN:
+                return Math.min(1, upper);
+            case LESS_THAN:
+                return Math.min(1, lower);
+            default:
+                return Math.min(1, 2 * Math.min(lower, upper));
+        }
+    }
+
+    /**
+     * Computes the probability mass function of U for sample sizes m and n under the
+     * null hypothesis, with the recurrence p(m,n,u) = m/(m+n) p(m-1,n,u-n) + n/(m+n) p(m,n-1,u).
+     */
+    static double[] exactDistribution(int m, int n) {
+        int len = m * n + 1;
+        // prev[j] holds the distribution for sizes (i-1, j)
+        double[][] prev = new double[n + 1][];
+        for (int j = 0; j <= n; j++) {
+            prev[j] = new double[len];
+            prev[j][0] = 1;
+        }
+        for (int i = 1; i <= m; i++) {
+            double[][] next = new double[n + 1][];
+            next[0] = new double[len];
+            next[0][0] = 1;
+            for (int j = 1; j <= n; j++) {
+                double[] p = new double[len];
+                double a = i / (double) (i + j);
+                double b = j / (double) (i + j);
+                int max = i * j;
+                for (int k = 0; k <= max; k++) {
+                    double v = b * next[j - 1][k];
+                    if (k >= j) {
+                        v += a * prev[j][k - j];
+                    }
+                    p[k] = v;
+                }
+                next[j] = p;
+            }
+            prev = next;
+        }
+        return prev[n];
+    }
+
+    public HTest.Alternative alt() {
+        return alt;
+    }
+
+    public int xSize() {
+        return xSize;
+    }
+
+    public int ySize() {
+        return ySize;
+    }
+
+    /**
+     * @return U statistic for the first sample
+     */
+    public double u() {
+        return u;
+    }
+
+    /**
+     * @return true if the p-value was computed from the exact distribution of U
+     */
+    public boolean exact() {
+        return exact;
+    }
+
+    /**
+     * @return normal approximation score, NaN if the exact distribution was used
+     */
+    public double z() {
+        return z;
+    }
+
+    @Override
+    public double pValue() {
+        return pValue;
+    }
+
+    @Override
+    public double ciHigh() {
+        return Double.NaN;
+    }
+
+    @Override
+    public double ciLow() {
+        return Double.NaN;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n");
+        sb.append("> Mann-Whitney U test\n");
+        sb.append("\n");
+        sb.append("x size: ").append(xSize).append("\n");
+        sb.append("y size: ").append(ySize).append("\n");
+        sb.append("ties: ").append(ties).append("\n");
+        sb.append("\ntest results:\n");
+        sb.append("alternative hypothesis: ").append(alt == HTest.Alternative.TWO_TAILS ? "two tails " : "one tail ").append(alt.pCondition()).append("\n");
+        sb.append("U: ").append(formatFlex(u)).append("\n");
+        if (exact) {
+            sb.append("exact p-value: ").append(formatFlex(pValue)).append("\n");
+        } else {
+            sb.append("z: ").append(formatFlex(z)).append("\n");
+            sb.append("p-value: ").append(formatFlex(pValue)).append(" (normal approximation)\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import rapaio.data.RowSort;
+import rapaio.data.Var;
+
+import java.util.Arrays;
+
+/**
+ * Ranking of a sample on primitive values, shared by rank based tests.
+ * <p>
+ * Values are sorted once with {@link RowSort#argsort(double[], boolean)}, the same
+ * order is used for the average ranks and for the tie information needed by
+ * variance corrections.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+final class Ranks {
+
+    /**
+     * Builds an array with the non missing values of a variable.
+     */
+    static double[] complete(Var var) {
+        double[] values = new double[var.getRowCount()];
+        int len = 0;
+        for (int i = 0; i < var.getRowCount(); i++) {
+            if (!var.isMissing(i)) {
+                values[len++] = var.getValue(i);
+            }
+        }
+        return len == values.length ? values : Arrays.copyOf(values, len);
+    }
+
+    /**
+     * Ranks the given values, which must not contain missing values.
+     */
+    static Ranks of(double[] values) {
+        return new Ranks(values);
+    }
+
+    private final double[] values;
+    private final int[] order;
+    private final double[] ranks;
+    private final int ties;
+    private final double tieSum;
+
+    private Ranks(double[] values) {
+        this.values = values;
+        this.order = RowSort.argsort(values, true);
+        this.ranks = RowSort.averageRanks(values, order);
+
+        int tieCount = 0;
+        double sum = 0;
+        for (int size : RowSort.tieGroupSizes(values, order)) {
+            double t = size;
+            tieCount += size - 1;
+            sum += t * t * t - t;
+        }
+        this.ties = tieCount;
+        this.tieSum = sum;
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    /**
+     * @return average rank of the value at the given position
+     */
+    double rank(int pos) {
+        return ranks[pos];
+    }
+
+    /**
+     * @return value with the given rank position, in ascending order
+     */
+    double sorted(int pos) {
+        return values[order[pos]];
+    }
+
+    /**
+     * @return number of values equal with a smaller value
+     */
+    int ties() {
+        return ties;
+    }
+
+    /**
+     * @return sum of t^3-t over groups of t tied values, used to correct variances of rank statistics
+     */
+    double tieSum() {
+        return tieSum;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import rapaio.data.Var;
+
+import java.util.Arrays;
+
+import static rapaio.sys.WS.formatFlex;
+
+/**
+ * Wilcoxon signed rank test, for one sample or for paired samples.
+ * <p>
+ * The null hypothesis is that the distribution of differences between values and
+ * the hypothesized location, or between paired values, is symmetric around zero.
+ * The statistic V is the sum of ranks of absolute differences for positive differences.
+ * Zero differences and missing values are ignored.
+ * <p>
+ * When there are less than 50 differences, no ties and no zero differences, the p-value
+ * is exact, otherwise the normal approximation with continuity correction and variance
+ * corrected for ties is used.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class WilcoxonSignedRankTest implements HTest {
+
+    /**
+     * One sample signed rank test with two tails alternative.
+     *
+     * @param x  given sample
+     * @param mu null hypothesis location
+     * @return an object containing hypothesis testing analysis
+     */
+    public static WilcoxonSignedRankTest test(Var x, double mu) {
+        return test(x, mu, HTest.Alternative.TWO_TAILS);
+    }
+
+    /**
+     * One sample signed rank test.
+     *
+     * @param x   given sample
+     * @param mu  null hypothesis location
+     * @param alt alternative hypothesis
+     * @return an object containing hypothesis testing analysis
+     */
+    public static WilcoxonSignedRankTest test(Var x, double mu, HTest.Alternative alt) {
+        double[] values = Ranks.complete(x);
+        for (int i = 0; i < values.length; i++) {
+            values[i] -= mu;
+        }
+        return new WilcoxonSignedRankTest(values, mu, false, alt);
+    }
+
+    /**
+     * Paired samples signed rank test with two tails alternative.
+     *
+     * @param x  first sample
+     * @param y  second sample
+     * @param mu null hypothesis location of differences
+     * @return an object containing hypothesis testing analysis
+     */
+    public static WilcoxonSignedRankTest paired(Var x, Var y, double mu) {
+        return paired(x, y, mu, HTest.Alternative.TWO_TAILS);
+    }
+
+    /**
+     * Paired samples signed rank test.
+     *
+     * @param x   first sample
+     * @param y   second sample
+     * @param mu  null hypothesis location of differences
+     * @param alt alternative hypothesis
+     * @return an object containing hypothesis testing analysis
+     */
+    public static WilcoxonSignedRankTest paired(Var x, Var y, double mu, HTest.Alternative alt) {
+        int len = Math.min(x.getRowCount(), y.getRowCount());
+        double[] values = new double[len];
+        int size = 0;
+        for (int i = 0; i < len; i++) {
+            if (x.isMissing(i) || y.isMissing(i)) {
+                continue;
+            }
+            values[size++] = x.getValue(i) - y.getValue(i) - mu;
+        }
+        return new WilcoxonSignedRankTest(Arrays.copyOf(values, size), mu, true, alt);
+    }
+
+    private final double mu;
+    private final boolean paired;
+    private final HTest.Alternative alt;
+    private final int size;
+    private final int zeros;
+    private final int ties;
+    private final double v;
+    private final boolean exact;
+    private final double z;
+    private final double pValue;
+
+    private WilcoxonSignedRankTest(double[] diff, double mu, boolean paired, HTest.Alternative alt) {
+        this.mu = mu;
+        this.paired = paired;
+        this.alt = alt;
+
+        double[] abs = new double[diff.length];
+        boolean[] positive = new boolean[diff.length];
+        int len = 0;
+        for (double d : diff) {
+            if (d == 0) {
+                continue;
+            }
+            positive[len] = d > 0;
+            abs[len++] = Math.abs(d);
+        }
+        this.size = len;
+        this.zeros = diff.length - len;
+
+        if (size == 0) {
+            ties = 0;
+            v = Double.NaN;
+            exact = false;
+            z = Double.NaN;
+            pValue = Double.NaN;
+            return;
+        }
+
+        Ranks ranks = Ranks.of(Arrays.copyOf(abs, len));
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (positive[i]) {
+                sum += ranks.rank(i);
+            }
+        }
+        ties = ranks.ties();
+        v = sum;
+        exact = size < MannWhitneyTest.EXACT_MAX_SIZE && ties == 0 && zeros == 0;
+
+        if (exact) {
+            z = Double.NaN;
+            pValue = exactPValue();
+        } else {
+            double n = size;
+            double sigma = Math.sqrt(n * (n + 1) * (2 * n + 1) / 24 - ranks.tieSum() / 48);
+            double diffMean = v - n * (n + 1) / 4;
+            double correction;
+            switch (alt) {
+                case GREATER_THAN:
+                    correction = 0.5;
+                    break;
+                case LESS_THAN:
+                    correction = -0.5;
+                    break;
+                default:
+                    correction = Math.signum(diffMean) * 0.5;
+            }
+            z = (diffMean - correction) / sigma;
+            pValue = MannWhitneyTest.normalPValue(z, alt);
+        }
+    }
+
+    private double exactPValue() {
+        double[] pmf = exactDistribution(size);
+        int k = (int) Math.round(v);
+        double lower = 0;
+        for (int i = 0; i <= k; i++) {
+            lower += pmf[i];
+        }
+        double upper = 0;
+        for (int i = k; i < pmf.length; i++) {
+            upper += pmf[i];
+        }
+        switch (alt) {
+            case GREATER_THAN:
+                return Math.min(1, upper);
+            case LESS_THAN:
+                return Math.min(1, lower);
+            default:
+                return Math.min(1, 2 * Math.min(lower, upper));
+        }
+    }
+
+    /**
+     * Computes the probability mass function of V for n differences under the null
+     * hypothesis, with the recurrence p(n,v) = (p(n-1,v) + p(n-1,v-n)) / 2.
+     */
+    static double[] exactDistribution(int n) {
+        double[] p = new double[n * (n + 1) / 2 + 1];
+        p[0] = 1;
+        for (int i = 1; i <= n; i++) {
+            int max = i * (i + 1) / 2;
+            for (int k = max; k >= 0; k--) {
+                p[k] = (p[k] + (k >= i ? p[k - i] : 0)) / 2;
+            }
+        }
+        return p;
+    }
+
+    public double mu() {
+        return mu;
+    }
+
+    public boolean paired() {
+        return paired;
+    }
+
+    public HTest.Alternative alt() {
+        return alt;
+    }
+
+    /**
+     * @return number of non zero differences used by the test
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of zero differences, which were ignored
+     */
+    public int zeros() {
+        return zeros;
+    }
+
+    /**
+     * @return V statistic, the sum of ranks of positive differences
+     */
+    public double v() {
+        return v;
+    }
+
+    /**
+     * @return true if the p-value was computed from the exact distribution of V
+     */
+    public boolean exact() {
+        return exact;
+    }
+
+    /**
+     * @return normal approximation score, NaN if the exact distribution was used
+     */
+    public double z() {
+        return z;
+    }
+
+    @Override
+    public double pValue() {
+        return pValue;
+    }
+
+    @Override
+    public double ciHigh() {
+        return Double.NaN;
+    }
+
+    @Override
+    public double ciLow() {
+        return Double.NaN;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n");
+        sb.append("> Wilcoxon signed rank test\n");
+        sb.append("\n");
+        sb.append(paired ? " Paired samples\n" : " One sample\n");
+        sb.append("\n");
+        sb.append("mu: ").append(formatFlex(mu)).append("\n");
+        sb.append("size: ").append(size).append("\n");
+        sb.append("zeros: ").append(zeros).append("\n");
+        sb.append("ties: ").append(ties).append("\n");
+        sb.append("\ntest results:\n");
+        sb.append("alternative hypothesis: ").append(alt == HTest.Alternative.TWO_TAILS ? "two tails " : "one tail ").append(alt.pCondition()).append("\n");
+        sb.append("V: ").append(formatFlex(v)).append("\n");
+        if (exact) {
+            sb.append("exact p-value: ").append(formatFlex(pValue)).append("\n");
+        } else {
+            sb.append("z: ").append(formatFlex(z)).append("\n");
+            sb.append("p-value: ").append(formatFlex(pValue)).append(" (normal approximation)\n");
+        }
+        return sb.toString();
+    }
+}
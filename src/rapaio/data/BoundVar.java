@@ -154,6 +154,19 @@ public class BoundVar extends AbstractVar {
         return vars.get(pos).getValue(localRow(pos, row));
     }
 
+    @Override
+    public void getValues(int start, int length, double[] out, int offset) {
+        if (length == 0) {
+            return;
+        }
+        int row = start;
+        for (int pos = findIndex(start); row < start + length; pos++) {
+            int len = Math.min(counts.get(pos), start + length) - row;
+            vars.get(pos).getValues(localRow(pos, row), len, out, offset + row - start);
+            row += len;
+        }
+    }
+
     @Override
     public void setValue(int row, double value) {
         int pos = findIndex(row);
@@ -171,6 +184,19 @@ public class BoundVar extends AbstractVar {
         return vars.get(pos).getIndex(localRow(pos, row));
     }
 
+    @Override
+    public void getIndexes(int start, int length, int[] out, int offset) {
+        if (length == 0) {
+            return;
+        }
+        int row = start;
+        for (int pos = findIndex(start); row < start + length; pos++) {
+            int len = Math.min(counts.get(pos), start + length) - row;
+            vars.get(pos).getIndexes(localRow(pos, row), len, out, offset + row - start);
+            row += len;
+        }
+    }
+
     @Override
     public void setIndex(int row, int value) {
         int pos = findIndex(row);
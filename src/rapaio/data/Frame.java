@@ -25,6 +25,7 @@
 package rapaio.data;
 
 import rapaio.data.filter.FFilter;
+import rapaio.data.stream.FChunk;
 import rapaio.data.stream.FSpot;
 import rapaio.data.stream.FSpots;
 import rapaio.printer.Printable;
@@ -496,6 +497,17 @@ public interface Frame extends Serializable, Printable {
         return IntStream.range(0, getRowCount()).mapToObj(row -> new FSpot(this, row)).collect(toList());
     }
 
+    /**
+     * Returns a stream of chunks of consecutive rows, an alternative to
+     * {@link #stream()} when values are processed in bulk.
+     *
+     * @param chunkSize maximum number of rows in a chunk
+     * @return a stream of FChunk
+     */
+    default Stream<FChunk> chunkStream(int chunkSize) {
+        return FChunk.stream(this, chunkSize);
+    }
+
     /**
      * @return stream of all variables from frame
      */
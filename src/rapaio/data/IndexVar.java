@@ -255,6 +255,11 @@ public final class IndexVar extends AbstractVar {
         return data[row];
     }
 
+    @Override
+    public void getIndexes(int start, int length, int[] out, int offset) {
+        System.arraycopy(data, start, out, offset, length);
+    }
+
     @Override
     public void setIndex(int row, int value) {
         data[row] = value;
@@ -106,6 +106,13 @@ public class MappedVar extends AbstractVar {
         return source.getValue(mapping.get(row));
     }
 
+    @Override
+    public void getValues(int start, int length, double[] out, int offset) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = source.getValue(mapping.get(start + i));
+        }
+    }
+
     @Override
     public void setValue(int row, double value) {
         source.setValue(mapping.get(row), value);
@@ -121,6 +128,13 @@ public class MappedVar extends AbstractVar {
         return source.getIndex(mapping.get(row));
     }
 
+    @Override
+    public void getIndexes(int start, int length, int[] out, int offset) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = source.getIndex(mapping.get(start + i));
+        }
+    }
+
     @Override
     public void setIndex(int row, int value) {
         source.setIndex(mapping.get(row), value);
@@ -85,7 +85,19 @@ public interface Mapping extends Serializable {
      * @return new mapping which is build on a copy of the array of values
      */
     static Mapping copy(int... mapping) {
-        return new ListMapping(mapping);
+        return new ArrayMapping(Arrays.copyOf(mapping, mapping.length), false);
+    }
+
+    /**
+     * Builds a mapping having the mapped values given as an array of indexed values,
+     * the array being used as reference inside mapping. The array is copied
+     * before the first change of the mapping, it is never written by the mapping.
+     *
+     * @param mapping array of mapped values
+     * @return new mapping which wraps the given array of values
+     */
+    static Mapping wrap(int... mapping) {
+        return new ArrayMapping(mapping, true);
     }
 
     static Mapping range(int end) {
@@ -216,6 +228,91 @@ final class ListMapping implements Mapping {
     }
 }
 
+final class ArrayMapping implements Mapping {
+
+    private static final long serialVersionUID = -2532937418562932418L;
+    private int[] data;
+    private int size;
+    private boolean shared;
+
+    ArrayMapping(int[] rows, boolean shared) {
+        this.data = rows;
+        this.size = rows.length;
+        this.shared = shared;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int pos) {
+        if (size > pos)
+            return data[pos];
+        throw new IllegalArgumentException("Value at pos " + pos + " does not exists");
+    }
+
+    /**
+     * Makes sure the array is owned by the mapping and can hold the given number of values.
+     */
+    private void ensureCapacity(int capacity) {
+        if (data.length < capacity) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length + (data.length >> 1) + 1));
+            shared = false;
+        } else if (shared) {
+            data = Arrays.copyOf(data, data.length);
+            shared = false;
+        }
+    }
+
+    public void add(int row) {
+        ensureCapacity(size + 1);
+        data[size++] = row;
+    }
+
+    public void addAll(Collection<Integer> rows) {
+        ensureCapacity(size + rows.size());
+        for (int row : rows) {
+            data[size++] = row;
+        }
+    }
+
+    @Override
+    public void remove(int pos) {
+        if (pos >= size)
+            throw new IllegalArgumentException("Value at pos " + pos + " does not exists");
+        ensureCapacity(size);
+        System.arraycopy(data, pos + 1, data, pos, size - pos - 1);
+        size--;
+    }
+
+    @Override
+    public void removeAll(Collection<Integer> positions) {
+        // same as list mapping, removes the first occurrence of each value
+        for (int value : positions) {
+            for (int i = 0; i < size; i++) {
+                if (data[i] == value) {
+                    remove(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    public IntStream rowStream() {
+        return Arrays.stream(data, 0, size);
+    }
+
+    @Override
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
+
 final class IntervalMapping implements Mapping {
 
     private static final long serialVersionUID = -7421133121383028265L;
@@ -324,6 +324,11 @@ public final class NumericVar extends AbstractVar {
         return data[row];
     }
 
+    @Override
+    public void getValues(int start, int length, double[] out, int offset) {
+        System.arraycopy(data, start, out, offset, length);
+    }
+
     @Override
     public void setValue(int row, double value) {
         data[row] = value;
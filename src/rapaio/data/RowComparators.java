@@ -25,9 +25,17 @@
 package rapaio.data;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 /**
+ * Row comparators built on variables.
+ * <p>
+ * Comparators built here keep the variable and the sorting direction, which
+ * allows {@link RowSort} to sort rows on primitive keys instead of calling
+ * the comparators.
+ * <p>
  * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
  */
 public final class RowComparators implements Serializable {
@@ -36,7 +44,43 @@ public final class RowComparators implements Serializable {
 
     @SafeVarargs
     public static Comparator<Integer> from(final Comparator<Integer>... comparators) {
-        return (row1, row2) -> {
+        List<Comparator<Integer>> list = new ArrayList<>(comparators.length);
+        for (Comparator<Integer> comparator : comparators) {
+            list.add(comparator);
+        }
+        return new AggregateComparator(list);
+    }
+
+    public static Comparator<Integer> nominal(final Var var, final boolean asc) {
+        return new VarComparator(var, VarComparator.NOMINAL, asc);
+    }
+
+    public static Comparator<Integer> numeric(final Var var, final boolean asc) {
+        return new VarComparator(var, VarComparator.NUMERIC, asc);
+    }
+
+    public static Comparator<Integer> index(final Var var, final boolean asc) {
+        return new VarComparator(var, VarComparator.INDEX, asc);
+    }
+
+    public static Comparator<Integer> stamp(final Var var, final boolean asc) {
+        return new VarComparator(var, VarComparator.STAMP, asc);
+    }
+
+    /**
+     * Lexicographic comparator, the first comparator which does not find equal values decides.
+     */
+    static final class AggregateComparator implements Comparator<Integer>, Serializable {
+
+        private static final long serialVersionUID = 2524442297543442787L;
+        final List<Comparator<Integer>> comparators;
+
+        AggregateComparator(List<Comparator<Integer>> comparators) {
+            this.comparators = comparators;
+        }
+
+        @Override
+        public int compare(Integer row1, Integer row2) {
             for (Comparator<Integer> comparator : comparators) {
                 int comp = comparator.compare(row1, row2);
                 if (comp != 0) {
@@ -44,13 +88,48 @@ public final class RowComparators implements Serializable {
                 }
             }
             return 0;
-        };
+        }
     }
 
-    public static Comparator<Integer> nominal(final Var var, final boolean asc) {
-        final int sign = asc ? 1 : -1;
+    /**
+     * Comparator on the values of a variable.
+     */
+    static final class VarComparator implements Comparator<Integer>, Serializable {
+
+        private static final long serialVersionUID = -8141372587045925215L;
+
+        static final int NOMINAL = 0;
+        static final int NUMERIC = 1;
+        static final int INDEX = 2;
+        static final int STAMP = 3;
+
+        final Var var;
+        final int kind;
+        final boolean asc;
+        private final int sign;
+
+        VarComparator(Var var, int kind, boolean asc) {
+            this.var = var;
+            this.kind = kind;
+            this.asc = asc;
+            this.sign = asc ? 1 : -1;
+        }
+
+        @Override
+        public int compare(Integer row1, Integer row2) {
+            switch (kind) {
+                case NOMINAL:
+                    return compareNominal(row1, row2);
+                case NUMERIC:
+                    return compareNumeric(row1, row2);
+                case INDEX:
+                    return sign * Integer.compare(var.getIndex(row1), var.getIndex(row2));
+                default:
+                    return compareStamp(row1, row2);
+            }
+        }
 
-        return (row1, row2) -> {
+        private int compareNominal(int row1, int row2) {
             if (var.isMissing(row1) && var.isMissing(row2)) {
                 return 0;
             }
@@ -61,12 +140,9 @@ public final class RowComparators implements Serializable {
                 return sign;
             }
             return sign * var.getLabel(row1).compareTo(var.getLabel(row2));
-        };
-    }
+        }
 
-    public static Comparator<Integer> numeric(final Var var, final boolean asc) {
-        final int sign = asc ? 1 : -1;
-        return (row1, row2) -> {
+        private int compareNumeric(int row1, int row2) {
             double d1 = var.getValue(row1);
             double d2 = var.getValue(row2);
             if (d1 < d2)
@@ -81,18 +157,9 @@ public final class RowComparators implements Serializable {
             return (thisBits == anotherBits ? 0 : // Values are equal
                     (thisBits < anotherBits ? sign : // (-0.0, 0.0) or (!NaN, NaN)
                             -sign));                          // (0.0, -0.0) or (NaN, !NaN)
-        };
-    }
-
-    public static Comparator<Integer> index(final Var var, final boolean asc) {
-        final int sign = asc ? 1 : -1;
-        return (row1, row2) -> sign * Integer.compare(var.getIndex(row1), var.getIndex(row2));
-    }
-
-    public static Comparator<Integer> stamp(final Var var, final boolean asc) {
-        final int sign = asc ? 1 : -1;
+        }
 
-        return (row1, row2) -> {
+        private int compareStamp(int row1, int row2) {
             if (var.isMissing(row1) && var.isMissing(row2)) {
                 return 0;
             }
@@ -106,6 +173,6 @@ public final class RowComparators implements Serializable {
                 return 0;
             }
             return sign * (var.getStamp(row1) < var.getStamp(row2) ? -1 : 1);
-        };
+        }
     }
 }
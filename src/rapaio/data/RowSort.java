@@ -0,0 +1,520 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Sorting of row indexes on primitive keys.
+ * <p>
+ * Double and long keys are sorted with a least significant digit radix sort,
+ * integer keys are packed together with their positions into long values which
+ * are sorted with a dual pivot quick sort. All sorts are stable. Double keys
+ * follow the order of {@link Double#compare(double, double)}, thus missing
+ * values are last in ascending order. For large inputs the parallel mode sorts
+ * chunks of rows in parallel and merges them, also in parallel.
+ * <p>
+ * Rows can also be sorted with the comparators built by {@link RowComparators}:
+ * the keys are read once from variables and sorted lexicographically,
+ * from the last comparator to the first one, on primitive values. Numeric
+ * comparator keys keep the order of {@link RowComparators#numeric(Var, boolean)},
+ * which puts missing values first in ascending order.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public final class RowSort {
+
+    /**
+     * Minimum number of rows for which sorting with comparators is done in parallel.
+     */
+    public static final int PARALLEL_MIN_ROWS = 1 << 16;
+
+    private static final int INSERTION_MAX_ROWS = 64;
+    private static final int MERGE_MIN_CHUNK = 1 << 14;
+
+    private RowSort() {
+    }
+
+    /**
+     * Sorts row indexes using double keys.
+     *
+     * @param keys key values for each row
+     * @param asc  ascending if true, descending otherwise
+     * @return row indexes in sorted order
+     */
+    public static int[] argsort(double[] keys, boolean asc) {
+        return argsort(keys, asc, false);
+    }
+
+    public static int[] argsort(double[] keys, boolean asc, boolean parallel) {
+        long[] bits = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            bits[i] = doubleKey(keys[i], asc);
+        }
+        return sortUnsigned(bits, parallel);
+    }
+
+    /**
+     * Sorts row indexes using long keys.
+     *
+     * @param keys key values for each row
+     * @param asc  ascending if true, descending otherwise
+     * @return row indexes in sorted order
+     */
+    public static int[] argsort(long[] keys, boolean asc) {
+        return argsort(keys, asc, false);
+    }
+
+    public static int[] argsort(long[] keys, boolean asc, boolean parallel) {
+        long[] bits = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            bits[i] = longKey(keys[i], asc);
+        }
+        return sortUnsigned(bits, parallel);
+    }
+
+    /**
+     * Sorts row indexes using int keys.
+     *
+     * @param keys key values for each row
+     * @param asc  ascending if true, descending otherwise
+     * @return row indexes in sorted order
+     */
+    public static int[] argsort(int[] keys, boolean asc) {
+        return argsort(keys, asc, false);
+    }
+
+    public static int[] argsort(int[] keys, boolean asc, boolean parallel) {
+        if (asc) {
+            return sortInts(keys, parallel);
+        }
+        int[] reversed = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            reversed[i] = ~keys[i];
+        }
+        return sortInts(reversed, parallel);
+    }
+
+    /**
+     * Computes ascending ranks starting from 1, tied values receiving
+     * the average of the ranks they span. Missing values have missing ranks.
+     *
+     * @param values values to be ranked
+     * @return ranks of the values, in the original order
+     */
+    public static double[] averageRanks(double[] values) {
+        return averageRanks(values, argsort(values, true));
+    }
+
+    /**
+     * Computes average ranks as {@link #averageRanks(double[])}, using
+     * an ascending order of the values computed already.
+     *
+     * @param values values to be ranked
+     * @param order  ascending order of the values, as given by {@link #argsort(double[], boolean)}
+     * @return ranks of the values, in the original order
+     */
+    public static double[] averageRanks(double[] values, int[] order) {
+        double[] ranks = new double[values.length];
+        int start = 0;
+        for (int size : tieGroupSizes(values, order)) {
+            double rank = 1 + start + (size - 1) / 2.;
+            for (int i = start; i < start + size; i++) {
+                ranks[order[i]] = rank;
+            }
+            start += size;
+        }
+        // missing values are sorted last
+        for (int i = start; i < order.length; i++) {
+            ranks[order[i]] = Double.NaN;
+        }
+        return ranks;
+    }
+
+    /**
+     * Computes the sizes of the groups of equal values, in ascending order of values.
+     * Distinct values form groups of size 1. Missing values are not counted.
+     *
+     * @param values values to be grouped
+     * @param order  ascending order of the values, as given by {@link #argsort(double[], boolean)}
+     * @return sizes of the groups of tied values
+     */
+    public static int[] tieGroupSizes(double[] values, int[] order) {
+        int[] sizes = new int[order.length];
+        int len = 0;
+        int start = 0;
+        while (start < order.length) {
+            double value = values[order[start]];
+            if (Double.isNaN(value)) {
+                break;
+            }
+            int end = start;
+            while (end < order.length - 1 && values[order[end + 1]] == value) {
+                end++;
+            }
+            sizes[len++] = end - start + 1;
+            start = end + 1;
+        }
+        return Arrays.copyOf(sizes, len);
+    }
+
+    /**
+     * Sorts row indexes with a row comparator, in parallel for large inputs.
+     *
+     * @param rows       number of rows
+     * @param comparator row comparator
+     * @return row indexes in sorted order
+     */
+    public static int[] argsort(int rows, Comparator<Integer> comparator) {
+        return argsort(rows, rows >= PARALLEL_MIN_ROWS, comparator);
+    }
+
+    /**
+     * Sorts row indexes with a row comparator. If the comparator was built with
+     * {@link RowComparators}, sorting is done on primitive keys, otherwise
+     * the comparator is used directly.
+     *
+     * @param rows       number of rows
+     * @param parallel   if true, sorting is done in parallel
+     * @param comparator row comparator
+     * @return row indexes in sorted order
+     */
+    public static int[] argsort(int rows, boolean parallel, Comparator<Integer> comparator) {
+        List<RowComparators.VarComparator> keys = new ArrayList<>();
+        if (!flatten(comparator, keys)) {
+            Integer[] boxed = new Integer[rows];
+            for (int i = 0; i < rows; i++) {
+                boxed[i] = i;
+            }
+            if (parallel) {
+                Arrays.parallelSort(boxed, comparator);
+            } else {
+                Arrays.sort(boxed, comparator);
+            }
+            return Arrays.stream(boxed).mapToInt(i -> i).toArray();
+        }
+        int[] order = IntStream.range(0, rows).toArray();
+        for (int k = keys.size() - 1; k >= 0; k--) {
+            order = sortBy(order, keys.get(k), parallel);
+        }
+        return order;
+    }
+
+    private static boolean flatten(Comparator<Integer> comparator, List<RowComparators.VarComparator> keys) {
+        if (comparator instanceof RowComparators.VarComparator) {
+            keys.add((RowComparators.VarComparator) comparator);
+            return true;
+        }
+        if (comparator instanceof RowComparators.AggregateComparator) {
+            for (Comparator<Integer> c : ((RowComparators.AggregateComparator) comparator).comparators) {
+                if (!flatten(c, keys)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stable sort of the given rows on the key of a comparator.
+     */
+    private static int[] sortBy(int[] order, RowComparators.VarComparator key, boolean parallel) {
+        int n = order.length;
+        Var var = key.var;
+        int[] positions;
+        switch (key.kind) {
+            case RowComparators.VarComparator.NUMERIC: {
+                long[] bits = new long[n];
+                for (int i = 0; i < n; i++) {
+                    bits[i] = numericKey(var.getValue(order[i]), key.asc);
+                }
+                positions = sortUnsigned(bits, parallel);
+                break;
+            }
+            case RowComparators.VarComparator.STAMP: {
+                long[] bits = new long[n];
+                for (int i = 0; i < n; i++) {
+                    // missing values are first in ascending order
+                    long stamp = var.isMissing(order[i]) ? Long.MIN_VALUE : var.getStamp(order[i]);
+                    bits[i] = longKey(stamp, key.asc);
+                }
+                positions = sortUnsigned(bits, parallel);
+                break;
+            }
+            case RowComparators.VarComparator.INDEX: {
+                int[] keys = new int[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = key.asc ? var.getIndex(order[i]) : ~var.getIndex(order[i]);
+                }
+                positions = sortInts(keys, parallel);
+                break;
+            }
+            default: {
+                int[] keys = labelRanks(var, order);
+                if (!key.asc) {
+                    for (int i = 0; i < n; i++) {
+                        keys[i] = ~keys[i];
+                    }
+                }
+                positions = sortInts(keys, parallel);
+            }
+        }
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = order[positions[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Ranks of labels in lexicographic order, missing values have rank -1.
+     */
+    private static int[] labelRanks(Var var, int[] order) {
+        int[] ranks = new int[order.length];
+        if (var.getType() == VarType.NOMINAL || var.getType() == VarType.ORDINAL) {
+            // labels are given by dictionary, only dictionary is sorted
+            String[] levels = var.getLevels();
+            Integer[] sortedLevels = new Integer[levels.length - 1];
+            for (int i = 0; i < sortedLevels.length; i++) {
+                sortedLevels[i] = i + 1;
+            }
+            Arrays.sort(sortedLevels, Comparator.comparing(i -> levels[i]));
+            int[] levelRanks = new int[levels.length];
+            for (int i = 0; i < sortedLevels.length; i++) {
+                levelRanks[sortedLevels[i]] = i;
+            }
+            for (int i = 0; i < order.length; i++) {
+                ranks[i] = var.isMissing(order[i]) ? -1 : levelRanks[var.getIndex(order[i])];
+            }
+            return ranks;
+        }
+        Map<String, Integer> distinct = new HashMap<>();
+        for (int i = 0; i < order.length; i++) {
+            if (!var.isMissing(order[i])) {
+                distinct.putIfAbsent(var.getLabel(order[i]), distinct.size());
+            }
+        }
+        String[] labels = distinct.keySet().toArray(new String[0]);
+        Arrays.sort(labels);
+        for (int i = 0; i < labels.length; i++) {
+            distinct.put(labels[i], i);
+        }
+        for (int i = 0; i < order.length; i++) {
+            ranks[i] = var.isMissing(order[i]) ? -1 : distinct.get(var.getLabel(order[i]));
+        }
+        return ranks;
+    }
+
+    /**
+     * Maps a double to a long which, compared as unsigned, follows {@link Double#compare(double, double)}.
+     */
+    private static long doubleKey(double value, boolean asc) {
+        long bits = Double.doubleToLongBits(value);
+        bits ^= (bits >> 63) | Long.MIN_VALUE;
+        return asc ? bits : ~bits;
+    }
+
+    /**
+     * Maps a double to a long which, compared as unsigned, follows the order of
+     * numeric row comparators: missing values are the smallest and 0.0 is before -0.0.
+     */
+    private static long numericKey(double value, boolean asc) {
+        long bits;
+        if (Double.isNaN(value)) {
+            // no other value maps to 0, the largest negative value is -Inf
+            bits = 0;
+        } else {
+            // keys of 0.0 and -0.0 are adjacent, they swap places
+            bits = doubleKey(value == 0 ? -value : value, true);
+        }
+        return asc ? bits : ~bits;
+    }
+
+    /**
+     * Maps a signed long to a long which, compared as unsigned, has the same order.
+     */
+    private static long longKey(long value, boolean asc) {
+        long bits = value ^ Long.MIN_VALUE;
+        return asc ? bits : ~bits;
+    }
+
+    /**
+     * Stable sort of int keys, keys are packed with their position, thus equal
+     * keys keep their order and a dual pivot quick sort can be used.
+     */
+    private static int[] sortInts(int[] keys, boolean parallel) {
+        long[] packed = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            packed[i] = ((long) keys[i] << 32) | i;
+        }
+        if (parallel) {
+            Arrays.parallelSort(packed);
+        } else {
+            Arrays.sort(packed);
+        }
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            positions[i] = (int) packed[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Stable sort of positions by keys compared as unsigned values. Keys are reordered.
+     */
+    private static int[] sortUnsigned(long[] keys, boolean parallel) {
+        int n = keys.length;
+        int[] positions = IntStream.range(0, n).toArray();
+        long[] keyBuffer = new long[n];
+        int[] positionBuffer = new int[n];
+
+        int chunks = 1;
+        if (parallel) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            while (chunks < processors && n / (2 * chunks) >= MERGE_MIN_CHUNK) {
+                chunks *= 2;
+            }
+        }
+        if (chunks == 1) {
+            radixSort(keys, positions, 0, n, keyBuffer, positionBuffer);
+            return positions;
+        }
+
+        // sort chunks, than merge pairs of sorted chunks until there is a single one
+        int size = (n + chunks - 1) / chunks;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> radixSort(keys, positions,
+                Math.min(n, chunk * size), Math.min(n, (chunk + 1) * size), keyBuffer, positionBuffer));
+
+        long[] srcKeys = keys;
+        int[] srcPositions = positions;
+        long[] dstKeys = keyBuffer;
+        int[] dstPositions = positionBuffer;
+        for (int width = size; width < n; width *= 2) {
+            final int w = width;
+            final long[] sk = srcKeys;
+            final int[] sp = srcPositions;
+            final long[] dk = dstKeys;
+            final int[] dp = dstPositions;
+            int pairs = (n + 2 * w - 1) / (2 * w);
+            IntStream.range(0, pairs).parallel().forEach(pair -> {
+                int lo = pair * 2 * w;
+                merge(sk, sp, dk, dp, lo, Math.min(n, lo + w), Math.min(n, lo + 2 * w));
+            });
+            srcKeys = dk;
+            srcPositions = dp;
+            dstKeys = sk;
+            dstPositions = sp;
+        }
+        return srcPositions;
+    }
+
+    private static void merge(long[] srcKeys, int[] srcPositions, long[] dstKeys, int[] dstPositions,
+                              int lo, int mid, int hi) {
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (j >= hi || (i < mid && Long.compareUnsigned(srcKeys[i], srcKeys[j]) <= 0)) {
+                dstKeys[k] = srcKeys[i];
+                dstPositions[k] = srcPositions[i++];
+            } else {
+                dstKeys[k] = srcKeys[j];
+                dstPositions[k] = srcPositions[j++];
+            }
+        }
+    }
+
+    /**
+     * Least significant digit radix sort with byte digits on a range of values. Digits
+     * which have the same value for all keys are skipped. Buffers are used on the same range.
+     */
+    private static void radixSort(long[] keys, int[] positions, int from, int to, long[] keyBuffer, int[] positionBuffer) {
+        if (to - from <= INSERTION_MAX_ROWS) {
+            insertionSort(keys, positions, from, to);
+            return;
+        }
+        long[] srcKeys = keys;
+        int[] srcPositions = positions;
+        long[] dstKeys = keyBuffer;
+        int[] dstPositions = positionBuffer;
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = from; i < to; i++) {
+                counts[(int) ((srcKeys[i] >>> shift) & 0xff) + 1]++;
+            }
+            boolean constant = false;
+            for (int d = 1; d < counts.length; d++) {
+                if (counts[d] == to - from) {
+                    constant = true;
+                    break;
+                }
+            }
+            if (constant) {
+                continue;
+            }
+            counts[0] = from;
+            for (int d = 1; d < counts.length; d++) {
+                counts[d] += counts[d - 1];
+            }
+            for (int i = from; i < to; i++) {
+                int pos = counts[(int) ((srcKeys[i] >>> shift) & 0xff)]++;
+                dstKeys[pos] = srcKeys[i];
+                dstPositions[pos] = srcPositions[i];
+            }
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            int[] tp = srcPositions;
+            srcPositions = dstPositions;
+            dstPositions = tp;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, from, keys, from, to - from);
+            System.arraycopy(srcPositions, from, positions, from, to - from);
+        }
+    }
+
+    private static void insertionSort(long[] keys, int[] positions, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int position = positions[i];
+            int j = i - 1;
+            while (j >= from && Long.compareUnsigned(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            positions[j + 1] = position;
+        }
+    }
+}
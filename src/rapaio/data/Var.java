@@ -25,6 +25,7 @@
 package rapaio.data;
 
 import rapaio.data.filter.VFilter;
+import rapaio.data.stream.VChunk;
 import rapaio.data.stream.VSpot;
 import rapaio.data.stream.VSpots;
 import rapaio.printer.Printable;
@@ -113,6 +114,20 @@ public interface Var extends Serializable, Printable {
      */
     double getValue(int row);
 
+    /**
+     * Copies numeric values for a range of observations into the given array.
+     *
+     * @param start  position of the first observation
+     * @param length number of observations
+     * @param out    array where the values are stored
+     * @param offset position in the array of the first value
+     */
+    default void getValues(int start, int length, double[] out, int offset) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = getValue(start + i);
+        }
+    }
+
     /**
      * Set numeric value for the observation specified by {@param row} to {@param value}.
      * <p>
@@ -139,6 +154,20 @@ public interface Var extends Serializable, Printable {
      */
     int getIndex(int row);
 
+    /**
+     * Copies index values for a range of observations into the given array.
+     *
+     * @param start  position of the first observation
+     * @param length number of observations
+     * @param out    array where the index values are stored
+     * @param offset position in the array of the first index value
+     */
+    default void getIndexes(int start, int length, int[] out, int offset) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = getIndex(start + i);
+        }
+    }
+
     /**
      * Set index value for the observation specified by {@param row}.
      *
@@ -352,6 +381,17 @@ public interface Var extends Serializable, Printable {
         return IntStream.range(0, getRowCount()).mapToObj(row -> new VSpot(row, this)).collect(Collectors.toList());
     }
 
+    /**
+     * Returns a stream of chunks of consecutive observations, an alternative
+     * to {@link #stream()} when values are processed in bulk.
+     *
+     * @param chunkSize maximum number of observations in a chunk
+     * @return a stream of variable chunks
+     */
+    default Stream<VChunk> chunkStream(int chunkSize) {
+        return VChunk.stream(this, chunkSize);
+    }
+
     default Var fitApply(VFilter... inputFilters) {
         Var var = this;
         for (VFilter filter : inputFilters) {
@@ -24,6 +24,7 @@
 
 package rapaio.data.filter.frame;
 
+import rapaio.core.stat.TDigest;
 import rapaio.data.BoundFrame;
 import rapaio.data.Frame;
 import rapaio.data.VRange;
@@ -65,6 +66,20 @@ public class FFQuantileDiscrete extends AbstractFF {
         }
     }
 
+    /**
+     * Trains the filters with quantiles estimated by streaming sketches, one for each
+     * variable name, for data which was not loaded in memory.
+     */
+    public void train(Map<String, TDigest> sketches) {
+        filters.clear();
+        varNames = sketches.keySet().toArray(new String[0]);
+        for (Map.Entry<String, TDigest> e : sketches.entrySet()) {
+            VFQuantileDiscrete filter = new VFQuantileDiscrete(k);
+            filter.fit(e.getValue());
+            filters.put(e.getKey(), filter);
+        }
+    }
+
     @Override
     public Frame apply(Frame df) {
 
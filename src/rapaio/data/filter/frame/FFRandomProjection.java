@@ -24,7 +24,7 @@
 
 package rapaio.data.filter.frame;
 
-import rapaio.core.SamplingTools;
+import rapaio.core.AliasSampler;
 import rapaio.core.distributions.Normal;
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
@@ -121,9 +121,10 @@ public class FFRandomProjection extends AbstractFF {
         p[2] = 1 / (2 * s);
 
         double sqrt = Math.sqrt(s);
+        AliasSampler sampler = AliasSampler.from(p);
 
         return rowCount -> {
-            int[] sample = SamplingTools.sampleWeightedWR(rowCount, p);
+            int[] sample = sampler.sample(rowCount);
             RV v = SolidRV.empty(rowCount);
             for (int i = 0; i < sample.length; i++) {
                 if (sample[i] == 0) {
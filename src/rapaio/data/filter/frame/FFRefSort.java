@@ -26,7 +26,7 @@ package rapaio.data.filter.frame;
 
 import rapaio.data.*;
 
-import java.util.*;
+import java.util.Comparator;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> at 12/5/14.
@@ -54,11 +54,7 @@ public class FFRefSort extends AbstractFF {
 
     @Override
     public Frame apply(Frame df) {
-        Integer[] rowArray = new Integer[df.getRowCount()];
-        for (int i = 0; i < rowArray.length; i++) {
-            rowArray[i] = i;
-        }
-        Arrays.sort(rowArray, aggregateComparator);
-        return MappedFrame.byRow(df, Mapping.wrap(Arrays.asList(rowArray)));
+        int[] rows = RowSort.argsort(df.getRowCount(), aggregateComparator);
+        return MappedFrame.byRow(df, Mapping.wrap(rows));
     }
 }
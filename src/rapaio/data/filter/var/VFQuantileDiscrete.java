@@ -25,15 +25,13 @@
 package rapaio.data.filter.var;
 
 import rapaio.core.CoreTools;
+import rapaio.core.stat.TDigest;
 import rapaio.data.NominalVar;
 import rapaio.data.Var;
 import rapaio.sys.WS;
-import rapaio.util.func.SPredicate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Make a numerical variable a nominal one with intervals specified by quantiles.
@@ -46,7 +44,6 @@ public class VFQuantileDiscrete extends AbstractVF {
 
     private final int k;
     List<String> dict = new ArrayList<>();
-    Map<String, SPredicate<Double>> predicates = new HashMap<>();
     double[] qv;
 
     public VFQuantileDiscrete(int k) {
@@ -60,32 +57,45 @@ public class VFQuantileDiscrete extends AbstractVF {
     public void fit(Var... vars) {
         super.checkSingleVar(vars);
 
+        Var original = vars[0];
+        qv = CoreTools.quantiles(original, probabilities()).getValues();
+        buildIntervals();
+    }
+
+    /**
+     * Fits the intervals using quantiles estimated by a streaming sketch,
+     * for data which was not loaded in memory.
+     */
+    public void fit(TDigest sketch) {
+        qv = sketch.quantiles(probabilities());
+        buildIntervals();
+    }
+
+    private double[] probabilities() {
         double len = 1.0 / k;
         double[] q = new double[k - 1];
         for (int i = 0; i < q.length; i++) {
             q[i] = len * (i + 1);
         }
-        Var original = vars[0];
+        return q;
+    }
 
-        qv = CoreTools.quantiles(original, q).getValues();
+    private void buildIntervals() {
+        dict.clear();
 
         // first interval
 
         dict.add("-Inf~" + WS.formatFlexShort(qv[0]));
-        predicates.put("-Inf~" + WS.formatFlexShort(qv[0]), x -> x <= qv[0]);
 
         // mid intervals
 
         for (int i = 1; i < qv.length; i++) {
-            int index = i;
             dict.add(WS.formatFlexShort(qv[i - 1]) + "~" + WS.formatFlexShort(qv[i]));
-            predicates.put(WS.formatFlexShort(qv[i - 1]) + "~" + WS.formatFlexShort(qv[i]), x -> x > qv[index - 1] && x <= qv[index]);
         }
 
         // last interval
 
         dict.add(WS.formatFlexShort(qv[qv.length - 1]) + "~Inf");
-        predicates.put(WS.formatFlexShort(qv[qv.length - 1]) + "~Inf", x -> x > qv[qv.length - 1]);
     }
 
     @Override
@@ -96,13 +106,23 @@ public class VFQuantileDiscrete extends AbstractVF {
 
         NominalVar result = NominalVar.empty(0, dict).withName(original.getName());
         for (int i = 0; i < original.getRowCount(); i++) {
-            if (original.isMissing(i))
+            if (original.isMissing(i)) {
                 result.addMissing();
-            for (Map.Entry<String, SPredicate<Double>> e : predicates.entrySet()) {
-                if (e.getValue().test(original.getValue(i))) {
-                    result.addLabel(e.getKey());
+                continue;
+            }
+            // intervals are closed to the right, the first one with x <= qv[pos] is found by binary search
+            double x = original.getValue(i);
+            int low = 0;
+            int high = qv.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (x <= qv[mid]) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
                 }
             }
+            result.addLabel(dict.get(low));
         }
         return result;
     }
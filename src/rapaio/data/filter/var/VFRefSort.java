@@ -26,12 +26,10 @@ package rapaio.data.filter.var;
 
 import rapaio.data.Mapping;
 import rapaio.data.RowComparators;
+import rapaio.data.RowSort;
 import rapaio.data.Var;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.List;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> at 12/3/14.
@@ -57,11 +55,7 @@ public class VFRefSort extends AbstractVF {
 
     @Override
     public Var apply(Var... vars) {
-        List<Integer> rows = new ArrayList<>(vars[0].getRowCount());
-        for (int i = 0; i < vars[0].getRowCount(); i++) {
-            rows.add(i);
-        }
-        Collections.sort(rows, aggregateComparator);
+        int[] rows = RowSort.argsort(vars[0].getRowCount(), aggregateComparator);
         return vars[0].mapRows(Mapping.wrap(rows));
     }
 }
@@ -24,11 +24,14 @@
 
 package rapaio.data.sample;
 
+import rapaio.core.RandomSource;
 import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 
+import java.util.Random;
+
 import static rapaio.sys.WS.formatFlex;
 
 /**
@@ -48,7 +51,12 @@ final class Bootstrap implements RowSampler {
 
     @Override
     public Sample nextSample(Frame df, Var weights) {
-        Mapping map = Mapping.copy(SamplingTools.sampleWR(df.getRowCount(), (int) (percent * df.getRowCount())));
+        return nextSample(df, weights, RandomSource.getRandom());
+    }
+
+    @Override
+    public Sample nextSample(Frame df, Var weights, Random random) {
+        Mapping map = Mapping.wrap(SamplingTools.sampleWR(df.getRowCount(), (int) (percent * df.getRowCount()), random));
         return new Sample(df.mapRows(map), weights.mapRows(map), map);
     }
 
@@ -28,6 +28,8 @@ import rapaio.data.Frame;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 
+import java.util.Random;
+
 /**
  * Identity sampling means the sample is identical with the original set of data
  *
@@ -42,6 +44,12 @@ final class Identity implements RowSampler {
         return new Sample(df, weights, Mapping.range(0, df.getRowCount()));
     }
 
+    @Override
+    public Sample nextSample(Frame df, Var weights, Random random) {
+        // identity sample does not use random numbers
+        return nextSample(df, weights);
+    }
+
     @Override
     public String name() {
         return "Identity";
@@ -28,6 +28,7 @@ import rapaio.data.Frame;
 import rapaio.data.Var;
 
 import java.io.Serializable;
+import java.util.Random;
 
 /**
  * Interface which defines a function which produces a data frame with a sample
@@ -50,6 +51,20 @@ public interface RowSampler extends Serializable {
      */
     Sample nextSample(Frame df, Var weight);
 
+    /**
+     * Builds a new sample from the given data frame, drawing random numbers
+     * from the given generator instead of the shared random source.
+     * Samplers which do not override this method ignore the generator.
+     *
+     * @param df     source data frame
+     * @param weight weights of the rows
+     * @param random random number generator
+     * @return new sample
+     */
+    default Sample nextSample(Frame df, Var weight, Random random) {
+        return nextSample(df, weight);
+    }
+
     static RowSampler identity() {
         return new Identity();
     }
@@ -62,6 +77,14 @@ public interface RowSampler extends Serializable {
         return new Bootstrap(p);
     }
 
+    static RowSampler weightedBootstrap() {
+        return new WeightedBootstrap(1.0);
+    }
+
+    static RowSampler weightedBootstrap(double p) {
+        return new WeightedBootstrap(p);
+    }
+
     static RowSampler subsampler(double p) {
         return new SubSampler(p);
     }
@@ -24,11 +24,14 @@
 
 package rapaio.data.sample;
 
+import rapaio.core.RandomSource;
 import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 
+import java.util.Random;
+
 import static rapaio.sys.WS.formatFlex;
 
 /**
@@ -47,7 +50,12 @@ final class SubSampler implements RowSampler {
 
     @Override
     public Sample nextSample(Frame df, Var weights) {
-        Mapping map = Mapping.copy(SamplingTools.sampleWOR(df.getRowCount(), (int) (percent * df.getRowCount())));
+        return nextSample(df, weights, RandomSource.getRandom());
+    }
+
+    @Override
+    public Sample nextSample(Frame df, Var weights, Random random) {
+        Mapping map = Mapping.wrap(SamplingTools.sampleWOR(df.getRowCount(), (int) (percent * df.getRowCount()), random));
         return new Sample(df.mapRows(map), weights.mapRows(map), map);
     }
 
@@ -0,0 +1,72 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.sample;
+
+import rapaio.core.AliasSampler;
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.NumericVar;
+import rapaio.data.Var;
+
+import java.util.Random;
+
+import static rapaio.sys.WS.formatFlex;
+
+/**
+ * Weighted bootstrap row sampling, rows being drawn with replacement with
+ * probabilities proportional to their weights. Since weights are used for
+ * sampling, all the weights of the sample are set to one.
+ */
+final class WeightedBootstrap implements RowSampler {
+
+    private static final long serialVersionUID = 5180839120947812117L;
+    private final double percent;
+
+    public WeightedBootstrap(double percent) {
+        this.percent = percent;
+    }
+
+    @Override
+    public Sample nextSample(Frame df, Var weights) {
+        return nextSample(df, weights, RandomSource.getRandom());
+    }
+
+    @Override
+    public Sample nextSample(Frame df, Var weights, Random random) {
+        double[] w = new double[weights.getRowCount()];
+        for (int i = 0; i < w.length; i++) {
+            w[i] = weights.getValue(i);
+        }
+        int size = (int) (percent * df.getRowCount());
+        Mapping map = Mapping.wrap(AliasSampler.from(w).sample(size, random));
+        return new Sample(df.mapRows(map), NumericVar.fill(size, 1), map);
+    }
+
+    @Override
+    public String name() {
+        return "WeightedBootstrap(p=" + formatFlex(percent) + ")";
+    }
+}
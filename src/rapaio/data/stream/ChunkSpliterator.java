@@ -0,0 +1,94 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.stream;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over consecutive ranges of rows. Splitting is done at chunk
+ * boundaries, thus the chunks are the same regardless the stream is
+ * consumed sequentially or in parallel.
+ *
+ * @author <a href="mailto:padreati@yahoo.com>Aurelian Tutuianu</a>
+ */
+final class ChunkSpliterator<T> implements Spliterator<T> {
+
+    /**
+     * Builds a chunk for the given range of rows
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+        T newChunk(int start, int length);
+    }
+
+    private final Factory<T> factory;
+    private final int chunkSize;
+    private final int end;
+    private int next;
+
+    ChunkSpliterator(Factory<T> factory, int start, int end, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.factory = factory;
+        this.next = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (next >= end) {
+            return false;
+        }
+        int length = Math.min(chunkSize, end - next);
+        action.accept(factory.newChunk(next, length));
+        next += length;
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        long chunks = estimateSize();
+        if (chunks < 2) {
+            return null;
+        }
+        int mid = next + (int) (chunks / 2) * chunkSize;
+        ChunkSpliterator<T> prefix = new ChunkSpliterator<>(factory, next, mid, chunkSize);
+        next = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return next >= end ? 0 : ((long) end - next + chunkSize - 1) / chunkSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
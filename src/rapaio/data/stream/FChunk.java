@@ -0,0 +1,198 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.stream;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Frame chunk is a reference to a range of consecutive rows from a frame.
+ * <p>
+ * It is an alternative to {@link FSpot} streams when rows are processed in bulk.
+ * For each variable, the values, indexes and missing flags of the whole range
+ * are copied into primitive arrays, which can be supplied by caller and reused
+ * between chunks. Variables are resolved once for a stream of chunks, thus mapped
+ * and bound frames are handled by gathering values directly from their sources.
+ * Missing bitmaps have the same layout as in {@link VChunk}.
+ *
+ * @author <a href="mailto:padreati@yahoo.com>Aurelian Tutuianu</a>
+ */
+public final class FChunk {
+
+    /**
+     * Builds a stream of consecutive chunks over all rows of a frame.
+     * The stream can be turned into a parallel one, in which case it is split at
+     * chunk boundaries.
+     *
+     * @param df        source frame
+     * @param chunkSize maximum number of rows in a chunk
+     * @return stream of chunks
+     */
+    public static Stream<FChunk> stream(Frame df, int chunkSize) {
+        Var[] vars = new Var[df.getVarCount()];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = df.getVar(i);
+        }
+        return StreamSupport.stream(new ChunkSpliterator<>(
+                (start, length) -> new FChunk(df, vars, start, length), 0, df.getRowCount(), chunkSize), false);
+    }
+
+    private final Frame df;
+    private final Var[] vars;
+    private final int start;
+    private final int length;
+
+    /**
+     * Builds a frame chunk for the given range of rows
+     *
+     * @param df     source frame
+     * @param start  first row of the chunk
+     * @param length number of rows
+     */
+    public FChunk(Frame df, int start, int length) {
+        this(df, df.varStream().toArray(Var[]::new), start, length);
+    }
+
+    private FChunk(Frame df, Var[] vars, int start, int length) {
+        if (start < 0 || length < 0 || start + length > df.getRowCount()) {
+            throw new IllegalArgumentException("chunk range is not valid for frame: start=" + start + ", length=" + length);
+        }
+        this.df = df;
+        this.vars = vars;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * @return the underlying frame
+     */
+    public Frame getFrame() {
+        return df;
+    }
+
+    /**
+     * @return first row of the chunk
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return number of rows in chunk
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return number of variables
+     */
+    public int getVarCount() {
+        return vars.length;
+    }
+
+    /**
+     * @param varName variable name
+     * @return index of the variable with the given name
+     */
+    public int getVarIndex(String varName) {
+        return df.getVarIndex(varName);
+    }
+
+    /**
+     * @param varIndex index of the variable
+     * @return new array with numeric values of the given variable
+     */
+    public double[] getValues(int varIndex) {
+        double[] values = new double[length];
+        vars[varIndex].getValues(start, length, values, 0);
+        return values;
+    }
+
+    /**
+     * Copies numeric values of the given variable into the given array
+     *
+     * @param varIndex index of the variable
+     * @param out      array where values are stored
+     * @param offset   position in array of the first value
+     */
+    public void getValues(int varIndex, double[] out, int offset) {
+        vars[varIndex].getValues(start, length, out, offset);
+    }
+
+    /**
+     * @param varIndex index of the variable
+     * @return new array with index values of the given variable
+     */
+    public int[] getIndexes(int varIndex) {
+        int[] indexes = new int[length];
+        vars[varIndex].getIndexes(start, length, indexes, 0);
+        return indexes;
+    }
+
+    /**
+     * Copies index values of the given variable into the given array
+     *
+     * @param varIndex index of the variable
+     * @param out      array where index values are stored
+     * @param offset   position in array of the first index value
+     */
+    public void getIndexes(int varIndex, int[] out, int offset) {
+        vars[varIndex].getIndexes(start, length, out, offset);
+    }
+
+    /**
+     * @param varIndex index of the variable
+     * @return new bitmap with missing flags of the given variable
+     */
+    public long[] getMissing(int varIndex) {
+        long[] bits = new long[(length + 63) >>> 6];
+        getMissing(varIndex, bits);
+        return bits;
+    }
+
+    /**
+     * Fills the given bitmap with missing flags of the given variable.
+     * The bitmap must have at least {@code (length + 63) / 64} elements.
+     *
+     * @param varIndex index of the variable
+     * @param bits     bitmap where missing flags are stored
+     * @return number of missing values
+     */
+    public int getMissing(int varIndex, long[] bits) {
+        return VChunk.fillMissing(vars[varIndex], start, length, bits);
+    }
+
+    /**
+     * @param varIndex index of the variable
+     * @return chunk of the given variable for the same range of rows
+     */
+    public VChunk getVarChunk(int varIndex) {
+        return new VChunk(vars[varIndex], start, length);
+    }
+}
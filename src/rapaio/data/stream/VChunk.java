@@ -0,0 +1,206 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.stream;
+
+import rapaio.data.Var;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Variable chunk is a reference to a range of consecutive observations from a variable.
+ * <p>
+ * It is an alternative to {@link VSpot} streams when values are processed in bulk:
+ * values, indexes and missing flags for the whole range are copied into primitive arrays,
+ * which can be supplied by caller and reused between chunks. Missing flags are given as a
+ * bitmap, bit {@code i % 64} of the element {@code i / 64} corresponds to the observation
+ * with position {@code i} inside the chunk.
+ *
+ * @author <a href="mailto:padreati@yahoo.com>Aurelian Tutuianu</a>
+ */
+public final class VChunk {
+
+    /**
+     * Builds a stream of consecutive chunks over all observations of a variable.
+     * The stream can be turned into a parallel one, in which case it is split at
+     * chunk boundaries.
+     *
+     * @param var       source variable
+     * @param chunkSize maximum number of observations in a chunk
+     * @return stream of chunks
+     */
+    public static Stream<VChunk> stream(Var var, int chunkSize) {
+        return StreamSupport.stream(new ChunkSpliterator<>(
+                (start, length) -> new VChunk(var, start, length), 0, var.getRowCount(), chunkSize), false);
+    }
+
+    private final Var var;
+    private final int start;
+    private final int length;
+
+    /**
+     * Builds a variable chunk for the given range of observations
+     *
+     * @param var    source variable
+     * @param start  position of the first observation
+     * @param length number of observations
+     */
+    public VChunk(Var var, int start, int length) {
+        if (start < 0 || length < 0 || start + length > var.getRowCount()) {
+            throw new IllegalArgumentException("chunk range is not valid for variable: start=" + start + ", length=" + length);
+        }
+        this.var = var;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * @return the underlying variable
+     */
+    public Var getVar() {
+        return var;
+    }
+
+    /**
+     * @return position in variable of the first observation of the chunk
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return number of observations in chunk
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return new array with numeric values of the observations in chunk
+     */
+    public double[] getValues() {
+        double[] values = new double[length];
+        var.getValues(start, length, values, 0);
+        return values;
+    }
+
+    /**
+     * Copies numeric values of the observations in chunk into the given array
+     *
+     * @param out    array where values are stored
+     * @param offset position in array of the first value
+     */
+    public void getValues(double[] out, int offset) {
+        var.getValues(start, length, out, offset);
+    }
+
+    /**
+     * @return new array with index values of the observations in chunk
+     */
+    public int[] getIndexes() {
+        int[] indexes = new int[length];
+        var.getIndexes(start, length, indexes, 0);
+        return indexes;
+    }
+
+    /**
+     * Copies index values of the observations in chunk into the given array
+     *
+     * @param out    array where index values are stored
+     * @param offset position in array of the first index value
+     */
+    public void getIndexes(int[] out, int offset) {
+        var.getIndexes(start, length, out, offset);
+    }
+
+    /**
+     * @return new bitmap with missing flags of the observations in chunk
+     */
+    public long[] getMissing() {
+        long[] bits = new long[(length + 63) >>> 6];
+        getMissing(bits);
+        return bits;
+    }
+
+    /**
+     * Fills the given bitmap with missing flags of the observations in chunk.
+     * The bitmap must have at least {@code (length + 63) / 64} elements.
+     *
+     * @param bits bitmap where missing flags are stored
+     * @return number of missing values
+     */
+    public int getMissing(long[] bits) {
+        return fillMissing(var, start, length, bits);
+    }
+
+    /**
+     * @param pos position of observation inside chunk
+     * @return true if the observation has missing value, false otherwise
+     */
+    public boolean isMissing(int pos) {
+        return var.isMissing(start + pos);
+    }
+
+    /**
+     * @return true if there is at least one missing value in chunk
+     */
+    public boolean hasMissing() {
+        for (int i = 0; i < length; i++) {
+            if (var.isMissing(start + i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests a flag from a missing bitmap
+     *
+     * @param bits missing bitmap
+     * @param pos  position of observation inside chunk
+     * @return true if the flag is set, false otherwise
+     */
+    public static boolean isMissing(long[] bits, int pos) {
+        return (bits[pos >>> 6] & (1L << pos)) != 0;
+    }
+
+    static int fillMissing(Var var, int start, int length, long[] bits) {
+        int count = 0;
+        int words = (length + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            long word = 0;
+            int from = w << 6;
+            int to = Math.min(from + 64, length);
+            for (int i = from; i < to; i++) {
+                if (var.isMissing(start + i)) {
+                    word |= 1L << i;
+                    count++;
+                }
+            }
+            bits[w] = word;
+        }
+        return count;
+    }
+}
@@ -48,6 +48,8 @@ import static rapaio.graphics.Plotter.*;
 import static rapaio.sys.WS.print;
 
 /**
+ * Use {@link rapaio.ml.eval.CValidation} for cross validation and bootstrap evaluation.
+ *
  * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
  */
 @Deprecated
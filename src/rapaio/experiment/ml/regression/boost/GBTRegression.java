@@ -24,14 +24,18 @@
 
 package rapaio.experiment.ml.regression.boost;
 
+import rapaio.core.RandomSource;
+import rapaio.core.SamplingTools;
 import rapaio.data.*;
 import rapaio.data.sample.RowSampler;
+import rapaio.data.sample.Sample;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.regression.AbstractRegression;
 import rapaio.ml.regression.RFit;
 import rapaio.ml.regression.Regression;
 import rapaio.experiment.ml.regression.boost.gbt.BTRegression;
 import rapaio.experiment.ml.regression.boost.gbt.GBTLossFunction;
+import rapaio.experiment.ml.regression.boost.gbt.GOSS;
 import rapaio.ml.regression.simple.L2Regression;
 import rapaio.ml.regression.tree.RTree;
 import rapaio.printer.Printable;
@@ -44,6 +48,12 @@ import static rapaio.sys.WS.formatFlex;
 /**
  * Gradient Boosting Tree
  * <p>
+ * Optionally a validation frame can be tracked during training. The losses on train and
+ * validation data are maintained incrementally after each stage, training can stop early
+ * when the validation loss does not improve for a given number of stages and the fit is
+ * truncated at the stage with the best validation loss. With warm start enabled, a new
+ * training call adds stages to an already trained model.
+ * <p>
  * User: Aurelian Tutuianu <padreati@yahoo.com>
  */
 @Deprecated
@@ -57,11 +67,20 @@ public class GBTRegression extends AbstractRegression implements Printable {
     Regression initRegression = L2Regression.create();
     BTRegression regressor = RTree.buildCART().withMaxDepth(4).withMinCount(10);
     double shrinkage = 1.0;
+    transient Frame validation;
+    int patience = 0;
+    boolean warmStart = false;
+    int fitStages = -1;
+    double colSample = 1.0;
+    GOSS goss;
 
     // prediction
     NumericVar fitLearn;
     NumericVar fitValues;
     List<BTRegression> trees;
+    NumericVar trainScores;
+    NumericVar validationScores;
+    int bestStage;
 
     @Override
     public Regression newInstance() {
@@ -71,6 +90,12 @@ public class GBTRegression extends AbstractRegression implements Printable {
                 .withRegressor(regressor)
                 .withShrinkage(shrinkage)
                 .withSampler(sampler())
+                .withValidation(validation)
+                .withEarlyStopping(patience)
+                .withWarmStart(warmStart)
+                .withFitStages(fitStages)
+                .withColSample(colSample)
+                .withGOSS(goss)
                 .withRuns(runs());
     }
 
@@ -124,6 +149,93 @@ public class GBTRegression extends AbstractRegression implements Printable {
         return this;
     }
 
+    /**
+     * Validation frame, which must contain the target variable, used to
+     * compute the validation loss after each stage.
+     */
+    public GBTRegression withValidation(Frame validation) {
+        this.validation = validation;
+        return this;
+    }
+
+    /**
+     * Stops training when the validation loss does not improve for the given
+     * number of consecutive stages. A value of 0 disables early stopping.
+     */
+    public GBTRegression withEarlyStopping(int patience) {
+        if (patience < 0) {
+            throw new IllegalArgumentException("patience must be non negative");
+        }
+        this.patience = patience;
+        return this;
+    }
+
+    /**
+     * If true, training a model which was already trained adds {@code runs}
+     * new stages to the existing ones, instead of starting from scratch.
+     */
+    public GBTRegression withWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+        return this;
+    }
+
+    /**
+     * Number of stages used for fit. A negative value means that the stages up to
+     * the best validation loss are used, or all stages if no validation was tracked.
+     */
+    public GBTRegression withFitStages(int fitStages) {
+        this.fitStages = fitStages;
+        return this;
+    }
+
+    /**
+     * Fraction of input variables randomly selected for each tree, a value of 1 uses all inputs.
+     */
+    public GBTRegression withColSample(double colSample) {
+        if (colSample <= 0 || colSample > 1) {
+            throw new IllegalArgumentException("column sample fraction must be in interval (0, 1]");
+        }
+        this.colSample = colSample;
+        return this;
+    }
+
+    /**
+     * Gradient based one-side sampling of rows for each tree. If specified,
+     * it is used instead of the row sampler. A null value disables it.
+     */
+    public GBTRegression withGOSS(GOSS goss) {
+        this.goss = goss;
+        return this;
+    }
+
+    /**
+     * @return number of trained stages
+     */
+    public int getStages() {
+        return (trees == null) ? 0 : trees.size();
+    }
+
+    /**
+     * @return number of stages with the best validation loss, or all stages if no validation was tracked
+     */
+    public int getBestStage() {
+        return bestStage;
+    }
+
+    /**
+     * @return loss on train data after each stage
+     */
+    public NumericVar getTrainScores() {
+        return trainScores;
+    }
+
+    /**
+     * @return loss on validation data after each stage
+     */
+    public NumericVar getValidationScores() {
+        return validationScores;
+    }
+
     public GBTRegression withSampler(RowSampler sampler) {
         return (GBTRegression) super.withSampler(sampler);
     }
@@ -138,14 +250,28 @@ public class GBTRegression extends AbstractRegression implements Printable {
         Var y = df.getVar(firstTargetName());
         Frame x = df.removeVars(VRange.of(firstTargetName()));
 
-        initRegression.train(df, firstTargetName());
-        RFit initPred = initRegression.fit(df, false);
-        trees = new ArrayList<>();
+        if (!(warmStart && trees != null)) {
+            initRegression.train(df, firstTargetName());
+            trees = new ArrayList<>();
+            trainScores = NumericVar.empty().withName("train");
+            validationScores = NumericVar.empty().withName("validation");
+        }
 
-        fitLearn = NumericVar.fill(df.getRowCount());
-        for (int i = 0; i < df.getRowCount(); i++) {
-            fitLearn.setValue(i, initPred.firstFit().getValue(i));
+        // fit values of existing stages are computed once, after that
+        // they are updated incrementally with each new stage
+
+        fitLearn = rawFit(df, getStages());
+        NumericVar fitValidation = (validation == null) ? null : rawFit(validation, getStages());
+
+        bestStage = getStages();
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < validationScores.getRowCount(); i++) {
+            if (validationScores.getValue(i) < bestScore) {
+                bestScore = validationScores.getValue(i);
+                bestStage = i + 1;
+            }
         }
+        int noImprovement = 0;
 
         for (int i = 1; i <= runs(); i++) {
             NumericVar gradient = lossFunction.gradient(y, fitLearn).withName("target");
@@ -153,15 +279,18 @@ public class GBTRegression extends AbstractRegression implements Printable {
             Frame xm = x.bindVars(gradient);
             BTRegression tree = regressor.newInstance();
 
-            // frame sampling
+            // frame sampling, rows and columns are sampled through mappings
 
-            Mapping samplerMapping = sampler().nextSample(xm, weights).mapping;
-            Frame xmLearn = xm.mapRows(samplerMapping);
+            Sample sample = (goss != null)
+                    ? goss.nextSample(xm, weights, gradient)
+                    : sampler().nextSample(xm, weights);
+            Mapping samplerMapping = sample.mapping;
+            Frame xmLearn = SamplingTools.randomSampleVars(sample.df, "target", colSample, RandomSource.getRandom());
             Frame xLearn = x.mapRows(samplerMapping);
 
             // build regions
 
-            tree.train(xmLearn, "target");
+            tree.train(xmLearn, sample.weights, "target");
 
             // fit residuals
 
@@ -173,14 +302,32 @@ public class GBTRegression extends AbstractRegression implements Printable {
 
             // add next prediction to the fit values
 
-            RFit treePred = tree.fit(df, false);
-            for (int j = 0; j < df.getRowCount(); j++) {
-                fitLearn.setValue(j, fitLearn.getValue(j) + shrinkage * treePred.firstFit().getValue(j));
-            }
+            addFit(fitLearn, tree.fit(df, false));
 
             // add tree in the predictors list
 
             trees.add(tree);
+
+            // track losses
+
+            trainScores.addValue(lossFunction.error(y, fitLearn));
+            if (fitValidation == null) {
+                bestStage = getStages();
+            } else {
+                addFit(fitValidation, tree.fit(validation, false));
+                double score = lossFunction.error(validation.getVar(firstTargetName()), fitValidation);
+                validationScores.addValue(score);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestStage = getStages();
+                    noImprovement = 0;
+                } else {
+                    noImprovement++;
+                }
+                if (patience > 0 && noImprovement >= patience) {
+                    break;
+                }
+            }
         }
 
         fitValues = NumericVar.empty();
@@ -190,18 +337,34 @@ public class GBTRegression extends AbstractRegression implements Printable {
         return true;
     }
 
+    private void addFit(NumericVar fit, RFit treePred) {
+        for (int j = 0; j < fit.getRowCount(); j++) {
+            fit.setValue(j, fit.getValue(j) + shrinkage * treePred.firstFit().getValue(j));
+        }
+    }
+
+    /**
+     * Computes fit values using the initial regression and the first given number of stages.
+     */
+    private NumericVar rawFit(Frame df, int stages) {
+        NumericVar fit = NumericVar.fill(df.getRowCount());
+        RFit initPred = initRegression.fit(df, false);
+        for (int i = 0; i < df.getRowCount(); i++) {
+            fit.setValue(i, initPred.firstFit().getValue(i));
+        }
+        for (int i = 0; i < stages; i++) {
+            addFit(fit, trees.get(i).fit(df, false));
+        }
+        return fit;
+    }
+
     @Override
     protected RFit coreFit(final Frame df, final boolean withResiduals) {
         RFit pred = RFit.build(this, df, withResiduals);
-        RFit initPred = initRegression.fit(df);
+        int stages = (fitStages < 0) ? bestStage : Math.min(fitStages, getStages());
+        NumericVar fit = rawFit(df, stages);
         for (int i = 0; i < df.getRowCount(); i++) {
-            pred.firstFit().setValue(i, initPred.firstFit().getValue(i));
-        }
-        for (BTRegression tree : trees) {
-            RFit treePred = tree.fit(df);
-            for (int i = 0; i < df.getRowCount(); i++) {
-                pred.firstFit().setValue(i, pred.firstFit().getValue(i) + shrinkage * treePred.firstFit().getValue(i));
-            }
+            pred.firstFit().setValue(i, fit.getValue(i));
         }
         pred.buildComplete();
         return pred;
@@ -47,10 +47,24 @@ public interface GBTLossFunction extends Serializable {
 
     NumericVar gradient(Var y, Var fx);
 
+    /**
+     * Computes the mean loss of the fitted values, by default the mean squared error.
+     */
+    default double error(Var y, Var fx) {
+        double sum = 0;
+        for (int i = 0; i < y.getRowCount(); i++) {
+            double delta = y.getValue(i) - fx.getValue(i);
+            sum += delta * delta;
+        }
+        return sum / y.getRowCount();
+    }
+
     // standard implementations
 
     class L1 implements GBTLossFunction {
 
+        private static final long serialVersionUID = 2596472667917498236L;
+
         @Override
         public String name() {
             return "L1";
@@ -77,10 +91,21 @@ public interface GBTLossFunction extends Serializable {
             }
             return gradient;
         }
+
+        @Override
+        public double error(Var y, Var fx) {
+            double sum = 0;
+            for (int i = 0; i < y.getRowCount(); i++) {
+                sum += Math.abs(y.getValue(i) - fx.getValue(i));
+            }
+            return sum / y.getRowCount();
+        }
     }
 
     class L2 implements GBTLossFunction {
 
+        private static final long serialVersionUID = 5089605961640532947L;
+
         @Override
         public String name() {
             return "L2";
@@ -188,5 +213,24 @@ public interface GBTLossFunction extends Serializable {
 
             return gradient;
         }
+
+        @Override
+        public double error(Var y, Var fx) {
+
+            // compute absolute residuals and rho as in gradient
+
+            NumericVar absResidual = NumericVar.empty();
+            for (int i = 0; i < y.getRowCount(); i++) {
+                absResidual.addValue(Math.abs(y.getValue(i) - fx.getValue(i)));
+            }
+            double rho = Quantiles.from(absResidual, new double[]{alpha}).getValues()[0];
+
+            double sum = 0;
+            for (int i = 0; i < y.getRowCount(); i++) {
+                double a = absResidual.getValue(i);
+                sum += (a <= rho) ? a * a / 2 : rho * (a - rho / 2);
+            }
+            return sum / y.getRowCount();
+        }
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.ml.regression.boost.gbt;
+
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.NumericVar;
+import rapaio.data.Var;
+import rapaio.data.sample.Sample;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+import static rapaio.sys.WS.formatFlex;
+
+/**
+ * Gradient-based one-side sampling.
+ * <p>
+ * Keeps all the rows with the largest absolute gradients and a random sample
+ * from the remaining rows. The weights of the sampled small gradient rows are
+ * amplified with (1 - topRate) / otherRate, such that the sample remains an
+ * unbiased estimate of the gradient sums. The sample is a row mapping
+ * over the source frame, the data is not copied.
+ * <p>
+ * User: Aurelian Tutuianu <padreati@yahoo.com>
+ */
+public class GOSS implements Serializable {
+
+    private static final long serialVersionUID = 6384437260593617104L;
+
+    private final double topRate;
+    private final double otherRate;
+
+    /**
+     * @param topRate   fraction of rows with largest absolute gradients which are kept
+     * @param otherRate fraction of rows sampled from the remaining rows, relative to all rows
+     */
+    public static GOSS from(double topRate, double otherRate) {
+        return new GOSS(topRate, otherRate);
+    }
+
+    private GOSS(double topRate, double otherRate) {
+        if (topRate < 0 || otherRate <= 0 || topRate + otherRate > 1) {
+            throw new IllegalArgumentException("GOSS rates must be non negative, other rate must be positive " +
+                    "and their sum must not exceed 1");
+        }
+        this.topRate = topRate;
+        this.otherRate = otherRate;
+    }
+
+    public String name() {
+        return "GOSS(top=" + formatFlex(topRate) + ",other=" + formatFlex(otherRate) + ")";
+    }
+
+    /**
+     * Builds a new sample from the given data frame, using the given gradients
+     *
+     * @param df       source data frame
+     * @param weights  weights of the rows
+     * @param gradient gradient values for each row
+     * @return new sample
+     */
+    public Sample nextSample(Frame df, Var weights, Var gradient) {
+        return nextSample(df, weights, gradient, RandomSource.getRandom());
+    }
+
+    /**
+     * Builds a new sample from the given data frame, using the given gradients
+     * and drawing random numbers from the given generator
+     *
+     * @param df       source data frame
+     * @param weights  weights of the rows
+     * @param gradient gradient values for each row
+     * @param random   random number generator
+     * @return new sample
+     */
+    public Sample nextSample(Frame df, Var weights, Var gradient, Random random) {
+        int n = df.getRowCount();
+        int topCount = (int) (topRate * n);
+        int otherCount = Math.min(n - topCount, Math.max(1, (int) (otherRate * n)));
+
+        // find threshold of top absolute gradients
+
+        double[] abs = new double[n];
+        for (int i = 0; i < n; i++) {
+            abs[i] = Math.abs(gradient.getValue(i));
+        }
+        double threshold = Double.POSITIVE_INFINITY;
+        if (topCount > 0) {
+            double[] sorted = Arrays.copyOf(abs, n);
+            Arrays.sort(sorted);
+            threshold = sorted[n - topCount];
+        }
+
+        // split rows into top and others, ties at threshold are taken in row order
+
+        int[] selected = new int[topCount + otherCount];
+        boolean[] top = new boolean[n];
+        int[] others = new int[n];
+        int len = 0;
+        int otherLen = 0;
+        for (int i = 0; i < n; i++) {
+            if (abs[i] > threshold) {
+                selected[len++] = i;
+                top[i] = true;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (top[i]) {
+                continue;
+            }
+            if (len < topCount && abs[i] == threshold) {
+                selected[len++] = i;
+                top[i] = true;
+            } else {
+                others[otherLen++] = i;
+            }
+        }
+
+        // sample without replacement from the others
+
+        for (int i = 0; i < otherCount; i++) {
+            int j = i + random.nextInt(otherLen - i);
+            int tmp = others[i];
+            others[i] = others[j];
+            others[j] = tmp;
+            selected[len++] = others[i];
+        }
+        Arrays.sort(selected);
+
+        double amplify = (1.0 - topRate) / otherRate;
+        NumericVar w = NumericVar.fill(selected.length).withName(weights.getName());
+        for (int i = 0; i < selected.length; i++) {
+            int row = selected[i];
+            w.setValue(i, top[row] ? weights.getValue(row) : weights.getValue(row) * amplify);
+        }
+        Mapping mapping = Mapping.copy(selected);
+        return new Sample(df.mapRows(mapping), w, mapping);
+    }
+}
@@ -25,6 +25,7 @@
 package rapaio.graphics.plot.plotcomp;
 
 import rapaio.core.distributions.empirical.KDE;
+import rapaio.core.distributions.empirical.KDEGrid;
 import rapaio.core.distributions.empirical.KFunc;
 import rapaio.core.distributions.empirical.KFuncGaussian;
 import rapaio.data.NumericVar;
@@ -46,9 +47,13 @@ import java.util.function.Function;
 public class DensityLine extends PlotComponent {
 
     private static final long serialVersionUID = -9207144655129877629L;
+    private static final int GRID_POINTS_PER_BANDWIDTH = 8;
+    private static final int GRID_MAX_SIZE = 1 << 16;
     private final Var var;
     private final double bandwidth;
     private final KDE kde;
+    private KDEGrid grid;
+    private boolean gridBuilt = false;
 
     public DensityLine(Var var, GOpt... opts) {
         this(var, new KFuncGaussian(), KDE.getSilvermanBandwidth(var), opts);
@@ -79,7 +84,7 @@ public class DensityLine extends PlotComponent {
         var.stream().filter(s -> !s.isMissing()).forEach(s -> {
             double xMin = kde.getKernel().minValue(s.getValue(), bandwidth);
             double xMax = kde.getKernel().getMaxValue(s.getValue(), bandwidth);
-            double yMax = ((Function<Double, Double>) kde::pdf).apply(s.getValue());
+            double yMax = ((Function<Double, Double>) this::pdf).apply(s.getValue());
             xmin.set(Double.isNaN(xmin.get()) ? xMin : Math.min(xmin.get(), xMin));
             xmax.set(Double.isNaN(xmax.get()) ? xMax : Math.max(xmax.get(), xMax));
             ymax.set(Double.isNaN(ymax.get()) ? yMax : Math.max(ymax.get(), yMax));
@@ -104,7 +109,7 @@ public class DensityLine extends PlotComponent {
         double xstep = (range.x2() - range.x1()) / options.getPoints();
         for (int i = 0; i < x.getRowCount(); i++) {
             x.setValue(i, range.x1() + i * xstep);
-            y.setValue(i, kde.pdf(x.getValue(i)));
+            y.setValue(i, pdf(x.getValue(i)));
         }
 
         for (int i = 1; i < x.getRowCount(); i++) {
@@ -120,4 +125,39 @@ public class DensityLine extends PlotComponent {
             }
         }
     }
+
+    private double pdf(double x) {
+        if (!gridBuilt) {
+            grid = buildGrid();
+            gridBuilt = true;
+        }
+        return grid == null ? kde.pdf(x) : grid.pdf(x);
+    }
+
+    /**
+     * Builds a density grid with a step small enough relative to the bandwidth
+     * for linear interpolation to be accurate. If such a grid would be too large,
+     * null is returned and density is evaluated exactly.
+     */
+    private KDEGrid buildGrid() {
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (int i = 0; i < var.getRowCount(); i++) {
+            if (var.isMissing(i)) {
+                continue;
+            }
+            double value = var.getValue(i);
+            min = Double.isNaN(min) ? value : Math.min(min, value);
+            max = Double.isNaN(max) ? value : Math.max(max, value);
+        }
+        if (Double.isNaN(min) || !(bandwidth > 0)) {
+            return null;
+        }
+        double span = max - min + 2 * kde.getKernel().getMaxValue(0, bandwidth);
+        double size = Math.ceil(span * GRID_POINTS_PER_BANDWIDTH / bandwidth) + 1;
+        if (!(size <= GRID_MAX_SIZE)) {
+            return null;
+        }
+        return kde.grid(Math.max(2, (int) size));
+    }
 }
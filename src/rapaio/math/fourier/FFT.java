@@ -30,6 +30,8 @@ import rapaio.data.NumericVar;
 import rapaio.data.Var;
 import rapaio.util.Pair;
 
+import java.util.Arrays;
+
 /**
  * Fast Fourier Transform
  * <p>
@@ -140,4 +142,111 @@ public class FFT {
         }
         return cconvolve(a, b);
     }
+
+    /**
+     * In place iterative radix 2 Cooley-Tukey FFT on primitive arrays.
+     * Arrays contain real and imaginary parts and their length must be a power of 2.
+     *
+     * @param re real parts
+     * @param im imaginary parts
+     */
+    public static void fft(double[] re, double[] im) {
+        transform(re, im, false);
+    }
+
+    /**
+     * In place inverse FFT on primitive arrays, the result is scaled by 1/N.
+     *
+     * @param re real parts
+     * @param im imaginary parts
+     */
+    public static void ifft(double[] re, double[] im) {
+        transform(re, im, true);
+        int n = re.length;
+        for (int i = 0; i < n; i++) {
+            re[i] /= n;
+            im[i] /= n;
+        }
+    }
+
+    /**
+     * Linear convolution of two real sequences computed with zero padded FFT.
+     *
+     * @param x first sequence
+     * @param y second sequence
+     * @return convolution of length x.length + y.length - 1
+     */
+    public static double[] convolve(double[] x, double[] y) {
+        int len = x.length + y.length - 1;
+        int n = 1;
+        while (n < len) {
+            n <<= 1;
+        }
+        double[] are = Arrays.copyOf(x, n);
+        double[] aim = new double[n];
+        double[] bre = Arrays.copyOf(y, n);
+        double[] bim = new double[n];
+        fft(are, aim);
+        fft(bre, bim);
+        for (int i = 0; i < n; i++) {
+            double r = are[i] * bre[i] - aim[i] * bim[i];
+            double m = are[i] * bim[i] + aim[i] * bre[i];
+            are[i] = r;
+            aim[i] = m;
+        }
+        ifft(are, aim);
+        return Arrays.copyOf(are, len);
+    }
+
+    private static void transform(double[] re, double[] im, boolean inverse) {
+        int n = re.length;
+        if (im.length != n) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+        if (n == 0 || (n & (n - 1)) != 0) {
+            throw new IllegalArgumentException("N is not a power of 2");
+        }
+
+        // bit reversal permutation
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        // butterflies
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = (inverse ? 2 : -2) * Math.PI / len;
+            double wre = Math.cos(angle);
+            double wim = Math.sin(angle);
+            int half = len >> 1;
+            for (int i = 0; i < n; i += len) {
+                double cre = 1;
+                double cim = 0;
+                for (int k = 0; k < half; k++) {
+                    int a = i + k;
+                    int b = a + half;
+                    double tre = re[b] * cre - im[b] * cim;
+                    double tim = re[b] * cim + im[b] * cre;
+                    re[b] = re[a] - tre;
+                    im[b] = im[a] - tim;
+                    re[a] += tre;
+                    im[a] += tim;
+                    double nre = cre * wre - cim * wim;
+                    cim = cre * wim + cim * wre;
+                    cre = nre;
+                }
+            }
+        }
+    }
 }
@@ -24,8 +24,10 @@
 
 package rapaio.ml.classifier.bayes;
 
+import rapaio.core.distributions.Normal;
 import rapaio.core.tools.DVector;
 import rapaio.data.Frame;
+import rapaio.data.NumericVar;
 import rapaio.data.Var;
 import rapaio.data.VarType;
 import rapaio.data.filter.FFilter;
@@ -34,16 +36,19 @@ import rapaio.ml.classifier.CFit;
 import rapaio.ml.classifier.bayes.estimator.*;
 import rapaio.ml.common.Capabilities;
 import rapaio.sys.WS;
+import rapaio.util.FJPool;
 import rapaio.util.Tag;
+import rapaio.util.Util;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 
 /**
  * Naive Bayes Classifier.
@@ -55,6 +60,8 @@ public class NaiveBayes extends AbstractClassifier {
 
     private static final long serialVersionUID = -7602854063045679683L;
     private static final Logger logger = Logger.getLogger(NaiveBayes.class.getName());
+    private static final int FIT_BLOCK_SIZE = 1024;
+    private static final double LOG_MAX_VALUE = Math.log(Double.MAX_VALUE);
 
     // algorithm parameters
     public static Tag<PriorSupplier> PRIORS_MLE = Tag.valueOf("PRIORS_MLE", (df, weights, nb) -> {
@@ -77,6 +84,8 @@ public class NaiveBayes extends AbstractClassifier {
     private double laplaceSmoother = 1;
     private Tag<PriorSupplier> priorSupplier = PRIORS_MLE;
     private Map<String, Double> priors;
+    // total weight of each target label, kept for incremental training and merge
+    private Map<String, Double> targetWeights;
     //private NaiveBayesData data = new NaiveBayesData(new MultinomialPmf(), new GaussianPdf(), new MultinomialPmf());
     private NumericData numData = new NumericData(new GaussianPdf());
     private NominalData nomData = new NominalData(new MultinomialPmf());
@@ -136,6 +145,11 @@ public class NaiveBayes extends AbstractClassifier {
         return laplaceSmoother;
     }
 
+    @Override
+    public NaiveBayes withRunPoolSize(int poolSize) {
+        return (NaiveBayes) super.withRunPoolSize(poolSize);
+    }
+
     public NaiveBayes withPriorSupplier(Tag<PriorSupplier> priorSupplier) {
         this.priorSupplier = priorSupplier;
         return this;
@@ -147,6 +161,8 @@ public class NaiveBayes extends AbstractClassifier {
         // build priors
 
         priors = PRIORS_MLE.get().learnPriors(df, weights, this);
+        targetWeights = new HashMap<>();
+        addTargetWeights(df.getVar(firstTargetName()), weights);
 
         // build conditional probabilities
 
@@ -182,46 +198,238 @@ public class NaiveBayes extends AbstractClassifier {
         return true;
     }
 
+    /**
+     * Updates a trained model with a new batch of observations. Estimators keep
+     * only sufficient statistics, so training in batches produces the same model
+     * as training on all observations at once. If the model was not trained yet,
+     * this is a plain training.
+     */
+    public NaiveBayes partialTrain(Frame df, String targetVar) {
+        return partialTrain(df, NumericVar.fill(df.getRowCount(), 1), targetVar);
+    }
+
+    /**
+     * Updates a trained model with a new batch of weighted observations.
+     */
+    public NaiveBayes partialTrain(Frame df, Var weights, String targetVar) {
+        if (!hasLearned()) {
+            train(df, weights, targetVar);
+            return this;
+        }
+        if (!firstTargetName().equals(targetVar)) {
+            throw new IllegalArgumentException("model was trained with target " + firstTargetName() + ", not with " + targetVar);
+        }
+        Frame workDf = prepareFit(df);
+        Var target = workDf.getVar(targetVar);
+        List<String> levels = Arrays.asList(firstTargetLevels());
+        for (int i = 0; i < workDf.getRowCount(); i++) {
+            if (target.isMissing(i) || !levels.contains(target.getLabel(i))) {
+                throw new IllegalArgumentException("target label not seen at training: " + target.getLabel(i));
+            }
+        }
+        addTargetWeights(target, weights);
+        updatePriors();
+
+        String[] inputNames = inputNames();
+        FJPool.run(runPoolSize(), () -> Util.rangeStream(inputNames.length, runPoolSize() != 0).forEach(i -> {
+            String testCol = inputNames[i];
+            if (binData.binMap.containsKey(testCol)) {
+                binData.binMap.get(testCol).partialLearn(this, workDf, weights, targetVar, testCol);
+            }
+            if (numData.numMap.containsKey(testCol)) {
+                numData.numMap.get(testCol).partialLearn(workDf, targetVar, testCol);
+            }
+            if (nomData.nomMap.containsKey(testCol)) {
+                nomData.nomMap.get(testCol).partialLearn(this, workDf, weights, targetVar, testCol);
+            }
+        }));
+        return this;
+    }
+
+    /**
+     * Merges into this model a model with the same target and inputs, trained on
+     * a disjoint set of observations. This allows training on partitions in parallel.
+     */
+    public NaiveBayes merge(NaiveBayes other) {
+        if (!hasLearned() || !other.hasLearned()) {
+            throw new IllegalArgumentException("only trained models can be merged");
+        }
+        if (!firstTargetName().equals(other.firstTargetName())
+                || !Arrays.equals(firstTargetLevels(), other.firstTargetLevels())
+                || !Arrays.equals(inputNames(), other.inputNames())
+                || !Arrays.equals(inputTypes(), other.inputTypes())) {
+            throw new IllegalArgumentException("models with different targets or inputs cannot be merged");
+        }
+        binData.binMap.forEach((testCol, estimator) -> estimator.merge(other.binData.binMap.get(testCol)));
+        numData.numMap.forEach((testCol, estimator) -> estimator.merge(other.numData.numMap.get(testCol)));
+        nomData.nomMap.forEach((testCol, estimator) -> estimator.merge(other.nomData.nomMap.get(testCol)));
+        other.targetWeights.forEach((label, w) -> targetWeights.merge(label, w, Double::sum));
+        updatePriors();
+        return this;
+    }
+
+    private void addTargetWeights(Var target, Var weights) {
+        for (int i = 0; i < target.getRowCount(); i++) {
+            targetWeights.merge(target.getLabel(i), weights.getValue(i), Double::sum);
+        }
+    }
+
+    private void updatePriors() {
+        double total = targetWeights.values().stream().mapToDouble(w -> w).sum();
+        priors = new HashMap<>();
+        for (int i = 1; i < firstTargetLevels().length; i++) {
+            priors.put(firstTargetLevels()[i], targetWeights.getOrDefault(firstTargetLevels()[i], 0.0) / total);
+        }
+    }
+
     @Override
     protected CFit coreFit(Frame df, final boolean withClasses, final boolean withDensities) {
 
         logger.fine("start fitting values...");
 
         CFit pred = CFit.build(this, df, withClasses, withDensities);
-        IntStream.range(0, df.getRowCount()).parallel().forEach(
-                i -> {
-                    DVector dv = DVector.empty(false, firstTargetLevels());
-                    for (int j = 1; j < firstTargetLevels().length; j++) {
-                        double sumLog = Math.log(priors.get(firstTargetLevel(j)));
-                        sumLog += buildSumLog(df, i, j, numData);
-                        sumLog += buildSumLog(df, i, j, nomData);
-                        sumLog += buildSumLog(df, i, j, binData);
-                        dv.increment(j, Math.exp(sumLog));
-                    }
-                    dv.normalize();
 
-                    if (withClasses) {
-                        pred.firstClasses().setIndex(i, dv.findBestIndex());
+        // estimators are compiled into per class log probability tables, than
+        // scores are computed column by column on blocks of rows in parallel
+
+        String[] targetLevels = firstTargetLevels();
+        int k = targetLevels.length - 1;
+        double[] logPriors = new double[k];
+        for (int j = 0; j < k; j++) {
+            logPriors[j] = Math.log(priors.get(targetLevels[j + 1]));
+        }
+        List<LogScorer> scorers = new ArrayList<>();
+        numData.numMap.forEach((testCol, estimator) -> scorers.add(numericScorer(df.getVar(testCol), estimator)));
+        nomData.nomMap.forEach((testCol, estimator) -> scorers.add(labelScorer(df.getVar(testCol), estimator::cpValue)));
+        binData.binMap.forEach((testCol, estimator) -> scorers.add(labelScorer(df.getVar(testCol), estimator::cpValue)));
+
+        int rows = df.getRowCount();
+        int blocks = (rows + FIT_BLOCK_SIZE - 1) / FIT_BLOCK_SIZE;
+        FJPool.run(runPoolSize(), () -> Util.rangeStream(blocks, runPoolSize() != 0).forEach(block -> {
+            int start = block * FIT_BLOCK_SIZE;
+            int end = Math.min(rows, start + FIT_BLOCK_SIZE);
+            double[] scores = new double[(end - start) * k];
+            for (int i = 0; i < end - start; i++) {
+                System.arraycopy(logPriors, 0, scores, i * k, k);
+            }
+            for (LogScorer scorer : scorers) {
+                scorer.addLogs(start, end, k, scores);
+            }
+            for (int i = start; i < end; i++) {
+                int offset = (i - start) * k;
+                int best = 0;
+                for (int j = 1; j < k; j++) {
+                    if (scores[offset + j] > scores[offset + best]) {
+                        best = j;
                     }
-                    if (withDensities) {
-                        for (int j = 1; j < firstTargetLevels().length; j++) {
-                            pred.firstDensity().setValue(i, j, dv.get(j));
-                        }
+                }
+                double max = scores[offset + best];
+                double total = 0;
+                for (int j = 0; j < k; j++) {
+                    scores[offset + j] = (max == Double.NEGATIVE_INFINITY) ? 0 : Math.exp(scores[offset + j] - max);
+                    total += scores[offset + j];
+                }
+                if (withClasses) {
+                    pred.firstClasses().setIndex(i, best + 1);
+                }
+                if (withDensities) {
+                    for (int j = 0; j < k; j++) {
+                        pred.firstDensity().setValue(i, j + 1, (total == 0) ? 0 : scores[offset + j] / total);
                     }
-                });
+                }
+            }
+        }));
         logger.fine("fitting phase finished.");
         return pred;
     }
 
-	private double buildSumLog(Frame df, int i, int j, NaiveBayesData data) {
-		double sumLog = 0.0;
-		for (String testCol : data.keySet()) {
-		    if (df.isMissing(i, testCol))
-		        continue;
-		    sumLog += Math.log(data.calcSumLog(testCol, df, i, firstTargetLevel(j)));
-		}
-		return sumLog;
-	}
+    /**
+     * Adds log conditional probabilities of a test variable for a block of rows.
+     * Scores are stored row by row, with one value for each target level.
+     */
+    private interface LogScorer {
+        void addLogs(int start, int end, int k, double[] scores);
+    }
+
+    private LogScorer numericScorer(Var test, NumericEstimator estimator) {
+        String[] targetLevels = firstTargetLevels();
+        int k = targetLevels.length - 1;
+        if (estimator instanceof GaussianPdf) {
+            double[] mu = new double[k];
+            double[] var = new double[k];
+            double[] logNorm = new double[k];
+            boolean compiled = true;
+            for (int j = 0; j < k; j++) {
+                Normal normal = ((GaussianPdf) estimator).getNormal(targetLevels[j + 1]);
+                if (normal == null) {
+                    compiled = false;
+                    break;
+                }
+                mu[j] = normal.mean();
+                var[j] = normal.var();
+                logNorm[j] = -0.5 * Math.log(2 * Math.PI * var[j]);
+            }
+            if (compiled) {
+                return (start, end, kk, scores) -> {
+                    for (int i = start; i < end; i++) {
+                        if (test.isMissing(i)) {
+                            continue;
+                        }
+                        double x = test.getValue(i);
+                        int offset = (i - start) * kk;
+                        for (int j = 0; j < kk; j++) {
+                            if (Math.abs(var[j]) < 1e-20) {
+                                // degenerate distribution, same as in GaussianPdf.cpValue
+                                scores[offset + j] += (Math.abs(mu[j] - x) < 1e-20) ? LOG_MAX_VALUE : Double.NEGATIVE_INFINITY;
+                            } else {
+                                double delta = x - mu[j];
+                                scores[offset + j] += logNorm[j] - delta * delta / (2 * var[j]);
+                            }
+                        }
+                    }
+                };
+            }
+        }
+        return (start, end, kk, scores) -> {
+            for (int i = start; i < end; i++) {
+                if (test.isMissing(i)) {
+                    continue;
+                }
+                double x = test.getValue(i);
+                int offset = (i - start) * kk;
+                for (int j = 0; j < kk; j++) {
+                    scores[offset + j] += Math.log(estimator.cpValue(x, targetLevels[j + 1]));
+                }
+            }
+        };
+    }
+
+    private LogScorer labelScorer(Var test, BiFunction<String, String, Double> cpValue) {
+        String[] targetLevels = firstTargetLevels();
+        int k = targetLevels.length - 1;
+
+        // binary indexes are 0 for false and 1 for true
+        boolean binary = test.getType().isBinary();
+        String[] labels = binary ? new String[]{"false", "true"} : test.getLevels();
+        double[] table = new double[labels.length * k];
+        for (int l = 0; l < labels.length; l++) {
+            for (int j = 0; j < k; j++) {
+                table[l * k + j] = Math.log(cpValue.apply(labels[l], targetLevels[j + 1]));
+            }
+        }
+        return (start, end, kk, scores) -> {
+            for (int i = start; i < end; i++) {
+                if (test.isMissing(i)) {
+                    continue;
+                }
+                int offset = (i - start) * kk;
+                int tableOffset = test.getIndex(i) * kk;
+                for (int j = 0; j < kk; j++) {
+                    scores[offset + j] += table[tableOffset + j];
+                }
+            }
+        };
+    }
 
     @Override
     public String getSummary() {
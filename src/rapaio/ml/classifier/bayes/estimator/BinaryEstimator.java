@@ -44,4 +44,21 @@ public interface BinaryEstimator extends Serializable {
     void learn(NaiveBayes nb, Frame df, Var weights, String targetVar, String testVar);
 
     double cpValue(String testLabel, String targetLabel);
-}
\ No newline at end of file
+
+    /**
+     * Updates the estimator with a new batch of observations, keeping
+     * everything learned before. Estimators which keep only sufficient
+     * statistics support this operation.
+     */
+    default void partialLearn(NaiveBayes nb, Frame df, Var weights, String targetVar, String testVar) {
+        throw new IllegalArgumentException("estimator " + name() + " does not support incremental learning");
+    }
+
+    /**
+     * Merges into this estimator the statistics of an estimator of the same type,
+     * learned on a disjoint set of observations.
+     */
+    default void merge(BinaryEstimator estimator) {
+        throw new IllegalArgumentException("estimator " + name() + " does not support merge");
+    }
+}
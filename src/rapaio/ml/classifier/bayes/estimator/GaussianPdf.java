@@ -26,8 +26,8 @@ package rapaio.ml.classifier.bayes.estimator;
 
 import rapaio.core.distributions.Distribution;
 import rapaio.core.distributions.Normal;
-import rapaio.core.stat.OnlineStat;
 import rapaio.data.Frame;
+import rapaio.data.Var;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -44,6 +44,9 @@ public class GaussianPdf implements NumericEstimator {
 
     private final Map<String, Normal> normals = new HashMap<>();
 
+    // sufficient statistics for each target label: count, mean and sum of squared deviations
+    private final Map<String, double[]> moments = new HashMap<>();
+
     @Override
     public String name() {
         return "GaussianPdf";
@@ -52,22 +55,72 @@ public class GaussianPdf implements NumericEstimator {
     @Override
     public void learn(Frame df, String targetVar, String testVar) {
         normals.clear();
-        Map<String, OnlineStat> onlineStatMap = new HashMap<>();
-        for (String label : df.getVar(targetVar).getLevels()) {
-            onlineStatMap.put(label, OnlineStat.empty());
+        moments.clear();
+        partialLearn(df, targetVar, testVar);
+    }
+
+    @Override
+    public void partialLearn(Frame df, String targetVar, String testVar) {
+        Var target = df.getVar(targetVar);
+        Var test = df.getVar(testVar);
+        String[] levels = target.getLevels();
+        double[][] stats = new double[levels.length][];
+        for (int i = 0; i < levels.length; i++) {
+            if ("?".equals(levels[i])) {
+                stats[i] = new double[3];
+                continue;
+            }
+            stats[i] = moments.computeIfAbsent(levels[i], label -> new double[3]);
+        }
+        for (int i = 0; i < df.getRowCount(); i++) {
+            if (test.isMissing(i)) {
+                continue;
+            }
+            // Welford update, as in OnlineStat
+            double[] m = stats[target.getIndex(i)];
+            double n1 = m[0];
+            m[0]++;
+            double delta = test.getValue(i) - m[1];
+            double deltaN = delta / m[0];
+            m[1] += deltaN;
+            m[2] += delta * deltaN * n1;
         }
-        df.stream().forEach(s -> {
-            String label = s.getLabel(targetVar);
-            onlineStatMap.get(label).update(s.getValue(testVar));
-        });
-        for (String label : df.getVar(targetVar).getLevels()) {
-            if ("?".equals(label)) {
+        updateNormals();
+    }
+
+    @Override
+    public void merge(NumericEstimator estimator) {
+        if (!(estimator instanceof GaussianPdf)) {
+            throw new IllegalArgumentException("cannot merge GaussianPdf with " + estimator.name());
+        }
+        for (Map.Entry<String, double[]> e : ((GaussianPdf) estimator).moments.entrySet()) {
+            double[] b = e.getValue();
+            double[] a = moments.computeIfAbsent(e.getKey(), label -> new double[3]);
+            double n = a[0] + b[0];
+            if (n == 0) {
                 continue;
             }
-            double mu = onlineStatMap.get(label).mean();
-            double sd = onlineStatMap.get(label).sd();
-            normals.put(label, new Normal(mu, sd));
+            double delta = b[1] - a[1];
+            a[2] += b[2] + delta * delta * a[0] * b[0] / n;
+            a[1] += delta * b[0] / n;
+            a[0] = n;
         }
+        updateNormals();
+    }
+
+    private void updateNormals() {
+        for (Map.Entry<String, double[]> e : moments.entrySet()) {
+            double[] m = e.getValue();
+            normals.put(e.getKey(), new Normal(m[1], Math.sqrt(m[2] / (m[0] - 1.0))));
+        }
+    }
+
+    /**
+     * @param targetLabel target label
+     * @return normal distribution estimated for the given target label, null if the label is not known
+     */
+    public Normal getNormal(String targetLabel) {
+        return normals.get(targetLabel);
     }
 
     @Override
@@ -25,6 +25,7 @@
 package rapaio.ml.classifier.bayes.estimator;
 
 import rapaio.core.distributions.empirical.KDE;
+import rapaio.core.distributions.empirical.KDEGrid;
 import rapaio.core.distributions.empirical.KFunc;
 import rapaio.core.distributions.empirical.KFuncGaussian;
 import rapaio.data.Frame;
@@ -42,8 +43,10 @@ public class KernelPdf implements NumericEstimator {
     private static final long serialVersionUID = 7974390604811353859L;
 
     private Map<String, KDE> kde = new ConcurrentHashMap<>();
+    private Map<String, KDEGrid> grids = new ConcurrentHashMap<>();
     private KFunc kfunc = new KFuncGaussian();
     private double bandwidth = 0;
+    private int gridSize = 0;
 
     public KernelPdf() {
     }
@@ -57,6 +60,22 @@ public class KernelPdf implements NumericEstimator {
         this.bandwidth = bandwidth;
     }
 
+    /**
+     * Enables density evaluation from a cached grid. At learning time the density of
+     * each class is evaluated on a grid with the given number of points and conditional
+     * probabilities are interpolated from the grid, which makes scoring cost independent
+     * of the sample size.
+     *
+     * @param gridSize number of grid points, 0 for exact kernel density evaluation
+     * @return self instance
+     */
+    public KernelPdf withGridSize(int gridSize) {
+        if (gridSize != 0 && gridSize < 2)
+            throw new IllegalArgumentException("grid size must be 0 or at least 2");
+        this.gridSize = gridSize;
+        return this;
+    }
+
     @Override
     public String name() {
         return "EmpiricKDE";
@@ -65,6 +84,7 @@ public class KernelPdf implements NumericEstimator {
     @Override
     public void learn(Frame df, String targetVar, String testVar) {
         kde.clear();
+        grids.clear();
         Arrays.stream(df.getVar(targetVar).getLevels()).forEach(
                 classLabel -> {
                     if ("?".equals(classLabel))
@@ -73,22 +93,29 @@ public class KernelPdf implements NumericEstimator {
                     Var v = cond.getVar(testVar);
                     KDE k = new KDE(v, kfunc, (bandwidth == 0) ? KDE.getSilvermanBandwidth(v) : bandwidth);
                     kde.put(classLabel, k);
+                    if (gridSize > 0 && v.stream().complete().count() > 0) {
+                        grids.put(classLabel, k.grid(gridSize));
+                    }
                 });
     }
 
     @Override
     public double cpValue(double testValue, String targetLabel) {
+        KDEGrid grid = grids.get(targetLabel);
+        if (grid != null) {
+            return grid.pdf(testValue);
+        }
         return kde.get(targetLabel).pdf(testValue);
     }
 
     @Override
     public NumericEstimator newInstance() {
-        return new KernelPdf(kfunc, bandwidth);
+        return new KernelPdf(kfunc, bandwidth).withGridSize(gridSize);
     }
 
     @Override
     public String learningInfo() {
-        return name() + "{ " + kfunc.getSummary() + " }";
+        return name() + "{ " + kfunc.getSummary() + (gridSize > 0 ? ", grid: " + gridSize : "") + " }";
     }
 
 }
@@ -44,6 +44,10 @@ public class MultinomialPmf implements NominalEstimator, BinaryEstimator {
     private Map<String, Integer> invTreeTest;
     private double defaultP;
 
+    // smoothed weighted counts, kept for incremental learning and merge
+    private double[][] counts;
+    private double laplace;
+
     @Override
     public String name() {
         return "MultinomialPmf";
@@ -56,35 +60,115 @@ public class MultinomialPmf implements NominalEstimator, BinaryEstimator {
 
     @Override
     public void learn(NaiveBayes nb, Frame df, Var weights, String targetVar, String testVar) {
+        invTreeTarget = new HashMap<>();
+        invTreeTest = new HashMap<>();
+        counts = new double[0][0];
+        laplace = nb.laplaceSmoother();
+        partialLearn(nb, df, weights, targetVar, testVar);
+    }
 
-        String[] targetDict = df.getVar(targetVar).getLevels();
-        String[] testDict = df.getVar(testVar).getLevels();
+    @Override
+    public void partialLearn(NaiveBayes nb, Frame df, Var weights, String targetVar, String testVar) {
+        if (counts == null) {
+            learn(nb, df, weights, targetVar, testVar);
+            return;
+        }
+        Var target = df.getVar(targetVar);
+        Var test = df.getVar(testVar);
+        addLabels(target.getLevels(), test.getLevels());
 
-        defaultP = 1.0 / testDict.length;
+        int[] targetIndex = indexes(target.getLevels(), invTreeTarget);
+        int[] testIndex = indexes(test.getLevels(), invTreeTest);
+        boolean binary = test.getType().isBinary();
+        for (int i = 0; i < df.getRowCount(); i++) {
+            // binary indexes are not positions in the binary levels
+            int j = binary ? invTreeTest.get(test.getLabel(i)) : testIndex[test.getIndex(i)];
+            counts[targetIndex[target.getIndex(i)]][j] += weights.getValue(i);
+        }
+        updateDensity();
+    }
 
-        invTreeTarget = new HashMap<>();
-        invTreeTest = new HashMap<>();
+    @Override
+    public void merge(NominalEstimator estimator) {
+        if (!(estimator instanceof MultinomialPmf)) {
+            throw new IllegalArgumentException("cannot merge MultinomialPmf with " + estimator.name());
+        }
+        merge((MultinomialPmf) estimator);
+    }
 
-        for (int i = 0; i < targetDict.length; i++) {
-            invTreeTarget.put(targetDict[i], i);
+    @Override
+    public void merge(BinaryEstimator estimator) {
+        if (!(estimator instanceof MultinomialPmf)) {
+            throw new IllegalArgumentException("cannot merge MultinomialPmf with " + estimator.name());
         }
-        for (int i = 0; i < testDict.length; i++) {
-            invTreeTest.put(testDict[i], i);
+        merge((MultinomialPmf) estimator);
+    }
+
+    private void merge(MultinomialPmf other) {
+        if (counts == null || other.counts == null) {
+            throw new IllegalArgumentException("cannot merge estimators which were not learned");
         }
+        String[] otherTarget = labels(other.invTreeTarget);
+        String[] otherTest = labels(other.invTreeTest);
+        addLabels(otherTarget, otherTest);
+        for (int i = 0; i < otherTarget.length; i++) {
+            int ti = invTreeTarget.get(otherTarget[i]);
+            for (int j = 0; j < otherTest.length; j++) {
+                counts[ti][invTreeTest.get(otherTest[j])] += other.counts[i][j] - other.laplace;
+            }
+        }
+        updateDensity();
+    }
 
-        density = new double[targetDict.length][testDict.length];
-            for (int i = 0; i < targetDict.length; i++) {
-                for (int j = 0; j < testDict.length; j++) {
-                    density[i][j] = nb.laplaceSmoother();
-                }
+    /**
+     * Registers new target and test labels, growing the counts table with smoothed cells.
+     */
+    private void addLabels(String[] targetDict, String[] testDict) {
+        for (String label : targetDict) {
+            invTreeTarget.putIfAbsent(label, invTreeTarget.size());
+        }
+        for (String label : testDict) {
+            invTreeTest.putIfAbsent(label, invTreeTest.size());
+        }
+        if (counts.length == invTreeTarget.size()
+                && (counts.length == 0 || counts[0].length == invTreeTest.size())) {
+            return;
+        }
+        double[][] grown = new double[invTreeTarget.size()][invTreeTest.size()];
+        for (int i = 0; i < grown.length; i++) {
+            for (int j = 0; j < grown[i].length; j++) {
+                grown[i][j] = (i < counts.length && j < counts[i].length) ? counts[i][j] : laplace;
             }
-        df.stream().forEach(s -> density[invTreeTarget.get(df.getLabel(s.getRow(), targetVar))][invTreeTest.get(df.getLabel(s.getRow(), testVar))] += weights.getValue(s.getRow()));
-        for (int i = 0; i < targetDict.length; i++) {
+        }
+        counts = grown;
+    }
+
+    private int[] indexes(String[] dict, Map<String, Integer> inv) {
+        int[] index = new int[dict.length];
+        for (int i = 0; i < dict.length; i++) {
+            index[i] = inv.get(dict[i]);
+        }
+        return index;
+    }
+
+    private String[] labels(Map<String, Integer> inv) {
+        String[] labels = new String[inv.size()];
+        for (Map.Entry<String, Integer> e : inv.entrySet()) {
+            labels[e.getValue()] = e.getKey();
+        }
+        return labels;
+    }
+
+    private void updateDensity() {
+        defaultP = 1.0 / invTreeTest.size();
+        density = new double[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            density[i] = counts[i].clone();
             double t = 0;
-            for (int j = 0; j < testDict.length; j++) {
+            for (int j = 0; j < density[i].length; j++) {
                 t += density[i][j];
             }
-            for (int j = 0; j < testDict.length; j++) {
+            for (int j = 0; j < density[i].length; j++) {
                 density[i][j] /= t;
             }
         }
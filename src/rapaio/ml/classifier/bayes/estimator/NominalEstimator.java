@@ -46,4 +46,21 @@ public interface NominalEstimator extends Serializable {
     void learn(NaiveBayes nb, Frame df, Var weights, String targetVar, String testVar);
 
     double cpValue(String testLabel, String targetLabel);
+
+    /**
+     * Updates the estimator with a new batch of observations, keeping
+     * everything learned before. Estimators which keep only sufficient
+     * statistics support this operation.
+     */
+    default void partialLearn(NaiveBayes nb, Frame df, Var weights, String targetVar, String testVar) {
+        throw new IllegalArgumentException("estimator " + name() + " does not support incremental learning");
+    }
+
+    /**
+     * Merges into this estimator the statistics of an estimator of the same type,
+     * learned on a disjoint set of observations.
+     */
+    default void merge(NominalEstimator estimator) {
+        throw new IllegalArgumentException("estimator " + name() + " does not support merge");
+    }
 }
@@ -41,6 +41,23 @@ public interface NumericEstimator extends Serializable {
 
     double cpValue(double testValue, String targetLabel);
 
+    /**
+     * Updates the estimator with a new batch of observations, keeping
+     * everything learned before. Estimators which keep only sufficient
+     * statistics support this operation.
+     */
+    default void partialLearn(Frame df, String targetVar, String testVar) {
+        throw new IllegalArgumentException("estimator " + name() + " does not support incremental learning");
+    }
+
+    /**
+     * Merges into this estimator the statistics of an estimator of the same type,
+     * learned on a disjoint set of observations.
+     */
+    default void merge(NumericEstimator estimator) {
+        throw new IllegalArgumentException("estimator " + name() + " does not support merge");
+    }
+
     String learningInfo();
 
     NumericEstimator newInstance();
@@ -25,6 +25,8 @@
 package rapaio.ml.classifier.boost;
 
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.NumericVar;
 import rapaio.data.Var;
 import rapaio.data.VarType;
 import rapaio.data.filter.FFilter;
@@ -35,10 +37,14 @@ import rapaio.ml.classifier.CFit;
 import rapaio.ml.classifier.Classifier;
 import rapaio.ml.classifier.tree.CTree;
 import rapaio.ml.common.Capabilities;
+import rapaio.util.FJPool;
+import rapaio.util.Util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 /**
  * AdaBoost SAMME classifier is the classical version of AdaBoost which has
@@ -51,20 +57,27 @@ public class AdaBoostSAMME extends AbstractClassifier {
 
     private static final long serialVersionUID = -9154973036108114765L;
     private static final double delta_error = 10e-10;
+    private static final int PARALLEL_MIN_ROWS = 10_000;
 
     // parameters
 
     private Classifier weak = CTree.newCART().withMaxDepth(6).withMinCount(6);
     private boolean stopOnError = false;
     private double shrinkage = 1.0;
+    private double trimming = 0.0;
 
     // model artifacts
 
     private List<Double> a;
     private List<Classifier> h;
-    private Var w;
     private double k;
 
+    // training artifacts
+
+    private transient double[] w;
+    private transient int[] y;
+    private transient int[] pred;
+
     public AdaBoostSAMME() {
         this.a = new ArrayList<>();
         this.h = new ArrayList<>();
@@ -73,11 +86,12 @@ public class AdaBoostSAMME extends AbstractClassifier {
 
     @Override
     public AdaBoostSAMME newInstance() {
-        return (AdaBoostSAMME) new AdaBoostSAMME()
+        return new AdaBoostSAMME()
                 .withInputFilters(inputFilters())
                 .withClassifier(this.weak.newInstance())
                 .withStopOnError(stopOnError)
                 .withShrinkage(shrinkage)
+                .withWeightTrimming(trimming)
                 .withSampler(sampler())
                 .withRuns(runs())
                 .withRunningHook(runningHook())
@@ -131,6 +145,21 @@ public class AdaBoostSAMME extends AbstractClassifier {
         return this;
     }
 
+    /**
+     * Weight trimming excludes from the training of each weak learner the rows with
+     * the lowest weights, which together have at most the given fraction of the total
+     * weight. Trimmed rows still have their weights updated. A value of 0 disables trimming.
+     *
+     * @param trimming fraction of total weight which can be trimmed, in [0, 1)
+     */
+    public AdaBoostSAMME withWeightTrimming(double trimming) {
+        if (trimming < 0 || trimming >= 1) {
+            throw new IllegalArgumentException("weight trimming fraction must be in interval [0, 1)");
+        }
+        this.trimming = trimming;
+        return this;
+    }
+
     @Override
     protected boolean coreTrain(Frame df, Var weights) {
 
@@ -138,12 +167,20 @@ public class AdaBoostSAMME extends AbstractClassifier {
 
         h = new ArrayList<>();
         a = new ArrayList<>();
-        w = weights.solidCopy();
 
-        double total = w.stream().mapToDouble().reduce(0.0, (x, y) -> x + y);
-        for (int i = 0; i < w.getRowCount(); i++) {
-            w.setValue(i, w.getValue(i) / total);
+        // weights, target and predictions of the current round are kept in
+        // primitive arrays which are updated in place
+
+        int n = df.getRowCount();
+        w = new double[n];
+        y = new int[n];
+        pred = new int[n];
+        Var target = df.getVar(firstTargetName());
+        for (int i = 0; i < n; i++) {
+            w[i] = weights.getValue(i);
+            y[i] = target.getIndex(i);
         }
+        normalize();
 
         for (int i = 0; i < runs(); i++) {
             boolean success = learnRound(df);
@@ -154,6 +191,9 @@ public class AdaBoostSAMME extends AbstractClassifier {
                 runningHook().accept(this, i + 1);
             }
         }
+        w = null;
+        y = null;
+        pred = null;
         return true;
     }
 
@@ -161,18 +201,28 @@ public class AdaBoostSAMME extends AbstractClassifier {
 
         Classifier hh = weak.newInstance();
 
-        Sample sample = sampler().nextSample(df, w);
-        hh.train(sample.df, sample.weights.solidCopy(), targetNames());
+        // weights are updated in place after each round, the weak learner
+        // receives a copy since it might keep a reference to them
 
-        CFit fit = hh.fit(df, true, false);
+        Frame trainDf = df;
+        Var trainW = NumericVar.copy(w);
+        if (trimming > 0) {
+            Mapping rows = trimmedRows();
+            trainDf = df.mapRows(rows);
+            trainW = trainW.mapRows(rows);
+        }
+        Sample sample = sampler().nextSample(trainDf, trainW);
+        hh.train(sample.df, sample.weights, targetNames());
 
-        double err = 0;
-        for (int j = 0; j < df.getRowCount(); j++) {
-            if (fit.firstClasses().getIndex(j) != df.getVar(firstTargetName()).getIndex(j)) {
-                err += w.getValue(j);
-            }
+        CFit fit = hh.fit(df, true, false);
+        Var classes = fit.firstClasses();
+        for (int j = 0; j < pred.length; j++) {
+            pred[j] = classes.getIndex(j);
         }
-        err /= w.stream().mapToDouble().sum();
+
+        double err = FJPool.compute(runPoolSize(), () -> rows()
+                .mapToDouble(j -> (pred[j] != y[j]) ? w[j] : 0.0)
+                .sum()).orElse(0.0);
         double alpha = Math.log((1.0 - err) / err) + Math.log(k - 1.0);
         if (err == 0) {
             if (h.isEmpty()) {
@@ -187,17 +237,51 @@ public class AdaBoostSAMME extends AbstractClassifier {
         h.add(hh);
         a.add(alpha);
 
-        for (int j = 0; j < w.getRowCount(); j++) {
-            if (fit.firstClasses().getIndex(j) != df.getVar(firstTargetName()).getIndex(j)) {
-                w.setValue(j, w.getValue(j) * Math.exp(alpha * shrinkage));
+        double factor = Math.exp(alpha * shrinkage);
+        FJPool.run(runPoolSize(), () -> rows().forEach(j -> {
+            if (pred[j] != y[j]) {
+                w[j] *= factor;
+            }
+        }));
+        normalize();
+        return true;
+    }
+
+    /**
+     * @return stream over rows, parallel if a pool is used and there are enough rows
+     */
+    private IntStream rows() {
+        return Util.rangeStream(w.length, runPoolSize() != 0 && w.length >= PARALLEL_MIN_ROWS);
+    }
+
+    private void normalize() {
+        double total = FJPool.compute(runPoolSize(), () -> rows().mapToDouble(j -> w[j]).sum()).orElse(1.0);
+        FJPool.run(runPoolSize(), () -> rows().forEach(j -> w[j] /= total));
+    }
+
+    /**
+     * @return rows which remain after the rows with lowest weights are trimmed
+     */
+    private Mapping trimmedRows() {
+        double[] sorted = Arrays.copyOf(w, w.length);
+        Arrays.sort(sorted);
+        double threshold = 0;
+        double sum = 0;
+        for (double value : sorted) {
+            sum += value;
+            if (sum > trimming) {
+                threshold = value;
+                break;
             }
         }
-        double total = w.stream().mapToDouble().reduce(0.0, (x, y) -> x + y);
-        for (int i = 0; i < w.getRowCount(); i++) {
-            w.setValue(i, w.getValue(i) / total);
+        int[] rows = new int[w.length];
+        int len = 0;
+        for (int j = 0; j < w.length; j++) {
+            if (w[j] >= threshold) {
+                rows[len++] = j;
+            }
         }
-
-        return true;
+        return Mapping.copy(Arrays.copyOf(rows, len));
     }
 
     @Override
@@ -237,6 +321,11 @@ public class AdaBoostSAMME extends AbstractClassifier {
         return (AdaBoostSAMME) super.withRuns(runs);
     }
 
+    @Override
+    public AdaBoostSAMME withRunPoolSize(int poolSize) {
+        return (AdaBoostSAMME) super.withRunPoolSize(poolSize);
+    }
+
     @Override
     public AdaBoostSAMME withRunningHook(BiConsumer<Classifier, Integer> runningHook) {
         return (AdaBoostSAMME) super.withRunningHook(runningHook);
@@ -24,8 +24,11 @@
 
 package rapaio.ml.classifier.boost;
 
+import rapaio.core.RandomSource;
+import rapaio.core.SamplingTools;
 import rapaio.data.*;
 import rapaio.data.sample.RowSampler;
+import rapaio.data.sample.Sample;
 import rapaio.ml.classifier.AbstractClassifier;
 import rapaio.ml.classifier.CFit;
 import rapaio.ml.classifier.Classifier;
@@ -33,13 +36,25 @@ import rapaio.ml.common.Capabilities;
 import rapaio.ml.regression.RFit;
 import rapaio.experiment.ml.regression.boost.gbt.BTRegression;
 import rapaio.experiment.ml.regression.boost.gbt.GBTLossFunction;
+import rapaio.experiment.ml.regression.boost.gbt.GOSS;
 import rapaio.ml.regression.tree.RTree;
 import rapaio.sys.WS;
+import rapaio.util.FJPool;
+import rapaio.util.Util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 /**
+ * Gradient boosting tree classifier.
+ * <p>
+ * Optionally a validation frame can be tracked during training. The losses on train and
+ * validation data are maintained incrementally after each stage, training can stop early
+ * when the validation loss does not improve for a given number of stages and the fit is
+ * truncated at the stage with the best validation loss. With warm start enabled, a new
+ * training call adds stages to an already trained model.
+ * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> at 12/12/14.
  */
 public class GBTClassifier extends AbstractClassifier implements Classifier {
@@ -49,10 +64,19 @@ public class GBTClassifier extends AbstractClassifier implements Classifier {
     double[][] f;
     double[][] p;
     private double shrinkage = 1.0;
+    private transient Frame validation;
+    private int patience = 0;
+    private boolean warmStart = false;
+    private int fitStages = -1;
+    private double colSample = 1.0;
+    private GOSS goss;
 
     // prediction artifact
     private BTRegression classifier = RTree.buildCART().withMaxDepth(4);
     private List<List<BTRegression>> trees;
+    private NumericVar trainScores;
+    private NumericVar validationScores;
+    private int bestStage;
 
     public GBTClassifier() {
         withRuns(10);
@@ -60,10 +84,16 @@ public class GBTClassifier extends AbstractClassifier implements Classifier {
 
     @Override
     public GBTClassifier newInstance() {
-        return (GBTClassifier) new GBTClassifier()
+        return new GBTClassifier()
                 .withSampler(sampler())
                 .withShrinkage(shrinkage)
                 .withTree(classifier.newInstance())
+                .withValidation(validation)
+                .withEarlyStopping(patience)
+                .withWarmStart(warmStart)
+                .withFitStages(fitStages)
+                .withColSample(colSample)
+                .withGOSS(goss)
                 .withRuns(runs());
     }
 
@@ -77,6 +107,9 @@ public class GBTClassifier extends AbstractClassifier implements Classifier {
         StringBuilder sb = new StringBuilder();
         sb.append(name()).append("{");
         sb.append("runs=").append(runs());
+        if (patience > 0) {
+            sb.append(",patience=").append(patience);
+        }
         sb.append("}");
         return sb.toString();
     }
@@ -102,33 +135,163 @@ public class GBTClassifier extends AbstractClassifier implements Classifier {
         return this;
     }
 
+    /**
+     * Validation frame, which must contain the target variable, used to
+     * compute the validation loss after each stage.
+     */
+    public GBTClassifier withValidation(Frame validation) {
+        this.validation = validation;
+        return this;
+    }
+
+    /**
+     * Stops training when the validation loss does not improve for the given
+     * number of consecutive stages. A value of 0 disables early stopping.
+     */
+    public GBTClassifier withEarlyStopping(int patience) {
+        if (patience < 0) {
+            throw new IllegalArgumentException("patience must be non negative");
+        }
+        this.patience = patience;
+        return this;
+    }
+
+    /**
+     * If true, training a model which was already trained adds {@code runs}
+     * new stages to the existing ones, instead of starting from scratch.
+     */
+    public GBTClassifier withWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+        return this;
+    }
+
+    /**
+     * Number of stages used for fit. A negative value means that the stages up to
+     * the best validation loss are used, or all stages if no validation was tracked.
+     */
+    public GBTClassifier withFitStages(int fitStages) {
+        this.fitStages = fitStages;
+        return this;
+    }
+
+    /**
+     * Fraction of input variables randomly selected for each tree, a value of 1 uses all inputs.
+     */
+    public GBTClassifier withColSample(double colSample) {
+        if (colSample <= 0 || colSample > 1) {
+            throw new IllegalArgumentException("column sample fraction must be in interval (0, 1]");
+        }
+        this.colSample = colSample;
+        return this;
+    }
+
+    /**
+     * Gradient based one-side sampling of rows for each tree. If specified,
+     * it is used instead of the row sampler. A null value disables it.
+     */
+    public GBTClassifier withGOSS(GOSS goss) {
+        this.goss = goss;
+        return this;
+    }
+
+    @Override
+    public GBTClassifier withRuns(int runs) {
+        return (GBTClassifier) super.withRuns(runs);
+    }
+
     @Override
     public GBTClassifier withSampler(RowSampler sampler) {
         return (GBTClassifier) super.withSampler(sampler);
     }
 
+    /**
+     * @return number of trained stages
+     */
+    public int getStages() {
+        return (trees == null || trees.isEmpty()) ? 0 : trees.get(0).size();
+    }
+
+    /**
+     * @return number of stages with the best validation loss, or all stages if no validation was tracked
+     */
+    public int getBestStage() {
+        return bestStage;
+    }
+
+    /**
+     * @return mean multinomial deviance on train data after each stage
+     */
+    public NumericVar getTrainScores() {
+        return trainScores;
+    }
+
+    /**
+     * @return mean multinomial deviance on validation data after each stage
+     */
+    public NumericVar getValidationScores() {
+        return validationScores;
+    }
+
     @Override
     public boolean coreTrain(Frame df, Var weights) {
 
         // algorithm described by ESTL pag. 387
 
+        boolean warm = warmStart && trees != null && K == firstTargetLevels().length - 1;
         K = firstTargetLevels().length - 1;
-        f = new double[df.getRowCount()][K];
+        if (!warm) {
+            trees = new ArrayList<>();
+            for (int i = 0; i < K; i++) {
+                trees.add(new ArrayList<>());
+            }
+            trainScores = NumericVar.empty().withName("train");
+            validationScores = NumericVar.empty().withName("validation");
+        }
+
+        // scores of existing stages are computed once, after that
+        // they are updated incrementally with each new stage
+
+        f = rawScores(df, getStages());
         p = new double[df.getRowCount()][K];
-        trees = new ArrayList<>();
-        for (int i = 0; i < K; i++) {
-            trees.add(new ArrayList<>());
+        double[][] vf = (validation == null) ? null : rawScores(validation, getStages());
+
+        bestStage = getStages();
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < validationScores.getRowCount(); i++) {
+            if (validationScores.getValue(i) < bestScore) {
+                bestScore = validationScores.getValue(i);
+                bestStage = i + 1;
+            }
         }
+        int noImprovement = 0;
+
         for (int m = 0; m < runs(); m++) {
-            buildAdditionalTree(df, weights);
+            buildAdditionalTree(df, weights, vf);
+            trainScores.addValue(deviance(df.getVar(firstTargetName()), f));
+            if (vf == null) {
+                bestStage = getStages();
+            } else {
+                double score = deviance(validation.getVar(firstTargetName()), vf);
+                validationScores.addValue(score);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestStage = getStages();
+                    noImprovement = 0;
+                } else {
+                    noImprovement++;
+                }
+            }
             if (runningHook() != null) {
                 runningHook().accept(this, m);
             }
+            if (vf != null && patience > 0 && noImprovement >= patience) {
+                break;
+            }
         }
         return true;
     }
 
-    private void buildAdditionalTree(Frame df, Var weights) {
+    private void buildAdditionalTree(Frame df, Var weights, double[][] vf) {
 
         // a) Set p_k(x)
 
@@ -145,48 +308,114 @@ public class GBTClassifier extends AbstractClassifier implements Classifier {
             }
         }
 
-        // b)
+        // b) trees for each class are independent given the current probabilities,
+        // they are built concurrently and share the same read-only input frame;
+        // seeds are drawn in class order before the concurrent section, so that
+        // each class samples from its own generator and seeded fits are reproducible
 
+        Frame x = df.removeVars(targetNames());
+        int[] y = new int[df.getRowCount()];
+        Var target = df.getVar(firstTargetName());
+        for (int i = 0; i < y.length; i++) {
+            y[i] = target.getIndex(i);
+        }
+        long[] seeds = new long[K];
         for (int k = 0; k < K; k++) {
+            seeds[k] = RandomSource.nextLong();
+        }
+        FJPool.run(runPoolSize(), () -> Util.rangeStream(K, runPoolSize() != 0)
+                .forEach(k -> trees.get(k).add(buildClassTree(x, y, weights, k, vf, new Random(seeds[k])))));
+    }
 
-            NumericVar r = NumericVar.empty().withName("##tt##");
-            for (int i = 0; i < df.getRowCount(); i++) {
-                double y_i = (df.getVar(firstTargetName()).getIndex(i) == k + 1) ? 1 : 0;
-                r.addValue(y_i - p[i][k]);
-            }
+    private BTRegression buildClassTree(Frame x, int[] y, Var weights, int k, double[][] vf, Random random) {
+
+        NumericVar r = NumericVar.empty().withName("##tt##");
+        for (int i = 0; i < y.length; i++) {
+            double y_i = (y[i] == k + 1) ? 1 : 0;
+            r.addValue(y_i - p[i][k]);
+        }
+
+        Frame train = x.bindVars(r);
+
+        BTRegression tree = classifier.newInstance();
 
-            Frame x = df.removeVars(targetNames());
-            Frame train = x.bindVars(r);
+        // rows and columns are sampled through mappings over the train frame
 
-            BTRegression tree = classifier.newInstance();
+        Sample sample = (goss != null)
+                ? goss.nextSample(train, weights, r, random)
+                : sampler().nextSample(train, weights, random);
+        tree.train(SamplingTools.randomSampleVars(sample.df, "##tt##", colSample, random),
+                sample.weights, "##tt##");
 
-            Mapping samplerMapping = sampler().nextSample(x, weights).mapping;
-            tree.train(train.mapRows(samplerMapping), weights.mapRows(samplerMapping), "##tt##");
+        tree.boostFit(x, r, r, new ClassifierLossFunction(K));
 
-            tree.boostFit(x, r, r, new ClassifierLossFunction(K));
+        RFit rr = tree.fit(train, true);
 
-            RFit rr = tree.fit(train, true);
+        // each class updates only its own column of scores
 
-            for (int i = 0; i < df.getRowCount(); i++) {
-                f[i][k] += shrinkage * rr.firstFit().getValue(i);
+        for (int i = 0; i < y.length; i++) {
+            f[i][k] += shrinkage * rr.firstFit().getValue(i);
+        }
+        if (vf != null) {
+            RFit vr = tree.fit(validation, false);
+            for (int i = 0; i < validation.getRowCount(); i++) {
+                vf[i][k] += shrinkage * vr.firstFit().getValue(i);
             }
-            trees.get(k).add(tree);
         }
+        return tree;
     }
 
-    @Override
-    public CFit coreFit(Frame df, boolean withClasses, boolean withDistributions) {
-        CFit cr = CFit.build(this, df, withClasses, withDistributions);
+    /**
+     * Computes additive scores for each class using the first given number of stages.
+     */
+    private double[][] rawScores(Frame df, int stages) {
+        double[][] scores = new double[df.getRowCount()][K];
         for (int k = 0; k < K; k++) {
-            for (BTRegression tree : trees.get(k)) {
-                RFit rr = tree.fit(df, false);
+            for (int m = 0; m < stages; m++) {
+                RFit rr = trees.get(k).get(m).fit(df, false);
                 for (int i = 0; i < df.getRowCount(); i++) {
-                    double p = cr.firstDensity().getValue(i, k + 1);
-                    p += shrinkage * rr.firstFit().getValue(i);
-                    cr.firstDensity().setValue(i, k + 1, p);
+                    scores[i][k] += shrinkage * rr.firstFit().getValue(i);
                 }
             }
         }
+        return scores;
+    }
+
+    /**
+     * Computes mean multinomial deviance from additive scores.
+     * Rows with missing target values are skipped.
+     */
+    private double deviance(Var y, double[][] scores) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (y.isMissing(i)) {
+                continue;
+            }
+            count++;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, scores[i][k]);
+            }
+            double t = 0;
+            for (int k = 0; k < K; k++) {
+                t += Math.exp(scores[i][k] - max);
+            }
+            sum += max + Math.log(t) - scores[i][y.getIndex(i) - 1];
+        }
+        return sum / count;
+    }
+
+    @Override
+    public CFit coreFit(Frame df, boolean withClasses, boolean withDistributions) {
+        CFit cr = CFit.build(this, df, withClasses, withDistributions);
+        int stages = (fitStages < 0) ? bestStage : Math.min(fitStages, getStages());
+        double[][] scores = rawScores(df, stages);
+        for (int i = 0; i < df.getRowCount(); i++) {
+            for (int k = 0; k < K; k++) {
+                cr.firstDensity().setValue(i, k + 1, scores[i][k]);
+            }
+        }
 
         // make probabilities
 
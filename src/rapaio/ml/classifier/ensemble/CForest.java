@@ -25,6 +25,7 @@
 package rapaio.ml.classifier.ensemble;
 
 import rapaio.core.CoreTools;
+import rapaio.core.RandomSource;
 import rapaio.core.distributions.Distribution;
 import rapaio.core.tools.DVector;
 import rapaio.data.*;
@@ -40,16 +41,17 @@ import rapaio.ml.classifier.tree.CTreeNode;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.VarSelector;
 import rapaio.ml.eval.Confusion;
-import rapaio.util.Pair;
+import rapaio.ml.eval.PermutationImportance;
+import rapaio.util.FJPool;
 import rapaio.util.Util;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static java.util.stream.Collectors.*;
-
 /**
  * Breiman random forest implementation.
  * <p>
@@ -70,12 +72,12 @@ public class CForest extends AbstractClassifier {
     // learning artifacts
     private double oobError = Double.NaN;
     private List<Classifier> predictors = new ArrayList<>();
-    private Map<Integer, DVector> oobDensities;
+    private AtomicIntegerArray oobVotes;
     private Var oobFit;
     private Var oobTrueClass;
-    private Map<String, List<Double>> freqVIMap = new HashMap<>();
-    private Map<String, List<Double>> gainVIMap = new HashMap<>();
-    private Map<String, List<Double>> permVIMap = new HashMap<>();
+    private Map<String, VIStat> freqVIMap = new HashMap<>();
+    private Map<String, VIStat> gainVIMap = new HashMap<>();
+    private Map<String, VIStat> permVIMap = new HashMap<>();
 
     private CForest() {
         withRuns(10);
@@ -204,11 +206,10 @@ public class CForest extends AbstractClassifier {
         Var name = NominalVar.empty().withName("name");
         Var score = NumericVar.empty().withName("score mean");
         Var sd = NumericVar.empty().withName("score sd");
-        for (Map.Entry<String, List<Double>> e : freqVIMap.entrySet()) {
+        for (Map.Entry<String, VIStat> e : freqVIMap.entrySet()) {
             name.addLabel(e.getKey());
-            NumericVar scores = NumericVar.copy(e.getValue());
-            sd.addValue(CoreTools.variance(scores).sdValue());
-            score.addValue(CoreTools.mean(scores).getValue());
+            sd.addValue(e.getValue().sd());
+            score.addValue(e.getValue().mean());
         }
         double maxScore = CoreTools.max(score).getValue();
         Var scaled = NumericVar.from(score.getRowCount(), row -> 100.0 * score.getValue(row) / maxScore).withName("scaled score");
@@ -219,11 +220,10 @@ public class CForest extends AbstractClassifier {
         Var name = NominalVar.empty().withName("name");
         Var score = NumericVar.empty().withName("score mean");
         Var sd = NumericVar.empty().withName("score sd");
-        for (Map.Entry<String, List<Double>> e : gainVIMap.entrySet()) {
+        for (Map.Entry<String, VIStat> e : gainVIMap.entrySet()) {
             name.addLabel(e.getKey());
-            NumericVar scores = NumericVar.copy(e.getValue());
-            sd.addValue(CoreTools.variance(scores).sdValue());
-            score.addValue(CoreTools.mean(scores).getValue());
+            sd.addValue(e.getValue().sd());
+            score.addValue(e.getValue().mean());
         }
         double maxScore = CoreTools.max(score).getValue();
         Var scaled = NumericVar.from(score.getRowCount(), row -> 100.0 * score.getValue(row) / maxScore).withName("scaled score");
@@ -237,11 +237,10 @@ public class CForest extends AbstractClassifier {
         Var zscores = NumericVar.empty().withName("z-score");
         Var pvalues = NumericVar.empty().withName("p-value");
         Distribution normal = CoreTools.distNormal();
-        for (Map.Entry<String, List<Double>> e : permVIMap.entrySet()) {
+        for (Map.Entry<String, VIStat> e : permVIMap.entrySet()) {
             name.addLabel(e.getKey());
-            NumericVar scores = NumericVar.copy(e.getValue());
-            double mean = CoreTools.mean(scores).getValue();
-            double sd = CoreTools.variance(scores).sdValue();
+            double mean = e.getValue().mean();
+            double sd = e.getValue().sd();
             double zscore = mean / (sd);
             double pvalue = normal.cdf(2 * normal.cdf(-Math.abs(zscore)));
             score.addValue(Math.abs(mean));
@@ -255,71 +254,41 @@ public class CForest extends AbstractClassifier {
     @Override
     protected boolean coreTrain(Frame df, Var weights) {
 
-        double totalOobInstances = 0;
-        double totalOobError = 0;
+        oobVotes = null;
         if (oobComp) {
-            oobDensities = new HashMap<>();
             oobTrueClass = df.getVar(firstTargetName()).solidCopy();
-            oobFit = NominalVar.empty(df.getRowCount(), firstTargetLevels());
-            for (int i = 0; i < df.getRowCount(); i++) {
-                oobDensities.put(i, DVector.empty(false, firstTargetLevels()));
-            }
-        }
-        if (freqVIComp && c instanceof CTree) {
-            freqVIMap.clear();
-        }
-        if (gainVIComp && c instanceof CTree) {
-            gainVIMap.clear();
-        }
-        if (permVIComp) {
-            permVIMap.clear();
+            oobVotes = new AtomicIntegerArray(df.getRowCount() * firstTargetLevels().length);
         }
+        freqVIMap = newVIMap(freqVIComp && c instanceof CTree);
+        gainVIMap = newVIMap(gainVIComp && c instanceof CTree);
+        permVIMap = newVIMap(permVIComp);
 
         if (runPoolSize() == 0) {
             predictors = new ArrayList<>();
             for (int i = 0; i < runs(); i++) {
-                Pair<Classifier, List<Integer>> weak = buildWeakPredictor(df, weights);
-                predictors.add(weak._1);
+                predictors.add(buildWeakPredictor(df, weights));
                 if (oobComp) {
-                    oobCompute(df, weak);
-                }
-                if (freqVIComp && c instanceof CTree) {
-                    freqVICompute(weak);
-                }
-                if (gainVIComp && c instanceof CTree) {
-                    gainVICompute(weak);
-                }
-                if (permVIComp) {
-                    permVICompute(df, weak);
+                    oobUpdate();
                 }
                 if (runningHook() != null) {
                     runningHook().accept(this, i + 1);
                 }
             }
         } else {
-            // build in parallel the trees, than oob and running hook cannot run at the
-            // same moment when weak tree was built
+            // build in parallel the trees in the managed pool of runPoolSize threads,
+            // nested parallel work from weak learners runs in the same pool;
+            // oob votes and variable importance are accumulated by each task as soon
+            // as its tree is built, only the running hook is called afterwards
             // for a real running hook behavior run without threading
-            predictors = new ArrayList<>();
-            List<Pair<Classifier, List<Integer>>> list = Util.rangeStream(runs(), runPoolSize() > 0).boxed()
-                    .map(s -> buildWeakPredictor(df, weights))
-                    .collect(Collectors.toList());
-            for (int i = 0; i < list.size(); i++) {
-                Pair<Classifier, List<Integer>> weak = list.get(i);
-                predictors.add(weak._1);
-                if (oobComp) {
-                    oobCompute(df, weak);
-                }
-                if (freqVIComp && c instanceof CTree) {
-                    freqVICompute(weak);
-                }
-                if (gainVIComp && c instanceof CTree) {
-                    gainVICompute(weak);
-                }
-                if (permVIComp) {
-                    permVICompute(df, weak);
-                }
-                if (runningHook() != null) {
+            predictors = FJPool.compute(runPoolSize(),
+                    () -> IntStream.range(0, runs()).parallel()
+                            .mapToObj(s -> buildWeakPredictor(df, weights))
+                            .collect(Collectors.toList())).orElseGet(ArrayList::new);
+            if (oobComp) {
+                oobUpdate();
+            }
+            if (runningHook() != null) {
+                for (int i = 0; i < predictors.size(); i++) {
                     runningHook().accept(this, i + 1);
                 }
             }
@@ -327,55 +296,79 @@ public class CForest extends AbstractClassifier {
         return true;
     }
 
-    private void permVICompute(Frame df, Pair<Classifier, List<Integer>> weak) {
-        Classifier c = weak._1;
-        List<Integer> oobIndexes = weak._2;
-
-        // build oob data frame
-        Frame oobFrame = df.mapRows(Mapping.wrap(oobIndexes));
-
-        // build accuracy on oob data frame
-        CFit fit = c.fit(oobFrame);
-        double refScore = new Confusion(
-                oobFrame.getVar(firstTargetName()),
-                fit.firstClasses())
-                .acceptedCases();
+    private Map<String, VIStat> newVIMap(boolean enabled) {
+        Map<String, VIStat> map = new HashMap<>();
+        if (enabled) {
+            for (String varName : inputNames()) {
+                map.put(varName, new VIStat());
+            }
+        }
+        return map;
+    }
 
-        // now for each input variable do computation
-        for (String varName : inputNames()) {
+    /**
+     * Builds a weak predictor and accumulates its out of bag votes and
+     * variable importance contributions. The out of bag rows are
+     * used only inside this call and are not retained.
+     */
+    private Classifier buildWeakPredictor(Frame df, Var weights) {
+        Classifier weak = c.newInstance();
 
-            // shuffle values from variable
-            Var shuffled = Filters.shuffle(oobFrame.getVar(varName));
+        Sample sample = sampler().nextSample(df, weights);
 
-            // build oob frame with shuffled variable
-            Frame oobReduced = oobFrame.removeVars(varName).bindVars(shuffled);
+        Frame trainFrame = sample.df;
+        Var trainWeights = sample.weights;
 
-            // compute accuracy on oob shuffled frame
+        weak.train(trainFrame, trainWeights, firstTargetName());
 
-            CFit pfit = c.fit(oobReduced);
-            double acc = new Confusion(
-                    oobReduced.getVar(firstTargetName()),
-                    pfit.firstClasses()
-            ).acceptedCases();
+        if (oobComp || permVIComp) {
+            int[] oobRows = oobRows(df.getRowCount(), sample.mapping);
+            Frame oobFrame = df.mapRows(Mapping.copy(oobRows));
+            if (oobComp) {
+                oobCompute(oobRows, weak.fit(oobFrame, true, false));
+            }
+            if (permVIComp) {
+                permVICompute(weak, oobFrame);
+            }
+        }
+        if (freqVIComp && c instanceof CTree) {
+            freqVICompute((CTree) weak);
+        }
+        if (gainVIComp && c instanceof CTree) {
+            gainVICompute((CTree) weak);
+        }
+        return weak;
+    }
 
-            if (!permVIMap.containsKey(varName)) {
-                permVIMap.put(varName, new ArrayList<>());
+    private int[] oobRows(int rowCount, Mapping inBag) {
+        boolean[] in = new boolean[rowCount];
+        inBag.rowStream().forEach(row -> in[row] = true);
+        int len = 0;
+        int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            if (!in[i]) {
+                rows[len++] = i;
             }
-            permVIMap.get(varName).add(refScore - acc);
         }
+        return Arrays.copyOf(rows, len);
     }
 
-    private void gainVICompute(Pair<Classifier, List<Integer>> weak) {
-        CTree weakTree = (CTree) weak._1;
+    private void permVICompute(Classifier weak, Frame oobFrame) {
+        // scores are drops in accuracy, scaled to number of accepted cases
+        double[][] scores = PermutationImportance.newInstance()
+                .withRepeats(1)
+                .withPoolSize(runPoolSize())
+                .computeScores(weak, oobFrame);
+        for (int i = 0; i < scores.length; i++) {
+            permVIMap.get(weak.inputName(i)).add(scores[i][0] * oobFrame.getRowCount());
+        }
+    }
+
+    private void gainVICompute(CTree weakTree) {
         DVector scores = DVector.empty(false, inputNames());
         collectGainVI(weakTree.getRoot(), scores);
-        for (int j = 0; j < inputNames().length; j++) {
-            String varName = inputName(j);
-            double score = scores.get(varName);
-            if (!gainVIMap.containsKey(varName)) {
-                gainVIMap.put(varName, new ArrayList<>());
-            }
-            gainVIMap.get(varName).add(score);
+        for (String varName : inputNames()) {
+            gainVIMap.get(varName).add(scores.get(varName));
         }
     }
 
@@ -388,17 +381,11 @@ public class CForest extends AbstractClassifier {
         node.getChildren().forEach(child -> collectGainVI(child, dv));
     }
 
-    private void freqVICompute(Pair<Classifier, List<Integer>> weak) {
-        CTree weakTree = (CTree) weak._1;
+    private void freqVICompute(CTree weakTree) {
         DVector scores = DVector.empty(false, inputNames());
         collectFreqVI(weakTree.getRoot(), scores);
-        for (int j = 0; j < inputNames().length; j++) {
-            String varName = inputName(j);
-            double score = scores.get(varName);
-            if (!freqVIMap.containsKey(varName)) {
-                freqVIMap.put(varName, new ArrayList<>());
-            }
-            freqVIMap.get(varName).add(score);
+        for (String varName : inputNames()) {
+            freqVIMap.get(varName).add(scores.get(varName));
         }
     }
 
@@ -406,30 +393,47 @@ public class CForest extends AbstractClassifier {
         if (node.isLeaf())
             return;
         String varName = node.getBestCandidate().getTestName();
-        double score = Math.abs(node.getBestCandidate().getScore());
         dv.increment(varName, node.getDensity().sum());
         node.getChildren().forEach(child -> collectFreqVI(child, dv));
     }
 
-    private void oobCompute(Frame df, Pair<Classifier, List<Integer>> weak) {
-        double totalOobError;
-        double totalOobInstances;
-        List<Integer> oobIndexes = weak._2;
-        Frame oobTest = df.mapRows(Mapping.wrap(oobIndexes));
-        CFit fit = weak._1.fit(oobTest);
-        for (int j = 0; j < oobTest.getRowCount(); j++) {
-            int fitIndex = fit.firstClasses().getIndex(j);
-            oobDensities.get(oobIndexes.get(j)).increment(fitIndex, 1.0);
+    private void oobCompute(int[] oobRows, CFit fit) {
+        int levels = firstTargetLevels().length;
+        Var classes = fit.firstClasses();
+        for (int j = 0; j < oobRows.length; j++) {
+            oobVotes.incrementAndGet(oobRows[j] * levels + classes.getIndex(j));
         }
-        oobFit.clear();
-        totalOobError = 0.0;
-        totalOobInstances = 0.0;
-        for (Map.Entry<Integer, DVector> e : oobDensities.entrySet()) {
-            if (e.getValue().sum() > 0) {
-                int bestIndex = e.getValue().findBestIndex();
-                String bestLevel = firstTargetLevels()[bestIndex];
-                oobFit.setLabel(e.getKey(), bestLevel);
-                if (!bestLevel.equals(oobTrueClass.getLabel(e.getKey()))) {
+    }
+
+    /**
+     * Updates oob fit and oob error from the accumulated oob votes.
+     */
+    private void oobUpdate() {
+        String[] levels = firstTargetLevels();
+        oobFit = NominalVar.empty(oobTrueClass.getRowCount(), levels);
+        double totalOobError = 0.0;
+        double totalOobInstances = 0.0;
+        for (int i = 0; i < oobTrueClass.getRowCount(); i++) {
+            // first level is the missing label and is skipped, ties are broken at random
+            int bestIndex = -1;
+            int best = 0;
+            double n = 1;
+            for (int j = 1; j < levels.length; j++) {
+                int votes = oobVotes.get(i * levels.length + j);
+                if (votes > best) {
+                    best = votes;
+                    bestIndex = j;
+                    n = 1;
+                } else if (votes > 0 && votes == best) {
+                    if (RandomSource.nextDouble() > n / (n + 1)) {
+                        bestIndex = j;
+                    }
+                    n++;
+                }
+            }
+            if (bestIndex > 0) {
+                oobFit.setLabel(i, levels[bestIndex]);
+                if (!levels[bestIndex].equals(oobTrueClass.getLabel(i))) {
                     totalOobError++;
                 }
                 totalOobInstances++;
@@ -438,29 +442,13 @@ public class CForest extends AbstractClassifier {
         oobError = (totalOobInstances > 0) ? totalOobError / totalOobInstances : 0.0;
     }
 
-    private Pair<Classifier, List<Integer>> buildWeakPredictor(Frame df, Var weights) {
-        Classifier weak = c.newInstance();
-
-        Sample sample = sampler().nextSample(df, weights);
-
-        Frame trainFrame = sample.df;
-        Var trainWeights = sample.weights;
-
-        weak.train(trainFrame, trainWeights, firstTargetName());
-        List<Integer> oobIndexes = new ArrayList<>();
-        if (oobComp) {
-            Set<Integer> out = sample.mapping.rowStream().boxed().collect(toSet());
-            oobIndexes = IntStream.range(0, df.getRowCount()).filter(row -> !out.contains(row)).boxed().collect(toList());
-        }
-        return Pair.from(weak, oobIndexes);
-    }
-
     @Override
     protected CFit coreFit(Frame df, boolean withClasses, boolean withDensities) {
         CFit cp = CFit.build(this, df, true, true);
-        List<CFit> treeFits = predictors.stream().parallel()
-                .map(pred -> pred.fit(df, baggingMode.needsClass(), baggingMode.needsDensity()))
-                .collect(Collectors.toList());
+        List<CFit> treeFits = FJPool.compute(runPoolSize(),
+                () -> Util.rangeStream(predictors.size(), runPoolSize() != 0)
+                        .mapToObj(i -> predictors.get(i).fit(df, baggingMode.needsClass(), baggingMode.needsDensity()))
+                        .collect(Collectors.toList())).orElseGet(ArrayList::new);
         baggingMode.computeDensity(firstTargetLevels(), new ArrayList<>(treeFits), cp.firstClasses(), cp.firstDensity());
         return cp;
     }
@@ -512,4 +500,31 @@ public class CForest extends AbstractClassifier {
 
         return sb.toString();
     }
+
+    /**
+     * Thread safe running mean and variance of variable importance scores.
+     */
+    private static final class VIStat implements Serializable {
+
+        private static final long serialVersionUID = 3514367404962542312L;
+
+        private long count;
+        private double mean;
+        private double m2;
+
+        synchronized void add(double x) {
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+        }
+
+        synchronized double mean() {
+            return count > 0 ? mean : Double.NaN;
+        }
+
+        synchronized double sd() {
+            return Math.sqrt(m2 / (count - 1.0));
+        }
+    }
 }
@@ -24,35 +24,49 @@
 
 package rapaio.ml.clustering;
 
-import rapaio.core.stat.Mean;
+import rapaio.core.RandomSource;
 import rapaio.data.*;
 import rapaio.data.filter.Filters;
+import rapaio.data.stream.VChunk;
 import rapaio.ml.common.distance.Distance;
 import rapaio.ml.common.distance.KMeansInitMethod;
+import rapaio.ml.common.distance.PackedRows;
 import rapaio.printer.Printable;
 import rapaio.sys.WS;
-import rapaio.util.Pair;
 import rapaio.util.Tag;
 import rapaio.printer.Summary;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
-import static java.util.stream.Collectors.toList;
 import static rapaio.core.CoreTools.*;
 
 /**
  * KMeans clusterization algorithm
+ * <p>
+ * Input variables are packed once into a row major array of doubles and all the
+ * distance computations are done on that packed copy. Full batch learning uses
+ * Lloyd iterations accelerated with Hamerly triangle inequality bounds, which keeps
+ * only one upper and one lower bound for each instance. Assignment and centroid
+ * reduction are executed in parallel on row chunks.
+ * <p>
+ * For very large data sets one can use mini batch learning (see {@link #withMiniBatch(int)}),
+ * or feed data in batches through {@link #partialCluster(Frame, String...)}.
  *
  * @author <a href="mailto:padreati@yahoo.com>Aurelian Tutuianu</a>
  */
 public class KMeans implements Printable {
 
+    private static final int CHUNK_MIN_SIZE = 1024;
+    private static final int MINI_BATCH_MAX_NO_IMPROVEMENT = 10;
+
     private int k = 2;
     private int runs = Integer.MAX_VALUE;
+    private int miniBatch = 0;
     private Tag<KMeansInitMethod> init = KMeansInitMethod.FORGY;
     private Tag<Distance> distance = Distance.EUCLIDEAN;
     private Consumer<KMeans> runningHook = null;
@@ -69,6 +83,12 @@ public class KMeans implements Printable {
     private NumericVar errors;
     private Map<Integer, NumericVar> clusterErrors;
 
+    // packed artifacts
+
+    private int dim;
+    private double[] centers;
+    private double[] counts;
+
     // summary artifacts
 
     private NumericVar summaryAllDist;
@@ -79,6 +99,17 @@ public class KMeans implements Printable {
         return this;
     }
 
+    /**
+     * Specifies the method used to select initial centroids, default is {@link KMeansInitMethod#FORGY}.
+     *
+     * @param init tagged init method
+     * @return self instance
+     */
+    public KMeans withInit(Tag<KMeansInitMethod> init) {
+        this.init = init;
+        return this;
+    }
+
     public KMeans withEps(double eps) {
         this.eps = eps;
         return this;
@@ -89,6 +120,24 @@ public class KMeans implements Printable {
         return this;
     }
 
+    /**
+     * Enables mini batch learning. At each iteration a random sample of the given
+     * size is drawn with replacement, and the centroids are moved towards the mean
+     * of the instances assigned to them, with a per centroid learning rate which
+     * decreases with the number of instances seen. Learning stops after the configured
+     * number of runs or when the smoothed batch error does not improve for a few
+     * consecutive iterations.
+     *
+     * @param miniBatch size of the mini batch, a value of 0 disables mini batch learning
+     * @return self instance
+     */
+    public KMeans withMiniBatch(int miniBatch) {
+        if (miniBatch < 0)
+            throw new IllegalArgumentException("mini batch size must be non negative");
+        this.miniBatch = miniBatch;
+        return this;
+    }
+
     public KMeans withDebug(boolean debug) {
         this.debug = debug;
         return this;
@@ -103,19 +152,103 @@ public class KMeans implements Printable {
         validate(df, varNames);
 
         inputs = VRange.of(varNames).parseVarNames(df).stream().toArray(String[]::new);
+        initArtifacts(df);
+
+        double[] x = PackedRows.pack(df, inputs);
+        int n = df.getRowCount();
+        double[] bounds = new double[2 * n];
+        arrows = new int[n];
+
+        if (miniBatch > 0 && miniBatch < n) {
+            clusterMiniBatch(x, n);
+            assignFull(x, n, arrows, bounds);
+            reduce(x, n, arrows, bounds, null, null, true);
+        } else {
+            clusterFullBatch(x, n, bounds);
+        }
+        unpackCentroids();
+        buildSummary(bounds, n);
+        learned = true;
+    }
+
+    /**
+     * Updates the clustering with a new batch of data. The first call initializes
+     * the centroids from the given batch, further calls moves the centroids towards
+     * the means of the batch instances assigned to them, using the same rule as
+     * mini batch learning. Cluster assignment, errors and summary are
+     * computed for the last batch.
+     *
+     * @param df       batch of instances
+     * @param varNames input variable names, used only at first call
+     */
+    public void partialCluster(Frame df, String... varNames) {
+        if (centers == null || counts == null) {
+            validate(df, varNames);
+            inputs = VRange.of(varNames).parseVarNames(df).stream().toArray(String[]::new);
+            initArtifacts(df);
+        } else {
+            validate(df, inputs);
+        }
+        double[] x = PackedRows.pack(df, inputs);
+        int n = df.getRowCount();
+        arrows = new int[n];
+        double[] bounds = new double[2 * n];
+        miniBatchStep(x, IntStream.range(0, n).toArray(), 1.0);
+
+        assignFull(x, n, arrows, bounds);
+        reduce(x, n, arrows, bounds, null, null, false);
+        unpackCentroids();
+        buildSummary(bounds, n);
+        learned = true;
+    }
+
+    private void validate(Frame df, String... varNames) {
+        if (distance != Distance.EUCLIDEAN) {
+            throw new IllegalArgumentException("packed k-means implementation supports only euclidean distance");
+        }
+        List<String> nameList = VRange.of(varNames).parseVarNames(df);
+        for (String varName : nameList) {
+            if (!df.getVar(varName).getType().isNumeric())
+                throw new IllegalArgumentException("all matched vars must be numeric: check var " + varName);
+            if (df.getVar(varName).chunkStream(1024).anyMatch(VChunk::hasMissing)) {
+                throw new IllegalArgumentException("all matched vars must have non-missing values: check var " + varName);
+            }
+        }
+    }
+
+    private void initArtifacts(Frame df) {
         centroids = init.get().init(df, inputs, k);
-        arrows = new int[df.getRowCount()];
+        dim = inputs.length;
+        centers = PackedRows.pack(centroids, inputs);
+        counts = null;
         errors = NumericVar.empty().withName("errors");
         clusterErrors = new HashMap<>();
-        IndexVar.seq(k).stream().forEach(c -> clusterErrors.put(c.getIndex(), NumericVar.empty().withName("c" + (c.getIndex() + 1) + "_errors")));
+        for (int i = 0; i < k; i++) {
+            clusterErrors.put(i, NumericVar.empty().withName("c" + (i + 1) + "_errors"));
+        }
+    }
 
-        assignToCentroids(df);
+    /**
+     * Lloyd iterations with Hamerly bounds. The bounds array keeps for each instance
+     * the upper bound of the distance to the assigned centroid at position 2*i and
+     * the lower bound of the distance to the second closest centroid at position 2*i+1.
+     */
+    private void clusterFullBatch(double[] x, int n, double[] bounds) {
+        double[] sums = new double[k * dim];
+        double[] sizes = new double[k];
 
+        assignFull(x, n, arrows, bounds);
+        reduce(x, n, arrows, bounds, sums, sizes, true);
+
+        double[] shift = new double[k];
+        double[] halfDist = new double[k];
         int rounds = runs;
         while (rounds-- > 0) {
-            recomputeCentroids(df);
-            assignToCentroids(df);
+            moveCentroids(sums, sizes, shift);
+            assignBounded(x, n, shift, halfDist, bounds);
+            reduce(x, n, arrows, bounds, sums, sizes, true);
             if (runningHook != null) {
+                unpackCentroids();
                 runningHook.accept(this);
             }
             int erc = errors.getRowCount();
@@ -123,79 +256,292 @@ public class KMeans implements Printable {
                 break;
             }
         }
-        buildSummary(df);
-        learned = true;
     }
 
-    private void validate(Frame df, String... varNames) {
-        List<String> nameList = VRange.of(varNames).parseVarNames(df);
-        for (String varName : nameList) {
-            if (!df.getVar(varName).getType().isNumeric())
-                throw new IllegalArgumentException("all matched vars must be numeric: check var " + varName);
-            if (df.getVar(varName).stream().complete().count() != df.getRowCount()) {
-                throw new IllegalArgumentException("all matched vars must have non-missing values: check var " + varName);
+    private void clusterMiniBatch(double[] x, int n) {
+        double alpha = Math.min(1.0, 2.0 * miniBatch / (n + 1));
+        double ewaError = Double.NaN;
+        double bestEwaError = Double.POSITIVE_INFINITY;
+        int noImprovement = 0;
+
+        int rounds = runs;
+        while (rounds-- > 0) {
+            int[] batch = new int[miniBatch];
+            for (int i = 0; i < miniBatch; i++) {
+                batch[i] = RandomSource.nextInt(n);
+            }
+            double batchError = miniBatchStep(x, batch, ((double) n) / miniBatch);
+            if (runningHook != null) {
+                unpackCentroids();
+                runningHook.accept(this);
+            }
+            double meanError = batchError / n;
+            ewaError = Double.isNaN(ewaError) ? meanError : ewaError * (1 - alpha) + meanError * alpha;
+            if (ewaError < bestEwaError) {
+                bestEwaError = ewaError;
+                noImprovement = 0;
+            } else if (++noImprovement >= MINI_BATCH_MAX_NO_IMPROVEMENT) {
+                break;
             }
         }
     }
 
-
-    private void assignToCentroids(Frame df) {
-        if (debug) WS.println("assignToCentroids called ..");
-        double totalError = 0.0;
-        double[] err = new double[centroids.getRowCount()];
-        List<Pair<Integer, Double>> pairs = IntStream.range(0, df.getRowCount()).parallel().boxed().map(i -> {
-            double d = Double.NaN;
-            int cluster = -1;
-            for (int j = 0; j < centroids.getRowCount(); j++) {
-                double dd = distance.get().distance(df, i, centroids, j, inputs);
-                if (!Double.isFinite(dd)) continue;
-                if (Double.isNaN(dd)) continue;
-                if (!Double.isNaN(d)) {
-                    if (dd < d) {
-                        d = dd;
-                        cluster = j;
+    /**
+     * Performs one mini batch update step and records the batch errors scaled
+     * by the given factor.
+     *
+     * @return scaled batch error, computed with the centroids before update
+     */
+    private double miniBatchStep(double[] x, int[] batch, double scale) {
+        if (debug) WS.println("miniBatchStep called ..");
+        if (counts == null) {
+            counts = new double[k];
+        }
+        int[] batchArrows = new int[batch.length];
+        double[] batchErrors = new double[batch.length];
+        chunkStream(batch.length).forEach(chunk -> {
+            int end = Math.min(batch.length, chunk + chunkSize(batch.length));
+            for (int i = chunk; i < end; i++) {
+                int row = batch[i];
+                int best = 0;
+                double bestDist = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < k; j++) {
+                    double dd = PackedRows.dist2(x, row * dim, centers, j * dim, dim);
+                    if (dd < bestDist) {
+                        bestDist = dd;
+                        best = j;
                     }
-                } else {
-                    d = dd;
-                    cluster = j;
                 }
+                batchArrows[i] = best;
+                batchErrors[i] = bestDist;
             }
-            if (cluster == -1) {
-                throw new RuntimeException("cluster could not be computed");
+        });
+
+        double[] err = new double[k];
+        double[] sums = new double[k * dim];
+        double[] sizes = new double[k];
+        for (int i = 0; i < batch.length; i++) {
+            int cluster = batchArrows[i];
+            err[cluster] += batchErrors[i];
+            sizes[cluster]++;
+            int off = batch[i] * dim;
+            int coff = cluster * dim;
+            for (int j = 0; j < dim; j++) {
+                sums[coff + j] += x[off + j];
             }
-            double error = Math.pow(d, 2);
-            arrows[i] = cluster;
-            return Pair.from(cluster, error);
-        }).collect(toList());
-        for (Pair<Integer, Double> p : pairs) {
-            totalError += p._2;
-            err[p._1] += p._2;
         }
-        for (int i = 0; i < err.length; i++) {
-            clusterErrors.get(i).addValue(err[i]);
+        for (int j = 0; j < k; j++) {
+            if (sizes[j] == 0)
+                continue;
+            double total = counts[j] + sizes[j];
+            for (int l = 0; l < dim; l++) {
+                centers[j * dim + l] = (centers[j * dim + l] * counts[j] + sums[j * dim + l]) / total;
+            }
+            counts[j] = total;
+        }
+        double totalError = 0;
+        for (int j = 0; j < k; j++) {
+            clusterErrors.get(j).addValue(err[j] * scale);
+            totalError += err[j] * scale;
         }
         errors.addValue(totalError);
+        return totalError;
     }
 
-    private void recomputeCentroids(Frame df) {
+    /**
+     * Assigns all instances to the closest centroid, computing also the Hamerly bounds.
+     */
+    private void assignFull(double[] x, int n, int[] assign, double[] bounds) {
+        if (debug) WS.println("assignToCentroids called ..");
+        chunkStream(n).forEach(chunk -> {
+            int end = Math.min(n, chunk + chunkSize(n));
+            for (int i = chunk; i < end; i++) {
+                scan(x, i, assign, bounds);
+            }
+        });
+    }
+
+    /**
+     * Assigns instances to the closest centroid after centroids moved, using Hamerly bounds
+     * to skip distance computations whenever the assigned centroid is provable the closest one.
+     */
+    private void assignBounded(double[] x, int n, double[] shift, double[] halfDist, double[] bounds) {
+        if (debug) WS.println("assignToCentroids called ..");
+
+        // compute the largest and second largest centroid shifts
+        int maxShiftPos = 0;
+        for (int j = 1; j < k; j++) {
+            if (shift[j] > shift[maxShiftPos])
+                maxShiftPos = j;
+        }
+        double maxShift = shift[maxShiftPos];
+        double secondMax = 0;
+        for (int j = 0; j < k; j++) {
+            if (j != maxShiftPos && shift[j] > secondMax)
+                secondMax = shift[j];
+        }
+        final double secondShift = secondMax;
+
+        // half of the distance to the closest other centroid
+        IntStream.range(0, k).parallel().forEach(j -> {
+            double min = Double.POSITIVE_INFINITY;
+            for (int l = 0; l < k; l++) {
+                if (l == j)
+                    continue;
+                double dd = PackedRows.dist2(centers, j * dim, centers, l * dim, dim);
+                if (dd < min)
+                    min = dd;
+            }
+            halfDist[j] = Math.sqrt(min) / 2;
+        });
+
+        final int maxPos = maxShiftPos;
+        chunkStream(n).forEach(chunk -> {
+            int end = Math.min(n, chunk + chunkSize(n));
+            for (int i = chunk; i < end; i++) {
+                int a = arrows[i];
+                double upper = bounds[2 * i] + shift[a];
+                double lower = bounds[2 * i + 1] - (a == maxPos ? secondShift : maxShift);
+                bounds[2 * i] = upper;
+                bounds[2 * i + 1] = lower;
+
+                double m = Math.max(halfDist[a], lower);
+                if (upper <= m)
+                    continue;
+                upper = Math.sqrt(PackedRows.dist2(x, i * dim, centers, a * dim, dim));
+                bounds[2 * i] = upper;
+                if (upper <= m)
+                    continue;
+                scan(x, i, arrows, bounds);
+            }
+        });
+    }
+
+    private void scan(double[] x, int i, int[] assign, double[] bounds) {
+        int best = -1;
+        double first = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            double dd = PackedRows.dist2(x, i * dim, centers, j * dim, dim);
+            if (dd < first) {
+                second = first;
+                first = dd;
+                best = j;
+            } else if (dd < second) {
+                second = dd;
+            }
+        }
+        if (best == -1) {
+            throw new RuntimeException("cluster could not be computed");
+        }
+        assign[i] = best;
+        bounds[2 * i] = Math.sqrt(first);
+        bounds[2 * i + 1] = Math.sqrt(second);
+    }
+
+    /**
+     * Computes exact errors for the current assignment, updates upper bounds with exact
+     * distances and, if required, computes the sums and counts needed to recompute centroids.
+     * Each chunk of rows is reduced into its own accumulators which are merged at the end.
+     */
+    private void reduce(double[] x, int n, int[] assign, double[] bounds, double[] sums, double[] sizes, boolean record) {
         if (debug) WS.println("recomputeCentroids called ..");
-        Var[] means = IntStream.range(0, k).boxed().map(i -> NumericVar.fill(df.getRowCount(), 0)).toArray(NumericVar[]::new);
-        for (String input : inputs) {
+        boolean withSums = sums != null;
+        int size = chunkSize(n);
+        int chunks = (n + size - 1) / size;
+        double[][] chunkErr = new double[chunks][];
+        double[][] chunkSums = new double[chunks][];
+        double[][] chunkSizes = new double[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(ch -> {
+            double[] err = new double[k];
+            double[] s = withSums ? new double[k * dim] : null;
+            double[] cnt = withSums ? new double[k] : null;
+            int end = Math.min(n, (ch + 1) * size);
+            for (int i = ch * size; i < end; i++) {
+                int cluster = assign[i];
+                double dd = PackedRows.dist2(x, i * dim, centers, cluster * dim, dim);
+                err[cluster] += dd;
+                bounds[2 * i] = Math.sqrt(dd);
+                if (withSums) {
+                    cnt[cluster]++;
+                    int off = i * dim;
+                    int coff = cluster * dim;
+                    for (int j = 0; j < dim; j++) {
+                        s[coff + j] += x[off + j];
+                    }
+                }
+            }
+            chunkErr[ch] = err;
+            chunkSums[ch] = s;
+            chunkSizes[ch] = cnt;
+        });
+        double[] err = new double[k];
+        if (withSums) {
+            Arrays.fill(sums, 0);
+            Arrays.fill(sizes, 0);
+        }
+        for (int ch = 0; ch < chunks; ch++) {
             for (int j = 0; j < k; j++) {
-                means[j].clear();
+                err[j] += chunkErr[ch][j];
             }
-            for (int j = 0; j < df.getRowCount(); j++) {
-                means[arrows[j]].addValue(df.getValue(j, input));
+            if (withSums) {
+                for (int j = 0; j < sums.length; j++) {
+                    sums[j] += chunkSums[ch][j];
+                }
+                for (int j = 0; j < k; j++) {
+                    sizes[j] += chunkSizes[ch][j];
+                }
             }
+        }
+        if (record) {
+            double totalError = 0;
             for (int j = 0; j < k; j++) {
-                if (means[j].getRowCount() == 0)
-                    continue;
-                double mean = Mean.from(means[j]).getValue();
-                centroids.setValue(j, input, mean);
+                clusterErrors.get(j).addValue(err[j]);
+                totalError += err[j];
+            }
+            errors.addValue(totalError);
+        }
+    }
+
+    private void moveCentroids(double[] sums, double[] sizes, double[] shift) {
+        for (int j = 0; j < k; j++) {
+            shift[j] = 0;
+            if (sizes[j] == 0)
+                continue;
+            double dd = 0;
+            for (int l = 0; l < dim; l++) {
+                double mean = sums[j * dim + l] / sizes[j];
+                double delta = mean - centers[j * dim + l];
+                dd += delta * delta;
+                centers[j * dim + l] = mean;
+            }
+            shift[j] = Math.sqrt(dd);
+        }
+    }
+
+    private int chunkSize(int n) {
+        int chunks = Runtime.getRuntime().availableProcessors() * 4;
+        return Math.max(CHUNK_MIN_SIZE, (n + chunks - 1) / chunks);
+    }
+
+    private IntStream chunkStream(int n) {
+        int size = chunkSize(n);
+        return IntStream.range(0, (n + size - 1) / size).parallel().map(ch -> ch * size);
+    }
+
+    private void unpackCentroids() {
+        for (int j = 0; j < dim; j++) {
+            Var var = centroids.getVar(inputs[j]);
+            for (int i = 0; i < k; i++) {
+                var.setValue(i, centers[i * dim + j]);
             }
         }
     }
 
+    public Frame getCentroids() {
+        return centroids;
+    }
+
     public Var getClusterAssignment() {
         Var var = IndexVar.empty(arrows.length);
         for (int i = 0; i < arrows.length; i++) {
@@ -224,7 +570,7 @@ public class KMeans implements Printable {
         return clusterErrors.get(c).getValue(clusterErrors.get(c).getRowCount() - 1);
     }
 
-    private void buildSummary(Frame df) {
+    private void buildSummary(double[] bounds, int n) {
         IndexVar summaryId = IndexVar.seq(1, centroids.getRowCount() + 1).withName("ID");
         IndexVar summaryCount = IndexVar.fill(centroids.getRowCount(), 0).withName("count");
         NumericVar summaryMean = NumericVar.fill(centroids.getRowCount(), 0).withName("mean");
@@ -236,8 +582,9 @@ public class KMeans implements Printable {
 
         Map<Integer, NumericVar> distances = new HashMap<>();
 
-        for (int i = 0; i < df.getRowCount(); i++) {
-            double d = distance.get().distance(centroids, arrows[i], df, i, inputs);
+        // after reduce the upper bounds are exact distances to the assigned centroids
+        for (int i = 0; i < n; i++) {
+            double d = bounds[2 * i];
             if (!distances.containsKey(arrows[i]))
                 distances.put(arrows[i], NumericVar.empty());
             distances.get(arrows[i]).addValue(d);
@@ -267,6 +614,7 @@ public class KMeans implements Printable {
         sb.append("> init = ").append(init.name()).append("\n");
         sb.append("> distance = ").append(distance.name()).append("\n");
         sb.append("> eps = ").append(eps).append("\n");
+        sb.append("> mini batch = ").append(miniBatch).append("\n");
         sb.append("> debug = ").append(debug).append("\n");
         sb.append("\n");
 
@@ -0,0 +1,73 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+import rapaio.data.VRange;
+import rapaio.data.Var;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base class for nearest neighbour indexes, holds the packed row major
+ * copy of the indexed values.
+ */
+abstract class AbstractNNIndex implements NNIndex {
+
+    private static final long serialVersionUID = -1789264018434232215L;
+
+    protected final String[] inputs;
+    protected final int n;
+    protected final int d;
+
+    AbstractNNIndex(Frame df, String... varNames) {
+        List<String> names = VRange.of(varNames).parseVarNames(df);
+        for (String varName : names) {
+            Var var = df.getVar(varName);
+            if (!var.getType().isNumeric())
+                throw new IllegalArgumentException("all matched vars must be numeric: check var " + varName);
+            if (var.stream().complete().count() != df.getRowCount())
+                throw new IllegalArgumentException("all matched vars must have non-missing values: check var " + varName);
+        }
+        this.inputs = names.toArray(new String[0]);
+        this.n = df.getRowCount();
+        this.d = inputs.length;
+    }
+
+    @Override
+    public String[] inputs() {
+        return Arrays.copyOf(inputs, inputs.length);
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    protected void checkQuery(double[] query) {
+        if (query.length != d)
+            throw new IllegalArgumentException("query point must have " + d + " values");
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+
+import java.util.Arrays;
+
+/**
+ * Skeleton for binary space partitioning trees over packed points.
+ * <p>
+ * Points are recursively split at the median of the dimension with the largest spread,
+ * until nodes have at most leaf size points. Points are stored in tree order in a
+ * permuted copy, thus each node covers a contiguous interval of positions.
+ * Implementations provide a lower bound of the distance between a query point and
+ * any point from a node, which is used to prune the search.
+ */
+abstract class AbstractNNTree extends AbstractNNIndex {
+
+    private static final long serialVersionUID = 3059170231863931364L;
+
+    protected static final int LEAF_SIZE = 16;
+
+    // row number for each position in tree order
+    protected final int[] perm;
+    // packed points in tree order
+    protected final double[] px;
+
+    protected int nodeCount;
+    protected int[] start;
+    protected int[] end;
+    protected int[] left;
+    protected int[] right;
+
+    AbstractNNTree(Frame df, String... varNames) {
+        super(df, varNames);
+        double[] x = PackedRows.pack(df, inputs);
+        perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        int capacity = 2 * (n / LEAF_SIZE + 1) + 1;
+        start = new int[capacity];
+        end = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        initNodes(capacity);
+
+        build(x, 0, n);
+
+        px = new double[n * d];
+        for (int pos = 0; pos < n; pos++) {
+            System.arraycopy(x, perm[pos] * d, px, pos * d, d);
+        }
+        trimNodes();
+    }
+
+    /**
+     * Allocates implementation specific node storage
+     */
+    protected abstract void initNodes(int capacity);
+
+    /**
+     * Grows implementation specific node storage
+     */
+    protected abstract void growNodes(int capacity);
+
+    /**
+     * Computes implementation specific node description from points in tree order
+     */
+    protected abstract void describeNode(int node, double[] x, int from, int to);
+
+    /**
+     * Lower bound of the squared distance between query and any point from node.
+     */
+    protected abstract double lowerBound2(int node, double[] query);
+
+    private int build(double[] x, int from, int to) {
+        int node = nodeCount++;
+        if (node >= start.length) {
+            int capacity = 2 * start.length;
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            growNodes(capacity);
+        }
+        start[node] = from;
+        end[node] = to;
+        left[node] = -1;
+        right[node] = -1;
+        describeNode(node, x, from, to);
+        if (to - from <= LEAF_SIZE) {
+            return node;
+        }
+
+        // split dimension is the one with the largest spread
+        int splitDim = 0;
+        double bestSpread = -1;
+        for (int j = 0; j < d; j++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int pos = from; pos < to; pos++) {
+                double v = x[perm[pos] * d + j];
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                splitDim = j;
+            }
+        }
+        if (bestSpread <= 0) {
+            // all points are identical
+            return node;
+        }
+        int mid = (from + to) >>> 1;
+        select(x, splitDim, from, to - 1, mid);
+        int l = build(x, from, mid);
+        int r = build(x, mid, to);
+        left[node] = l;
+        right[node] = r;
+        return node;
+    }
+
+    /**
+     * Quick select on permutation, after this call the position k contains
+     * the point with k-th value on the given dimension
+     */
+    private void select(double[] x, int dim, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = x[perm[(lo + hi) >>> 1] * d + dim];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (x[perm[i] * d + dim] < pivot) i++;
+                while (x[perm[j] * d + dim] > pivot) j--;
+                if (i <= j) {
+                    int tmp = perm[i];
+                    perm[i++] = perm[j];
+                    perm[j--] = tmp;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void trimNodes() {
+        start = Arrays.copyOf(start, nodeCount);
+        end = Arrays.copyOf(end, nodeCount);
+        left = Arrays.copyOf(left, nodeCount);
+        right = Arrays.copyOf(right, nodeCount);
+    }
+
+    @Override
+    public Neighbors knn(double[] query, int k) {
+        checkQuery(query);
+        if (k < 1)
+            throw new IllegalArgumentException("number of neighbours must be positive");
+        KnnHeap heap = new KnnHeap(Math.min(k, n));
+        if (n > 0) {
+            knn(0, query, heap);
+        }
+        return heap.toNeighbors();
+    }
+
+    private void knn(int node, double[] query, KnnHeap heap) {
+        if (left[node] == -1) {
+            for (int pos = start[node]; pos < end[node]; pos++) {
+                heap.offer(perm[pos], PackedRows.dist2(query, 0, px, pos * d, d));
+            }
+            return;
+        }
+        int l = left[node];
+        int r = right[node];
+        double lb = lowerBound2(l, query);
+        double rb = lowerBound2(r, query);
+        if (rb < lb) {
+            int tmp = l;
+            l = r;
+            r = tmp;
+            double tb = lb;
+            lb = rb;
+            rb = tb;
+        }
+        if (lb <= heap.worst())
+            knn(l, query, heap);
+        if (rb <= heap.worst())
+            knn(r, query, heap);
+    }
+
+    @Override
+    public Neighbors radius(double[] query, double radius) {
+        checkQuery(query);
+        RadiusCollector collector = new RadiusCollector(radius * radius);
+        if (n > 0) {
+            radius(0, query, collector);
+        }
+        return collector.toNeighbors();
+    }
+
+    private void radius(int node, double[] query, RadiusCollector collector) {
+        if (lowerBound2(node, query) > collector.radius2)
+            return;
+        if (left[node] == -1) {
+            for (int pos = start[node]; pos < end[node]; pos++) {
+                collector.offer(perm[pos], PackedRows.dist2(query, 0, px, pos * d, d));
+            }
+            return;
+        }
+        radius(left[node], query, collector);
+        radius(right[node], query, collector);
+    }
+}
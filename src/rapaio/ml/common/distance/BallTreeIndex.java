@@ -0,0 +1,90 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+
+import java.util.Arrays;
+
+/**
+ * Ball tree nearest neighbour index. Each node keeps the centroid of its points
+ * and the radius of the smallest ball around the centroid which contains all of them.
+ * The distance from a query to the ball is used to prune the search.
+ * <p>
+ * Bounding balls are tighter than bounding boxes when the number of dimensions
+ * is high, thus ball trees degrade slower than KD-trees with dimensionality.
+ */
+public class BallTreeIndex extends AbstractNNTree {
+
+    private static final long serialVersionUID = 8211750496640404405L;
+
+    private double[] centers;
+    private double[] radius;
+
+    BallTreeIndex(Frame df, String... varNames) {
+        super(df, varNames);
+        centers = Arrays.copyOf(centers, nodeCount * d);
+        radius = Arrays.copyOf(radius, nodeCount);
+    }
+
+    @Override
+    protected void initNodes(int capacity) {
+        centers = new double[capacity * d];
+        radius = new double[capacity];
+    }
+
+    @Override
+    protected void growNodes(int capacity) {
+        centers = Arrays.copyOf(centers, capacity * d);
+        radius = Arrays.copyOf(radius, capacity);
+    }
+
+    @Override
+    protected void describeNode(int node, double[] x, int from, int to) {
+        int off = node * d;
+        for (int pos = from; pos < to; pos++) {
+            int p = perm[pos] * d;
+            for (int j = 0; j < d; j++) {
+                centers[off + j] += x[p + j];
+            }
+        }
+        for (int j = 0; j < d; j++) {
+            centers[off + j] /= (to - from);
+        }
+        double max = 0;
+        for (int pos = from; pos < to; pos++) {
+            double dd = PackedRows.dist2(x, perm[pos] * d, centers, off, d);
+            if (dd > max) max = dd;
+        }
+        radius[node] = Math.sqrt(max);
+    }
+
+    @Override
+    protected double lowerBound2(int node, double[] query) {
+        double dist = Math.sqrt(PackedRows.dist2(query, 0, centers, node * d, d));
+        // small slack to protect against rounding errors for points on the ball surface
+        double lb = dist - radius[node] - 1e-12 * (dist + radius[node]);
+        return lb <= 0 ? 0 : lb * lb;
+    }
+}
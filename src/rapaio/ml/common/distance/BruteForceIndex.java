@@ -0,0 +1,108 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+
+import java.util.stream.IntStream;
+
+/**
+ * Exact nearest neighbour index which computes all distances.
+ * <p>
+ * Values are stored column major and distances are computed for blocks of points
+ * one dimension at a time, which gives tight loops over contiguous memory
+ * that the JIT compiler can vectorize. It is also the reference implementation
+ * for the tree indexes and it is often the fastest option for small data sets
+ * or a high number of dimensions.
+ */
+public class BruteForceIndex extends AbstractNNIndex {
+
+    private static final long serialVersionUID = 2950245785315716223L;
+
+    private static final int BLOCK_SIZE = 512;
+
+    // values in column major order
+    private final double[] xt;
+
+    BruteForceIndex(Frame df, String... varNames) {
+        super(df, varNames);
+        xt = new double[n * d];
+        IntStream.range(0, d).parallel().forEach(j -> {
+            Var var = df.getVar(inputs[j]);
+            for (int i = 0; i < n; i++) {
+                xt[j * n + i] = var.getValue(i);
+            }
+        });
+    }
+
+    @Override
+    public Neighbors knn(double[] query, int k) {
+        checkQuery(query);
+        if (k < 1)
+            throw new IllegalArgumentException("number of neighbours must be positive");
+        KnnHeap heap = new KnnHeap(Math.min(k, n));
+        double[] block = new double[BLOCK_SIZE];
+        for (int from = 0; from < n; from += BLOCK_SIZE) {
+            int len = Math.min(BLOCK_SIZE, n - from);
+            distances(query, from, len, block);
+            for (int i = 0; i < len; i++) {
+                heap.offer(from + i, block[i]);
+            }
+        }
+        return heap.toNeighbors();
+    }
+
+    @Override
+    public Neighbors radius(double[] query, double radius) {
+        checkQuery(query);
+        RadiusCollector collector = new RadiusCollector(radius * radius);
+        double[] block = new double[BLOCK_SIZE];
+        for (int from = 0; from < n; from += BLOCK_SIZE) {
+            int len = Math.min(BLOCK_SIZE, n - from);
+            distances(query, from, len, block);
+            for (int i = 0; i < len; i++) {
+                collector.offer(from + i, block[i]);
+            }
+        }
+        return collector.toNeighbors();
+    }
+
+    /**
+     * Computes squared distances from query to a block of points
+     */
+    private void distances(double[] query, int from, int len, double[] block) {
+        for (int i = 0; i < len; i++) {
+            block[i] = 0;
+        }
+        for (int j = 0; j < d; j++) {
+            double q = query[j];
+            int off = j * n + from;
+            for (int i = 0; i < len; i++) {
+                double delta = xt[off + i] - q;
+                block[i] += delta * delta;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+
+import java.util.Arrays;
+
+/**
+ * KD-tree nearest neighbour index. Each node keeps the bounding box of its
+ * points, the distance from a query to the box is used to prune the search.
+ * <p>
+ * Performs well for a low number of dimensions, for high dimensional spaces
+ * consider {@link BallTreeIndex}.
+ */
+public class KDTreeIndex extends AbstractNNTree {
+
+    private static final long serialVersionUID = -5437380452104562386L;
+
+    private double[] lo;
+    private double[] hi;
+
+    KDTreeIndex(Frame df, String... varNames) {
+        super(df, varNames);
+        lo = Arrays.copyOf(lo, nodeCount * d);
+        hi = Arrays.copyOf(hi, nodeCount * d);
+    }
+
+    @Override
+    protected void initNodes(int capacity) {
+        lo = new double[capacity * d];
+        hi = new double[capacity * d];
+    }
+
+    @Override
+    protected void growNodes(int capacity) {
+        lo = Arrays.copyOf(lo, capacity * d);
+        hi = Arrays.copyOf(hi, capacity * d);
+    }
+
+    @Override
+    protected void describeNode(int node, double[] x, int from, int to) {
+        int off = node * d;
+        Arrays.fill(lo, off, off + d, Double.POSITIVE_INFINITY);
+        Arrays.fill(hi, off, off + d, Double.NEGATIVE_INFINITY);
+        for (int pos = from; pos < to; pos++) {
+            int p = perm[pos] * d;
+            for (int j = 0; j < d; j++) {
+                double v = x[p + j];
+                if (v < lo[off + j]) lo[off + j] = v;
+                if (v > hi[off + j]) hi[off + j] = v;
+            }
+        }
+    }
+
+    @Override
+    protected double lowerBound2(int node, double[] query) {
+        int off = node * d;
+        double total = 0;
+        for (int j = 0; j < d; j++) {
+            double q = query[j];
+            double delta = 0;
+            if (q < lo[off + j]) {
+                delta = lo[off + j] - q;
+            } else if (q > hi[off + j]) {
+                delta = q - hi[off + j];
+            }
+            total += delta * delta;
+        }
+        return total;
+    }
+}
@@ -41,4 +41,19 @@ public interface KMeansInitMethod extends Serializable {
 
     Tag<KMeansInitMethod> FORGY = Tag.valueOf("forgy",
             (Frame df, String[] inputs, int k) -> df.mapVars(inputs).mapRows(SamplingTools.sampleWOR(df.getRowCount(), k)).solidCopy());
+
+    /**
+     * Scalable k-means++ seeding with default parameters and seed drawn from {@link rapaio.core.RandomSource}.
+     */
+    Tag<KMeansInitMethod> KMEANS_PARALLEL = Tag.valueOf("k-means||", new KMeansParallelInit());
+
+    /**
+     * Scalable k-means++ seeding with default parameters and an explicit seed, for reproducible results.
+     *
+     * @param seed random seed
+     * @return tagged init method
+     */
+    static Tag<KMeansInitMethod> kMeansParallel(long seed) {
+        return Tag.valueOf("k-means||", new KMeansParallelInit().withSeed(seed));
+    }
 }
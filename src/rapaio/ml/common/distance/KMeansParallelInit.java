@@ -0,0 +1,247 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.Var;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Scalable k-means++ (k-means||) seeding method.
+ * <p>
+ * Instead of selecting centers one at a time like k-means++, each round samples
+ * independently each instance with probability proportional to its squared distance
+ * to the current candidates, multiplied by an oversampling factor. After a few rounds
+ * the candidates are weighted by the number of instances closest to them and
+ * reduced to k centers with weighted k-means++.
+ * <p>
+ * Instances are packed into a row major array and the distance updates are computed
+ * in parallel. Sampling decisions are derived from a hash of the seed, round and row
+ * number, thus results does not depend on thread scheduling.
+ * <p>
+ * See: Bahmani et al., "Scalable K-Means++", VLDB 2012.
+ */
+public class KMeansParallelInit implements KMeansInitMethod {
+
+    private static final long serialVersionUID = -3524117251391735521L;
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private int rounds = 5;
+    private double oversampling = 2.0;
+    private Long seed = null;
+
+    /**
+     * @param rounds number of oversampling rounds
+     * @return self instance
+     */
+    public KMeansParallelInit withRounds(int rounds) {
+        if (rounds < 1)
+            throw new IllegalArgumentException("number of rounds must be at least 1");
+        this.rounds = rounds;
+        return this;
+    }
+
+    /**
+     * Oversampling factor relative to k; in each round k * oversampling
+     * candidates are sampled in expectation.
+     *
+     * @param oversampling oversampling factor
+     * @return self instance
+     */
+    public KMeansParallelInit withOversampling(double oversampling) {
+        if (oversampling <= 0)
+            throw new IllegalArgumentException("oversampling factor must be positive");
+        this.oversampling = oversampling;
+        return this;
+    }
+
+    /**
+     * @param seed random seed used for all random decisions
+     * @return self instance
+     */
+    public KMeansParallelInit withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    @Override
+    public Frame init(Frame df, String[] inputs, int k) {
+        int n = df.getRowCount();
+        int d = inputs.length;
+        if (k > n)
+            throw new IllegalArgumentException("number of centroids is greater than number of instances");
+
+        long s = (seed == null) ? RandomSource.nextLong() : seed;
+        Random random = new Random(s);
+        double[] x = PackedRows.pack(df, inputs);
+
+        // candidate rows, the first one is selected uniformly
+        int[] candidates = new int[Math.max(16, k)];
+        int candidateCount = 0;
+        candidates[candidateCount++] = random.nextInt(n);
+
+        double[] minDist = new double[n];
+        int[] closest = new int[n];
+        Arrays.fill(minDist, Double.POSITIVE_INFINITY);
+        double cost = updateDistances(x, n, d, candidates, 0, 1, minDist, closest);
+
+        double l = oversampling * k;
+        for (int round = 0; round < rounds && cost > 0; round++) {
+            final double total = cost;
+            final int r = round;
+            int[] sampled = IntStream.range(0, n).parallel()
+                    .filter(i -> hashUniform(s, r, i) < l * minDist[i] / total)
+                    .toArray();
+            if (sampled.length == 0)
+                continue;
+            if (candidateCount + sampled.length > candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(2 * candidates.length, candidateCount + sampled.length));
+            }
+            System.arraycopy(sampled, 0, candidates, candidateCount, sampled.length);
+            int from = candidateCount;
+            candidateCount += sampled.length;
+            cost = updateDistances(x, n, d, candidates, from, candidateCount, minDist, closest);
+        }
+
+        // weight each candidate by the number of instances closest to it
+        double[] weights = new double[candidateCount];
+        for (int i = 0; i < n; i++) {
+            weights[closest[i]]++;
+        }
+
+        int[] centers = reduce(x, d, Arrays.copyOf(candidates, candidateCount), weights, k, random);
+        if (centers.length < k) {
+            // not enough distinct candidates, complete with random distinct rows
+            boolean[] used = new boolean[n];
+            for (int center : centers) {
+                used[center] = true;
+            }
+            int[] completed = Arrays.copyOf(centers, k);
+            int pos = centers.length;
+            while (pos < k) {
+                int next = random.nextInt(n);
+                if (!used[next]) {
+                    used[next] = true;
+                    completed[pos++] = next;
+                }
+            }
+            centers = completed;
+        }
+        return df.mapVars(inputs).mapRows(centers).solidCopy();
+    }
+
+    /**
+     * Updates minimum squared distances and closest candidate positions
+     * with the candidates from the given interval.
+     *
+     * @return total cost, the sum of minimum squared distances
+     */
+    private double updateDistances(double[] x, int n, int d, int[] candidates, int from, int to, double[] minDist, int[] closest) {
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel().mapToDouble(ch -> {
+            double cost = 0;
+            int end = Math.min(n, (ch + 1) * CHUNK_SIZE);
+            for (int i = ch * CHUNK_SIZE; i < end; i++) {
+                for (int j = from; j < to; j++) {
+                    double dd = PackedRows.dist2(x, i * d, x, candidates[j] * d, d);
+                    if (dd < minDist[i]) {
+                        minDist[i] = dd;
+                        closest[i] = j;
+                    }
+                }
+                cost += minDist[i];
+            }
+            return cost;
+        }).sum();
+    }
+
+    /**
+     * Weighted k-means++ selection of k centers from the candidates.
+     *
+     * @return rows of selected candidates, can be less than k if there are
+     * not enough distinct candidates
+     */
+    private int[] reduce(double[] x, int d, int[] candidates, double[] weights, int k, Random random) {
+        int m = candidates.length;
+        int[] selected = new int[k];
+        int count = 0;
+
+        double[] minDist = new double[m];
+        Arrays.fill(minDist, Double.POSITIVE_INFINITY);
+        int next = sampleWeighted(weights, null, random);
+        while (next >= 0 && count < k) {
+            selected[count++] = candidates[next];
+            int center = candidates[next] * d;
+            IntStream.range(0, m).parallel().forEach(i -> {
+                double dd = PackedRows.dist2(x, candidates[i] * d, x, center, d);
+                if (dd < minDist[i])
+                    minDist[i] = dd;
+            });
+            if (count < k)
+                next = sampleWeighted(weights, minDist, random);
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Samples a candidate position with probability proportional to weight times minimum
+     * squared distance. Returns -1 if no candidate has positive probability.
+     */
+    private int sampleWeighted(double[] weights, double[] minDist, Random random) {
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i] * (minDist == null ? 1 : minDist[i]);
+        }
+        if (!(total > 0))
+            return -1;
+        double u = random.nextDouble() * total;
+        int last = -1;
+        for (int i = 0; i < weights.length; i++) {
+            double p = weights[i] * (minDist == null ? 1 : minDist[i]);
+            if (p <= 0)
+                continue;
+            last = i;
+            u -= p;
+            if (u < 0)
+                return i;
+        }
+        return last;
+    }
+
+    /**
+     * Uniform value in [0,1) computed as a splitmix64 hash of seed, round and row.
+     */
+    private static double hashUniform(long seed, int round, int row) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) round << 32) + row + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+/**
+ * Bounded max heap which keeps the best k candidates found so far by squared distance.
+ */
+final class KnnHeap {
+
+    private final int k;
+    private final int[] rows;
+    private final double[] dist2;
+    private int size;
+
+    KnnHeap(int k) {
+        this.k = k;
+        this.rows = new int[k];
+        this.dist2 = new double[k];
+    }
+
+    /**
+     * @return squared distance of the worst kept candidate or infinity if heap is not full
+     */
+    double worst() {
+        return size < k ? Double.POSITIVE_INFINITY : dist2[0];
+    }
+
+    void offer(int row, double d) {
+        if (size < k) {
+            int pos = size++;
+            rows[pos] = row;
+            dist2[pos] = d;
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (!Neighbors.less(dist2[parent], rows[parent], d, row))
+                    break;
+                rows[pos] = rows[parent];
+                dist2[pos] = dist2[parent];
+                pos = parent;
+            }
+            rows[pos] = row;
+            dist2[pos] = d;
+            return;
+        }
+        if (!Neighbors.less(d, row, dist2[0], rows[0]))
+            return;
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && Neighbors.less(dist2[child], rows[child], dist2[child + 1], rows[child + 1]))
+                child++;
+            if (!Neighbors.less(d, row, dist2[child], rows[child]))
+                break;
+            rows[pos] = rows[child];
+            dist2[pos] = dist2[child];
+            pos = child;
+        }
+        rows[pos] = row;
+        dist2[pos] = d;
+    }
+
+    Neighbors toNeighbors() {
+        return Neighbors.fromSquared(rows, dist2, size);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+import rapaio.data.VRange;
+
+import java.io.Serializable;
+import java.util.stream.IntStream;
+
+/**
+ * Nearest neighbour index built over numeric variables of a frame.
+ * <p>
+ * An index packs the values of the input variables once and answers k nearest
+ * neighbours and radius queries using euclidean distance. Returned rows are row
+ * numbers of the frame used to build the index. Batch queries given as frames
+ * are executed in parallel.
+ * <p>
+ * Available implementations:
+ * <ul>
+ * <li>{@link #kdTree(Frame, String...)} - KD-tree, best for a low number of dimensions</li>
+ * <li>{@link #ballTree(Frame, String...)} - ball tree, which degrades slower with the number of dimensions</li>
+ * <li>{@link #bruteForce(Frame, String...)} - exact exhaustive search with blocked loops</li>
+ * </ul>
+ */
+public interface NNIndex extends Serializable {
+
+    /**
+     * Builds a KD-tree index over the given variables
+     *
+     * @param df       source frame
+     * @param varNames variable names or ranges, all must be numeric and non-missing
+     * @return new index
+     */
+    static NNIndex kdTree(Frame df, String... varNames) {
+        return new KDTreeIndex(df, varNames);
+    }
+
+    /**
+     * Builds a ball tree index over the given variables
+     *
+     * @param df       source frame
+     * @param varNames variable names or ranges, all must be numeric and non-missing
+     * @return new index
+     */
+    static NNIndex ballTree(Frame df, String... varNames) {
+        return new BallTreeIndex(df, varNames);
+    }
+
+    /**
+     * Builds an exhaustive search index over the given variables
+     *
+     * @param df       source frame
+     * @param varNames variable names or ranges, all must be numeric and non-missing
+     * @return new index
+     */
+    static NNIndex bruteForce(Frame df, String... varNames) {
+        return new BruteForceIndex(df, varNames);
+    }
+
+    /**
+     * Builds an index with the implementation considered appropriate for the
+     * number of dimensions: KD-tree for low dimensional spaces, ball tree otherwise.
+     *
+     * @param df       source frame
+     * @param varNames variable names or ranges, all must be numeric and non-missing
+     * @return new index
+     */
+    static NNIndex auto(Frame df, String... varNames) {
+        int dim = VRange.of(varNames).parseVarNames(df).size();
+        return dim <= 16 ? new KDTreeIndex(df, varNames) : new BallTreeIndex(df, varNames);
+    }
+
+    /**
+     * @return names of the indexed variables
+     */
+    String[] inputs();
+
+    /**
+     * @return number of indexed points
+     */
+    int size();
+
+    /**
+     * Finds the closest k points to the query point. If k is greater than the number
+     * of indexed points all the points are returned.
+     *
+     * @param query query point, with values in the order of {@link #inputs()}
+     * @param k     number of neighbours
+     * @return neighbours sorted by distance
+     */
+    Neighbors knn(double[] query, int k);
+
+    /**
+     * Finds all indexed points with distance to the query point less than or equal with radius
+     *
+     * @param query  query point, with values in the order of {@link #inputs()}
+     * @param radius maximum distance
+     * @return neighbours sorted by distance
+     */
+    Neighbors radius(double[] query, double radius);
+
+    /**
+     * Parallel k nearest neighbour queries for each row of a frame
+     * which contains the indexed variables.
+     *
+     * @param df query frame
+     * @param k  number of neighbours
+     * @return neighbours for each query row
+     */
+    default Neighbors[] knn(Frame df, int k) {
+        double[] q = PackedRows.pack(df, inputs());
+        int d = inputs().length;
+        return IntStream.range(0, df.getRowCount()).parallel()
+                .mapToObj(i -> knn(PackedRows.point(q, i, d), k))
+                .toArray(Neighbors[]::new);
+    }
+
+    /**
+     * Parallel radius queries for each row of a frame
+     * which contains the indexed variables.
+     *
+     * @param df     query frame
+     * @param radius maximum distance
+     * @return neighbours for each query row
+     */
+    default Neighbors[] radius(Frame df, double radius) {
+        double[] q = PackedRows.pack(df, inputs());
+        int d = inputs().length;
+        return IntStream.range(0, df.getRowCount()).parallel()
+                .mapToObj(i -> radius(PackedRows.point(q, i, d), radius))
+                .toArray(Neighbors[]::new);
+    }
+}
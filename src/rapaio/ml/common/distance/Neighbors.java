@@ -0,0 +1,125 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Result of a nearest neighbour query: row numbers of the indexed frame
+ * and distances to the query point, sorted ascending by distance.
+ * Ties are broken by row number.
+ */
+public final class Neighbors implements Serializable {
+
+    private static final long serialVersionUID = 2719341519203542231L;
+
+    private final int[] rows;
+    private final double[] distances;
+
+    Neighbors(int[] rows, double[] distances) {
+        this.rows = rows;
+        this.distances = distances;
+    }
+
+    /**
+     * Builds neighbours from unsorted rows and squared distances
+     */
+    static Neighbors fromSquared(int[] rows, double[] dist2, int len) {
+        int[] r = Arrays.copyOf(rows, len);
+        double[] d = Arrays.copyOf(dist2, len);
+        sort(r, d, 0, len - 1);
+        for (int i = 0; i < len; i++) {
+            d[i] = Math.sqrt(d[i]);
+        }
+        return new Neighbors(r, d);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public int row(int pos) {
+        return rows[pos];
+    }
+
+    public double distance(int pos) {
+        return distances[pos];
+    }
+
+    public int[] rows() {
+        return Arrays.copyOf(rows, rows.length);
+    }
+
+    public double[] distances() {
+        return Arrays.copyOf(distances, distances.length);
+    }
+
+    static boolean less(double d1, int r1, double d2, int r2) {
+        return d1 < d2 || (d1 == d2 && r1 < r2);
+    }
+
+    private static void sort(int[] rows, double[] d, int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            double pd = d[mid];
+            int pr = rows[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (less(d[i], rows[i], pd, pr)) i++;
+                while (less(pd, pr, d[j], rows[j])) j--;
+                if (i <= j) {
+                    swap(rows, d, i++, j--);
+                }
+            }
+            if (j - lo < hi - i) {
+                sort(rows, d, lo, j);
+                lo = i;
+            } else {
+                sort(rows, d, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && less(d[j], rows[j], d[j - 1], rows[j - 1]); j--) {
+                swap(rows, d, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(int[] rows, double[] d, int i, int j) {
+        int tr = rows[i];
+        rows[i] = rows[j];
+        rows[j] = tr;
+        double td = d[i];
+        d[i] = d[j];
+        d[j] = td;
+    }
+
+    @Override
+    public String toString() {
+        return "Neighbors{rows=" + Arrays.toString(rows) + ", distances=" + Arrays.toString(distances) + "}";
+    }
+}
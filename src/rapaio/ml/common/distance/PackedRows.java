@@ -0,0 +1,89 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.common.distance;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Utilities for numeric instances packed into a row major array of doubles,
+ * used by clustering and nearest neighbour algorithms to compute euclidean
+ * distances without accessing frames.
+ */
+public final class PackedRows {
+
+    private PackedRows() {
+    }
+
+    /**
+     * Packs the values of the given variables into a row major array,
+     * the values of row i being stored at positions [i*d, (i+1)*d).
+     *
+     * @param df    source frame
+     * @param names names of the variables
+     * @return packed values
+     */
+    public static double[] pack(Frame df, String[] names) {
+        int n = df.getRowCount();
+        int d = names.length;
+        double[] x = new double[n * d];
+        IntStream.range(0, d).parallel().forEach(j -> {
+            Var var = df.getVar(names[j]);
+            for (int i = 0; i < n; i++) {
+                x[i * d + j] = var.getValue(i);
+            }
+        });
+        return x;
+    }
+
+    /**
+     * Computes squared euclidean distance between two packed instances.
+     *
+     * @param a    first array
+     * @param aOff offset of the first instance
+     * @param b    second array
+     * @param bOff offset of the second instance
+     * @param d    number of dimensions
+     * @return squared euclidean distance
+     */
+    public static double dist2(double[] a, int aOff, double[] b, int bOff, int d) {
+        double total = 0;
+        for (int j = 0; j < d; j++) {
+            double delta = a[aOff + j] - b[bOff + j];
+            total += delta * delta;
+        }
+        return total;
+    }
+
+    /**
+     * @return a copy of the values of the given packed row
+     */
+    public static double[] point(double[] x, int row, int d) {
+        return Arrays.copyOfRange(x, row * d, (row + 1) * d);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import java.util.Arrays;
+
+/**
+ * Collects all candidates with squared distance not greater than a squared radius.
+ */
+final class RadiusCollector {
+
+    final double radius2;
+    private int[] rows = new int[16];
+    private double[] dist2 = new double[16];
+    private int size;
+
+    RadiusCollector(double radius2) {
+        this.radius2 = radius2;
+    }
+
+    void offer(int row, double d) {
+        if (d > radius2)
+            return;
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, 2 * size);
+            dist2 = Arrays.copyOf(dist2, 2 * size);
+        }
+        rows[size] = row;
+        dist2[size] = d;
+        size++;
+    }
+
+    Neighbors toNeighbors() {
+        return Neighbors.fromSquared(rows, dist2, size);
+    }
+}
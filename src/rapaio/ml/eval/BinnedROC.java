@@ -0,0 +1,263 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.printer.Printable;
+
+import java.io.Serializable;
+
+import static rapaio.sys.WS.formatFlex;
+
+/**
+ * Receiver Operator Characteristic computed on binned scores.
+ * <p>
+ * Scores are counted in a fixed number of equal width bins over a given range,
+ * without any sorting, thus updates take constant time and the curve is computed
+ * in time proportional with the number of bins. Scores in the same bin are
+ * considered tied, which is the only source of approximation; more bins give a
+ * better precision. Scores outside of range are counted in the first or last bin.
+ * <p>
+ * Accumulators with the same binning can be merged, which allows computing
+ * the curve over batches of data or in parallel, with one accumulator for
+ * each thread. All methods are synchronized.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class BinnedROC implements Printable, Serializable {
+
+    private static final long serialVersionUID = 2384520384671035934L;
+
+    /**
+     * Builds an accumulator for scores in the range [0,1], like probabilities.
+     *
+     * @param bins number of bins
+     */
+    public static BinnedROC newInstance(int bins) {
+        return new BinnedROC(bins, 0, 1);
+    }
+
+    /**
+     * Builds an accumulator for scores in the range [min,max].
+     *
+     * @param bins number of bins
+     * @param min  lowest score value
+     * @param max  highest score value
+     */
+    public static BinnedROC newInstance(int bins, double min, double max) {
+        return new BinnedROC(bins, min, max);
+    }
+
+    private final int bins;
+    private final double min;
+    private final double max;
+    private final double[] positives;
+    private final double[] negatives;
+
+    private BinnedROC(int bins, double min, double max) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("number of bins must be positive");
+        }
+        if (!(min < max) || Double.isInfinite(min) || Double.isInfinite(max)) {
+            throw new IllegalArgumentException("range of scores must be finite and non empty");
+        }
+        this.bins = bins;
+        this.min = min;
+        this.max = max;
+        this.positives = new double[bins];
+        this.negatives = new double[bins];
+    }
+
+    public int bins() {
+        return bins;
+    }
+
+    private int bin(double score) {
+        int bin = (int) ((score - min) / (max - min) * bins);
+        return Math.max(0, Math.min(bins - 1, bin));
+    }
+
+    /**
+     * Adds a score with its truth value. Missing scores are ignored.
+     */
+    public synchronized BinnedROC update(double score, boolean positive) {
+        return update(score, positive, 1);
+    }
+
+    /**
+     * Adds a weighted score with its truth value. Missing scores are ignored.
+     */
+    public synchronized BinnedROC update(double score, boolean positive, double weight) {
+        if (Double.isNaN(score)) {
+            return this;
+        }
+        if (positive) {
+            positives[bin(score)] += weight;
+        } else {
+            negatives[bin(score)] += weight;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a batch of scores. The truth value is obtained by comparing the actual
+     * label value with the given label. Rows with missing values are ignored.
+     *
+     * @param score  scores variable
+     * @param actual actual class
+     * @param label  label of the class considered 1, all other labels values are 0
+     */
+    public synchronized BinnedROC update(Var score, Var actual, String label) {
+        int len = Math.min(score.getRowCount(), actual.getRowCount());
+        for (int i = 0; i < len; i++) {
+            if (score.isMissing(i) || actual.isMissing(i)) {
+                continue;
+            }
+            update(score.getValue(i), actual.getLabel(i).equals(label), 1);
+        }
+        return this;
+    }
+
+    /**
+     * Merges into this accumulator the counts of another one with the same binning.
+     */
+    public BinnedROC update(BinnedROC other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot merge an accumulator with itself");
+        }
+        if (bins != other.bins || min != other.min || max != other.max) {
+            throw new IllegalArgumentException("cannot merge accumulators with different binning");
+        }
+        double[] otherPositives;
+        double[] otherNegatives;
+        synchronized (other) {
+            otherPositives = other.positives.clone();
+            otherNegatives = other.negatives.clone();
+        }
+        synchronized (this) {
+            for (int i = 0; i < bins; i++) {
+                positives[i] += otherPositives[i];
+                negatives[i] += otherNegatives[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return total weight of positive cases
+     */
+    public synchronized double positiveCount() {
+        double sum = 0;
+        for (double count : positives) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * @return total weight of negative cases
+     */
+    public synchronized double negativeCount() {
+        double sum = 0;
+        for (double count : negatives) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * Computes the area under curve with the trapezoidal rule, sweeping the bins
+     * from the highest to the lowest score.
+     *
+     * @return area under curve, NaN if there are no positive or no negative cases
+     */
+    public synchronized double auc() {
+        double p = positiveCount();
+        double n = negativeCount();
+        double tp = 0;
+        double fp = 0;
+        double auc = 0;
+        for (int i = bins - 1; i >= 0; i--) {
+            auc += negatives[i] * (2 * tp + positives[i]) / 2.;
+            tp += positives[i];
+            fp += negatives[i];
+        }
+        return auc / (p * n);
+    }
+
+    /**
+     * Builds the curve with one row for each non empty bin, with the same variables
+     * as {@link ROC#data()}. The threshold of a bin is its lower edge.
+     *
+     * @return frame with the curve points
+     */
+    public synchronized Frame data() {
+        double p = positiveCount();
+        double n = negativeCount();
+        int len = 1;
+        for (int i = 0; i < bins; i++) {
+            if (positives[i] + negatives[i] > 0) {
+                len++;
+            }
+        }
+        Frame data = SolidFrame.matrix(len, ROC.threshold, ROC.fpr, ROC.tpr, ROC.acc);
+        data.setValue(0, ROC.threshold, Double.POSITIVE_INFINITY);
+        data.setValue(0, ROC.fpr, 0);
+        data.setValue(0, ROC.tpr, 0);
+        data.setValue(0, ROC.acc, n / (n + p));
+        double tp = 0;
+        double fp = 0;
+        int pos = 1;
+        for (int i = bins - 1; i >= 0; i--) {
+            if (positives[i] + negatives[i] == 0) {
+                continue;
+            }
+            tp += positives[i];
+            fp += negatives[i];
+            data.setValue(pos, ROC.threshold, min + (max - min) * i / bins);
+            data.setValue(pos, ROC.fpr, fp / n);
+            data.setValue(pos, ROC.tpr, tp / p);
+            data.setValue(pos, ROC.acc, (tp + n - fp) / (n + p));
+            pos++;
+        }
+        return data;
+    }
+
+    @Override
+    public synchronized String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("> BinnedROC printSummary").append("\n");
+        sb.append("\n");
+        sb.append("bins: ").append(bins).append(", range: [")
+                .append(formatFlex(min)).append(", ").append(formatFlex(max)).append("]\n");
+        sb.append("positives: ").append(formatFlex(positiveCount()))
+                .append(", negatives: ").append(formatFlex(negativeCount())).append("\n");
+        sb.append("\n");
+        sb.append("AUC: ").append(formatFlex(auc())).append("\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import rapaio.core.RandomSource;
+import rapaio.data.*;
+import rapaio.ml.classifier.CFit;
+import rapaio.ml.classifier.Classifier;
+import rapaio.printer.Printable;
+import rapaio.sys.WS;
+import rapaio.util.FJPool;
+import rapaio.util.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Cross validation and bootstrap evaluation engine for classifiers.
+ * <p>
+ * Train and test sets are built as row mappings over the original data frame,
+ * no data is copied. For k-fold cross validation the folds can be stratified
+ * by target. All splits of all repeats and all candidate models are trained
+ * and evaluated in parallel, on a pool of the given size.
+ * <p>
+ * Results are returned in a structured form: for each model and split a
+ * confusion matrix, the ROC AUC, the root mean squared error of the
+ * predicted densities and the train and fit times.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class CValidation {
+
+    private int folds = 10;
+    private int repeats = 1;
+    private boolean stratified = true;
+    private int bootstraps = 0;
+    private double bootstrapPercentage = 1.0;
+    private int poolSize = -1;
+    private Long seed;
+
+    public static CValidation newInstance() {
+        return new CValidation();
+    }
+
+    private CValidation() {
+    }
+
+    /**
+     * Number of folds for k-fold cross validation.
+     */
+    public CValidation withFolds(int folds) {
+        if (folds < 2) {
+            throw new IllegalArgumentException("number of folds must be at least 2");
+        }
+        this.folds = folds;
+        this.bootstraps = 0;
+        return this;
+    }
+
+    /**
+     * Number of times the cross validation is repeated, each time with other random folds.
+     */
+    public CValidation withRepeats(int repeats) {
+        if (repeats < 1) {
+            throw new IllegalArgumentException("number of repeats must be positive");
+        }
+        this.repeats = repeats;
+        return this;
+    }
+
+    /**
+     * If true, each fold contains approximately the same proportions of target labels.
+     */
+    public CValidation withStratified(boolean stratified) {
+        this.stratified = stratified;
+        return this;
+    }
+
+    /**
+     * Replaces cross validation with bootstrap evaluation. Each train set is a sample
+     * with replacement of the given percentage of rows and the test set contains
+     * the rows which were not sampled.
+     */
+    public CValidation withBootstrap(int bootstraps, double percentage) {
+        if (bootstraps < 1) {
+            throw new IllegalArgumentException("number of bootstraps must be positive");
+        }
+        if (percentage <= 0) {
+            throw new IllegalArgumentException("bootstrap percentage must be positive");
+        }
+        this.bootstraps = bootstraps;
+        this.bootstrapPercentage = percentage;
+        return this;
+    }
+
+    /**
+     * Pool size used for computation, 0 means sequential execution
+     * and negative values means the number of available processors.
+     */
+    public CValidation withPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * Seed for the random splits, if not specified a seed
+     * is drawn from {@link RandomSource} on each evaluation.
+     */
+    public CValidation withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Evaluates a single model.
+     */
+    public Result evaluate(Frame df, String targetVar, Classifier model) {
+        return evaluate(df, targetVar, Collections.singletonList(model));
+    }
+
+    /**
+     * Evaluates multiple candidate models on the same splits.
+     *
+     * @param df        data frame with input and target variables
+     * @param targetVar target variable name
+     * @param models    candidate models, only model instances built from them are trained
+     * @return evaluation results
+     */
+    public Result evaluate(Frame df, String targetVar, List<Classifier> models) {
+        return evaluate(df, NumericVar.fill(df.getRowCount(), 1), targetVar, models);
+    }
+
+    /**
+     * Evaluates multiple candidate models on the same splits, using weighted train rows.
+     */
+    public Result evaluate(Frame df, Var weights, String targetVar, List<Classifier> models) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("at least one model is required");
+        }
+        List<Split> splits = splits(df, targetVar);
+        int tasks = models.size() * splits.size();
+        List<Run> runs = FJPool.compute(poolSize, () -> Util.rangeStream(tasks, poolSize != 0)
+                .mapToObj(task -> run(df, weights, targetVar, task / splits.size(), models.get(task / splits.size()), splits.get(task % splits.size())))
+                .collect(toList())).orElseThrow(IllegalStateException::new);
+        List<String> names = models.stream().map(Classifier::fullName).collect(toList());
+        return new Result(names, runs);
+    }
+
+    /**
+     * Builds train and test row mappings for all repeats and folds, or bootstraps.
+     */
+    public List<Split> splits(Frame df, String targetVar) {
+        long base = (seed != null) ? seed : RandomSource.nextLong();
+        List<Split> splits = new ArrayList<>();
+        if (bootstraps > 0) {
+            Random random = new Random(base);
+            int rows = df.getRowCount();
+            int size = (int) (rows * bootstrapPercentage);
+            for (int b = 0; b < bootstraps; b++) {
+                int[] train = new int[size];
+                boolean[] sampled = new boolean[rows];
+                for (int i = 0; i < size; i++) {
+                    train[i] = random.nextInt(rows);
+                    sampled[train[i]] = true;
+                }
+                int[] test = Util.rangeStream(rows, false).filter(i -> !sampled[i]).toArray();
+                splits.add(new Split(b, 0, Mapping.copy(train), Mapping.copy(test)));
+            }
+            return splits;
+        }
+        if (folds > df.getRowCount()) {
+            throw new IllegalArgumentException("number of folds is greater than the number of rows");
+        }
+        for (int r = 0; r < repeats; r++) {
+            int[] fold = foldAssignment(df.getVar(targetVar), new Random(base + 0x9E3779B97F4A7C15L * r));
+            for (int f = 0; f < folds; f++) {
+                final int k = f;
+                int[] train = Util.rangeStream(fold.length, false).filter(i -> fold[i] != k).toArray();
+                int[] test = Util.rangeStream(fold.length, false).filter(i -> fold[i] == k).toArray();
+                splits.add(new Split(r, f, Mapping.copy(train), Mapping.copy(test)));
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * Assigns folds to rows in a round robin fashion, over shuffled rows grouped by target label.
+     */
+    private int[] foldAssignment(Var target, Random random) {
+        int rows = target.getRowCount();
+        int groups = stratified ? target.getLevels().length : 1;
+        List<List<Integer>> grouped = new ArrayList<>();
+        for (int i = 0; i < groups; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (int i = 0; i < rows; i++) {
+            grouped.get(stratified ? target.getIndex(i) : 0).add(i);
+        }
+        int[] fold = new int[rows];
+        int next = 0;
+        for (List<Integer> group : grouped) {
+            Collections.shuffle(group, random);
+            for (int row : group) {
+                fold[row] = next;
+                next = (next + 1) % folds;
+            }
+        }
+        return fold;
+    }
+
+    private Run run(Frame df, Var weights, String targetVar, int modelIndex, Classifier model, Split split) {
+        Frame train = df.mapRows(split.train);
+        Frame test = df.mapRows(split.test);
+
+        long start = System.nanoTime();
+        Classifier c = model.newInstance();
+        c.train(train, weights.mapRows(split.train), targetVar);
+        long trainTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        CFit fit = c.fit(test, true, true);
+        long fitTime = System.nanoTime() - start;
+
+        Var actual = test.getVar(targetVar);
+        Confusion confusion = new Confusion(actual, fit.firstClasses());
+        return new Run(modelIndex, split.repeat, split.fold, confusion,
+                auc(actual, fit.firstDensity()), rmse(actual, fit.firstDensity()),
+                trainTime / 1_000_000.0, fitTime / 1_000_000.0);
+    }
+
+    /**
+     * Area under ROC curve, for multiple labels the mean of one versus all curves
+     * for the labels which appear in test data.
+     */
+    private static double auc(Var actual, Frame density) {
+        String[] levels = actual.getLevels();
+        double sum = 0;
+        int count = 0;
+        for (int j = 1; j < levels.length; j++) {
+            int positives = 0;
+            for (int i = 0; i < actual.getRowCount(); i++) {
+                if (actual.getIndex(i) == j) {
+                    positives++;
+                }
+            }
+            if (positives == 0 || positives == actual.getRowCount()) {
+                continue;
+            }
+            sum += ROC.auc(density.getVar(levels[j]), actual, levels[j]);
+            count++;
+            if (levels.length == 3) {
+                // for binary targets both curves have the same area
+                break;
+            }
+        }
+        return (count == 0) ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Root mean squared error between predicted densities and the indicators of actual labels.
+     */
+    private static double rmse(Var actual, Frame density) {
+        String[] levels = actual.getLevels();
+        double sum = 0;
+        for (int i = 0; i < actual.getRowCount(); i++) {
+            for (int j = 1; j < levels.length; j++) {
+                double err = density.getValue(i, levels[j]) - ((actual.getIndex(i) == j) ? 1 : 0);
+                sum += err * err;
+            }
+        }
+        return Math.sqrt(sum / actual.getRowCount());
+    }
+
+    /**
+     * Train and test row mappings of a fold or bootstrap.
+     */
+    public static final class Split {
+        public final int repeat;
+        public final int fold;
+        public final Mapping train;
+        public final Mapping test;
+
+        public Split(int repeat, int fold, Mapping train, Mapping test) {
+            this.repeat = repeat;
+            this.fold = fold;
+            this.train = train;
+            this.test = test;
+        }
+    }
+
+    /**
+     * Evaluation of a model on a split. Times are in milliseconds.
+     */
+    public static final class Run {
+        public final int model;
+        public final int repeat;
+        public final int fold;
+        public final Confusion confusion;
+        public final double auc;
+        public final double rmse;
+        public final double trainTime;
+        public final double fitTime;
+
+        public Run(int model, int repeat, int fold, Confusion confusion, double auc, double rmse, double trainTime, double fitTime) {
+            this.model = model;
+            this.repeat = repeat;
+            this.fold = fold;
+            this.confusion = confusion;
+            this.auc = auc;
+            this.rmse = rmse;
+            this.trainTime = trainTime;
+            this.fitTime = fitTime;
+        }
+    }
+
+    /**
+     * Evaluation results for all models and splits.
+     */
+    public static final class Result implements Printable {
+
+        private final List<String> modelNames;
+        private final List<Run> runs;
+
+        private Result(List<String> modelNames, List<Run> runs) {
+            this.modelNames = modelNames;
+            this.runs = runs;
+        }
+
+        public List<String> modelNames() {
+            return modelNames;
+        }
+
+        public List<Run> runs() {
+            return runs;
+        }
+
+        /**
+         * @return runs of the model with the given index, in split order
+         */
+        public List<Run> runs(int model) {
+            return runs.stream().filter(run -> run.model == model).collect(toList());
+        }
+
+        /**
+         * @return mean accuracy of the model with the given index
+         */
+        public double meanAccuracy(int model) {
+            return runs(model).stream().mapToDouble(run -> run.confusion.accuracy()).average().orElse(Double.NaN);
+        }
+
+        /**
+         * @return index of the model with the best mean accuracy
+         */
+        public int bestModel() {
+            int best = 0;
+            for (int i = 1; i < modelNames.size(); i++) {
+                if (meanAccuracy(i) > meanAccuracy(best)) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Builds a frame with one row for each model, containing means and standard
+         * deviations of accuracy, AUC and RMSE, and mean train and fit times.
+         */
+        public Frame summary() {
+            Var name = NominalVar.empty().withName("model");
+            Var accMean = NumericVar.empty().withName("acc mean");
+            Var accSd = NumericVar.empty().withName("acc sd");
+            Var aucMean = NumericVar.empty().withName("auc mean");
+            Var aucSd = NumericVar.empty().withName("auc sd");
+            Var rmseMean = NumericVar.empty().withName("rmse mean");
+            Var rmseSd = NumericVar.empty().withName("rmse sd");
+            Var trainTime = NumericVar.empty().withName("train ms");
+            Var fitTime = NumericVar.empty().withName("fit ms");
+            for (int i = 0; i < modelNames.size(); i++) {
+                List<Run> modelRuns = runs(i);
+                name.addLabel(modelNames.get(i));
+                double[] acc = modelRuns.stream().mapToDouble(run -> run.confusion.accuracy()).toArray();
+                double[] auc = modelRuns.stream().mapToDouble(run -> run.auc).filter(v -> !Double.isNaN(v)).toArray();
+                double[] rmse = modelRuns.stream().mapToDouble(run -> run.rmse).toArray();
+                accMean.addValue(mean(acc));
+                accSd.addValue(sd(acc));
+                aucMean.addValue(mean(auc));
+                aucSd.addValue(sd(auc));
+                rmseMean.addValue(mean(rmse));
+                rmseSd.addValue(sd(rmse));
+                trainTime.addValue(mean(modelRuns.stream().mapToDouble(run -> run.trainTime).toArray()));
+                fitTime.addValue(mean(modelRuns.stream().mapToDouble(run -> run.fitTime).toArray()));
+            }
+            return SolidFrame.byVars(name, accMean, accSd, aucMean, aucSd, rmseMean, rmseSd, trainTime, fitTime);
+        }
+
+        private static double mean(double[] values) {
+            return Arrays.stream(values).average().orElse(Double.NaN);
+        }
+
+        private static double sd(double[] values) {
+            if (values.length < 2) {
+                return Double.NaN;
+            }
+            double m = mean(values);
+            double ss = 0;
+            for (double value : values) {
+                ss += (value - m) * (value - m);
+            }
+            return Math.sqrt(ss / (values.length - 1));
+        }
+
+        @Override
+        public String getSummary() {
+            StringBuilder sb = new StringBuilder();
+            Frame summary = summary();
+            sb.append("Validation results\n");
+            sb.append("==================\n\n");
+            for (int i = 0; i < summary.getRowCount(); i++) {
+                sb.append("model: ").append(summary.getLabel(i, "model")).append("\n");
+                sb.append("  accuracy: ").append(WS.formatFlex(summary.getValue(i, "acc mean")))
+                        .append(" (sd ").append(WS.formatFlex(summary.getValue(i, "acc sd"))).append(")\n");
+                sb.append("  auc: ").append(WS.formatFlex(summary.getValue(i, "auc mean")))
+                        .append(" (sd ").append(WS.formatFlex(summary.getValue(i, "auc sd"))).append(")\n");
+                sb.append("  rmse: ").append(WS.formatFlex(summary.getValue(i, "rmse mean")))
+                        .append(" (sd ").append(WS.formatFlex(summary.getValue(i, "rmse sd"))).append(")\n");
+                sb.append("  mean train time: ").append(WS.formatFlex(summary.getValue(i, "train ms"))).append(" ms")
+                        .append(", mean fit time: ").append(WS.formatFlex(summary.getValue(i, "fit ms"))).append(" ms\n");
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -30,24 +30,61 @@ import rapaio.printer.format.TextTable;
 import rapaio.sys.WS;
 
 import java.util.Arrays;
-import java.util.stream.IntStream;
 
 import static rapaio.sys.WS.formatFlex;
 
 /**
  * Confusion matrix utility.
  * <p>
+ * A confusion matrix can be built in one shot from actual and predicted values,
+ * or accumulated incrementally: an empty matrix is created with {@link #empty(String...)}
+ * and is updated with single predictions, with batches of predictions, optionally
+ * weighted, or merged with other matrices computed in parallel. Only the primitive
+ * counts are stored and the derived metrics are computed lazily, when they are
+ * requested after an update. All methods are synchronized, thus an accumulator
+ * can be shared between threads.
+ * <p>
  * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
  */
 public class Confusion implements Printable {
 
-    private final Var actual;
-    private final Var predict;
+    /**
+     * Builds an empty confusion matrix which can be updated incrementally.
+     *
+     * @param labels class labels, without the missing label
+     * @return empty confusion matrix
+     */
+    public static Confusion empty(String... labels) {
+        return empty(false, labels);
+    }
+
+    /**
+     * Builds an empty confusion matrix which can be updated incrementally.
+     *
+     * @param percents if percentages are also printed in summary
+     * @param labels   class labels, without the missing label
+     * @return empty confusion matrix
+     */
+    public static Confusion empty(boolean percents, String... labels) {
+        if (labels.length == 0) {
+            throw new IllegalArgumentException("confusion matrix requires at least one label");
+        }
+        String[] factors = new String[labels.length + 1];
+        factors[0] = "?";
+        System.arraycopy(labels, 0, factors, 1, labels.length);
+        return new Confusion(factors, percents);
+    }
+
     private final String[] factors;
-    private final int[][] cmf;
+    private final double[][] cmf;
     private final boolean binary;
     private final boolean percents;
+    private double totalCases = 0;
+
+    // derived metrics, computed on request after updates
+    private boolean dirty = true;
     private double acc;
+    private double kappa;
     private double mcc;
     private double f1;
     private double g;
@@ -62,17 +99,18 @@ public class Confusion implements Printable {
     }
 
     public Confusion(Var actual, Var predict, boolean percents) {
-        validate(actual, predict);
-        this.actual = actual;
-        this.predict = predict;
-        this.factors = actual.getLevels();
-        this.cmf = new int[factors.length - 1][factors.length - 1];
+        this(validLevels(actual, predict), percents);
+        update(actual, predict);
+    }
+
+    private Confusion(String[] factors, boolean percents) {
+        this.factors = factors;
+        this.cmf = new double[factors.length - 1][factors.length - 1];
         this.percents = percents;
-        this.binary = actual.getLevels().length == 3;
-        compute();
+        this.binary = factors.length == 3;
     }
 
-    private void validate(Var actual, Var predict) {
+    private static String[] validLevels(Var actual, Var predict) {
         if (!actual.getType().isNominal()) {
             throw new IllegalArgumentException("actual values var must be nominal");
         }
@@ -90,23 +128,142 @@ public class Confusion implements Printable {
                                 Arrays.deepToString(predict.getLevels())));
             }
         }
+        return actual.getLevels();
     }
 
-    private void compute() {
+    private void validate(Var actual, Var predict) {
+        if (!Arrays.equals(factors, validLevels(actual, predict))) {
+            throw new IllegalArgumentException(
+                    String.format("not the same nominal levels (confusion:%s, actual:%s)",
+                            Arrays.deepToString(factors),
+                            Arrays.deepToString(actual.getLevels())));
+        }
+    }
+
+    private int labelIndex(String label) {
+        for (int i = 1; i < factors.length; i++) {
+            if (factors[i].equals(label)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("label " + label + " is not a level of confusion matrix");
+    }
+
+    /**
+     * Adds a single prediction. Missing labels count only for the total number of cases.
+     */
+    public Confusion update(String actual, String predict) {
+        return update(actual, predict, 1);
+    }
+
+    /**
+     * Adds a single weighted prediction. Missing labels count only for the total number of cases.
+     */
+    public synchronized Confusion update(String actual, String predict, double weight) {
+        dirty = true;
+        totalCases += weight;
+        if (!"?".equals(actual) && !"?".equals(predict)) {
+            cmf[labelIndex(actual) - 1][labelIndex(predict) - 1] += weight;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a batch of predictions. The variables must have the same levels as the confusion matrix.
+     */
+    public Confusion update(Var actual, Var predict) {
+        return update(actual, predict, null);
+    }
+
+    /**
+     * Adds a batch of weighted predictions. The variables must have the same levels
+     * as the confusion matrix. If weights are null, all predictions have weight 1.
+     */
+    public Confusion update(Var actual, Var predict, Var weights) {
+        validate(actual, predict);
+
+        // counts are accumulated outside of lock and added at once
+        double[][] batch = new double[cmf.length][cmf.length];
+        double total = 0;
         for (int i = 0; i < actual.getRowCount(); i++) {
+            double w = (weights == null) ? 1 : weights.getValue(i);
+            total += w;
             if (actual.getIndex(i) != 0 && predict.getIndex(i) != 0) {
-                completeCases++;
-                cmf[actual.getIndex(i) - 1][predict.getIndex(i) - 1]++;
+                batch[actual.getIndex(i) - 1][predict.getIndex(i) - 1] += w;
+            }
+        }
+        synchronized (this) {
+            dirty = true;
+            totalCases += total;
+            for (int i = 0; i < cmf.length; i++) {
+                for (int j = 0; j < cmf.length; j++) {
+                    cmf[i][j] += batch[i][j];
+                }
             }
         }
-        acc = IntStream.range(0, cmf.length).mapToDouble(i -> cmf[i][i]).sum();
+        return this;
+    }
+
+    /**
+     * Merges into this matrix the counts of another confusion matrix with the same levels.
+     */
+    public Confusion update(Confusion other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot merge a confusion matrix with itself");
+        }
+        if (!Arrays.equals(factors, other.factors)) {
+            throw new IllegalArgumentException(
+                    String.format("not the same nominal levels (confusion:%s, other:%s)",
+                            Arrays.deepToString(factors),
+                            Arrays.deepToString(other.factors)));
+        }
+        double[][] counts;
+        double total;
+        synchronized (other) {
+            counts = other.weightedMatrix();
+            total = other.totalCases;
+        }
+        synchronized (this) {
+            dirty = true;
+            totalCases += total;
+            for (int i = 0; i < cmf.length; i++) {
+                for (int j = 0; j < cmf.length; j++) {
+                    cmf[i][j] += counts[i][j];
+                }
+            }
+        }
+        return this;
+    }
+
+    private void compute() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        completeCases = 0;
+        acc = 0;
+        double expected = 0;
+        for (int i = 0; i < cmf.length; i++) {
+            double rowTotal = 0;
+            double colTotal = 0;
+            for (int j = 0; j < cmf.length; j++) {
+                rowTotal += cmf[i][j];
+                colTotal += cmf[j][i];
+            }
+            completeCases += rowTotal;
+            expected += rowTotal * colTotal;
+            acc += cmf[i][i];
+        }
         acceptedCases = acc;
         errorCases = completeCases - acceptedCases;
 
         if (completeCases == 0) {
             acc = 0;
+            kappa = 0;
         } else {
             acc = acc / completeCases;
+            expected /= completeCases * completeCases;
+            kappa = (expected == 1) ? 0 : (acc - expected) / (1 - expected);
         }
 
         if (binary) {
@@ -124,7 +281,8 @@ public class Confusion implements Printable {
     }
 
     @Override
-    public String getSummary() {
+    public synchronized String getSummary() {
+        compute();
         StringBuilder sb = new StringBuilder();
         addConfusionMatrix(sb);
         addDetails(sb);
@@ -132,7 +290,7 @@ public class Confusion implements Printable {
     }
 
     private void addDetails(StringBuilder sb) {
-        sb.append(String.format("\nComplete cases %d from %d\n", (int) Math.rint(completeCases), actual.getRowCount()));
+        sb.append(String.format("\nComplete cases %d from %d\n", (int) Math.rint(completeCases), (int) Math.rint(totalCases)));
         sb.append(String.format("Acc: %s         (Accuracy )\n", formatFlex(acc)));
         if (binary) {
             sb.append(String.format("F1:  %s         (F1 score / F-measure)\n", formatFlex(f1)));
@@ -179,23 +337,23 @@ public class Confusion implements Printable {
         tt.set(factors.length + 1, factors.length + 1, "|", 0);
         tt.set(factors.length + 2, factors.length + 1, "|", 0);
 
-        int[] rowTotals = new int[factors.length - 1];
-        int[] colTotals = new int[factors.length - 1];
-        int grandTotal = 0;
+        double[] rowTotals = new double[factors.length - 1];
+        double[] colTotals = new double[factors.length - 1];
+        double grandTotal = 0;
 
         for (int i = 0; i < factors.length - 1; i++) {
             for (int j = 0; j < factors.length - 1; j++) {
-                tt.set(i + 2, j + 2, ((i == j) ? ">" : " ") + cmf[i][j], 1);
+                tt.set(i + 2, j + 2, ((i == j) ? ">" : " ") + formatCount(cmf[i][j]), 1);
                 grandTotal += cmf[i][j];
                 rowTotals[i] += cmf[i][j];
                 colTotals[j] += cmf[i][j];
             }
         }
         for (int i = 0; i < factors.length - 1; i++) {
-            tt.set(factors.length + 2, i + 2, String.valueOf(colTotals[i]), 1);
-            tt.set(i + 2, factors.length + 2, String.valueOf(rowTotals[i]), 1);
+            tt.set(factors.length + 2, i + 2, formatCount(colTotals[i]), 1);
+            tt.set(i + 2, factors.length + 2, formatCount(rowTotals[i]), 1);
         }
-        tt.set(factors.length + 2, factors.length + 2, String.valueOf(grandTotal), 1);
+        tt.set(factors.length + 2, factors.length + 2, formatCount(grandTotal), 1);
         sb.append(tt.getSummary());
 
         if (percents && completeCases > 0.) {
@@ -247,6 +405,10 @@ public class Confusion implements Printable {
 
     }
 
+    private String formatCount(double count) {
+        return (count == Math.rint(count)) ? String.valueOf((long) count) : formatFlex(count);
+    }
+
     private String line(int len) {
         char[] lineChars = new char[len];
         for (int i = 0; i < len; i++) {
@@ -255,33 +417,100 @@ public class Confusion implements Printable {
         return String.valueOf(lineChars);
     }
 
-    public double accuracy() {
+    public synchronized double accuracy() {
+        compute();
         return acc;
     }
 
-    public double error() {
+    public synchronized double error() {
+        compute();
         return 1.0 - acc;
     }
 
+    /**
+     * Cohen's kappa coefficient, the agreement between actual and predicted
+     * classes corrected for the agreement expected by chance.
+     */
+    public synchronized double kappa() {
+        compute();
+        return kappa;
+    }
+
+    /**
+     * Fraction of cases predicted with the given label which are correct.
+     */
+    public synchronized double precision(String label) {
+        int k = labelIndex(label) - 1;
+        double predicted = 0;
+        for (double[] row : cmf) {
+            predicted += row[k];
+        }
+        return cmf[k][k] / predicted;
+    }
+
+    /**
+     * Fraction of cases with the given actual label which are correctly predicted.
+     */
+    public synchronized double recall(String label) {
+        int k = labelIndex(label) - 1;
+        double actual = 0;
+        for (double count : cmf[k]) {
+            actual += count;
+        }
+        return cmf[k][k] / actual;
+    }
+
+    /**
+     * Harmonic mean of precision and recall for the given label.
+     */
+    public synchronized double f1(String label) {
+        double p = precision(label);
+        double r = recall(label);
+        return 2 * p * r / (p + r);
+    }
+
     /**
      * Number of cases which were correctly predicted
      */
-    public int acceptedCases() {
+    public synchronized int acceptedCases() {
+        compute();
         return (int) Math.rint(acceptedCases);
     }
 
     /**
      * Number of cases which were not predicted correctly
      */
-    public int errorCases() {
+    public synchronized int errorCases() {
+        compute();
         return (int) Math.rint(errorCases);
     }
 
-    public int completeCases() {
+    public synchronized int completeCases() {
+        compute();
         return (int) Math.rint(completeCases);
     }
 
-    public int[][] matrix() {
-        return cmf;
+    /**
+     * @return confusion matrix with counts rounded to integer values
+     */
+    public synchronized int[][] matrix() {
+        int[][] m = new int[cmf.length][cmf.length];
+        for (int i = 0; i < cmf.length; i++) {
+            for (int j = 0; j < cmf.length; j++) {
+                m[i][j] = (int) Math.rint(cmf[i][j]);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @return copy of the confusion matrix with weighted counts
+     */
+    public synchronized double[][] weightedMatrix() {
+        double[][] m = new double[cmf.length][];
+        for (int i = 0; i < cmf.length; i++) {
+            m[i] = cmf[i].clone();
+        }
+        return m;
     }
 }
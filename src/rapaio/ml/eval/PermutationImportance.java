@@ -0,0 +1,276 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.StudentT;
+import rapaio.data.*;
+import rapaio.data.filter.Filters;
+import rapaio.ml.classifier.Classifier;
+import rapaio.ml.regression.Regression;
+import rapaio.util.FJPool;
+import rapaio.util.Util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Permutation variable importance for classification and regression models.
+ * <p>
+ * The importance of an input variable is the increase of the loss of a model
+ * when the values of that variable are randomly permuted. For classifiers the loss
+ * is the error rate, thus the score is the drop in accuracy. For regression models
+ * the loss is the mean squared error.
+ * <p>
+ * Permuted variables are built as row mappings over the original variables,
+ * no data is copied. All variables and repeats are evaluated in parallel and
+ * each permuted data set is scored in chunks of rows, on the pool of the
+ * given size.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class PermutationImportance {
+
+    private int repeats = 5;
+    private int chunkSize = 1024;
+    private int poolSize = -1;
+    private Long seed;
+
+    public static PermutationImportance newInstance() {
+        return new PermutationImportance();
+    }
+
+    private PermutationImportance() {
+    }
+
+    /**
+     * Number of permutations for each variable, used to build confidence intervals.
+     */
+    public PermutationImportance withRepeats(int repeats) {
+        if (repeats < 1) {
+            throw new IllegalArgumentException("number of repeats must be positive");
+        }
+        this.repeats = repeats;
+        return this;
+    }
+
+    /**
+     * Number of rows scored by a model at once.
+     */
+    public PermutationImportance withChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Pool size used for computation, 0 means sequential execution
+     * and negative values means the number of available processors.
+     */
+    public PermutationImportance withPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * Seed for the random permutations, if not specified a seed
+     * is drawn from {@link RandomSource} on each computation.
+     */
+    public PermutationImportance withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Computes the importance report for a trained classifier.
+     *
+     * @param model trained classifier
+     * @param df    data frame which contains input and target variables
+     * @return frame with variable names, mean scores, standard deviations and 95% confidence intervals
+     */
+    public Frame compute(Classifier model, Frame df) {
+        return report(model.inputNames(), computeScores(model, df));
+    }
+
+    /**
+     * Computes the importance report for a trained regression.
+     *
+     * @param model trained regression
+     * @param df    data frame which contains input and target variables
+     * @return frame with variable names, mean scores, standard deviations and 95% confidence intervals
+     */
+    public Frame compute(Regression model, Frame df) {
+        return report(model.inputNames(), computeScores(model, df));
+    }
+
+    /**
+     * Computes the drops in accuracy of a classifier for each input variable and each repeat.
+     *
+     * @return scores indexed by the position of the variable in {@link Classifier#inputNames()} and by repeat
+     */
+    public double[][] computeScores(Classifier model, Frame df) {
+        String target = model.firstTargetName();
+        return computeScores(model.inputNames(), df, chunk -> {
+            Var actual = chunk.getVar(target);
+            Var predict = model.fit(chunk, true, false).firstClasses();
+            int[] levels = levelIndexes(predict.getLevels(), actual.getLevels());
+            double errors = 0;
+            for (int i = 0; i < chunk.getRowCount(); i++) {
+                if (levels[predict.getIndex(i)] != actual.getIndex(i)) {
+                    errors++;
+                }
+            }
+            return errors;
+        });
+    }
+
+    /**
+     * Computes the increases of mean squared error of a regression for each input variable and each repeat.
+     *
+     * @return scores indexed by the position of the variable in {@link Regression#inputNames()} and by repeat
+     */
+    public double[][] computeScores(Regression model, Frame df) {
+        String target = model.firstTargetName();
+        return computeScores(model.inputNames(), df, chunk -> {
+            Var actual = chunk.getVar(target);
+            Var predict = model.fit(chunk, false).firstFit();
+            double sum = 0;
+            for (int i = 0; i < chunk.getRowCount(); i++) {
+                double err = actual.getValue(i) - predict.getValue(i);
+                sum += err * err;
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Maps each level of the source dictionary to the index of the same label in
+     * the target dictionary, or to -1 if the label does not exist in target.
+     */
+    private static int[] levelIndexes(String[] source, String[] target) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < target.length; i++) {
+            positions.put(target[i], i);
+        }
+        int[] indexes = new int[source.length];
+        for (int i = 0; i < source.length; i++) {
+            indexes[i] = positions.getOrDefault(source[i], -1);
+        }
+        return indexes;
+    }
+
+    private double[][] computeScores(String[] names, Frame df, ToDoubleFunction<Frame> loss) {
+        int rows = df.getRowCount();
+        if (rows == 0) {
+            throw new IllegalArgumentException("data frame does not contain rows");
+        }
+        List<Var> vars = new ArrayList<>();
+        for (int i = 0; i < df.getVarCount(); i++) {
+            vars.add(df.getVar(i));
+        }
+        int[] positions = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            positions[i] = df.getVarIndex(names[i]);
+        }
+        long base = (seed != null) ? seed : RandomSource.nextLong();
+
+        double[][] scores = new double[names.length][repeats];
+        FJPool.run(poolSize, () -> {
+            double refLoss = chunkedLoss(df, loss);
+            Util.rangeStream(names.length * repeats, poolSize != 0).forEach(task -> {
+                int col = task / repeats;
+                int[] perm = permutation(rows, new Random(base + 0x9E3779B97F4A7C15L * (task + 1)));
+
+                // the permuted variable is a mapping over the original one, other variables are shared
+                List<Var> permVars = new ArrayList<>(vars);
+                permVars.set(positions[col], vars.get(positions[col]).mapRows(Mapping.copy(perm)));
+                Frame permFrame = BoundFrame.byVars(permVars);
+
+                scores[col][task % repeats] = (chunkedLoss(permFrame, loss) - refLoss) / rows;
+            });
+        });
+        return scores;
+    }
+
+    private double chunkedLoss(Frame df, ToDoubleFunction<Frame> loss) {
+        int rows = df.getRowCount();
+        int chunks = (rows + chunkSize - 1) / chunkSize;
+        if (chunks == 1) {
+            return loss.applyAsDouble(df);
+        }
+        return Util.rangeStream(chunks, poolSize != 0)
+                .mapToDouble(chunk -> loss.applyAsDouble(
+                        df.mapRows(Mapping.range(chunk * chunkSize, Math.min(rows, (chunk + 1) * chunkSize)))))
+                .sum();
+    }
+
+    private static int[] permutation(int n, Random random) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+        return perm;
+    }
+
+    private Frame report(String[] names, double[][] scores) {
+        Var name = NominalVar.empty().withName("name");
+        Var mean = NumericVar.empty().withName("score mean");
+        Var sd = NumericVar.empty().withName("score sd");
+        Var lower = NumericVar.empty().withName("ci lower");
+        Var upper = NumericVar.empty().withName("ci upper");
+        double t = (repeats > 1) ? new StudentT(repeats - 1).quantile(0.975) : Double.NaN;
+        for (int i = 0; i < names.length; i++) {
+            double m = 0;
+            for (double score : scores[i]) {
+                m += score;
+            }
+            m /= repeats;
+            double ss = 0;
+            for (double score : scores[i]) {
+                ss += (score - m) * (score - m);
+            }
+            double s = Math.sqrt(ss / (repeats - 1.0));
+            double width = t * s / Math.sqrt(repeats);
+            name.addLabel(names[i]);
+            mean.addValue(m);
+            sd.addValue(s);
+            lower.addValue(m - width);
+            upper.addValue(m + width);
+        }
+        return Filters.refSort(SolidFrame.byVars(name, mean, sd, lower, upper), mean.refComparator(false)).solidCopy();
+    }
+}
@@ -25,10 +25,11 @@
 package rapaio.ml.eval;
 
 import rapaio.data.*;
-import rapaio.data.filter.var.VFRefSort;
 import rapaio.printer.Printable;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
 
 import static rapaio.sys.WS.formatFlex;
 
@@ -37,6 +38,9 @@ import static rapaio.sys.WS.formatFlex;
  * Receiver Operator Characteristic.
  * <p>
  * This utility class computes ROC for a given scores and binary prediction.
+ * Scores are sorted on primitive values. When only the area under curve is
+ * needed, {@link #auc(Var, Var, String)} skips building the curve. For streams
+ * of scores or repeated evaluations see {@link BinnedROC}.
  * <p>
  * User: Aurelian Tutuianu <paderati@yahoo.com>
  */
@@ -107,6 +111,33 @@ public class ROC implements Printable, Serializable {
         return new ROC(score, classes);
     }
 
+    /**
+     * Computes only the area under the ROC curve, without building the curve.
+     * The truth value is obtained by comparing the actual label value with the given label.
+     *
+     * @param score  scores variable
+     * @param actual actual class
+     * @param label  label of the class considered 1, all other labels values are 0
+     * @return area under curve
+     */
+    public static double auc(Var score, Var actual, String label) {
+        Sweep sweep = new Sweep(score, actual, label);
+        return sweep.run(null);
+    }
+
+    /**
+     * Computes only the area under the ROC curve, without building the curve.
+     * The truth value is obtained by comparing the actual index value with the given index.
+     *
+     * @param score  scores variable
+     * @param actual actual class
+     * @param index  index of the class considered 1, all other index values are 0
+     * @return area under curve
+     */
+    public static double auc(Var score, Var actual, int index) {
+        return auc(score, actual, actual.getLevels()[index]);
+    }
+
     private ROC(Var score, Var classes) {
         this.score = score;
         this.classes = classes;
@@ -114,62 +145,105 @@ public class ROC implements Printable, Serializable {
     }
 
     private void compute() {
-        int p = 0;
-        int n = 0;
-        double prevtp = 0;
-        double prevfp = 0;
-        auc = 0;
-        for (int i = 0; i < classes.getRowCount(); i++) {
-            if (classes.isMissing(i)) {
-                continue;
-            }
-            if (classes.getIndex(i) > 0) p++;
-            else n++;
+        Sweep sweep = new Sweep(score, classes);
+        data = SolidFrame.matrix(sweep.thresholdCount() + 1, threshold, fpr, tpr, acc);
+        auc = sweep.run(data);
+    }
+
+    /**
+     * Sweeps thresholds over scores sorted descending on primitive values. Rows
+     * with missing score or class are ignored.
+     */
+    private static final class Sweep {
+
+        private final double[] scores;
+        private final boolean[] positives;
+        private final int[] order;
+        private final int p;
+        private final int n;
+
+        Sweep(Var score, Var classes) {
+            this(score, classes, row -> classes.getIndex(row) > 0);
         }
 
+        Sweep(Var score, Var actual, String label) {
+            this(score, actual, row -> actual.getLabel(row).equals(label));
+        }
 
-        double fp = 0;
-        double tp = 0;
-        auc = 0;
+        private Sweep(Var score, Var classes, IntPredicate positive) {
+            int len = Math.min(score.getRowCount(), classes.getRowCount());
+            double[] s = new double[len];
+            boolean[] c = new boolean[len];
+            int size = 0;
+            int pos = 0;
+            for (int i = 0; i < len; i++) {
+                if (score.isMissing(i) || classes.isMissing(i)) {
+                    continue;
+                }
+                s[size] = score.getValue(i);
+                c[size] = positive.test(i);
+                if (c[size]) pos++;
+                size++;
+            }
+            this.scores = Arrays.copyOf(s, size);
+            this.positives = Arrays.copyOf(c, size);
+            this.order = RowSort.argsort(scores, false);
+            this.p = pos;
+            this.n = size - pos;
+        }
 
-        Var rows = new VFRefSort(RowComparators.numeric(score, false)).fitApply(IndexVar.seq(score.getRowCount()));
-        int len = 1;
-        double prev = Double.MIN_VALUE;
-        for (int i = 0; i < rows.getRowCount(); i++) {
-            if (score.isMissing(rows.getIndex(i)) || classes.isMissing(rows.getIndex(i))) continue;
-            if (score.getValue(rows.getIndex(i)) != prev) {
-                prev = score.getValue(rows.getIndex(i));
-                len++;
+        int thresholdCount() {
+            int count = 0;
+            double prev = Double.POSITIVE_INFINITY;
+            for (int row : order) {
+                if (scores[row] != prev) {
+                    prev = scores[row];
+                    count++;
+                }
             }
+            return count;
         }
-        data = SolidFrame.matrix(len, threshold, fpr, tpr, acc);
-        prev = Double.POSITIVE_INFINITY;
-        int pos = 0;
-
-        for (int i = 0; i < rows.getRowCount(); i++) {
-            if (score.isMissing(rows.getIndex(i)) || classes.isMissing(rows.getIndex(i))) continue;
-            if (score.getValue(rows.getIndex(i)) != prev) {
-                auc += Math.abs(prevfp - fp) * Math.abs(prevtp + tp) / 2.;
-                double accValue = (tp + n - fp) / (0. + n + p);
+
+        /**
+         * Computes area under curve and, if data is not null, fills the curve.
+         */
+        double run(Frame data) {
+            double fp = 0;
+            double tp = 0;
+            double prevfp = 0;
+            double prevtp = 0;
+            double auc = 0;
+            double prev = Double.POSITIVE_INFINITY;
+            int pos = 0;
+
+            for (int row : order) {
+                if (scores[row] != prev) {
+                    auc += Math.abs(prevfp - fp) * Math.abs(prevtp + tp) / 2.;
+                    if (data != null) {
+                        double accValue = (tp + n - fp) / (0. + n + p);
+                        data.setValue(pos, threshold, prev);
+                        data.setValue(pos, fpr, fp / (1. * n));
+                        data.setValue(pos, tpr, tp / (1. * p));
+                        data.setValue(pos, acc, accValue);
+                    }
+                    prevfp = fp;
+                    prevtp = tp;
+                    prev = scores[row];
+                    pos++;
+                }
+                if (positives[row]) tp++;
+                else fp++;
+            }
+            if (data != null) {
                 data.setValue(pos, threshold, prev);
-                data.setValue(pos, fpr, fp / (1. * n));
-                data.setValue(pos, tpr, tp / (1. * p));
-                data.setValue(pos, acc, accValue);
-                prevfp = fp;
-                prevtp = tp;
-                prev = score.getValue(rows.getIndex(i));
-                pos++;
+                data.setValue(pos, fpr, 1.);
+                data.setValue(pos, tpr, 1.);
+                data.setValue(pos, acc, p / (0. + n + p));
             }
-            if (classes.getIndex(rows.getIndex(i)) > 0) tp++;
-            else fp++;
-        }
-        data.setValue(pos, threshold, prev);
-        data.setValue(pos, fpr, 1.);
-        data.setValue(pos, tpr, 1.);
-        data.setValue(pos, acc, p / (0. + n + p));
 
-        auc += Math.abs(n - prevfp) * (p + prevtp) / 2.;
-        auc /= (1. * p * n);
+            auc += Math.abs(n - prevfp) * (p + prevtp) / 2.;
+            return auc / (1. * p * n);
+        }
     }
 
     public Frame data() {
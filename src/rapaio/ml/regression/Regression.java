@@ -250,6 +250,10 @@ public interface Regression extends Printable, Serializable {
      * - poolSize == 0 it is executed in a single non fork join thread
      * - poolSize < 0 pool size for fork join pool is the number of CPUs
      * - poolSize > 0, pool size for fork join pool is this value
+     * <p>
+     * Pools are managed by {@link rapaio.util.FJPool}, they are shared between
+     * models with the same pool size and nested models trained inside
+     * a pool use the threads of the enclosing pool.
      *
      * @param poolSize specified pool size
      */
@@ -24,6 +24,7 @@
 
 package rapaio.ml.regression.ensemble;
 
+import rapaio.core.RandomSource;
 import rapaio.data.Frame;
 import rapaio.data.NumericVar;
 import rapaio.data.Var;
@@ -34,9 +35,12 @@ import rapaio.ml.regression.AbstractRegression;
 import rapaio.ml.regression.RFit;
 import rapaio.ml.regression.Regression;
 import rapaio.ml.regression.tree.RTree;
+import rapaio.util.FJPool;
+import rapaio.util.Util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -49,6 +53,7 @@ public class RForest extends AbstractRegression {
 
     private Regression r = RTree.buildC45();
     private List<Regression> regressors = new ArrayList<>();
+    private int runPoolSize = 0;
 
     public static RForest newRF() {
         return new RForest();
@@ -94,21 +99,62 @@ public class RForest extends AbstractRegression {
         return this;
     }
 
+    /**
+     * Sets the pool size used to build trees. With the default value 0 trees are
+     * built sequentially and the running hook is called after each tree. Otherwise
+     * trees are built concurrently in a pool of the given size, negative values meaning
+     * the number of available processors, and the running hook is called after all
+     * trees are built.
+     */
+    public RForest withRunPoolSize(int runPoolSize) {
+        this.runPoolSize = runPoolSize < 0 ? Runtime.getRuntime().availableProcessors() : runPoolSize;
+        return this;
+    }
+
+    public int runPoolSize() {
+        return runPoolSize;
+    }
+
     @Override
     protected boolean coreTrain(Frame df, Var weights) {
         regressors.clear();
-        IntStream.range(0, runs()).forEach(i -> {
-                Regression rnew = r.newInstance();
-                Sample sample = sampler().nextSample(df, weights);
-                rnew.train(sample.df, sample.weights, firstTargetName());
-                regressors.add(rnew);
+
+        // each tree samples rows with its own generator derived from a single draw,
+        // thus a seeded forest does not depend on the order in which trees are built
+        long base = RandomSource.nextLong();
+        if (runPoolSize == 0) {
+            IntStream.range(0, runs()).forEach(i -> {
+                regressors.add(buildWeakRegression(df, weights, treeRandom(base, i)));
                 if (runningHook() != null) {
                     runningHook().accept(this, i + 1);
                 }
-        });
+            });
+            return true;
+        }
+        List<Regression> list = FJPool.compute(runPoolSize,
+                () -> IntStream.range(0, runs()).parallel()
+                        .mapToObj(i -> buildWeakRegression(df, weights, treeRandom(base, i)))
+                        .collect(Collectors.toList())).orElseGet(ArrayList::new);
+        for (int i = 0; i < list.size(); i++) {
+            regressors.add(list.get(i));
+            if (runningHook() != null) {
+                runningHook().accept(this, i + 1);
+            }
+        }
         return true;
     }
 
+    private static Random treeRandom(long base, int i) {
+        return new Random(base + 0x9E3779B97F4A7C15L * (i + 1));
+    }
+
+    private Regression buildWeakRegression(Frame df, Var weights, Random random) {
+        Regression rnew = r.newInstance();
+        Sample sample = sampler().nextSample(df, weights, random);
+        rnew.train(sample.df, sample.weights, firstTargetName());
+        return rnew;
+    }
+
     public List<Regression> getRegressors() {
         return regressors;
     }
@@ -116,10 +162,10 @@ public class RForest extends AbstractRegression {
     @Override
     protected RFit coreFit(Frame df, boolean withResiduals) {
         RFit fit = RFit.build(this, df, withResiduals);
-        List<NumericVar> results = regressors
-                .parallelStream()
-                .map(r -> r.fit(df, false).firstFit())
-                .collect(Collectors.toList());
+        List<NumericVar> results = FJPool.compute(poolSize(),
+                () -> Util.rangeStream(regressors.size(), poolSize() != 0)
+                        .mapToObj(i -> regressors.get(i).fit(df, false).firstFit())
+                        .collect(Collectors.toList())).orElseGet(ArrayList::new);
         for (int i = 0; i < df.getRowCount(); i++) {
             double sum = 0;
             for (NumericVar result : results) {
@@ -112,7 +112,7 @@ public class RTree extends AbstractRegression implements BTRegression {
                 .withMaxDepth(maxDepth)
                 .withSplitter(splitter)
                 .withFunction(function)
-                .withVarSelector(varSelector);
+                .withVarSelector(varSelector.newInstance());
     }
 
     @Override
@@ -25,6 +25,7 @@
 package rapaio.printer;
 
 import rapaio.core.stat.Mean;
+import rapaio.core.stat.OnlineStat;
 import rapaio.core.stat.Quantiles;
 import rapaio.data.Frame;
 import rapaio.data.Var;
@@ -34,6 +35,7 @@ import rapaio.printer.format.TextTable;
 import rapaio.sys.WS;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import static rapaio.sys.WS.code;
 import static rapaio.sys.WS.getPrinter;
@@ -89,19 +91,32 @@ public class Summary {
             }
         }
 
+        // statistics of numeric variables are computed in parallel, with a single pass for moments
+
+        OnlineStat[] stats = new OnlineStat[names.length];
+        double[][] quartiles = new double[names.length][];
+        IntStream.range(0, names.length).parallel().forEach(k -> {
+            Var v = df.getVar(names[k]);
+            if (v.getType() == VarType.INDEX || v.getType() == VarType.NUMERIC) {
+                stats[k] = OnlineStat.from(v);
+                quartiles[k] = Quantiles.from(v, 0.25, 0.50, 0.75).getValues();
+            }
+        });
+
         for (int k = 0; k < names.length; k++) {
             int i = df.getVarIndex(names[k]);
 
             Var v = df.getVar(i);
-            
+
             if (v.getType() == VarType.BINARY) {
                 typeStrategy = new BinaryTypeStrategy();
                 typeStrategy.getVarSummary(df, v, first, second, k);
             }
 
             if (v.getType() == VarType.INDEX || v.getType() == VarType.NUMERIC) {
-                typeStrategy = new NumbericTypeStrategy();
-                typeStrategy.getVarSummary(df, v, first, second, k);
+                NumbericTypeStrategy numericStrategy = new NumbericTypeStrategy();
+                typeStrategy = numericStrategy;
+                numericStrategy.getVarSummary(stats[k], quartiles[k], first, second, k);
             }
 
             if (v.getType().isNominal()) {
@@ -21,44 +21,171 @@
  *    limitations under the License.
  *
  */
-
 package rapaio.util;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 /**
  * fork join pool utility
  * <p>
+ * Manages named fork join pools with fixed parallelism which are created on first
+ * use and reused afterwards. Pools with the same name and size are shared, thus
+ * models trained with the same pool size do not create new threads on each call.
+ * Worker threads are daemon threads named after the pool.
+ * <p>
+ * Nested parallelism is controlled in the following way: if a task is submitted
+ * from a thread which is already a fork join worker, the task is executed in the
+ * current thread and all the parallel work it spawns runs in the current pool.
+ * For example a parallel forest of parallel trees uses only the threads of the
+ * forest pool, instead of one pool for each tree.
+ * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 9/23/15.
  */
 public class FJPool {
 
-    public static void runRangeParallel(int start, int end, Consumer<Integer> r) {
-        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
-        Optional.of(pool.submit(() -> IntStream.range(start, end).parallel().forEach(r::accept)));
+    public static final String DEFAULT_NAME = "rapaio";
+
+    private static final Map<String, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the shared pool with default name and the given parallelism, creating it if needed.
+     *
+     * @param threads parallelism level, non positive values means number of available processors
+     * @return shared pool
+     */
+    public static ForkJoinPool pool(int threads) {
+        return pool(DEFAULT_NAME, threads);
+    }
+
+    /**
+     * Gets the pool with the given name and parallelism, creating it if needed.
+     *
+     * @param name    name of the pool, used also as prefix for worker thread names
+     * @param threads parallelism level, non positive values means number of available processors
+     * @return named pool
+     */
+    public static ForkJoinPool pool(String name, int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        String key = name + "-" + size;
+        return pools.computeIfAbsent(key, k -> new ForkJoinPool(size, new NamedFactory(k), null, false));
     }
 
+    /**
+     * @return true if the current thread is a worker of a fork join pool
+     */
+    public static boolean isNested() {
+        return ForkJoinTask.getPool() != null;
+    }
+
+    /**
+     * Runs the given task in the shared pool of the given size and waits for its completion.
+     * If threads is 0 or the current thread is already a fork join worker,
+     * the task runs in the current thread.
+     *
+     * @param threads pool size
+     * @param r       task
+     */
+    public static void run(int threads, Runnable r) {
+        compute(threads, () -> {
+            r.run();
+            return null;
+        });
+    }
+
+    /**
+     * Computes the given task in the shared pool of the given size and waits for its completion.
+     * If threads is 0 or the current thread is already a fork join worker,
+     * the task is computed in the current thread. Exceptions thrown by the task are
+     * propagated to the caller.
+     *
+     * @param threads pool size
+     * @param r       task
+     * @return optional result
+     */
     public static <T> Optional<T> compute(int threads, Callable<T> r) {
-        ForkJoinPool pool = new ForkJoinPool(threads);
         try {
-            return Optional.of(pool.submit(r::call).get());
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-            return Optional.empty();
+            if (threads == 0 || isNested()) {
+                return Optional.ofNullable(r.call());
+            }
+            return Optional.ofNullable(pool(threads).submit(r).get());
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (Exception e) {
+            throw propagate(e);
         }
     }
 
-    public static void run(int threads, Runnable r) {
-        ForkJoinPool pool = new ForkJoinPool(threads);
-        try {
-            pool.submit(r).get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+    /**
+     * Runs in parallel the consumer for each value in the given range
+     * using the shared pool with a size equal with the number of available
+     * processors and waits for completion.
+     */
+    public static void runRangeParallel(int start, int end, Consumer<Integer> r) {
+        runRangeParallel(-1, start, end, r);
+    }
+
+    /**
+     * Runs in parallel the consumer for each value in the given range
+     * using the shared pool of the given size and waits for completion.
+     */
+    public static void runRangeParallel(int threads, int start, int end, Consumer<Integer> r) {
+        run(threads, () -> {
+            if (threads == 0) {
+                IntStream.range(start, end).forEach(r::accept);
+            } else {
+                IntStream.range(start, end).parallel().forEach(r::accept);
+            }
+        });
+    }
+
+    /**
+     * Shuts down all managed pools. Pools are created again on next use.
+     */
+    public static void shutdown() {
+        for (String key : pools.keySet()) {
+            ForkJoinPool pool = pools.remove(key);
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static RuntimeException propagate(Throwable t) {
+        if (t instanceof RuntimeException)
+            return (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        return new RuntimeException(t);
+    }
+
+    private static final class NamedFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final String name;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
@@ -29,7 +29,16 @@ import org.junit.Test;
 import rapaio.core.tests.ChiSquareTest;
 import rapaio.core.tests.KSTestOneSample;
 import rapaio.core.tools.DVector;
+import rapaio.data.Frame;
+import rapaio.data.IndexVar;
+import rapaio.data.Mapping;
+import rapaio.data.NominalVar;
 import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static rapaio.core.CoreTools.distDUnif;
 
@@ -106,4 +115,101 @@ public class SamplingToolsTest {
         KSTestOneSample.from(v, distDUnif(0, 9)).printSummary();
         System.out.println();
     }
+
+    @Test
+    public void noMutationTest() {
+        double[] w = new double[]{2, 3, 5};
+        SamplingTools.sampleWeightedWR(10, w);
+        SamplingTools.sampleWeightedWOR(2, w);
+        Assert.assertEquals(2.0, w[0], 0);
+        Assert.assertEquals(3.0, w[1], 0);
+        Assert.assertEquals(5.0, w[2], 0);
+    }
+
+    @Test
+    public void aliasSamplerTest() {
+        double[] w = new double[]{1, 0, 9, 90};
+        AliasSampler sampler = AliasSampler.from(w);
+        Assert.assertEquals(4, sampler.size());
+
+        int[] sample = sampler.sample(100_000, new Random(1));
+        double[] freq = new double[w.length];
+        for (int next : sample) {
+            freq[next]++;
+        }
+        Assert.assertEquals(0, freq[1], 0);
+        Assert.assertEquals(0.01, freq[0] / sample.length, 0.002);
+        Assert.assertEquals(0.09, freq[2] / sample.length, 0.005);
+        Assert.assertEquals(0.90, freq[3] / sample.length, 0.005);
+
+        int[] again = sampler.sample(100_000, new Random(1));
+        Assert.assertTrue(Arrays.equals(sample, again));
+    }
+
+    @Test
+    public void weightedReservoirTest() {
+        double[] w = new double[]{0.4, 0.3, 0.2, 0.06, 0.03, 0.01, 0};
+        DVector freq = DVector.empty(true, w.length - 1);
+        Random rng = new Random(2);
+        final int TRIALS = 10_000;
+        for (int i = 0; i < TRIALS; i++) {
+            WeightedReservoir reservoir = WeightedReservoir.newInstance(1, rng);
+            reservoir.update(w);
+            Assert.assertEquals(w.length, reservoir.count());
+            for (int next : reservoir.sample()) {
+                freq.increment(next, 1);
+            }
+        }
+        ChiSquareTest test = ChiSquareTest.goodnessOfFitTest(freq, Arrays.copyOf(w, w.length - 1));
+        Assert.assertTrue(test.pValue() > 0.05);
+
+        // larger weights are selected more often, zero weights are never selected
+
+        double[] pairs = new double[w.length];
+        for (int i = 0; i < TRIALS; i++) {
+            WeightedReservoir reservoir = WeightedReservoir.newInstance(3, rng);
+            reservoir.update(w);
+            int[] sample = reservoir.sample();
+            Assert.assertEquals(3, sample.length);
+            for (int next : sample) {
+                pairs[next]++;
+            }
+        }
+        Assert.assertEquals(0, pairs[6], 0);
+        Assert.assertTrue(pairs[0] > pairs[1] && pairs[1] > pairs[2] && pairs[2] > pairs[3]);
+    }
+
+    @Test
+    public void stratifiedSlicesTest() {
+        Frame df = SolidFrame.byVars(
+                NominalVar.from(1_000, row -> row < 100 ? "a" : row < 400 ? "b" : "c").withName("strata"),
+                IndexVar.seq(1_000).withName("row"));
+
+        List<Mapping> maps = SamplingTools.stratifiedSampleSlices(df, "strata", new Random(3), 0.5, 0.3);
+        Assert.assertEquals(3, maps.size());
+        Assert.assertEquals(500, maps.get(0).size());
+        Assert.assertEquals(300, maps.get(1).size());
+        Assert.assertEquals(200, maps.get(2).size());
+
+        boolean[] seen = new boolean[1_000];
+        for (Mapping map : maps) {
+            int a = 0;
+            for (int i = 0; i < map.size(); i++) {
+                int row = map.get(i);
+                Assert.assertFalse(seen[row]);
+                seen[row] = true;
+                if (row < 100) {
+                    a++;
+                }
+            }
+            Assert.assertEquals(map.size() / 10, a);
+        }
+
+        List<Mapping> again = SamplingTools.stratifiedSampleSlices(df, "strata", new Random(3), 0.5, 0.3);
+        for (int i = 0; i < maps.size(); i++) {
+            Assert.assertTrue(Arrays.equals(maps.get(i).toArray(), again.get(i).toArray()));
+        }
+
+        Assert.assertEquals(2, SamplingTools.stratifiedSampleSlices(df, "strata", 0.5, 0.5).size());
+    }
 }
@@ -31,9 +31,13 @@ import rapaio.core.RandomSource;
 import rapaio.core.distributions.Normal;
 import rapaio.data.NumericVar;
 import rapaio.data.SolidFrame;
+import rapaio.data.Var;
 import rapaio.math.linear.RM;
 import rapaio.math.linear.dense.SolidRM;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Tests for pearson correlation
  * <p>
@@ -135,4 +139,36 @@ public class CorrPearsonTest {
 
         Assert.assertEquals(1, cp.singleValue(), 1e-20);
     }
+
+    @Test
+    public void testBlockedMatrix() {
+        RandomSource.setSeed(123);
+        Normal norm = new Normal(0, 1);
+        List<Var> vars = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            final int shift = i;
+            vars.add(NumericVar.from(3_000, row -> norm.sampleNext() + (row % 10) * (shift % 3)).withName("v" + i));
+        }
+        double[][] values = CorrPearson.from(SolidFrame.byVars(vars)).values();
+
+        // one missing value in the last variable moves all pairs on the pairwise computation
+        Var last = vars.get(69).solidCopy().withName("last");
+        last.setMissing(2_999);
+        List<Var> withMissing = new ArrayList<>(vars.subList(0, 69));
+        withMissing.add(last);
+        double[][] pairwise = CorrPearson.from(SolidFrame.byVars(withMissing)).values();
+
+        for (int i = 0; i < 70; i++) {
+            Assert.assertEquals(1, values[i][i], 1e-20);
+            for (int j = i + 1; j < 70; j++) {
+                Assert.assertEquals(values[i][j], values[j][i], 1e-20);
+                Assert.assertEquals(CorrPearson.from(vars.get(i), vars.get(j)).singleValue(), values[i][j], 1e-20);
+                if (j < 69) {
+                    Assert.assertEquals(values[i][j], pairwise[i][j], 1e-20);
+                } else {
+                    Assert.assertEquals(values[i][j], pairwise[i][j], 1e-3);
+                }
+            }
+        }
+    }
 }
@@ -151,4 +151,14 @@ public class CorrSpearmanTest {
         Assert.assertEquals(1, cp.singleValue(), 1e-20);
     }
 
+    @Test
+    public void testTies() {
+        // ranks of x are 1.5, 1.5, 3, 4.5, 4.5 and ranks of y are 1, 2, 3, 4, 5
+        NumericVar x = NumericVar.copy(1, 1, 2, 3, 3).withName("x");
+        NumericVar y = NumericVar.copy(1, 2, 3, 4, 5).withName("y");
+
+        CorrSpearman cp = CoreTools.corrSpearman(x, y);
+        Assert.assertEquals(CorrPearson.from(NumericVar.copy(1.5, 1.5, 3, 4.5, 4.5), y).singleValue(), cp.singleValue(), 1e-15);
+        Assert.assertEquals(0.9486832980505138, cp.singleValue(), 1e-12);
+    }
 }
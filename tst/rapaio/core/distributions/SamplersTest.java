@@ -0,0 +1,135 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.distributions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rapaio.core.stat.OnlineStat;
+import rapaio.core.tests.KSTestOneSample;
+import rapaio.data.NumericVar;
+
+import java.util.Random;
+
+/**
+ * Tests for bulk evaluation and sampling with a given random number generator.
+ */
+public class SamplersTest {
+
+    private static final int N = 100_000;
+
+    @Test
+    public void testBulkEvaluation() {
+        Distribution[] distributions = new Distribution[]{
+                new Normal(1, 2), new Gamma(2, 3), new ChiSquare(4), new StudentT(5),
+                new Binomial(0.3, 20), new Poisson(4), new Hypergeometric(10, 20, 8)
+        };
+        double[] x = new double[]{0, 0.5, 1, 2, 3.5, 7, 12};
+        double[] p = new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+        double[] out = new double[x.length];
+        double[] qout = new double[p.length];
+        for (Distribution d : distributions) {
+            d.pdf(x, out);
+            for (int i = 0; i < x.length; i++) {
+                Assert.assertEquals(d.name(), d.pdf(x[i]), out[i], 0);
+            }
+            d.cdf(x, out);
+            for (int i = 0; i < x.length; i++) {
+                Assert.assertEquals(d.name(), d.cdf(x[i]), out[i], 0);
+            }
+            d.quantile(p, qout);
+            for (int i = 0; i < p.length; i++) {
+                Assert.assertEquals(d.name(), d.quantile(p[i]), qout[i], 0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkLengthMismatch() {
+        new Normal().pdf(new double[10], new double[9]);
+    }
+
+    @Test
+    public void testReproducible() {
+        Distribution[] distributions = new Distribution[]{
+                new Normal(), new Gamma(0.5, 1), new Poisson(3), new Uniform(0, 1)
+        };
+        for (Distribution d : distributions) {
+            NumericVar a = d.sample(1_000, new Random(42));
+            NumericVar b = d.sample(1_000, new Random(42));
+            for (int i = 0; i < a.getRowCount(); i++) {
+                Assert.assertEquals(a.getValue(i), b.getValue(i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testNormal() {
+        Normal normal = new Normal(2, 3);
+        NumericVar x = normal.sample(N, new Random(1));
+        OnlineStat os = OnlineStat.from(x);
+        Assert.assertEquals(2, os.mean(), 0.05);
+        Assert.assertEquals(3, os.sd(), 0.05);
+
+        NumericVar z = new Normal().sample(5_000, new Random(2));
+        Assert.assertTrue(KSTestOneSample.from(z, new Normal()).pValue() > 0.01);
+    }
+
+    @Test
+    public void testGammaFamily() {
+        for (double alpha : new double[]{0.3, 1, 2.5, 10}) {
+            Gamma gamma = new Gamma(alpha, 2);
+            OnlineStat os = OnlineStat.from(gamma.sample(N, new Random(3)));
+            Assert.assertEquals(alpha * 2, os.mean(), 0.05 * alpha * 2);
+            Assert.assertEquals(alpha * 4, os.variance(), 0.1 * alpha * 4);
+        }
+
+        OnlineStat chi = OnlineStat.from(new ChiSquare(6).sample(N, new Random(4)));
+        Assert.assertEquals(6, chi.mean(), 0.1);
+        Assert.assertEquals(12, chi.variance(), 0.5);
+
+        OnlineStat t = OnlineStat.from(new StudentT(10, 1, 2).sample(N, new Random(5)));
+        Assert.assertEquals(1, t.mean(), 0.05);
+        Assert.assertEquals(4 * 10 / 8.0, t.variance(), 0.2);
+    }
+
+    @Test
+    public void testDiscreteTables() {
+        Distribution[] distributions = new Distribution[]{
+                new Binomial(0.3, 20), new Poisson(4), new Hypergeometric(10, 20, 8)
+        };
+        for (Distribution d : distributions) {
+            double[] values = new double[N];
+            d.sample(new Random(6), values);
+            int[] counts = new int[30];
+            for (double value : values) {
+                Assert.assertEquals(Math.rint(value), value, 0);
+                counts[(int) value]++;
+            }
+            for (int i = 0; i < counts.length; i++) {
+                Assert.assertEquals(d.name() + " at " + i, d.pdf(i), counts[i] / (double) N, 0.01);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ import rapaio.core.stat.Mean;
 import rapaio.data.NumericVar;
 import rapaio.data.Var;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class KDETest {
@@ -71,4 +72,25 @@ public class KDETest {
         assertTrue(Math.abs(mean.getValue())<1e-5);
     }
 
+    @Test
+    public void testGrid() {
+        // discontinuous kernels like uniform have larger binning errors
+        KFunc[] kernels = new KFunc[]{new KFuncGaussian(), new KFuncEpanechnikov(), new KFuncTriangular()};
+        for (KFunc kernel : kernels) {
+            KDE kde = new KDE(sample, kernel);
+            KDEGrid grid = kde.grid(4096);
+            assertEquals(4096, grid.size());
+
+            // grid points match exact evaluation up to binning error
+            for (int i = 0; i < grid.size(); i += 16) {
+                assertEquals(kde.pdf(grid.x(i)), grid.density(i), 1e-4);
+            }
+            // interpolation between grid points
+            for (int i = 0; i < x.getRowCount(); i += 10) {
+                assertEquals(kde.pdf(x.getValue(i)), grid.pdf(x.getValue(i)), 1e-4);
+            }
+            assertEquals(0, grid.pdf(grid.x(0) - 1), 0);
+            assertEquals(0, grid.pdf(grid.x(grid.size() - 1) + 1), 0);
+        }
+    }
 }
@@ -31,6 +31,7 @@ import rapaio.core.RandomSource;
 import rapaio.core.distributions.Normal;
 import rapaio.data.IndexVar;
 import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
 import rapaio.data.Var;
 
 import static org.junit.Assert.assertEquals;
@@ -95,4 +96,52 @@ public class OnlineStatTest {
         Assert.assertEquals(soA.variance(), soAll.variance(), 1e-12);
         Assert.assertEquals(soA.mean(), soAll.mean(), 1e-30);
     }
+    @Test
+    public void testParallelReducer() {
+        RandomSource.setSeed(42);
+        int LEN = 100_000;
+        NumericVar v = new Normal(10, 3).sample(LEN);
+        for (int i = 0; i < LEN; i += 97) {
+            v.setMissing(i);
+        }
+
+        OnlineStat seq = OnlineStat.empty();
+        v.stream().forEach(s -> seq.update(s.getValue()));
+        OnlineStat par = OnlineStat.from(v);
+
+        assertEquals(seq.n(), par.n(), 1e-12);
+        assertEquals(seq.missingCount(), par.missingCount(), 1e-12);
+        assertEquals(LEN - seq.n(), seq.missingCount(), 1e-12);
+        assertEquals(seq.mean(), par.mean(), 1e-10);
+        assertEquals(seq.variance(), par.variance(), 1e-8);
+        assertEquals(seq.skewness(), par.skewness(), 1e-8);
+        assertEquals(seq.kurtosis(), par.kurtosis(), 1e-8);
+        assertEquals(seq.min(), par.min(), 1e-12);
+        assertEquals(seq.max(), par.max(), 1e-12);
+        assertEquals(CoreTools.variance(v).getValue(), par.variance(), 1e-8);
+        assertEquals(CoreTools.min(v).getValue(), par.min(), 1e-12);
+        assertEquals(CoreTools.max(v).getValue(), par.max(), 1e-12);
+
+        OnlineStat[] stats = OnlineStat.from(SolidFrame.byVars(v, NumericVar.fill(10, -1)));
+        assertEquals(2, stats.length);
+        assertEquals(par.mean(), stats[0].mean(), 1e-12);
+        assertEquals(-1, stats[1].min(), 1e-12);
+        assertEquals(-1, stats[1].max(), 1e-12);
+    }
+
+    @Test
+    public void testEmptyMinMax() {
+        OnlineStat empty = OnlineStat.empty();
+        Assert.assertTrue(Double.isNaN(empty.min()));
+        Assert.assertTrue(Double.isNaN(empty.max()));
+
+        // min and max are not affected by initial values
+        OnlineStat so = OnlineStat.empty();
+        so.update(5);
+        so.update(7);
+        assertEquals(5, so.min(), 1e-12);
+        assertEquals(7, so.max(), 1e-12);
+        empty.update(so);
+        assertEquals(5, empty.min(), 1e-12);
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.core.stat;
+
+import org.junit.Test;
+import rapaio.data.NumericVar;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class QuantilesTest {
+
+    @Test
+    public void testSelectionMatchesSort() {
+        Random random = new Random(123);
+        double[] p = {0, 0.01, 0.25, 0.5, 0.5, 0.75, 0.99, 1};
+        for (int len : new int[]{2, 3, 10, 1_000, 100_000}) {
+            NumericVar x = NumericVar.empty(len);
+            for (int i = 0; i < len; i++) {
+                // many duplicates and some missing values
+                x.setValue(i, (i % 13 == 0) ? Double.NaN : random.nextInt(len / 2 + 1));
+            }
+            double[] sorted = x.stream().complete().mapToDouble().toArray();
+            Arrays.sort(sorted);
+            int n = sorted.length;
+            for (Quantiles.Type type : Quantiles.Type.values()) {
+                double[] q = Quantiles.from(x, type, p).getValues();
+                for (int i = 0; i < p.length; i++) {
+                    assertEquals(expected(sorted, n, p[i], type), q[i], 1e-12);
+                }
+            }
+        }
+    }
+
+    private static double expected(double[] x, int n, double p, Quantiles.Type type) {
+        if (n == 1) {
+            return x[0];
+        }
+        if (type == Quantiles.Type.R8) {
+            double h = (n + 1. / 3.) * p + 1. / 3.;
+            int hfloor = (int) StrictMath.floor(h);
+            if (p < (2. / 3.) / (n + 1. / 3.)) {
+                return x[0];
+            }
+            if (p >= (n - 1. / 3.) / (n + 1. / 3.)) {
+                return x[n - 1];
+            }
+            return x[hfloor - 1] + (h - hfloor) * (x[hfloor] - x[hfloor - 1]);
+        }
+        double h = (n - 1.0) * p + 1;
+        int hfloor = (int) Math.min(StrictMath.floor(h), n - 1);
+        return x[hfloor - 1] + (h - hfloor) * (x[hfloor] - x[hfloor - 1]);
+    }
+}
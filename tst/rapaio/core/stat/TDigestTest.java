@@ -0,0 +1,93 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.core.stat;
+
+import org.junit.Test;
+import rapaio.data.NumericVar;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class TDigestTest {
+
+    private static final double[] P = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    public void testAccuracy() {
+        Random random = new Random(42);
+        int len = 200_000;
+        double[] values = new double[len];
+        TDigest digest = TDigest.empty();
+        for (int i = 0; i < len; i++) {
+            values[i] = random.nextGaussian() * Math.exp(random.nextGaussian());
+            digest.update(values[i]);
+        }
+        digest.update(Double.NaN);
+
+        assertEquals(len, digest.n(), 1e-12);
+        assertTrue(digest.centroidCount() <= 200);
+        double[] exact = Quantiles.from(NumericVar.wrap(values), P).getValues();
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < P.length; i++) {
+            // estimations are checked by the rank of the estimated value
+            double rank = Math.abs(Arrays.binarySearch(sorted, digest.quantile(P[i])) + 0.5) / len;
+            assertEquals(P[i], rank, Math.max(0.0005, P[i] * (1 - P[i]) * 0.02));
+            assertEquals(P[i], digest.cdf(exact[i]), Math.max(0.0005, P[i] * (1 - P[i]) * 0.02));
+        }
+        assertEquals(sorted[0], digest.quantile(0), 1e-12);
+        assertEquals(sorted[len - 1], digest.quantile(1), 1e-12);
+    }
+
+    @Test
+    public void testMerge() {
+        Random random = new Random(7);
+        int len = 100_000;
+        double[] values = IntStream.range(0, len).mapToDouble(i -> random.nextDouble()).toArray();
+
+        // sketches built on partitions in parallel, than merged
+        TDigest[] partials = IntStream.range(0, 8).parallel().mapToObj(part -> {
+            TDigest digest = TDigest.empty(200);
+            for (int i = part; i < len; i += 8) {
+                digest.update(values[i]);
+            }
+            return digest;
+        }).toArray(TDigest[]::new);
+        TDigest merged = TDigest.empty(200);
+        for (TDigest partial : partials) {
+            merged.update(partial);
+        }
+        assertEquals(len, merged.n(), 1e-9);
+        for (double p : P) {
+            assertEquals(p, merged.quantile(p), 0.005);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
+import rapaio.data.Frame;
+import rapaio.data.NominalVar;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+
+/**
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class HTestBatchTest {
+
+    private Frame[] numericFrames() {
+        RandomSource.setSeed(1234);
+        Var[] x = new Var[30];
+        Var[] y = new Var[30];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = new Normal(i % 3 == 0 ? 0.5 : 0, 1 + i % 2).sample(80 + i).withName("m" + i);
+            y[i] = new Normal(0, 1).sample(100).withName("m" + i);
+        }
+        x[5].setMissing(3);
+        return new Frame[]{SolidFrame.byVars(x), SolidFrame.byVars(y)};
+    }
+
+    @Test
+    public void testTTests() {
+        Frame[] frames = numericFrames();
+        Frame result = HTestBatch.newInstance(HTestBatch.Type.T_TEST).test(frames[0], frames[1]);
+        Frame welch = HTestBatch.newInstance(HTestBatch.Type.WELCH_T_TEST)
+                .withAlternative(HTest.Alternative.GREATER_THAN)
+                .withMean(0.1)
+                .withPoolSize(0)
+                .test(frames[0], frames[1]);
+
+        Assert.assertEquals(30, result.getRowCount());
+        for (int i = 0; i < 30; i++) {
+            String name = "m" + i;
+            Assert.assertEquals(name, result.getLabel(i, HTestBatch.NAME));
+
+            TTestTwoSamples t = TTestTwoSamples.test(frames[0].getVar(name), frames[1].getVar(name), 0);
+            Assert.assertEquals(t.xSampleSize(), result.getValue(i, HTestBatch.X_SIZE), 1e-20);
+            Assert.assertEquals(t.xSampleMean(), result.getValue(i, HTestBatch.X_MEAN), 1e-12);
+            Assert.assertEquals(t.t(), result.getValue(i, HTestBatch.STATISTIC), 1e-10);
+            Assert.assertEquals(t.df(), result.getValue(i, HTestBatch.DF), 1e-10);
+            Assert.assertEquals(t.pValue(), result.getValue(i, HTestBatch.P_VALUE), 1e-10);
+
+            TTestTwoSamples w = TTestTwoSamples.welchTest(frames[0].getVar(name), frames[1].getVar(name), 0.1,
+                    0.05, HTest.Alternative.GREATER_THAN);
+            Assert.assertEquals(w.t(), welch.getValue(i, HTestBatch.STATISTIC), 1e-10);
+            Assert.assertEquals(w.df(), welch.getValue(i, HTestBatch.DF), 1e-8);
+            Assert.assertEquals(w.pValue(), welch.getValue(i, HTestBatch.P_VALUE), 1e-10);
+
+            Assert.assertEquals(Math.min(1, 30 * t.pValue()), result.getValue(i, HTestBatch.P_BONFERRONI), 1e-10);
+            Assert.assertTrue(result.getValue(i, HTestBatch.P_BH) >= t.pValue() - 1e-15);
+            Assert.assertTrue(result.getValue(i, HTestBatch.P_BH) <= result.getValue(i, HTestBatch.P_BONFERRONI) + 1e-15);
+        }
+    }
+
+    @Test
+    public void testZTest() {
+        Frame[] frames = numericFrames();
+        Frame result = HTestBatch.newInstance(HTestBatch.Type.Z_TEST).withSd(1.5, 1).test(frames[0], frames[1]);
+        for (int i = 0; i < 30; i++) {
+            String name = "m" + i;
+            ZTestTwoSamples z = ZTestTwoSamples.test(frames[0].getVar(name), frames[1].getVar(name), 0, 1.5, 1);
+            Assert.assertEquals(z.zScore(), result.getValue(i, HTestBatch.STATISTIC), 1e-10);
+            Assert.assertEquals(z.pValue(), result.getValue(i, HTestBatch.P_VALUE), 1e-10);
+        }
+    }
+
+    @Test
+    public void testChiSquare() {
+        RandomSource.setSeed(42);
+        String[] labels = new String[]{"a", "b", "c"};
+        Var[] x = new Var[10];
+        Var[] y = new Var[10];
+        for (int i = 0; i < x.length; i++) {
+            final int shift = i;
+            x[i] = NominalVar.from(200, row -> labels[RandomSource.nextDouble() < 0.05 * shift ? 0 : RandomSource.nextInt(3)], labels).withName("c" + i);
+            y[i] = NominalVar.from(150, row -> labels[RandomSource.nextInt(3)], labels).withName("c" + i);
+        }
+        Frame result = HTestBatch.newInstance(HTestBatch.Type.CHI_SQUARE)
+                .test(SolidFrame.byVars(x), SolidFrame.byVars(y));
+        for (int i = 0; i < x.length; i++) {
+            Var sample = NominalVar.from(350, row -> row < 200 ? "x" : "y", "x", "y");
+            Var values = x[i].bindRows(y[i]);
+            ChiSquareTest test = ChiSquareTest.independenceTest(sample, values);
+            Assert.assertEquals(test.chiValue(), result.getValue(i, HTestBatch.STATISTIC), 1e-10);
+            Assert.assertEquals(test.df(), result.getValue(i, HTestBatch.DF), 1e-10);
+            Assert.assertEquals(test.pValue(), result.getValue(i, HTestBatch.P_VALUE), 1e-10);
+        }
+        Assert.assertTrue(result.getValue(9, HTestBatch.P_BH) < 0.001);
+    }
+
+    @Test
+    public void testAdjustments() {
+        double[] p = new double[]{0.01, 0.04, Double.NaN, 0.03, 0.005};
+        Assert.assertArrayEquals(new double[]{0.04, 0.16, Double.NaN, 0.12, 0.02}, HTestBatch.bonferroni(p), 1e-15);
+        Assert.assertArrayEquals(new double[]{0.02, 0.04, Double.NaN, 0.04, 0.02}, HTestBatch.benjaminiHochberg(p), 1e-15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongType() {
+        Frame[] frames = numericFrames();
+        HTestBatch.newInstance(HTestBatch.Type.CHI_SQUARE).test(frames[0], frames[1]);
+    }
+}
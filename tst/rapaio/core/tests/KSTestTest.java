@@ -30,10 +30,12 @@ import rapaio.core.RandomSource;
 import rapaio.core.distributions.*;
 import rapaio.data.Frame;
 import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
 import rapaio.datasets.Datasets;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.List;
 
 import static rapaio.core.CoreTools.*;
 
@@ -85,4 +87,24 @@ public class KSTestTest {
         Assert.assertTrue(test.d() > 0.04);
         Assert.assertTrue(test.pValue() < 0.05);
     }
+
+    @Test
+    public void testBatch() throws IOException, URISyntaxException {
+        Frame df = Datasets.loadPearsonHeightDataset();
+        Frame shifted = SolidFrame.byVars(
+                NumericVar.from(df.getRowCount(), row -> df.getValue(row, "Father") + 1).withName("Father"),
+                df.getVar("Son").solidCopy().withName("Son"));
+        shifted.getVar("Son").addMissing();
+
+        List<KSTestTwoSamples> tests = KSTestTwoSamples.batch(df, shifted);
+        Assert.assertEquals(2, tests.size());
+        for (int i = 0; i < 2; i++) {
+            String name = df.getVarNames()[i];
+            KSTestTwoSamples test = KSTestTwoSamples.from(df.getVar(name), shifted.getVar(name));
+            Assert.assertEquals(test.d(), tests.get(i).d(), 1e-20);
+            Assert.assertEquals(test.pValue(), tests.get(i).pValue(), 1e-20);
+        }
+        Assert.assertEquals(0, tests.get(df.getVarIndex("Son")).d(), 1e-20);
+        Assert.assertTrue(tests.get(df.getVarIndex("Father")).pValue() < 1e-3);
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
+import rapaio.data.Var;
+
+/**
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class KruskalWallisTestTest {
+
+    private final Var x = NumericVar.copy(2.9, 3.0, 2.5, 2.6, 3.2);
+    private final Var y = NumericVar.copy(3.8, 2.7, 4.0, 2.4);
+    private final Var z = NumericVar.copy(2.8, 3.4, 3.7, 2.2, 2.0);
+
+    @Test
+    public void testSamples() {
+        KruskalWallisTest test = KruskalWallisTest.test(x, y, z);
+        test.printSummary();
+        Assert.assertEquals(0.7714285714285722, test.h(), 1e-12);
+        Assert.assertEquals(2, test.df(), 1e-12);
+        Assert.assertEquals(0.6799647735788935, test.pValue(), 1e-9);
+        Assert.assertEquals(14, test.size());
+    }
+
+    @Test
+    public void testGroups() {
+        Var values = x.bindRows(y).bindRows(z).solidCopy();
+        values.addMissing();
+        Var group = NominalVar.copy("x", "x", "x", "x", "x", "y", "y", "y", "y", "z", "z", "z", "z", "z", "z");
+        KruskalWallisTest test = KruskalWallisTest.testGroups(values, group);
+        Assert.assertEquals(KruskalWallisTest.test(x, y, z).h(), test.h(), 1e-15);
+        Assert.assertEquals(3, test.groups());
+
+        // two samples with ties
+        KruskalWallisTest ties = KruskalWallisTest.test(NumericVar.copy(1, 1, 2, 3), NumericVar.copy(2, 3, 3, 4));
+        Assert.assertEquals(1, ties.df(), 1e-12);
+        Assert.assertTrue(ties.pValue() > 0.05 && ties.pValue() < 1);
+
+        Assert.assertTrue(Double.isNaN(KruskalWallisTest.test(x, NumericVar.empty()).pValue()));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
+import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+
+import java.util.List;
+
+/**
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class MannWhitneyTestTest {
+
+    private final Var x = NumericVar.copy(0.80, 0.83, 1.89, 1.04, 1.45, 1.38, 1.91, 1.64, 0.73, 1.46);
+    private final Var y = NumericVar.copy(1.15, 0.88, 0.90, 0.74, 1.21);
+
+    @Test
+    public void testExact() {
+        MannWhitneyTest test = MannWhitneyTest.test(x, y, HTest.Alternative.GREATER_THAN);
+        test.printSummary();
+        Assert.assertTrue(test.exact());
+        Assert.assertEquals(35, test.u(), 1e-12);
+        Assert.assertEquals(0.1272061272061272, test.pValue(), 1e-12);
+
+        MannWhitneyTest less = MannWhitneyTest.test(y, x, HTest.Alternative.LESS_THAN);
+        Assert.assertEquals(15, less.u(), 1e-12);
+        Assert.assertEquals(test.pValue(), less.pValue(), 1e-12);
+
+        Assert.assertEquals(2 * test.pValue(), MannWhitneyTest.test(x, y).pValue(), 1e-12);
+    }
+
+    @Test
+    public void testExactDistribution() {
+        double[] pmf = MannWhitneyTest.exactDistribution(7, 12);
+        double sum = 0;
+        for (int i = 0; i < pmf.length; i++) {
+            sum += pmf[i];
+            Assert.assertEquals(pmf[i], pmf[pmf.length - 1 - i], 1e-15);
+        }
+        Assert.assertEquals(1, sum, 1e-12);
+        // only one arrangement has all values of the first sample smaller
+        Assert.assertEquals(1.0 / 50388, pmf[0], 1e-15);
+    }
+
+    @Test
+    public void testNormalApproximation() {
+        Var a = NumericVar.from(60, row -> (double) (row % 7));
+        Var b = NumericVar.from(55, row -> (double) ((row * 3) % 11));
+        MannWhitneyTest test = MannWhitneyTest.test(a, b);
+        test.printSummary();
+        Assert.assertFalse(test.exact());
+        Assert.assertEquals(1020, test.u(), 1e-12);
+        Assert.assertEquals(-3.5455122009233033, test.z(), 1e-12);
+        Assert.assertEquals(0.0003918508467822324, test.pValue(), 1e-9);
+    }
+
+    @Test
+    public void testMissingAndBatch() {
+        Var xm = x.solidCopy();
+        xm.addMissing();
+        Assert.assertEquals(MannWhitneyTest.test(x, y).pValue(), MannWhitneyTest.test(xm, y).pValue(), 1e-15);
+        Assert.assertTrue(Double.isNaN(MannWhitneyTest.test(NumericVar.empty(), y).pValue()));
+
+        RandomSource.setSeed(123);
+        Normal normal = new Normal();
+        Var[] first = new Var[20];
+        Var[] second = new Var[20];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = normal.sample(100).withName("v" + i);
+            second[i] = normal.sample(80 + i).withName("v" + i);
+        }
+        List<MannWhitneyTest> tests = MannWhitneyTest.batch(SolidFrame.byVars(first), SolidFrame.byVars(second));
+        Assert.assertEquals(20, tests.size());
+        for (int i = 0; i < first.length; i++) {
+            Assert.assertEquals(MannWhitneyTest.test(first[i], second[i]).pValue(), tests.get(i).pValue(), 1e-15);
+            Assert.assertEquals(80 + i, tests.get(i).ySize());
+        }
+    }
+}
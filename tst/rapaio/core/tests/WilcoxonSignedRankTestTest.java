@@ -0,0 +1,75 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rapaio.data.NumericVar;
+import rapaio.data.Var;
+
+/**
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class WilcoxonSignedRankTestTest {
+
+    @Test
+    public void testPairedExact() {
+        Var x = NumericVar.copy(1.83, 0.50, 1.62, 2.48, 1.68, 1.88, 1.55, 3.06, 1.30);
+        Var y = NumericVar.copy(0.878, 0.647, 0.598, 2.05, 1.06, 1.29, 1.06, 3.14, 1.29);
+
+        WilcoxonSignedRankTest test = WilcoxonSignedRankTest.paired(x, y, 0, HTest.Alternative.GREATER_THAN);
+        test.printSummary();
+        Assert.assertTrue(test.exact());
+        Assert.assertEquals(40, test.v(), 1e-12);
+        Assert.assertEquals(0.01953125, test.pValue(), 1e-12);
+        Assert.assertEquals(0.0390625, WilcoxonSignedRankTest.paired(x, y, 0).pValue(), 1e-12);
+    }
+
+    @Test
+    public void testExactDistribution() {
+        double[] pmf = WilcoxonSignedRankTest.exactDistribution(10);
+        double sum = 0;
+        for (int i = 0; i < pmf.length; i++) {
+            sum += pmf[i];
+            Assert.assertEquals(pmf[i], pmf[pmf.length - 1 - i], 1e-15);
+        }
+        Assert.assertEquals(1, sum, 1e-12);
+        Assert.assertEquals(1.0 / 1024, pmf[0], 1e-15);
+    }
+
+    @Test
+    public void testOneSampleApproximation() {
+        // zeros are dropped and ties are corrected
+        Var x = NumericVar.from(60, row -> (double) (row % 7));
+        WilcoxonSignedRankTest test = WilcoxonSignedRankTest.test(x, 3);
+        test.printSummary();
+        Assert.assertFalse(test.exact());
+        Assert.assertEquals(51, test.size());
+        Assert.assertEquals(9, test.zeros());
+        Assert.assertEquals(624, test.v(), 1e-12);
+        Assert.assertEquals(-0.3658297824566666, test.z(), 1e-12);
+        Assert.assertEquals(0.714492094876088, test.pValue(), 1e-9);
+    }
+}
@@ -48,6 +48,25 @@ public class MappingTest {
         assertEquals(1, m.get(0));
         assertEquals(7, m.get(3));
 
+        int[] rows = {1, 3, 5, 7};
+        m = Mapping.wrap(rows);
+        assertEquals(4, m.size());
+        assertEquals(5, m.get(2));
+        m.add(9);
+        m.remove(0);
+        assertEquals(4, m.size());
+        assertEquals(9, m.get(3));
+        assertEquals(1, rows[0]);
+
+        // changes of a wrapped mapping never write into the wrapped array
+        rows = new int[]{1, 3, 5, 7};
+        m = Mapping.wrap(rows);
+        m.remove(0);
+        m.add(9);
+        assertEquals(4, m.size());
+        assertEquals(9, m.get(3));
+        assertTrue(Arrays.equals(new int[]{1, 3, 5, 7}, rows));
+
         m = Mapping.copy(Arrays.asList(1, 3, 5, 7));
         assertEquals(4, m.size());
         assertEquals(1, m.get(0));
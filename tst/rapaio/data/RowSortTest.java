@@ -0,0 +1,153 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class RowSortTest {
+
+    private static int[] boxedSort(int rows, Comparator<Integer> comparator) {
+        Integer[] boxed = new Integer[rows];
+        for (int i = 0; i < rows; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, comparator);
+        return Arrays.stream(boxed).mapToInt(i -> i).toArray();
+    }
+
+    @Test
+    public void testPrimitiveKeys() {
+        Random random = new Random(42);
+        int n = 10_000;
+        double[] doubles = new double[n];
+        long[] longs = new long[n];
+        int[] ints = new int[n];
+        for (int i = 0; i < n; i++) {
+            doubles[i] = (i % 17 == 0) ? Double.NaN : Math.round(random.nextGaussian() * 100) / 10.0;
+            if (i % 31 == 0) {
+                doubles[i] = -0.0;
+            }
+            longs[i] = random.nextLong() % 1000;
+            ints[i] = random.nextInt(200) - 100;
+        }
+        for (boolean asc : new boolean[]{true, false}) {
+            int sign = asc ? 1 : -1;
+            assertArrayEquals(boxedSort(n, (i, j) -> sign * Double.compare(doubles[i], doubles[j])), RowSort.argsort(doubles, asc));
+            assertArrayEquals(boxedSort(n, (i, j) -> sign * Long.compare(longs[i], longs[j])), RowSort.argsort(longs, asc));
+            assertArrayEquals(boxedSort(n, (i, j) -> sign * Integer.compare(ints[i], ints[j])), RowSort.argsort(ints, asc));
+            assertArrayEquals(RowSort.argsort(doubles, asc), RowSort.argsort(doubles, asc, true));
+        }
+    }
+
+    @Test
+    public void testParallelMerge() {
+        Random random = new Random(1);
+        int n = 300_000;
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt(1000);
+        }
+        assertArrayEquals(boxedSort(n, (i, j) -> Double.compare(keys[i], keys[j])), RowSort.argsort(keys, true, true));
+    }
+
+    @Test
+    public void testRowComparators() {
+        Random random = new Random(7);
+        int n = 5_000;
+        NumericVar num = NumericVar.empty(n);
+        IndexVar index = IndexVar.empty(n);
+        NominalVar nom = NominalVar.empty(n, "c", "a", "b", "d");
+        StampVar stamp = StampVar.empty(n);
+        TextVar text = TextVar.empty(n);
+        String[] labels = {"c", "a", "b", "d"};
+        for (int i = 0; i < n; i++) {
+            num.setValue(i, random.nextInt(20));
+            index.setIndex(i, random.nextInt(10));
+            nom.setLabel(i, labels[random.nextInt(4)]);
+            stamp.setStamp(i, random.nextInt(30));
+            text.setLabel(i, labels[random.nextInt(4)] + random.nextInt(3));
+            if (random.nextInt(10) == 0) {
+                num.setMissing(i);
+                nom.setMissing(i);
+                stamp.setMissing(i);
+            }
+        }
+        for (boolean asc : new boolean[]{true, false}) {
+            Comparator<Integer> cmp = RowComparators.from(
+                    RowComparators.nominal(nom, asc),
+                    RowComparators.numeric(num, !asc),
+                    RowComparators.stamp(stamp, asc),
+                    RowComparators.index(index, asc));
+            assertArrayEquals(boxedSort(n, cmp), RowSort.argsort(n, false, cmp));
+            assertArrayEquals(boxedSort(n, cmp), RowSort.argsort(n, true, cmp));
+            assertArrayEquals(boxedSort(n, text.refComparator(asc)), RowSort.argsort(n, text.refComparator(asc)));
+        }
+
+        // numeric keys alone keep the comparator order of missing values and signed zeros
+        NumericVar signed = NumericVar.empty(n);
+        for (int i = 0; i < n; i++) {
+            signed.setValue(i, random.nextInt(5) - 2);
+            if (i % 7 == 0) {
+                signed.setValue(i, (i % 2 == 0) ? -0.0 : 0.0);
+            }
+            if (i % 11 == 0) {
+                signed.setMissing(i);
+            }
+        }
+        for (boolean asc : new boolean[]{true, false}) {
+            Comparator<Integer> cmp = RowComparators.numeric(signed, asc);
+            assertArrayEquals(boxedSort(n, cmp), RowSort.argsort(n, false, cmp));
+            assertArrayEquals(boxedSort(n, cmp), RowSort.argsort(n, true, cmp));
+        }
+        assertTrue(signed.isMissing(RowSort.argsort(n, RowComparators.numeric(signed, true))[0]));
+        assertTrue(signed.isMissing(RowSort.argsort(n, RowComparators.numeric(signed, false))[n - 1]));
+
+        // comparators which are not built on variables are used directly
+        Comparator<Integer> custom = (i, j) -> Integer.compare(i % 7, j % 7);
+        assertArrayEquals(boxedSort(n, custom), RowSort.argsort(n, custom));
+    }
+
+    @Test
+    public void testAverageRanks() {
+        double[] values = new double[]{3, 1, Double.NaN, 3, 2, 3, 1};
+        double[] ranks = RowSort.averageRanks(values);
+        assertArrayEquals(new double[]{5, 1.5, Double.NaN, 5, 3, 5, 1.5}, ranks, 1e-20);
+        assertArrayEquals(new double[0], RowSort.averageRanks(new double[0]), 1e-20);
+
+        int[] order = RowSort.argsort(values, true);
+        assertArrayEquals(ranks, RowSort.averageRanks(values, order), 1e-20);
+        assertArrayEquals(new int[]{2, 1, 3}, RowSort.tieGroupSizes(values, order));
+        assertArrayEquals(new int[0], RowSort.tieGroupSizes(new double[]{Double.NaN}, new int[]{0}));
+    }
+}
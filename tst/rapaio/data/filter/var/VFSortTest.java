@@ -0,0 +1,57 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.filter.var;
+
+import org.junit.Test;
+import rapaio.data.NumericVar;
+import rapaio.data.Var;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VFSortTest {
+
+    @Test
+    public void testMissingValuesAndSignedZeros() {
+
+        Var x = NumericVar.wrap(3, Double.NaN, 1, -0.0, 0.0, 2);
+
+        // missing values are first in ascending order and 0.0 comes before -0.0
+        Var asc = x.fitApply(new VFSort());
+        assertTrue(asc.isMissing(0));
+        double[] ascValues = new double[]{0.0, -0.0, 1, 2, 3};
+        for (int i = 0; i < ascValues.length; i++) {
+            assertEquals(Double.doubleToLongBits(ascValues[i]), Double.doubleToLongBits(asc.getValue(i + 1)));
+        }
+
+        // descending order is the reverse
+        Var desc = x.fitApply(new VFSort(false));
+        double[] descValues = new double[]{3, 2, 1, -0.0, 0.0};
+        for (int i = 0; i < descValues.length; i++) {
+            assertEquals(Double.doubleToLongBits(descValues[i]), Double.doubleToLongBits(desc.getValue(i)));
+        }
+        assertTrue(desc.isMissing(5));
+    }
+}
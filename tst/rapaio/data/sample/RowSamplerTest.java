@@ -32,9 +32,12 @@ import rapaio.core.RandomSource;
 import rapaio.core.tests.ChiSquareTest;
 import rapaio.core.tools.DVector;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.NumericVar;
+import rapaio.data.Var;
 import rapaio.datasets.Datasets;
 
+import java.util.Random;
 import java.util.stream.DoubleStream;
 
 /**
@@ -111,4 +114,30 @@ public class RowSamplerTest {
         Assert.assertEquals("SubSampler(p=1)", RowSampler.subsampler(1.0).name());
         Assert.assertEquals("SubSampler(p=0.2)", RowSampler.subsampler(0.2).name());
     }
+
+    @Test
+    public void randomSamplerTest() {
+        for (RowSampler sampler : new RowSampler[]{RowSampler.bootstrap(0.5), RowSampler.subsampler(0.5),
+                RowSampler.weightedBootstrap(0.5)}) {
+            Sample s1 = sampler.nextSample(df, w, new Random(42));
+            Sample s2 = sampler.nextSample(df, w, new Random(42));
+            Assert.assertArrayEquals(s1.mapping.toArray(), s2.mapping.toArray());
+        }
+
+        // samplers which implement only the shared random source variant are still usable
+        RowSampler custom = new RowSampler() {
+            private static final long serialVersionUID = 3186403658467207291L;
+
+            @Override
+            public String name() {
+                return "Custom";
+            }
+
+            @Override
+            public Sample nextSample(Frame df, Var weight) {
+                return new Sample(df, weight, Mapping.range(0, df.getRowCount()));
+            }
+        };
+        Assert.assertEquals(df.getRowCount(), custom.nextSample(df, w, new Random(42)).df.getRowCount());
+    }
 }
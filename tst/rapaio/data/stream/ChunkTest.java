@@ -0,0 +1,161 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.stream;
+
+import org.junit.Test;
+import rapaio.data.BoundFrame;
+import rapaio.data.BoundVar;
+import rapaio.data.Frame;
+import rapaio.data.IndexVar;
+import rapaio.data.Mapping;
+import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkTest {
+
+    private static final int N = 1_000;
+
+    private Frame frame() {
+        NumericVar x = NumericVar.from(N, row -> row % 7 == 0 ? Double.NaN : row * 0.5).withName("x");
+        IndexVar y = IndexVar.seq(N).withName("y");
+        NominalVar z = NominalVar.from(N, row -> row % 3 == 0 ? "?" : (row % 2 == 0 ? "a" : "b")).withName("z");
+        return SolidFrame.byVars(x, y, z);
+    }
+
+    private void checkChunks(Frame df, int chunkSize, boolean parallel) {
+        List<FChunk> chunks = parallel
+                ? df.chunkStream(chunkSize).parallel().collect(Collectors.toList())
+                : df.chunkStream(chunkSize).collect(Collectors.toList());
+        assertEquals((df.getRowCount() + chunkSize - 1) / chunkSize, chunks.size());
+
+        int row = 0;
+        double[] values = new double[chunkSize + 3];
+        int[] indexes = new int[chunkSize + 3];
+        long[] bits = new long[(chunkSize + 63) / 64];
+        for (FChunk chunk : chunks) {
+            assertEquals(row, chunk.getStart());
+            for (int j = 0; j < df.getVarCount(); j++) {
+                chunk.getValues(j, values, 3);
+                chunk.getIndexes(j, indexes, 3);
+                int missing = chunk.getMissing(j, bits);
+                int count = 0;
+                for (int i = 0; i < chunk.getLength(); i++) {
+                    assertEquals(df.getValue(row + i, j), values[i + 3], 0);
+                    assertEquals(df.getIndex(row + i, j), indexes[i + 3]);
+                    assertEquals(df.isMissing(row + i, j), VChunk.isMissing(bits, i));
+                    count += df.isMissing(row + i, j) ? 1 : 0;
+                }
+                assertEquals(count, missing);
+                assertArrayEquals(chunk.getValues(j), chunk.getVarChunk(j).getValues(), 0);
+            }
+            row += chunk.getLength();
+        }
+        assertEquals(df.getRowCount(), row);
+    }
+
+    @Test
+    public void testSolidFrame() {
+        Frame df = frame();
+        checkChunks(df, 100, false);
+        checkChunks(df, 64, true);
+        checkChunks(df, 1, true);
+        checkChunks(df, 5_000, false);
+    }
+
+    @Test
+    public void testMappedFrame() {
+        Frame df = frame();
+        int[] rows = new int[N / 2];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (i * 37) % N;
+        }
+        Frame mapped = df.mapRows(Mapping.wrap(rows));
+        checkChunks(mapped, 33, false);
+        checkChunks(mapped, 33, true);
+        checkChunks(mapped.mapVars("z,x"), 70, true);
+    }
+
+    @Test
+    public void testBoundFrame() {
+        Frame df = frame();
+        Frame bound = BoundFrame.byRows(
+                df.mapRows(Mapping.range(0, 300)),
+                df.mapRows(Mapping.range(300, 301)),
+                df.mapRows(Mapping.range(301, N)));
+        checkChunks(bound, 128, false);
+        checkChunks(bound, 299, true);
+
+        Frame byVars = BoundFrame.byVars(df.mapVars("x"), SolidFrame.byVars(NumericVar.seq(N - 1).withName("w")));
+        checkChunks(byVars, 128, true);
+    }
+
+    @Test
+    public void testVarChunks() {
+        Var x = BoundVar.from(NumericVar.wrap(1, 2, Double.NaN), NumericVar.wrap(4), NumericVar.wrap(5, 6, 7));
+        List<VChunk> chunks = x.chunkStream(3).collect(Collectors.toList());
+        assertEquals(3, chunks.size());
+        assertArrayEquals(new double[]{1, 2, Double.NaN}, chunks.get(0).getValues(), 0);
+        assertArrayEquals(new double[]{4, 5, 6}, chunks.get(1).getValues(), 0);
+        assertArrayEquals(new double[]{7}, chunks.get(2).getValues(), 0);
+        assertTrue(chunks.get(0).hasMissing());
+        assertTrue(chunks.get(0).isMissing(2));
+        assertFalse(chunks.get(1).hasMissing());
+        assertEquals(4L, chunks.get(0).getMissing()[0]);
+
+        double sum = x.chunkStream(2).parallel()
+                .mapToDouble(chunk -> {
+                    double s = 0;
+                    long[] bits = chunk.getMissing();
+                    double[] values = chunk.getValues();
+                    for (int i = 0; i < values.length; i++) {
+                        if (!VChunk.isMissing(bits, i)) {
+                            s += values[i];
+                        }
+                    }
+                    return s;
+                }).sum();
+        assertEquals(25, sum, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        NumericVar.seq(10).chunkStream(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new VChunk(NumericVar.seq(10), 5, 7);
+    }
+}
@@ -33,6 +33,8 @@ import rapaio.data.Var;
 import rapaio.sys.WS;
 import rapaio.util.Pair;
 
+import java.util.Arrays;
+
 public class FFTTest {
 
     // display an array of Complex numbers to standard output
@@ -136,4 +138,33 @@ public class FFTTest {
             }
         }
     }
+
+    @Test
+    public void primitiveTest() {
+        RandomSource.setSeed(1234);
+        Normal normal = new Normal(0, 100);
+
+        double[] re = new double[256];
+        double[] im = new double[256];
+        for (int i = 0; i < re.length; i++) {
+            re[i] = normal.sampleNext();
+            im[i] = normal.sampleNext();
+        }
+        Pair<Var, Var> y = FFT.fft(Pair.from(NumericVar.copy(re), NumericVar.copy(im)));
+
+        double[] yre = Arrays.copyOf(re, re.length);
+        double[] yim = Arrays.copyOf(im, im.length);
+        FFT.fft(yre, yim);
+        for (int i = 0; i < re.length; i++) {
+            Assert.assertEquals(y._1.getValue(i), yre[i], 1e-9);
+            Assert.assertEquals(y._2.getValue(i), yim[i], 1e-9);
+        }
+        FFT.ifft(yre, yim);
+        Assert.assertArrayEquals(re, yre, 1e-9);
+        Assert.assertArrayEquals(im, yim, 1e-9);
+
+        double[] a = new double[]{1, 2, 3};
+        double[] b = new double[]{0, 1, 0.5, 2};
+        Assert.assertArrayEquals(new double[]{0, 1, 2.5, 6, 5.5, 6}, FFT.convolve(a, b), 1e-12);
+    }
 }
@@ -26,7 +26,9 @@ package rapaio.ml.classifier.bayes;
 
 import org.junit.Test;
 import rapaio.core.RandomSource;
+import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.datasets.Datasets;
 import rapaio.ml.classifier.CFit;
 import rapaio.ml.classifier.Classifier;
@@ -91,6 +93,28 @@ public class NaiveBayesTest {
         assertEquals(3, cm.matrix()[2][1], 10e-12);
     }
 
+    @Test
+    public void testBasicCvpEmpiricalGrid() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(1L);
+        Frame df = Datasets.loadIrisDataset();
+        NaiveBayes exact = new NaiveBayes().withNumEstimator(new KernelPdf());
+        exact.train(df, "class");
+        CFit exactFit = exact.fit(df);
+
+        NaiveBayes nb = new NaiveBayes().withNumEstimator(new KernelPdf().withGridSize(2048));
+        nb.train(df, "class");
+        CFit pred = nb.fit(df);
+
+        Confusion cm = new Confusion(df.getVar("class"), pred.firstClasses());
+        assertTrue(cm.accuracy() >= 0.9);
+        for (int i = 0; i < df.getRowCount(); i++) {
+            for (int j = 1; j < 4; j++) {
+                assertEquals(exactFit.firstDensity().getValue(i, j), pred.firstDensity().getValue(i, j), 1e-2);
+            }
+        }
+    }
+
     @Test
     public void testBasicDvp() throws IOException, URISyntaxException {
 
@@ -139,4 +163,60 @@ public class NaiveBayesTest {
         nb.printSummary();
     }
 
+
+    @Test
+    public void testFitInLogSpace() throws IOException {
+
+        Frame df = Datasets.loadSpamBase();
+        NaiveBayes nb = new NaiveBayes();
+        nb.train(df, "spam");
+
+        // products of many small probabilities underflow, scores are normalized in log space
+        CFit seq = nb.withRunPoolSize(0).fit(df);
+        CFit par = nb.withRunPoolSize(4).fit(df);
+        for (int i = 0; i < df.getRowCount(); i++) {
+            double total = 0;
+            for (int j = 1; j < seq.firstDensity().getVarCount(); j++) {
+                total += seq.firstDensity().getValue(i, j);
+                assertEquals(seq.firstDensity().getValue(i, j), par.firstDensity().getValue(i, j), 1e-12);
+            }
+            assertEquals(1.0, total, 1e-12);
+            assertEquals(seq.firstClasses().getIndex(i), par.firstClasses().getIndex(i));
+        }
+        assertTrue(new Confusion(df.getVar("spam"), seq.firstClasses()).accuracy() > 0.75);
+    }
+
+    @Test
+    public void testPartialTrainAndMerge() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(1L);
+        Frame df = Datasets.loadIrisDataset().mapRows(Mapping.copy(SamplingTools.sampleWOR(150, 150))).solidCopy();
+
+        NaiveBayes full = new NaiveBayes();
+        full.train(df, "class");
+        CFit fullFit = full.fit(df);
+
+        // batches streamed one after another
+        NaiveBayes partial = new NaiveBayes();
+        for (int start = 0; start < df.getRowCount(); start += 40) {
+            int end = Math.min(df.getRowCount(), start + 40);
+            partial.partialTrain(df.mapRows(Mapping.range(start, end)), "class");
+        }
+        CFit partialFit = partial.fit(df);
+
+        // models trained on disjoint partitions, than merged
+        NaiveBayes merged = new NaiveBayes();
+        merged.train(df.mapRows(Mapping.range(0, 70)), "class");
+        NaiveBayes other = new NaiveBayes();
+        other.train(df.mapRows(Mapping.range(70, 150)), "class");
+        merged.merge(other);
+        CFit mergedFit = merged.fit(df);
+
+        for (int i = 0; i < df.getRowCount(); i++) {
+            for (int j = 1; j < 4; j++) {
+                assertEquals(fullFit.firstDensity().getValue(i, j), partialFit.firstDensity().getValue(i, j), 1e-9);
+                assertEquals(fullFit.firstDensity().getValue(i, j), mergedFit.firstDensity().getValue(i, j), 1e-9);
+            }
+        }
+    }
 }
@@ -24,7 +24,9 @@
 
 package rapaio.ml.classifier.boost;
 
+import org.junit.Assert;
 import org.junit.Test;
+import rapaio.core.RandomSource;
 import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
 import rapaio.data.NumericVar;
@@ -70,4 +72,22 @@ public class AdaBoostSAMMETest {
 
         new Confusion(tr.getVar(target), ab.fit(tr).firstClasses()).printSummary();
     }
+
+    @Test
+    public void testWeightTrimming() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(123);
+        Frame df = Datasets.loadIrisDataset();
+
+        for (int poolSize : new int[]{0, 4}) {
+            AdaBoostSAMME ab = new AdaBoostSAMME()
+                    .withClassifier(CTree.newCART().withMaxDepth(1))
+                    .withWeightTrimming(0.1)
+                    .withRunPoolSize(poolSize)
+                    .withRuns(30);
+            ab.train(df, "class");
+            double acc = new Confusion(df.getVar("class"), ab.fit(df).firstClasses()).accuracy();
+            Assert.assertTrue(acc > 0.9);
+        }
+    }
 }
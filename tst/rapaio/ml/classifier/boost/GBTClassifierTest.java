@@ -0,0 +1,156 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.classifier.boost;
+
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.SamplingTools;
+import rapaio.data.Frame;
+import rapaio.data.sample.RowSampler;
+import rapaio.datasets.Datasets;
+import rapaio.experiment.ml.regression.boost.gbt.GOSS;
+import rapaio.ml.classifier.CFit;
+import rapaio.ml.eval.Confusion;
+import rapaio.ml.regression.tree.RTree;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.*;
+
+public class GBTClassifierTest {
+
+    @Test
+    public void testEarlyStoppingAndWarmStart() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(1234);
+        Frame df = Datasets.loadIrisDataset();
+        int[] rows = SamplingTools.sampleWOR(df.getRowCount(), 100);
+        Frame train = df.mapRows(rows);
+        Frame test = df.removeRows(rows);
+
+        GBTClassifier gbt = new GBTClassifier()
+                .withTree(RTree.buildCART().withMaxDepth(3))
+                .withShrinkage(0.5)
+                .withValidation(test)
+                .withEarlyStopping(3)
+                .withRuns(100);
+        gbt.train(train, "class");
+
+        int stages = gbt.getStages();
+        assertTrue(stages < 100);
+        assertEquals(stages, gbt.getTrainScores().getRowCount());
+        assertEquals(stages, gbt.getValidationScores().getRowCount());
+        assertEquals(stages - 3, gbt.getBestStage());
+        for (int i = 1; i < stages; i++) {
+            assertTrue(gbt.getTrainScores().getValue(i) <= gbt.getTrainScores().getValue(i - 1) + 1e-10);
+        }
+
+        // fit is truncated at best stage
+        CFit best = gbt.fit(test);
+        CFit truncated = gbt.withFitStages(gbt.getBestStage()).fit(test);
+        for (int i = 0; i < test.getRowCount(); i++) {
+            assertEquals(best.firstDensity().getValue(i, 1), truncated.firstDensity().getValue(i, 1), 1e-12);
+        }
+
+        // warm start adds new stages
+        gbt.withFitStages(-1).withValidation(null).withEarlyStopping(0).withWarmStart(true).withRuns(5);
+        gbt.train(train, "class");
+        assertEquals(stages + 5, gbt.getStages());
+        assertEquals(stages + 5, gbt.getTrainScores().getRowCount());
+        assertEquals(stages + 5, gbt.getBestStage());
+    }
+
+    @Test
+    public void testColumnAndGradientSampling() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(1234);
+        Frame df = Datasets.loadIrisDataset();
+
+        GBTClassifier gbt = new GBTClassifier()
+                .withTree(RTree.buildCART().withMaxDepth(3))
+                .withShrinkage(0.5)
+                .withColSample(0.5)
+                .withGOSS(GOSS.from(0.2, 0.3))
+                .withRuns(20);
+        gbt.train(df, "class");
+
+        assertEquals(20, gbt.getStages());
+        assertTrue(new Confusion(df.getVar("class"), gbt.fit(df).firstClasses()).accuracy() > 0.9);
+    }
+
+    @Test
+    public void testMissingValidationTarget() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(1234);
+        Frame df = Datasets.loadIrisDataset();
+        int[] rows = SamplingTools.sampleWOR(df.getRowCount(), 100);
+        Frame train = df.mapRows(rows);
+        Frame test = df.removeRows(rows).solidCopy();
+        test.setMissing(0, "class");
+        test.setMissing(1, "class");
+
+        GBTClassifier gbt = new GBTClassifier()
+                .withTree(RTree.buildCART().withMaxDepth(3))
+                .withValidation(test)
+                .withRuns(5);
+        gbt.train(train, "class");
+
+        assertEquals(5, gbt.getValidationScores().getRowCount());
+        for (int i = 0; i < 5; i++) {
+            assertFalse(Double.isNaN(gbt.getValidationScores().getValue(i)));
+        }
+    }
+
+    @Test
+    public void testReproducibleParallelSampling() throws IOException, URISyntaxException {
+
+        Frame df = Datasets.loadIrisDataset();
+        CFit[] fits = new CFit[4];
+        for (int i = 0; i < fits.length; i++) {
+            RandomSource.setSeed(1234);
+            GBTClassifier gbt = new GBTClassifier()
+                    .withTree(RTree.buildCART().withMaxDepth(3))
+                    .withShrinkage(0.5)
+                    .withColSample(0.5)
+                    .withRuns(10);
+            if (i < 2) {
+                gbt.withSampler(RowSampler.subsampler(0.6));
+            } else {
+                gbt.withGOSS(GOSS.from(0.2, 0.3));
+            }
+            gbt.withRunPoolSize(4);
+            gbt.train(df, "class");
+            fits[i] = gbt.fit(df);
+        }
+        for (int i = 0; i < fits.length; i += 2) {
+            for (int j = 0; j < df.getRowCount(); j++) {
+                for (int k = 1; k < 4; k++) {
+                    assertEquals(fits[i].firstDensity().getValue(j, k), fits[i + 1].firstDensity().getValue(j, k), 0);
+                }
+            }
+        }
+    }
+}
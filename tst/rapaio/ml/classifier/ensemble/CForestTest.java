@@ -0,0 +1,76 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.classifier.ensemble;
+
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.datasets.Datasets;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CForestTest {
+
+    @Test
+    public void testOobAndVariableImportance() throws IOException, URISyntaxException {
+
+        RandomSource.setSeed(1234);
+        Frame df = Datasets.loadIrisDataset();
+
+        for (int poolSize : new int[]{0, 4}) {
+            int[] hooks = new int[1];
+            CForest rf = CForest.newRF()
+                    .withRuns(50)
+                    .withOobComp(true)
+                    .withFreqVIComp(true)
+                    .withGainVIComp(true)
+                    .withPermVIComp(true)
+                    .withRunPoolSize(poolSize)
+                    .withRunningHook((c, run) -> hooks[0]++);
+            rf.train(df, "class");
+
+            assertEquals(50, hooks[0]);
+            assertEquals(50, rf.getClassifiers().size());
+            assertTrue(rf.getOobError() >= 0 && rf.getOobError() < 0.15);
+            assertEquals(rf.getOobError(), rf.getOobInfo().error(), 1e-12);
+
+            Frame freq = rf.getFreqVIInfo();
+            Frame gain = rf.getGainVIInfo();
+            Frame perm = rf.getPermVIInfo();
+            assertEquals(4, freq.getRowCount());
+            assertEquals(4, gain.getRowCount());
+            assertEquals(4, perm.getRowCount());
+            for (int i = 0; i < 4; i++) {
+                assertTrue(freq.getValue(i, "score mean") >= 0);
+                assertTrue(gain.getValue(i, "score sd") >= 0);
+                assertTrue(perm.getValue(i, "score mean") >= 0);
+            }
+        }
+    }
+}
@@ -197,4 +197,18 @@ public class OneRuleTest {
 
     }
 
+    @Test
+    public void testNumericWithMissingValues() {
+        Var x = NumericVar.wrap(Double.NaN, 5, 1, Double.NaN, 6, 2, Double.NaN, 7, 3, Double.NaN, 8, 4).withName("x");
+        Var y = NominalVar.copy("a", "c", "b", "a", "c", "b", "a", "c", "b", "a", "c", "b").withName("y");
+        Frame df = SolidFrame.byVars(x, y);
+
+        // missing values are sorted first and have their own rule
+        OneRule oneRule = new OneRule().withMinCount(1);
+        oneRule.train(df, "y");
+        CFit fit = oneRule.fit(df);
+        for (int i = 0; i < df.getRowCount(); i++) {
+            assertEquals(y.getLabel(i), fit.firstClasses().getLabel(i));
+        }
+    }
 }
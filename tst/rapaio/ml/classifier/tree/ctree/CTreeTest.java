@@ -26,6 +26,10 @@ package rapaio.ml.classifier.tree.ctree;
 
 import org.junit.Test;
 import rapaio.data.Frame;
+import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
 import rapaio.data.VarType;
 import rapaio.data.filter.frame.FFRetainTypes;
 import rapaio.datasets.Datasets;
@@ -119,5 +123,18 @@ public class CTreeTest {
         assertEquals(150, match.getRowCount());
     }
 
+    @Test
+    public void testNumericSplitWithMissingValues() {
+        Var x = NumericVar.wrap(Double.NaN, 5, 1, Double.NaN, 6, 2, Double.NaN, 7, 3, Double.NaN, 8, 4).withName("x");
+        Var y = NominalVar.copy("a", "c", "b", "a", "c", "b", "a", "c", "b", "a", "c", "b").withName("y");
+        Frame df = SolidFrame.byVars(x, y);
+
+        // split positions are counted after the missing values, which are sorted first
+        CTree tree = CTree.newDecisionStump().withMinCount(1);
+        tree.train(df, "y");
+        assertEquals("x <= 4.5", tree.getRoot().getBestCandidate().getGroupNames().get(0));
+        assertEquals("x > 4.5", tree.getRoot().getBestCandidate().getGroupNames().get(1));
+    }
+
 
 }
@@ -25,12 +25,19 @@
 package rapaio.ml.clustering;
 
 import org.junit.Test;
+import rapaio.core.RandomSource;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
+import rapaio.data.Var;
 import rapaio.datasets.Datasets;
+import rapaio.ml.common.distance.KMeansInitMethod;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 9/25/15.
  */
@@ -49,4 +56,86 @@ public class KMeansTest {
             km.printSummary();
         }
     }
+
+    @Test
+    public void fullBatchConvergenceTest() throws IOException, URISyntaxException {
+        RandomSource.setSeed(1234);
+        Frame iris = Datasets.loadIrisDataset();
+        String[] inputs = new String[]{"sepal-length", "sepal-width", "petal-length", "petal-width"};
+
+        KMeans km = new KMeans().withK(3).withRuns(100);
+        km.cluster(iris, inputs);
+
+        Var errors = km.getRunningErrors();
+        for (int i = 1; i < errors.getRowCount(); i++) {
+            assertTrue(errors.getValue(i) <= errors.getValue(i - 1) + 1e-10);
+        }
+
+        // pruned assignment must be the same as the exhaustive one
+        Frame centroids = km.getCentroids();
+        Var assignment = km.getClusterAssignment();
+        double total = 0;
+        for (int i = 0; i < iris.getRowCount(); i++) {
+            int best = -1;
+            double bestDist = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < centroids.getRowCount(); j++) {
+                double d = 0;
+                for (String input : inputs) {
+                    d += Math.pow(iris.getValue(i, input) - centroids.getValue(j, input), 2);
+                }
+                if (d < bestDist) {
+                    bestDist = d;
+                    best = j;
+                }
+            }
+            assertEquals(best + 1, assignment.getIndex(i));
+            total += bestDist;
+        }
+        assertEquals(total, km.getError(), 1e-8);
+    }
+
+    @Test
+    public void miniBatchTest() throws IOException, URISyntaxException {
+        RandomSource.setSeed(1234);
+        Frame iris = Datasets.loadIrisDataset();
+
+        KMeans full = new KMeans().withK(3).withRuns(100);
+        full.cluster(iris, "petal-length", "petal-width");
+
+        RandomSource.setSeed(1234);
+        KMeans mini = new KMeans().withK(3).withRuns(200).withMiniBatch(30);
+        mini.cluster(iris, "petal-length", "petal-width");
+
+        assertEquals(iris.getRowCount(), mini.getClusterAssignment().getRowCount());
+        assertTrue(mini.getError() < 2 * full.getError());
+    }
+
+    @Test
+    public void partialClusterTest() throws IOException, URISyntaxException {
+        RandomSource.setSeed(1234);
+        Frame iris = Datasets.loadIrisDataset();
+
+        KMeans km = new KMeans().withK(3);
+        for (int i = 0; i < 5; i++) {
+            km.partialCluster(iris.mapRows(Mapping.range(i * 30, (i + 1) * 30)), "petal-length", "petal-width");
+            assertEquals(30, km.getClusterAssignment().getRowCount());
+        }
+        assertEquals(5, km.getRunningErrors().getRowCount());
+    }
+
+    @Test
+    public void kMeansParallelInitTest() throws IOException, URISyntaxException {
+        Frame iris = Datasets.loadIrisDataset();
+        String[] inputs = new String[]{"sepal-length", "sepal-width", "petal-length", "petal-width"};
+
+        Frame c1 = KMeansInitMethod.kMeansParallel(42).get().init(iris, inputs, 10);
+        Frame c2 = KMeansInitMethod.kMeansParallel(42).get().init(iris, inputs, 10);
+        assertEquals(10, c1.getRowCount());
+        assertTrue(c1.deepEquals(c2));
+
+        KMeans km = new KMeans().withK(3).withRuns(100).withInit(KMeansInitMethod.kMeansParallel(42));
+        km.cluster(iris, inputs);
+        assertEquals(3, km.getCentroids().getRowCount());
+        assertTrue(km.getError() < 100);
+    }
 }
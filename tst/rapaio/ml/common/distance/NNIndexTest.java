@@ -0,0 +1,111 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.common.distance;
+
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
+import rapaio.data.Frame;
+import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
+import rapaio.datasets.Datasets;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class NNIndexTest {
+
+    private Frame randomFrame(int rows, int cols) {
+        Normal normal = new Normal();
+        NumericVar[] vars = new NumericVar[cols];
+        for (int i = 0; i < cols; i++) {
+            vars[i] = NumericVar.from(rows, normal::sampleNext).withName("x" + i);
+        }
+        return SolidFrame.byVars(vars);
+    }
+
+    private void assertSameNeighbors(Neighbors[] expected, Neighbors[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i].rows(), actual[i].rows());
+            assertArrayEquals(expected[i].distances(), actual[i].distances(), 1e-12);
+        }
+    }
+
+    @Test
+    public void knnTest() {
+        RandomSource.setSeed(123);
+        for (int dim : new int[]{1, 2, 5, 20}) {
+            Frame df = randomFrame(2_000, dim);
+            Frame queries = randomFrame(100, dim);
+
+            Neighbors[] expected = NNIndex.bruteForce(df).knn(queries, 7);
+            assertSameNeighbors(expected, NNIndex.kdTree(df).knn(queries, 7));
+            assertSameNeighbors(expected, NNIndex.ballTree(df).knn(queries, 7));
+
+            for (Neighbors neighbors : expected) {
+                assertEquals(7, neighbors.size());
+                for (int i = 1; i < neighbors.size(); i++) {
+                    assertEquals(true, neighbors.distance(i - 1) <= neighbors.distance(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void radiusTest() {
+        RandomSource.setSeed(123);
+        for (int dim : new int[]{1, 3, 10}) {
+            Frame df = randomFrame(1_000, dim);
+            Frame queries = randomFrame(50, dim);
+            double radius = Math.sqrt(dim) / 2;
+
+            Neighbors[] expected = NNIndex.bruteForce(df).radius(queries, radius);
+            assertSameNeighbors(expected, NNIndex.kdTree(df).radius(queries, radius));
+            assertSameNeighbors(expected, NNIndex.ballTree(df).radius(queries, radius));
+        }
+    }
+
+    @Test
+    public void duplicatesTest() throws IOException, URISyntaxException {
+        Frame iris = Datasets.loadIrisDataset();
+
+        // iris has duplicated points, ties are broken by row number
+        Neighbors[] expected = NNIndex.bruteForce(iris, "0~3").knn(iris, 10);
+        assertSameNeighbors(expected, NNIndex.kdTree(iris, "0~3").knn(iris, 10));
+        assertSameNeighbors(expected, NNIndex.ballTree(iris, "0~3").knn(iris, 10));
+
+        NNIndex index = NNIndex.auto(iris, "0~3");
+        assertEquals(4, index.inputs().length);
+        assertEquals(150, index.knn(new double[]{5, 3, 1.5, 0.2}, 1000).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericTest() throws IOException, URISyntaxException {
+        NNIndex.kdTree(Datasets.loadIrisDataset(), "class");
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
+
+import java.util.stream.IntStream;
+
+/**
+ * Test for binned roc accumulator.
+ * <p>
+ * User: <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public class BinnedROCTest {
+
+    private NumericVar score;
+    private NominalVar actual;
+
+    @Before
+    public void setUp() {
+        RandomSource.setSeed(1234);
+        score = NumericVar.empty().withName("score");
+        actual = NominalVar.empty(0, "a", "b").withName("actual");
+        for (int i = 0; i < 10_000; i++) {
+            boolean positive = RandomSource.nextDouble() < 0.3;
+            double p = positive ? 0.6 * RandomSource.nextDouble() + 0.4 : 0.7 * RandomSource.nextDouble();
+            score.addValue(p);
+            actual.addLabel(positive ? "a" : "b");
+        }
+    }
+
+    @Test
+    public void testPrecision() {
+        double exact = ROC.auc(score, actual, "a");
+        double coarse = BinnedROC.newInstance(10).update(score, actual, "a").auc();
+        double fine = BinnedROC.newInstance(10_000).update(score, actual, "a").auc();
+
+        Assert.assertEquals(exact, coarse, 1e-2);
+        Assert.assertEquals(exact, fine, 1e-5);
+        Assert.assertTrue(Math.abs(exact - fine) < Math.abs(exact - coarse));
+
+        // all scores in distinct bins gives the exact value
+        BinnedROC roc = BinnedROC.newInstance(4, 0, 4);
+        ROC exactRoc = ROC.from(NumericVar.copy(0.5, 1.5, 2.5, 3.5),
+                NominalVar.copy("a", "b", "a", "b"), "a");
+        roc.update(0.5, true).update(1.5, false).update(2.5, true).update(3.5, false);
+        Assert.assertEquals(exactRoc.auc(), roc.auc(), 1e-15);
+
+        Frame data = roc.data();
+        Frame exactData = exactRoc.data();
+        Assert.assertEquals(exactData.getRowCount(), data.getRowCount());
+        for (int i = 0; i < data.getRowCount(); i++) {
+            Assert.assertEquals(exactData.getValue(i, ROC.fpr), data.getValue(i, ROC.fpr), 1e-15);
+            Assert.assertEquals(exactData.getValue(i, ROC.tpr), data.getValue(i, ROC.tpr), 1e-15);
+            Assert.assertEquals(exactData.getValue(i, ROC.acc), data.getValue(i, ROC.acc), 1e-15);
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        BinnedROC all = BinnedROC.newInstance(1_000).update(score, actual, "a");
+
+        BinnedROC[] parts = new BinnedROC[4];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = BinnedROC.newInstance(1_000);
+        }
+        IntStream.range(0, score.getRowCount()).parallel()
+                .forEach(row -> parts[row % 4].update(score.getValue(row), actual.getLabel(row).equals("a")));
+        BinnedROC merged = BinnedROC.newInstance(1_000);
+        for (BinnedROC part : parts) {
+            merged.update(part);
+        }
+
+        Assert.assertEquals(all.positiveCount(), merged.positiveCount(), 1e-10);
+        Assert.assertEquals(all.negativeCount(), merged.negativeCount(), 1e-10);
+        Assert.assertEquals(all.auc(), merged.auc(), 1e-12);
+    }
+
+    @Test
+    public void testWeightsAndRange() {
+        BinnedROC weighted = BinnedROC.newInstance(10)
+                .update(0.9, true, 2).update(0.1, false, 3).update(0.5, true, 1).update(0.5, false, 1);
+        BinnedROC repeated = BinnedROC.newInstance(10)
+                .update(0.9, true).update(0.9, true)
+                .update(0.1, false).update(0.1, false).update(0.1, false)
+                .update(0.5, true).update(0.5, false)
+                .update(Double.NaN, true);
+        Assert.assertEquals(repeated.auc(), weighted.auc(), 1e-15);
+        Assert.assertEquals(3, weighted.positiveCount(), 1e-15);
+
+        // out of range scores are counted in the extreme bins
+        BinnedROC clamped = BinnedROC.newInstance(10).update(-1, false).update(2, true);
+        Assert.assertEquals(1, clamped.auc(), 1e-15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentBins() {
+        BinnedROC.newInstance(10).update(BinnedROC.newInstance(20));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package rapaio.ml.eval;
+
+import org.junit.Test;
+import rapaio.data.Frame;
+import rapaio.datasets.Datasets;
+import rapaio.ml.classifier.Classifier;
+import rapaio.ml.classifier.bayes.NaiveBayes;
+import rapaio.ml.classifier.tree.CTree;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CValidationTest {
+
+    @Test
+    public void testStratifiedSplits() throws IOException, URISyntaxException {
+        Frame df = Datasets.loadIrisDataset();
+        List<CValidation.Split> splits = CValidation.newInstance()
+                .withFolds(5)
+                .withRepeats(2)
+                .withSeed(42)
+                .splits(df, "class");
+
+        assertEquals(10, splits.size());
+        for (int r = 0; r < 2; r++) {
+            int[] tested = new int[df.getRowCount()];
+            for (CValidation.Split split : splits) {
+                if (split.repeat != r) {
+                    continue;
+                }
+                assertEquals(df.getRowCount(), split.train.size() + split.test.size());
+                int[] counts = new int[4];
+                for (int row : split.test.toArray()) {
+                    tested[row]++;
+                    counts[df.getVar("class").getIndex(row)]++;
+                }
+                // each fold contains 10 instances of each label
+                assertEquals(10, counts[1]);
+                assertEquals(10, counts[2]);
+                assertEquals(10, counts[3]);
+            }
+            for (int count : tested) {
+                assertEquals(1, count);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluate() throws IOException, URISyntaxException {
+        Frame df = Datasets.loadIrisDataset();
+        List<Classifier> models = Arrays.asList(new NaiveBayes(), CTree.newCART());
+
+        CValidation.Result seq = CValidation.newInstance().withFolds(5).withRepeats(2).withSeed(7).withPoolSize(0)
+                .evaluate(df, "class", models);
+        CValidation.Result par = CValidation.newInstance().withFolds(5).withRepeats(2).withSeed(7).withPoolSize(4)
+                .evaluate(df, "class", models);
+
+        assertEquals(20, seq.runs().size());
+        assertEquals(10, seq.runs(1).size());
+        for (int i = 0; i < seq.runs().size(); i++) {
+            CValidation.Run a = seq.runs().get(i);
+            CValidation.Run b = par.runs().get(i);
+            assertEquals(a.model, b.model);
+            if (a.model != 0) {
+                // trees break ties at random
+                continue;
+            }
+            assertEquals(a.confusion.accuracy(), b.confusion.accuracy(), 1e-12);
+            assertEquals(a.rmse, b.rmse, 1e-12);
+        }
+        assertTrue(seq.meanAccuracy(0) > 0.9);
+        assertTrue(seq.summary().getValue(0, "auc mean") > 0.95);
+
+        seq.printSummary();
+
+        CValidation.Result boot = CValidation.newInstance().withBootstrap(5, 1.0).withSeed(7)
+                .evaluate(df, "class", new NaiveBayes());
+        assertEquals(5, boot.runs().size());
+        assertTrue(boot.meanAccuracy(0) > 0.9);
+    }
+}
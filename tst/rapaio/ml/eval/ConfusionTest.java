@@ -24,10 +24,16 @@
 
 package rapaio.ml.eval;
 
+import org.junit.Assert;
 import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.Mapping;
 import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
 import rapaio.data.Var;
 
+import java.util.stream.IntStream;
+
 /**
  * @author tutuianu
  */
@@ -79,4 +85,77 @@ public class ConfusionTest {
         cm = new Confusion(actual, predict, true);
         cm.printSummary();
     }
+
+    @Test
+    public void testIncremental() {
+        RandomSource.setSeed(42);
+        String[] labels = new String[]{"a", "b", "c"};
+        Var actual = NominalVar.from(1_000, row -> RandomSource.nextDouble() < 0.02 ? "?" : labels[RandomSource.nextInt(3)], labels);
+        Var predict = NominalVar.from(1_000, row -> RandomSource.nextDouble() < 0.02 ? "?" : labels[RandomSource.nextInt(3)], labels);
+        Confusion full = new Confusion(actual, predict);
+
+        // batches
+        Confusion batches = Confusion.empty(labels);
+        for (int i = 0; i < 1_000; i += 300) {
+            Mapping map = Mapping.range(i, Math.min(1_000, i + 300));
+            batches.update(actual.mapRows(map), predict.mapRows(map));
+        }
+        Assert.assertEquals(full.getSummary(), batches.getSummary());
+
+        // single predictions updated in parallel on workers which are merged
+        Confusion[] workers = new Confusion[4];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = Confusion.empty(labels);
+        }
+        Confusion shared = Confusion.empty(labels);
+        IntStream.range(0, 1_000).parallel().forEach(row -> {
+            workers[row % 4].update(actual.getLabel(row), predict.getLabel(row));
+            shared.update(actual.getLabel(row), predict.getLabel(row));
+        });
+        Confusion merged = Confusion.empty(labels);
+        for (Confusion worker : workers) {
+            merged.update(worker);
+        }
+        Assert.assertEquals(full.getSummary(), merged.getSummary());
+        Assert.assertEquals(full.getSummary(), shared.getSummary());
+        Assert.assertEquals(full.accuracy(), merged.accuracy(), 1e-20);
+
+        // metrics are updated after new predictions
+        double acc = merged.accuracy();
+        merged.update("a", "a", 100);
+        Assert.assertTrue(merged.accuracy() > acc);
+    }
+
+    @Test
+    public void testWeightedMetrics() {
+        Confusion cm = Confusion.empty("yes", "no")
+                .update("yes", "yes", 20)
+                .update("yes", "no", 5)
+                .update("no", "yes", 10)
+                .update("no", "no", 15);
+
+        Assert.assertEquals(0.7, cm.accuracy(), 1e-15);
+        Assert.assertEquals(0.4, cm.kappa(), 1e-15);
+        Assert.assertEquals(20. / 30, cm.precision("yes"), 1e-15);
+        Assert.assertEquals(20. / 25, cm.recall("yes"), 1e-15);
+        Assert.assertEquals(2 * 20. / (2 * 20 + 10 + 5), cm.f1("yes"), 1e-15);
+        Assert.assertEquals(15. / 20, cm.precision("no"), 1e-15);
+        Assert.assertEquals(15. / 25, cm.recall("no"), 1e-15);
+        Assert.assertEquals(50, cm.completeCases());
+
+        Var actual = NominalVar.copy("yes", "yes", "no", "no");
+        Var predict = NominalVar.copy("yes", "no", "yes", "no");
+        Confusion weighted = Confusion.empty("yes", "no")
+                .update(actual, predict, NumericVar.copy(20, 5, 10, 15));
+        Assert.assertEquals(cm.getSummary(), weighted.getSummary());
+        Assert.assertArrayEquals(new int[]{20, 5}, weighted.matrix()[0]);
+
+        weighted.update(actual, predict, NumericVar.copy(0.5, 0, 0, 0));
+        Assert.assertEquals(20.5, weighted.weightedMatrix()[0][0], 1e-15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpdateDifferentLevels() {
+        Confusion.empty("a", "b").update(NominalVar.copy("a", "c"), NominalVar.copy("a", "c"));
+    }
 }
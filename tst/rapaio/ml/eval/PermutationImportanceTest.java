@@ -0,0 +1,117 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import org.junit.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.NominalVar;
+import rapaio.data.NumericVar;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.datasets.Datasets;
+import rapaio.ml.classifier.Classifier;
+import rapaio.ml.classifier.tree.CTree;
+import rapaio.ml.regression.Regression;
+import rapaio.ml.regression.tree.RTree;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.*;
+
+public class PermutationImportanceTest {
+
+    @Test
+    public void testClassifier() throws IOException, URISyntaxException {
+        RandomSource.setSeed(123);
+        Frame df = Datasets.loadIrisDataset();
+        Classifier c = CTree.newCART();
+        c.train(df, "class");
+
+        PermutationImportance pi = PermutationImportance.newInstance()
+                .withRepeats(5)
+                .withChunkSize(32)
+                .withSeed(42);
+        Frame report = pi.compute(c, df);
+
+        assertEquals(4, report.getRowCount());
+        assertTrue(report.getLabel(0, "name").startsWith("petal"));
+        assertTrue(report.getValue(0, "score mean") > 0.1);
+        for (int i = 0; i < report.getRowCount(); i++) {
+            assertTrue(report.getValue(i, "ci lower") <= report.getValue(i, "score mean"));
+            assertTrue(report.getValue(i, "ci upper") >= report.getValue(i, "score mean"));
+        }
+
+        // same seed gives the same scores, independent of chunk and pool size
+        double[][] a = pi.computeScores(c, df);
+        double[][] b = pi.withChunkSize(1000).withPoolSize(0).computeScores(c, df);
+        for (int i = 0; i < a.length; i++) {
+            assertArrayEquals(a[i], b[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testClassifierLevelOrder() throws IOException, URISyntaxException {
+        RandomSource.setSeed(123);
+        Frame df = Datasets.loadIrisDataset();
+        Classifier c = CTree.newCART();
+        c.train(df, "class");
+
+        // same labels, with levels in a different order than the ones used by the model
+        Var reordered = NominalVar.from(df.getRowCount(), row -> df.getLabel(row, "class"),
+                "virginica", "setosa", "versicolor").withName("class");
+        Frame other = df.removeVars("class").bindVars(reordered);
+
+        PermutationImportance pi = PermutationImportance.newInstance().withRepeats(3).withSeed(42);
+        double[][] a = pi.computeScores(c, df);
+        double[][] b = pi.computeScores(c, other);
+        for (int i = 0; i < a.length; i++) {
+            assertArrayEquals(a[i], b[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testRegression() {
+        RandomSource.setSeed(123);
+        NumericVar x1 = NumericVar.from(500, row -> RandomSource.nextDouble()).withName("x1");
+        NumericVar x2 = NumericVar.from(500, row -> RandomSource.nextDouble()).withName("x2");
+        NumericVar y = NumericVar.from(500, row -> 3 * x1.getValue(row)).withName("y");
+        Frame df = SolidFrame.byVars(x1, x2, y);
+
+        Regression r = RTree.buildCART().withMaxDepth(6);
+        r.train(df, "y");
+
+        double[][] scores = PermutationImportance.newInstance()
+                .withRepeats(3)
+                .withChunkSize(100)
+                .computeScores(r, df);
+        assertEquals(2, scores.length);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(scores[0][i] > 0.5);
+            assertTrue(Math.abs(scores[1][i]) < 0.1);
+        }
+    }
+}
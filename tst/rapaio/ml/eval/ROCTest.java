@@ -28,6 +28,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import rapaio.core.CoreTools;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.NominalVar;
 import rapaio.data.Var;
 import rapaio.datasets.Datasets;
@@ -98,4 +99,24 @@ public class ROCTest {
                 ROC.from(score, clazz, pred).getSummary());
 
     }
+
+    @Test
+    public void testAucOnly() throws IOException, URISyntaxException {
+        Frame df = Datasets.loadIrisDataset();
+        Var clazz = df.getVar("class");
+        for (int i = 0; i < 4; i++) {
+            for (int j = 1; j < clazz.getLevels().length; j++) {
+                Var score = df.getVar(i);
+                Assert.assertEquals(ROC.from(score, clazz, j).auc(), ROC.auc(score, clazz, j), 1e-20);
+            }
+        }
+
+        // missing scores are ignored
+        Var score = df.getVar(0).solidCopy().withName("score");
+        score.setMissing(0);
+        score.setMissing(100);
+        Assert.assertEquals(ROC.from(score, clazz, 3).auc(), ROC.auc(score, clazz, 3), 1e-20);
+        Assert.assertEquals(ROC.from(score, clazz, 3).auc(),
+                ROC.auc(score.mapRows(Mapping.range(1, 150)), clazz.mapRows(Mapping.range(1, 150)), 3), 1e-20);
+    }
 }
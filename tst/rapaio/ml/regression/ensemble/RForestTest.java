@@ -25,16 +25,21 @@
 package rapaio.ml.regression.ensemble;
 
 import org.junit.Test;
+import rapaio.core.RandomSource;
 import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
+import rapaio.data.Var;
 import rapaio.datasets.Datasets;
 import rapaio.ml.common.VarSelector;
 import rapaio.ml.regression.Regression;
 import rapaio.ml.regression.tree.RTree;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+
 public class RForestTest {
 
     @Test
@@ -63,5 +68,33 @@ public class RForestTest {
         rf.fit(test, true).printSummary();
     }
 
+    @Test
+    public void testReproducibleRuns() throws IOException {
 
+        Frame df = Datasets.loadISLAdvertising().removeVars("ID");
+
+        RandomSource.setSeed(123);
+        List<Integer> hooks = new ArrayList<>();
+        RForest sequential = RForest.newRF().withRegression(RTree.buildCART().withMaxDepth(5));
+        sequential.withRuns(20);
+        sequential.withRunningHook((r, run) -> hooks.add(run));
+        sequential.train(df, "Sales");
+
+        // running hook is called after each tree when trees are built sequentially
+        assertEquals(20, hooks.size());
+        for (int i = 0; i < hooks.size(); i++) {
+            assertEquals(i + 1, hooks.get(i).intValue());
+        }
+
+        RandomSource.setSeed(123);
+        RForest parallel = RForest.newRF().withRegression(RTree.buildCART().withMaxDepth(5)).withRunPoolSize(4);
+        parallel.withRuns(20);
+        parallel.train(df, "Sales");
+
+        Var fit1 = sequential.fit(df, false).firstFit();
+        Var fit2 = parallel.fit(df, false).firstFit();
+        for (int i = 0; i < df.getRowCount(); i++) {
+            assertEquals(fit1.getValue(i), fit2.getValue(i), 0);
+        }
+    }
 }
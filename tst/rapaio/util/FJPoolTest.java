@@ -0,0 +1,68 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.junit.Assert.*;
+
+public class FJPoolTest {
+
+    @Test
+    public void testSharedPools() {
+        ForkJoinPool a = FJPool.pool(3);
+        ForkJoinPool b = FJPool.pool(3);
+        ForkJoinPool c = FJPool.pool("other", 3);
+
+        assertSame(a, b);
+        assertNotSame(a, c);
+        assertEquals(3, a.getParallelism());
+        assertEquals(Runtime.getRuntime().availableProcessors(), FJPool.pool(-1).getParallelism());
+    }
+
+    @Test
+    public void testNestedRunsInEnclosingPool() {
+        ForkJoinPool outer = FJPool.compute(2, () -> {
+            ForkJoinPool inner = FJPool.compute(4, ForkJoinTask::getPool).orElse(null);
+            assertSame(ForkJoinTask.getPool(), inner);
+            return inner;
+        }).orElse(null);
+        assertSame(FJPool.pool(2), outer);
+        assertFalse(FJPool.isNested());
+
+        // sequential run does not use any pool
+        assertFalse(FJPool.compute(0, FJPool::isNested).orElse(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExceptionIsPropagated() {
+        FJPool.run(2, () -> {
+            throw new IllegalArgumentException("failed");
+        });
+    }
+}